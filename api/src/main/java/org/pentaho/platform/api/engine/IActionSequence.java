@@ -52,6 +52,26 @@ public interface IActionSequence extends ISequenceDefinition {
    */
   public boolean hasLoop();
 
+  /**
+   * Returns how many iterations of the loop may run at the same time, as declared by the {@code parallel} attribute
+   * of the loop.
+   * 
+   * @return the number of concurrent iterations, 1 if the iterations run one after the other
+   */
+  default int getLoopParallelism() {
+    return 1;
+  }
+
+  /**
+   * Creates a copy of this ActionSequence that shares no action definition with it, so an iteration of a parallel
+   * loop can run its own components.
+   * 
+   * @return the copy, or null if the ActionSequence cannot be copied, in which case the loop runs sequentially
+   */
+  default IActionSequence copyActions() {
+    return null;
+  }
+
   /**
    * @return The conditional execution object that determines whether a set of actions will be executed.
    */
@@ -15,6 +15,7 @@ package org.pentaho.platform.api.repository2.unified;
 
 import java.io.Serializable;
 import java.util.EnumSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -551,6 +552,32 @@ public interface IUnifiedRepository {
    */
   boolean hasAccess( final String path, final EnumSet<RepositoryFilePermission> permissions );
 
+  /**
+   * Checks each of the given permissions separately for each of the given paths. Implementations should evaluate all
+   * paths at once; this default falls back to {@link #hasAccess(String, EnumSet)} for every path and permission.
+   *
+   * @param paths
+   *          paths to files or folders
+   * @param permissions
+   *          permissions to check
+   * @return for every path, in the given order, the subset of the given permissions the user has; the set is empty
+   *         when the path does not exist
+   */
+  default Map<String, EnumSet<RepositoryFilePermission>> hasAccess( final List<String> paths,
+      final EnumSet<RepositoryFilePermission> permissions ) {
+    Map<String, EnumSet<RepositoryFilePermission>> access = new LinkedHashMap<>();
+    for ( String path : paths ) {
+      EnumSet<RepositoryFilePermission> granted = EnumSet.noneOf( RepositoryFilePermission.class );
+      for ( RepositoryFilePermission permission : permissions ) {
+        if ( hasAccess( path, EnumSet.of( permission ) ) ) {
+          granted.add( permission );
+        }
+      }
+      access.put( path, granted );
+    }
+    return access;
+  }
+
   /**
    * Returns the list of access control entries (ACEs) that will be used to make an access control decision. This
    * method is equivalent to {@code getEffectiveAces(fileId, false)}.
@@ -0,0 +1,130 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.benchmarks.cache;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.internal.SessionImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.pentaho.platform.plugin.services.cache.HvCacheRegionFactory;
+import org.pentaho.platform.plugin.services.cache.HvTimestampsRegion;
+import org.pentaho.platform.plugin.services.cache.LastModifiedCache;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the per-operation cost of reaching a CacheManager region through a freshly opened Hibernate session (the
+ * pre-existing access path) against the direct EhCache access path now used by
+ * {@link org.pentaho.platform.plugin.services.cache.CacheManager}.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+public class RegionCacheAccessBenchmark {
+
+  @Param( { "1000", "100000" } )
+  public int entries;
+
+  private SessionFactory sessionFactory;
+  private LastModifiedCache cache;
+
+  @Setup( Level.Trial )
+  public void setUp() {
+    StandardServiceRegistry registry = new StandardServiceRegistryBuilder()
+      .applySetting( AvailableSettings.DRIVER, "org.hsqldb.jdbcDriver" )
+      .applySetting( AvailableSettings.URL, "jdbc:hsqldb:mem:regionCacheBenchmark" )
+      .applySetting( AvailableSettings.USER, "sa" )
+      .applySetting( AvailableSettings.DIALECT, "org.hibernate.dialect.HSQLDialect" )
+      .applySetting( AvailableSettings.USE_SECOND_LEVEL_CACHE, "true" )
+      .applySetting( AvailableSettings.CACHE_REGION_FACTORY, HvCacheRegionFactory.class.getName() )
+      .build();
+    sessionFactory = new MetadataSources( registry ).buildMetadata().buildSessionFactory();
+    SessionFactoryImplementor implementor = (SessionFactoryImplementor) sessionFactory;
+    HvTimestampsRegion region = (HvTimestampsRegion) implementor.getCache().getRegionFactory()
+      .buildTimestampsRegion( "benchmarkRegion", implementor );
+    cache = new LastModifiedCache( region, sessionFactory );
+    for ( int i = 0; i < entries; i++ ) {
+      cache.putIntoCacheDirect( "key" + i, "value" + i );
+    }
+  }
+
+  @TearDown( Level.Trial )
+  public void tearDown() {
+    cache.getCache().removeAll();
+    sessionFactory.close();
+  }
+
+  private String randomKey() {
+    return "key" + ThreadLocalRandom.current().nextInt( entries );
+  }
+
+  @Benchmark
+  public Object getWithHibernateSession() {
+    try ( SessionImpl session = (SessionImpl) sessionFactory.openSession() ) {
+      return cache.getDirectAccessRegion().getFromCache( randomKey(), session );
+    }
+  }
+
+  @Benchmark
+  public Object getDirect() {
+    return cache.getFromCacheDirect( randomKey() );
+  }
+
+  @Benchmark
+  public void putWithHibernateSession() {
+    String key = randomKey();
+    try ( SessionImpl session = (SessionImpl) sessionFactory.openSession() ) {
+      cache.getDirectAccessRegion().putIntoCache( key, key, session );
+    }
+  }
+
+  @Benchmark
+  public void putDirect() {
+    String key = randomKey();
+    cache.putIntoCacheDirect( key, key );
+  }
+
+  @Benchmark
+  public void allValuesAsMap( Blackhole blackhole ) {
+    blackhole.consume( cache.getCache().getAll( cache.getCache().getKeys() ) );
+  }
+
+  @Benchmark
+  public void allValuesStreamed( Blackhole blackhole ) {
+    for ( Object key : cache.getCache().getKeys() ) {
+      blackhole.consume( cache.getFromCacheDirect( key ) );
+    }
+  }
+}
@@ -0,0 +1,132 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.benchmarks.pluginmgr;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pentaho.platform.api.engine.IContentGeneratorInfo;
+import org.pentaho.platform.api.engine.IPlatformPlugin;
+import org.pentaho.platform.engine.core.solution.ContentGeneratorInfo;
+import org.pentaho.platform.plugin.services.pluginmgr.PlatformPlugin;
+import org.pentaho.platform.plugin.services.pluginmgr.PluginRoutingIndex;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares routing a request path to the plugin serving it by scanning the urls of every plugin (the pre-existing
+ * lookup of {@link org.pentaho.platform.plugin.services.pluginmgr.PentahoSystemPluginManager}) against walking the
+ * {@link PluginRoutingIndex}.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+public class PluginRoutingBenchmark {
+
+  private static final int RESOURCES_PER_PLUGIN = 4;
+
+  @Param( { "10", "40" } )
+  public int plugins;
+
+  private List<IPlatformPlugin> pluginList;
+  private PluginRoutingIndex index;
+  private String[] paths;
+
+  @Setup( Level.Trial )
+  public void setUp() {
+    pluginList = new ArrayList<>();
+    for ( int i = 0; i < plugins; i++ ) {
+      PlatformPlugin plugin = new PlatformPlugin();
+      plugin.setId( "plugin" + i );
+      for ( int j = 0; j < RESOURCES_PER_PLUGIN; j++ ) {
+        plugin.addStaticResourcePath( "/plugin" + i + "/resources" + j, "plugin" + i + "/web" + j );
+      }
+      ContentGeneratorInfo contentGenerator = new ContentGeneratorInfo();
+      contentGenerator.setId( "plugin" + i + "-viewer" );
+      plugin.addContentGenerator( contentGenerator );
+      pluginList.add( plugin );
+    }
+    index = new PluginRoutingIndex( pluginList );
+
+    paths = new String[ plugins * 2 ];
+    for ( int i = 0; i < plugins; i++ ) {
+      paths[ i * 2 ] = "/plugin" + i + "/resources" + ( i % RESOURCES_PER_PLUGIN ) + "/js/module/main.js";
+      paths[ i * 2 + 1 ] = "/plugin" + i + "-viewer/report";
+    }
+  }
+
+  private String randomPath() {
+    return paths[ ThreadLocalRandom.current().nextInt( paths.length ) ];
+  }
+
+  @Benchmark
+  public String servicePluginByScan() {
+    String path = randomPath();
+    for ( IPlatformPlugin plugin : pluginList ) {
+      for ( String url : plugin.getStaticResourceMap().keySet() ) {
+        if ( isRequested( url, path ) ) {
+          return plugin.getId();
+        }
+      }
+      for ( IContentGeneratorInfo contentGenerator : plugin.getContentGenerators() ) {
+        if ( isRequested( contentGenerator.getId(), path ) ) {
+          return plugin.getId();
+        }
+      }
+    }
+    return null;
+  }
+
+  @Benchmark
+  public String servicePluginByIndex() {
+    PluginRoutingIndex.Route route = index.getService( randomPath() );
+    return ( route != null ) ? route.getPluginId() : null;
+  }
+
+  /**
+   * Same as PentahoSystemPluginManager.isRequested
+   */
+  private static boolean isRequested( String servicePath, String requestPath ) {
+    String[] requestPathElements = trimLeadingSlash( requestPath ).split( "/" );
+    String[] servicePathElements = trimLeadingSlash( servicePath ).split( "/" );
+    if ( requestPathElements.length < servicePathElements.length ) {
+      return false;
+    }
+    for ( int i = 0; i < servicePathElements.length; i++ ) {
+      if ( !requestPathElements[ i ].equals( servicePathElements[ i ] ) ) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static String trimLeadingSlash( String path ) {
+    return ( path.startsWith( "/" ) ) ? path.substring( 1 ) : path;
+  }
+}
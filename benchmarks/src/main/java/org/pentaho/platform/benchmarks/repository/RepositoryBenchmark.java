@@ -0,0 +1,241 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.benchmarks.repository;
+
+import org.apache.commons.io.IOUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pentaho.platform.api.repository2.unified.IUnifiedRepository;
+import org.pentaho.platform.api.repository2.unified.RepositoryFile;
+import org.pentaho.platform.api.repository2.unified.RepositoryFileAcl;
+import org.pentaho.platform.api.repository2.unified.RepositoryFilePermission;
+import org.pentaho.platform.api.repository2.unified.RepositoryFileTree;
+import org.pentaho.platform.api.repository2.unified.RepositoryRequest;
+import org.pentaho.platform.api.repository2.unified.data.node.DataNode;
+import org.pentaho.platform.api.repository2.unified.data.node.DataNodeRef;
+import org.pentaho.platform.api.repository2.unified.data.node.NodeRepositoryFileData;
+import org.pentaho.platform.api.repository2.unified.data.simple.SimpleRepositoryFileData;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures the main read and write operations of {@link IUnifiedRepository} against an embedded Jackrabbit repository
+ * (see {@link RepositoryBenchmarkFixture}) seeded with a tree of {@code breadth} folders per level, {@code depth}
+ * levels deep, holding {@code filesPerFolder} files each.
+ * <p>
+ * Reads pick a random file or folder of the tree on every invocation. Writes go to a folder of their own per benchmark
+ * thread, so that running with several threads measures contention on the repository rather than on one node. Use
+ * {@link RepositoryBenchmarkRunner} to run the benchmarks for several thread counts with JSON results, or run them
+ * directly with {@code java -jar target/benchmarks.jar RepositoryBenchmark -t <threads> -rf json}.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+public class RepositoryBenchmark {
+
+  private static final String ENCODING = "UTF-8";
+
+  private static final String MIME_TYPE = "text/plain";
+
+  private static final EnumSet<RepositoryFilePermission> READ = EnumSet.of( RepositoryFilePermission.READ );
+
+  @Param( { "3" } )
+  public int depth;
+
+  @Param( { "4" } )
+  public int breadth;
+
+  @Param( { "10" } )
+  public int filesPerFolder;
+
+  @Param( { "4096" } )
+  public int fileSize;
+
+  @Param( { "20" } )
+  public int referrers;
+
+  private RepositoryBenchmarkFixture fixture;
+  private IUnifiedRepository repository;
+  private String rootPath;
+  private String writersPath;
+  private final List<RepositoryFile> folders = new ArrayList<RepositoryFile>();
+  private final List<RepositoryFile> files = new ArrayList<RepositoryFile>();
+  private final List<List<String>> filePathsByFolder = new ArrayList<List<String>>();
+  private RepositoryFile referee;
+  private final AtomicInteger writers = new AtomicInteger();
+
+  @Setup( Level.Trial )
+  public void setUp() throws Exception {
+    fixture = new RepositoryBenchmarkFixture();
+    fixture.start();
+    repository = fixture.getRepository();
+
+    RepositoryFile home = repository.getFile( fixture.getHomeFolderPath() );
+    RepositoryFile root = createFolder( home, "bench" );
+    rootPath = root.getPath();
+    seed( root, 0 );
+    writersPath = createFolder( home, "writers" ).getPath();
+
+    RepositoryFile referrerFolder = createFolder( home, "referrers" );
+    referee = files.get( 0 );
+    for ( int i = 0; i < referrers; i++ ) {
+      DataNode node = new DataNode( "referrer" );
+      node.setProperty( "ref", new DataNodeRef( referee.getId() ) );
+      repository.createFile( referrerFolder.getId(), new RepositoryFile.Builder( "referrer" + i + ".sample" ).build(),
+        new NodeRepositoryFileData( node ), null );
+    }
+  }
+
+  @TearDown( Level.Trial )
+  public void tearDown() throws Exception {
+    fixture.stop();
+  }
+
+  private void seed( RepositoryFile folder, int level ) {
+    folders.add( folder );
+    List<String> filePaths = new ArrayList<String>();
+    for ( int i = 0; i < filesPerFolder; i++ ) {
+      RepositoryFile file = createFile( folder, "file" + i + ".txt" );
+      files.add( file );
+      filePaths.add( file.getPath() );
+    }
+    filePathsByFolder.add( filePaths );
+    if ( level < depth ) {
+      for ( int i = 0; i < breadth; i++ ) {
+        seed( createFolder( folder, "folder" + i ), level + 1 );
+      }
+    }
+  }
+
+  RepositoryFile createFolder( RepositoryFile parent, String name ) {
+    return repository.createFolder( parent.getId(), new RepositoryFile.Builder( name ).folder( true ).build(), null );
+  }
+
+  RepositoryFile createFile( RepositoryFile parent, String name ) {
+    return repository.createFile( parent.getId(), new RepositoryFile.Builder( name ).build(), newData(), null );
+  }
+
+  SimpleRepositoryFileData newData() {
+    byte[] bytes = new byte[ fileSize ];
+    ThreadLocalRandom.current().nextBytes( bytes );
+    return new SimpleRepositoryFileData( new ByteArrayInputStream( bytes ), ENCODING, MIME_TYPE );
+  }
+
+  private int randomIndex( List<?> list ) {
+    return ThreadLocalRandom.current().nextInt( list.size() );
+  }
+
+  private RepositoryFile randomFile() {
+    return files.get( randomIndex( files ) );
+  }
+
+  private RepositoryFile randomFolder() {
+    return folders.get( randomIndex( folders ) );
+  }
+
+  /**
+   * The folder and file each benchmark thread writes to.
+   */
+  @State( Scope.Thread )
+  public static class WriterState {
+
+    private final AtomicInteger created = new AtomicInteger();
+    private RepositoryFile folder;
+    private RepositoryFile file;
+
+    @Setup( Level.Trial )
+    public void setUp( RepositoryBenchmark benchmark ) {
+      RepositoryFile parent = benchmark.repository.getFile( benchmark.writersPath );
+      folder = benchmark.createFolder( parent, "writer" + benchmark.writers.incrementAndGet() );
+      file = benchmark.createFile( folder, "updated.txt" );
+    }
+  }
+
+  @Benchmark
+  public RepositoryFile getFile() {
+    return repository.getFile( randomFile().getPath() );
+  }
+
+  @Benchmark
+  public List<RepositoryFile> getChildren() {
+    return repository.getChildren( randomFolder().getId() );
+  }
+
+  @Benchmark
+  public RepositoryFileTree getTree() {
+    return repository.getTree( new RepositoryRequest( rootPath, false, -1, "*" ) );
+  }
+
+  @Benchmark
+  public RepositoryFileAcl getAcl() {
+    return repository.getAcl( randomFile().getId() );
+  }
+
+  @Benchmark
+  public boolean hasAccess() {
+    return repository.hasAccess( randomFile().getPath(), READ );
+  }
+
+  @Benchmark
+  public Map<String, EnumSet<RepositoryFilePermission>> hasAccessForFolder() {
+    return repository.hasAccess( filePathsByFolder.get( randomIndex( filePathsByFolder ) ),
+      EnumSet.of( RepositoryFilePermission.READ, RepositoryFilePermission.WRITE ) );
+  }
+
+  @Benchmark
+  public byte[] getDataForRead() throws IOException {
+    SimpleRepositoryFileData data = repository.getDataForRead( randomFile().getId(), SimpleRepositoryFileData.class );
+    try ( InputStream in = data.getInputStream() ) {
+      return IOUtils.toByteArray( in );
+    }
+  }
+
+  @Benchmark
+  public List<RepositoryFile> getReferrers() {
+    return repository.getReferrers( referee.getId() );
+  }
+
+  @Benchmark
+  public RepositoryFile createFile( WriterState writer ) {
+    return createFile( writer.folder, "created" + writer.created.incrementAndGet() + ".txt" );
+  }
+
+  @Benchmark
+  public RepositoryFile updateFile( WriterState writer ) {
+    return repository.updateFile( writer.file, newData(), null );
+  }
+}
@@ -0,0 +1,106 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.benchmarks.repository;
+
+import org.apache.commons.io.FileUtils;
+import org.pentaho.platform.api.mt.ITenant;
+import org.pentaho.platform.api.repository2.unified.IUnifiedRepository;
+import org.pentaho.platform.engine.core.system.PentahoSessionHolder;
+import org.pentaho.platform.engine.core.system.PentahoSystem;
+import org.pentaho.platform.engine.core.system.objfac.StandaloneSpringPentahoObjectFactory;
+import org.pentaho.platform.repository2.ClientRepositoryPaths;
+import org.pentaho.platform.repository2.unified.DefaultUnifiedRepositoryBase;
+import org.springframework.beans.factory.xml.XmlBeanDefinitionReader;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.io.File;
+import java.nio.file.Files;
+
+/**
+ * Starts an embedded Jackrabbit backed {@link org.pentaho.platform.repository2.unified.DefaultUnifiedRepository} in a
+ * fresh temp directory, the same way the repository integration tests do, and logs in a tenant admin whose home folder
+ * the benchmarks work in.
+ * <p>
+ * Sessions and security contexts are held globally, so the repository can be used from every benchmark thread.
+ */
+public class RepositoryBenchmarkFixture extends DefaultUnifiedRepositoryBase {
+
+  /**
+   * System property referenced by repository-benchmark.spring.xml for the Jackrabbit home directory.
+   */
+  public static final String HOME_PROPERTY = "pentaho.benchmark.repository.home";
+
+  private File home;
+
+  private GenericApplicationContext applicationContext;
+
+  public void start() throws Exception {
+    home = Files.createTempDirectory( "pentaho-repository-benchmark" ).toFile();
+    System.setProperty( HOME_PROPERTY, home.getAbsolutePath() );
+    PentahoSessionHolder.setStrategyName( PentahoSessionHolder.MODE_GLOBAL );
+    SecurityContextHolder.setStrategyName( SecurityContextHolder.MODE_GLOBAL );
+
+    applicationContext = new GenericApplicationContext();
+    XmlBeanDefinitionReader xmlReader = new XmlBeanDefinitionReader( applicationContext );
+    xmlReader.loadBeanDefinitions( new ClassPathResource( "repository.spring.xml" ) );
+    xmlReader.loadBeanDefinitions( new ClassPathResource( "repository-benchmark.spring.xml" ) );
+    // register repository spring context for correct work of <pen:list>
+    StandaloneSpringPentahoObjectFactory pentahoObjectFactory = new StandaloneSpringPentahoObjectFactory();
+    pentahoObjectFactory.init( null, applicationContext );
+    applicationContext.refresh();
+    PentahoSystem.registerObjectFactory( pentahoObjectFactory );
+    setApplicationContext( applicationContext );
+
+    initialize( false );
+    loginAsSysTenantAdmin();
+    ITenant tenant = createTenant( systemTenant, TENANT_ID_ACME );
+    createUser( tenant, USERNAME_ADMIN, PASSWORD, tenantAdminRoleName );
+    login( USERNAME_ADMIN, tenant, new String[] { tenantAdminRoleName, tenantAuthenticatedRoleName } );
+  }
+
+  public void stop() throws Exception {
+    try {
+      logout();
+      if ( mp != null ) {
+        mp.stop();
+      }
+      if ( applicationContext != null ) {
+        applicationContext.close();
+      }
+    } finally {
+      PentahoSessionHolder.setStrategyName( PentahoSessionHolder.MODE_INHERITABLETHREADLOCAL );
+      SecurityContextHolder.setStrategyName( SecurityContextHolder.MODE_THREADLOCAL );
+      System.clearProperty( HOME_PROPERTY );
+      FileUtils.deleteQuietly( home );
+    }
+  }
+
+  public IUnifiedRepository getRepository() {
+    return repo;
+  }
+
+  /**
+   * @return the home folder of the logged in user, the benchmarks create their trees below it
+   */
+  public String getHomeFolderPath() {
+    return ClientRepositoryPaths.getUserHomeFolderPath( USERNAME_ADMIN );
+  }
+
+  @Override
+  protected String getSolutionPath() {
+    return home.getAbsolutePath();
+  }
+}
@@ -0,0 +1,57 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.benchmarks.repository;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+
+/**
+ * Runs {@link RepositoryBenchmark} once per thread count and writes the results of each run as JSON, so that runs of
+ * different builds can be compared by tooling.
+ * <p>
+ * Usage: {@code java -cp target/benchmarks.jar org.pentaho.platform.benchmarks.repository.RepositoryBenchmarkRunner
+ * [resultDir] [threads...]}. The results are written to {@code resultDir/repository-t<threads>.json}, by default to
+ * {@code target} for 1, 4 and 16 threads.
+ */
+public class RepositoryBenchmarkRunner {
+
+  private static final int[] DEFAULT_THREADS = { 1, 4, 16 };
+
+  public static void main( String[] args ) throws RunnerException {
+    File resultDir = new File( args.length > 0 ? args[ 0 ] : "target" );
+    int[] threadCounts = DEFAULT_THREADS;
+    if ( args.length > 1 ) {
+      threadCounts = new int[ args.length - 1 ];
+      for ( int i = 1; i < args.length; i++ ) {
+        threadCounts[ i - 1 ] = Integer.parseInt( args[ i ] );
+      }
+    }
+    resultDir.mkdirs();
+
+    for ( int threads : threadCounts ) {
+      Options options = new OptionsBuilder()
+        .include( RepositoryBenchmark.class.getName() )
+        .threads( threads )
+        .resultFormat( ResultFormatType.JSON )
+        .result( new File( resultDir, "repository-t" + threads + ".json" ).getPath() )
+        .build();
+      new Runner( options ).run();
+    }
+  }
+}
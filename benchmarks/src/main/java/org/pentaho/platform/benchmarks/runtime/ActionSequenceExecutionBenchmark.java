@@ -0,0 +1,170 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.benchmarks.runtime;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pentaho.platform.api.engine.ILogger;
+import org.pentaho.platform.api.engine.IPentahoSession;
+import org.pentaho.platform.api.engine.IRuntimeContext;
+import org.pentaho.platform.api.engine.ISolutionEngine;
+import org.pentaho.platform.engine.core.system.PentahoSystem;
+import org.pentaho.platform.engine.core.system.StandaloneSession;
+import org.pentaho.platform.engine.services.solution.PojoComponent;
+import org.pentaho.platform.engine.services.solution.SolutionEngine;
+import org.pentaho.platform.util.web.SimpleUrlFactory;
+import org.pentaho.test.platform.engine.core.MicroPlatform;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures running an action sequence of pojo steps through the solution engine, each step handing its result to the
+ * next one. Every step resolves its component and sets the pojo up through its setters, which is where the cached
+ * component factories and pojo method handles of the runtime context come in.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+public class ActionSequenceExecutionBenchmark {
+
+  @Param( { "1", "5" } )
+  public int steps;
+
+  private File solutionPath;
+  private MicroPlatform platform;
+  private IPentahoSession session;
+  private String actionSequence;
+
+  @Setup( Level.Trial )
+  public void setUp() throws Exception {
+    solutionPath = Files.createTempDirectory( "pentaho-runtime-benchmark" ).toFile();
+    platform = new MicroPlatform( solutionPath.getAbsolutePath() );
+    platform.define( ISolutionEngine.class, SolutionEngine.class );
+    platform.start();
+    session = new StandaloneSession( "benchmark" );
+    actionSequence = actionSequence( steps );
+  }
+
+  @TearDown( Level.Trial )
+  public void tearDown() throws Exception {
+    platform.stop();
+    FileUtils.deleteDirectory( solutionPath );
+  }
+
+  @Benchmark
+  public Object executeSequence() {
+    ISolutionEngine solutionEngine = PentahoSystem.get( ISolutionEngine.class, session );
+    solutionEngine.setLoggingLevel( ILogger.ERROR );
+    solutionEngine.init( session );
+    IRuntimeContext runtimeContext =
+      solutionEngine.execute( actionSequence, "benchmark.xaction", "benchmark", false, true, null, false,
+        new HashMap(), null, null, new SimpleUrlFactory( "" ), new ArrayList() );
+    if ( runtimeContext.getStatus() != IRuntimeContext.RUNTIME_STATUS_SUCCESS ) {
+      throw new IllegalStateException( "action sequence failed with status " + runtimeContext.getStatus() );
+    }
+    Object result = runtimeContext.getOutputParameter( "result" + steps ).getValue();
+    runtimeContext.dispose();
+    return result;
+  }
+
+  /**
+   * @return an action sequence of the given number of pojo steps, each taking the result of the step before
+   */
+  static String actionSequence( int steps ) {
+    StringBuilder xml = new StringBuilder();
+    xml.append( "<action-sequence><name>benchmark.xaction</name><version>1</version><title>benchmark</title>" );
+    xml.append( "<inputs/><outputs><result" ).append( steps ).append( " type=\"string\"/></outputs>" );
+    xml.append( "<resources/><actions>" );
+    for ( int step = 1; step <= steps; step++ ) {
+      xml.append( "<action-definition><action-name>step " ).append( step ).append( "</action-name>" );
+      xml.append( "<component-name>" ).append( PojoComponent.class.getName() ).append( "</component-name>" );
+      if ( step > 1 ) {
+        xml.append( "<action-inputs><input type=\"string\" mapping=\"result" ).append( step - 1 )
+          .append( "\"/></action-inputs>" );
+      }
+      xml.append( "<action-outputs><result type=\"string\" mapping=\"result" ).append( step )
+        .append( "\"/></action-outputs>" );
+      xml.append( "<component-definition><class>" ).append( StepPojo.class.getName() ).append( "</class>" );
+      if ( step == 1 ) {
+        xml.append( "<input>start</input>" );
+      }
+      xml.append( "<count>" ).append( step ).append( "</count><factor>1.5</factor><enabled>true</enabled>" );
+      xml.append( "<amount>12.50</amount></component-definition></action-definition>" );
+    }
+    xml.append( "</actions></action-sequence>" );
+    return xml.toString();
+  }
+
+  /**
+   * A pojo step with setters of the types the pojo component converts settings to.
+   */
+  public static class StepPojo {
+
+    private String input;
+    private int count;
+    private double factor;
+    private boolean enabled;
+    private BigDecimal amount;
+    private String result;
+
+    public void setInput( String input ) {
+      this.input = input;
+    }
+
+    public void setCount( int count ) {
+      this.count = count;
+    }
+
+    public void setFactor( double factor ) {
+      this.factor = factor;
+    }
+
+    public void setEnabled( boolean enabled ) {
+      this.enabled = enabled;
+    }
+
+    public void setAmount( BigDecimal amount ) {
+      this.amount = amount;
+    }
+
+    public boolean execute() {
+      result = input + ":" + ( enabled ? count * factor : 0 ) + ":" + amount;
+      return true;
+    }
+
+    public String getResult() {
+      return result;
+    }
+  }
+}
@@ -1431,6 +1431,24 @@ public class PentahoSystem {
     listeners = systemListeners;
   }
 
+  /**
+   * Registers a handler for system shutdown from a service started after the system was. It is not notified of
+   * startup, and is shut down before the handlers registered with {@link #setSystemListeners(List)}.
+   *
+   * @param systemListener
+   *          the system event handler
+   */
+  public static synchronized void addSystemListener( IPentahoSystemListener systemListener ) {
+    List<IPentahoSystemListener> systemListeners = new ArrayList<>();
+    if ( listeners != null ) {
+      systemListeners.addAll( listeners );
+    }
+    if ( !systemListeners.contains( systemListener ) ) {
+      systemListeners.add( systemListener );
+    }
+    listeners = systemListeners;
+  }
+
   /**
    * Registers server actions that will be invoked when a session is created. NOTE: it is completely up to the
    * {@link IPentahoSession} implementation whether to advise the system of it's creation via
@@ -18,9 +18,12 @@ import org.apache.commons.logging.LogFactory;
 import org.pentaho.platform.api.engine.ISessionContainer;
 import org.pentaho.platform.engine.core.messages.Messages;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Locale;
+import java.util.Map;
 
 public class StandaloneSession extends BaseSession {
 
@@ -36,7 +39,11 @@ public class StandaloneSession extends BaseSession {
     return StandaloneSession.logger;
   }
 
-  private HashMap attributes;
+  /**
+   * Synchronized, since the iterations of a parallel action sequence loop use the session of the caller at the same
+   * time
+   */
+  private Map attributes;
 
   public StandaloneSession() {
     this( "unknown" ); //$NON-NLS-1$
@@ -52,7 +59,7 @@ public class StandaloneSession extends BaseSession {
 
   public StandaloneSession( final String name, final String id, final Locale locale ) {
     super( name, id, locale );
-    attributes = new HashMap();
+    attributes = Collections.synchronizedMap( new HashMap() );
   }
 
   public Iterator getAttributeNames() {
@@ -62,7 +69,9 @@ public class StandaloneSession extends BaseSession {
     }
 
     // TODO need to turn the set iterator into an enumeration...
-    return attributes.keySet().iterator();
+    synchronized ( attributes ) {
+      return new ArrayList( attributes.keySet() ).iterator();
+    }
   }
 
   public Object getAttribute( final String attributeName ) {
@@ -97,11 +106,13 @@ public class StandaloneSession extends BaseSession {
     // Clear out references to this session in attributes.
     // See BISERVER-2639 for details
     if ( attributes != null ) {
-      for ( Object o : attributes.values() ) {
-        if ( o instanceof ISessionContainer ) {
-          ISessionContainer c = ( (ISessionContainer) o );
-          // XXX: should synchronized check if the session is actually /this/ session
-          c.setSession( null );
+      synchronized ( attributes ) {
+        for ( Object o : attributes.values() ) {
+          if ( o instanceof ISessionContainer ) {
+            ISessionContainer c = ( (ISessionContainer) o );
+            // XXX: should synchronized check if the session is actually /this/ session
+            c.setSession( null );
+          }
         }
       }
       attributes = null;
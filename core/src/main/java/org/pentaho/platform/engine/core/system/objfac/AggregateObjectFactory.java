@@ -13,6 +13,8 @@
 
 package org.pentaho.platform.engine.core.system.objfac;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import org.pentaho.platform.api.engine.IPentahoObjectFactory;
 import org.pentaho.platform.api.engine.IPentahoObjectReference;
 import org.pentaho.platform.api.engine.IPentahoSession;
@@ -23,12 +25,16 @@ import org.slf4j.LoggerFactory;
 
 import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -38,6 +44,14 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
  * collecting the results. Results are ordered by "priority" attribute if present, with the highest priority object
  * returned in the calls to retrieve a single object.
  * <p/>
+ * The winning reference of a type lookup is memoized per (type, properties), so that repeated lookups do not walk
+ * every registered factory. The session is not part of the memo. References of a {@link RuntimeObjectFactory} look
+ * the session up when their object is got, so they are returned as memoized. Other factories may build references
+ * for the session they are asked for, so the memoized factory is asked again for the session at hand. The memo is
+ * dropped whenever a factory is registered or de-registered and whenever {@link #invalidateResolutionCache()} is
+ * called, which the {@link RuntimeObjectFactory} and the {@link OSGIRuntimeObjectFactory} do when their
+ * registrations change.
+ * <p/>
  * {@inheritDoc}
  * <p/>
  * User: nbaker Date: 1/15/13
@@ -52,6 +66,25 @@ public class AggregateObjectFactory implements IPentahoObjectFactory {
   private Lock writeLock = factoryLock.writeLock();
   private Lock readLock = factoryLock.readLock();
 
+  /**
+   * Upper bound on memoized resolutions, the least recently used ones being dropped first.
+   */
+  public static final int DEFAULT_MAX_CACHED_RESOLUTIONS = 10000;
+
+  private volatile Cache<ResolutionKey, Resolution> resolutionCache =
+      createResolutionCache( DEFAULT_MAX_CACHED_RESOLUTIONS );
+  private final Set<Class<?>> definedTypes = ConcurrentHashMap.newKeySet();
+  private final AtomicLong resolutionCacheHits = new AtomicLong();
+  private final AtomicLong resolutionCacheMisses = new AtomicLong();
+  private final AtomicLong resolutionCacheGeneration = new AtomicLong();
+  private volatile boolean resolutionCacheEnabled = true;
+  private final Runnable invalidationCallback = new Runnable() {
+    @Override
+    public void run() {
+      invalidateResolutionCache();
+    }
+  };
+
   public AggregateObjectFactory() {
 
   }
@@ -60,6 +93,10 @@ public class AggregateObjectFactory implements IPentahoObjectFactory {
     writeLock.lock();
     try {
       factories.add( fact );
+      if ( fact instanceof RuntimeObjectFactory ) {
+        ( (RuntimeObjectFactory) fact ).addRegistrationListener( invalidationCallback );
+      }
+      invalidateResolutionCache();
     } finally {
       writeLock.unlock();
     }
@@ -82,12 +119,64 @@ public class AggregateObjectFactory implements IPentahoObjectFactory {
   public boolean deregisterObjectFactory( IPentahoObjectFactory factory ) {
     writeLock.lock();
     try {
+      if ( factory instanceof RuntimeObjectFactory ) {
+        ( (RuntimeObjectFactory) factory ).removeRegistrationListener( invalidationCallback );
+      }
       return factories.remove( factory );
     } finally {
+      invalidateResolutionCache();
       writeLock.unlock();
     }
   }
 
+  /**
+   * Drops every memoized type resolution. Must be called whenever the set of objects published by any of the
+   * aggregated factories changes.
+   */
+  public void invalidateResolutionCache() {
+    resolutionCacheGeneration.incrementAndGet();
+    resolutionCache.invalidateAll();
+    definedTypes.clear();
+  }
+
+  /**
+   * @return a number changing whenever the memoized resolutions are dropped, that is whenever the objects published by
+   *         the aggregated factories may have changed
+   */
+  public long getResolutionCacheGeneration() {
+    return resolutionCacheGeneration.get();
+  }
+
+  public long getResolutionCacheHits() {
+    return resolutionCacheHits.get();
+  }
+
+  public long getResolutionCacheMisses() {
+    return resolutionCacheMisses.get();
+  }
+
+  public int getResolutionCacheSize() {
+    return (int) resolutionCache.size();
+  }
+
+  public boolean isResolutionCacheEnabled() {
+    return resolutionCacheEnabled;
+  }
+
+  public void setResolutionCacheEnabled( boolean resolutionCacheEnabled ) {
+    this.resolutionCacheEnabled = resolutionCacheEnabled;
+    invalidateResolutionCache();
+  }
+
+  public void setMaxCachedResolutions( int maxCachedResolutions ) {
+    this.resolutionCache = createResolutionCache( maxCachedResolutions );
+    invalidateResolutionCache();
+  }
+
+  private static Cache<ResolutionKey, Resolution> createResolutionCache( int maxSize ) {
+    return CacheBuilder.newBuilder().maximumSize( Math.max( 0, maxSize ) ).build();
+  }
+
   public Set<IPentahoObjectFactory> getFactories() {
     return new HashSet( factories );
   }
@@ -281,6 +370,10 @@ public class AggregateObjectFactory implements IPentahoObjectFactory {
 
   @Override
   public boolean objectDefined( Class<?> clazz ) {
+    if ( resolutionCacheEnabled && definedTypes.contains( clazz ) ) {
+      return true;
+    }
+    long generation = resolutionCacheGeneration.get();
     readLock.lock();
     try {
       for ( IPentahoObjectFactory fact : factories ) {
@@ -288,6 +381,12 @@ public class AggregateObjectFactory implements IPentahoObjectFactory {
 
           logger.debug( MessageFormat.format( "Found object for class: {0} in factory: {1}", clazz.getName(), fact
               .getName() ) );
+          if ( resolutionCacheEnabled ) {
+            definedTypes.add( clazz );
+            if ( generation != resolutionCacheGeneration.get() ) {
+              definedTypes.remove( clazz );
+            }
+          }
           return true;
         }
       }
@@ -298,9 +397,61 @@ public class AggregateObjectFactory implements IPentahoObjectFactory {
   }
 
   @Override
+  @SuppressWarnings( "unchecked" )
   public <T> IPentahoObjectReference<T> getObjectReference( Class<T> interfaceClass, IPentahoSession curSession,
                                                             Map<String, String> properties )
       throws ObjectFactoryException {
+    if ( !resolutionCacheEnabled ) {
+      return resolveObjectReference( interfaceClass, curSession, properties );
+    }
+
+    ResolutionKey key = new ResolutionKey( interfaceClass, properties );
+    Cache<ResolutionKey, Resolution> cache = resolutionCache;
+    Resolution resolution = cache.getIfPresent( key );
+    if ( resolution != null ) {
+      IPentahoObjectReference<T> cached = ( resolution.reference != null )
+          ? (IPentahoObjectReference<T>) resolution.reference
+          : highestReference( resolution.factory.getObjectReferences( interfaceClass, curSession, properties ) );
+      if ( cached != null ) {
+        resolutionCacheHits.incrementAndGet();
+        return cached;
+      }
+      cache.invalidate( key );
+    }
+    resolutionCacheMisses.incrementAndGet();
+
+    long generation = resolutionCacheGeneration.get();
+    IPentahoObjectReference<T> resolved = null;
+    IPentahoObjectFactory winner = null;
+    readLock.lock();
+    try {
+      for ( IPentahoObjectFactory fact : factories ) {
+        if ( fact.objectDefined( interfaceClass ) ) {
+          IPentahoObjectReference<T> found =
+              highestReference( fact.getObjectReferences( interfaceClass, curSession, properties ) );
+          if ( found != null && ( resolved == null || computePriority( found ) > computePriority( resolved ) ) ) {
+            resolved = found;
+            winner = fact;
+          }
+        }
+      }
+    } finally {
+      readLock.unlock();
+    }
+    if ( resolved != null ) {
+      cache.put( key, new Resolution( winner, resolved ) );
+      if ( generation != resolutionCacheGeneration.get() ) {
+        // registrations changed while we were resolving, the result may already be stale
+        cache.invalidate( key );
+      }
+    }
+    return resolved;
+  }
+
+  private <T> IPentahoObjectReference<T> resolveObjectReference( Class<T> interfaceClass,
+                                                                 IPentahoSession curSession,
+                                                                 Map<String, String> properties )
+      throws ObjectFactoryException {
 
     Set<IPentahoObjectReference<T>> references = new HashSet<IPentahoObjectReference<T>>();
     readLock.lock();
@@ -316,28 +467,88 @@ public class AggregateObjectFactory implements IPentahoObjectFactory {
     } finally {
       readLock.unlock();
     }
+    return highestReference( references );
+  }
+
+  private <T> IPentahoObjectReference<T> highestReference( Collection<IPentahoObjectReference<T>> references ) {
     IPentahoObjectReference<T> highestRef = null;
     int highestRefPriority = -1;
-    for ( IPentahoObjectReference<T> ref : references ) {
-      int pri = computePriority( ref );
-      if ( pri > highestRefPriority ) {
-        highestRef = ref;
-        highestRefPriority = pri;
+    if ( references != null ) {
+      for ( IPentahoObjectReference<T> ref : references ) {
+        int pri = computePriority( ref );
+        if ( pri > highestRefPriority ) {
+          highestRef = ref;
+          highestRefPriority = pri;
+        }
       }
     }
-
     return highestRef;
   }
 
   public void clear() {
     writeLock.lock();
     try {
+      for ( IPentahoObjectFactory fact : factories ) {
+        if ( fact instanceof RuntimeObjectFactory ) {
+          ( (RuntimeObjectFactory) fact ).removeRegistrationListener( invalidationCallback );
+        }
+      }
       this.factories.clear();
+      invalidateResolutionCache();
     } finally {
       writeLock.unlock();
     }
   }
 
+  /**
+   * Memoized outcome of a type lookup: the factory holding the winning reference, and the reference itself if it does
+   * not depend on the session it was resolved for.
+   */
+  private static final class Resolution {
+    private final IPentahoObjectFactory factory;
+    private final IPentahoObjectReference<?> reference;
+
+    Resolution( IPentahoObjectFactory factory, IPentahoObjectReference<?> reference ) {
+      this.factory = factory;
+      this.reference = ( factory instanceof RuntimeObjectFactory ) ? reference : null;
+    }
+  }
+
+  /**
+   * Memo key for a type lookup. It holds no session, so that memoized lookups keep no session reachable.
+   */
+  private static final class ResolutionKey {
+    private final Class<?> type;
+    private final Map<String, String> properties;
+    private final int hash;
+
+    ResolutionKey( Class<?> type, Map<String, String> properties ) {
+      this.type = type;
+      this.properties = properties == null ? null : new HashMap<String, String>( properties );
+      int result = type.hashCode();
+      result = 31 * result + ( this.properties != null ? this.properties.hashCode() : 0 );
+      this.hash = result;
+    }
+
+    @Override
+    public boolean equals( Object o ) {
+      if ( this == o ) {
+        return true;
+      }
+      if ( !( o instanceof ResolutionKey ) ) {
+        return false;
+      }
+      ResolutionKey that = (ResolutionKey) o;
+      return type == that.type
+          && ( properties != null ? properties.equals( that.properties ) : that.properties == null );
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+
   private static ReferencePriorityComparitor referencePriorityComparitor = new ReferencePriorityComparitor();
 
 
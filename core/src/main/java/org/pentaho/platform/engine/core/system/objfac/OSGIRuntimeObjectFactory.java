@@ -17,7 +17,9 @@ import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.Constants;
 import org.osgi.framework.InvalidSyntaxException;
+import org.osgi.framework.ServiceEvent;
 import org.osgi.framework.ServiceFactory;
+import org.osgi.framework.ServiceListener;
 import org.osgi.framework.ServiceReference;
 import org.osgi.framework.ServiceRegistration;
 import org.pentaho.platform.api.engine.IPentahoObjectReference;
@@ -45,13 +47,30 @@ public class OSGIRuntimeObjectFactory extends RuntimeObjectFactory {
   private AtomicBoolean osgiInitialized = new AtomicBoolean( false );
   private List<OSGIPentahoObjectRegistration> deferredRegistrations = new ArrayList<OSGIPentahoObjectRegistration>();
   private Logger logger = LoggerFactory.getLogger( getClass() );
+  private final ServiceListener serviceListener = new ServiceListener() {
+    @Override
+    public void serviceChanged( ServiceEvent serviceEvent ) {
+      // any service coming, going or changing its properties may alter the outcome of an object lookup
+      fireRegistrationsChanged();
+    }
+  };
 
   public OSGIRuntimeObjectFactory() {
   }
 
   public void setBundleContext( BundleContext bundleContext ) {
 
+    if ( this.bundleContext != null ) {
+      try {
+        this.bundleContext.removeServiceListener( serviceListener );
+      } catch ( IllegalStateException e ) {
+        logger.debug( "Previous BundleContext is no longer valid", e );
+      }
+    }
     this.bundleContext = bundleContext;
+    if ( bundleContext != null ) {
+      bundleContext.addServiceListener( serviceListener );
+    }
     // Migrate previously registered entries to OSGI
 
     Iterator<OSGIPentahoObjectRegistration> iterator = deferredRegistrations.iterator();
@@ -66,6 +85,7 @@ public class OSGIRuntimeObjectFactory extends RuntimeObjectFactory {
       }
     }
     osgiInitialized.set( true );
+    fireRegistrationsChanged();
 
 
   }
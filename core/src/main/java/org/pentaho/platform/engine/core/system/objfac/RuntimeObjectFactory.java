@@ -32,6 +32,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * This class supports the registration of Object implementations as well as {@link IPentahoObjectReference }s at
@@ -49,6 +50,8 @@ public class RuntimeObjectFactory implements IPentahoRegistrableObjectFactory {
       Multimaps.synchronizedSetMultimap( HashMultimap
           .<Class, IPentahoObjectReference<?>>create() );
 
+  private final List<Runnable> registrationListeners = new CopyOnWriteArrayList<Runnable>();
+
 
   public RuntimeObjectFactory() {
 
@@ -132,10 +135,33 @@ public class RuntimeObjectFactory implements IPentahoRegistrableObjectFactory {
     for ( Class<?> aClass : classes ) {
       registry.get( aClass ).add( reference );
     }
+    fireRegistrationsChanged();
     return new ObjectRegistration( reference, Arrays.asList( classes ) );
 
   }
 
+  /**
+   * Adds a callback run whenever a reference is registered with or removed from this factory. Used by the
+   * {@link AggregateObjectFactory} to drop its memoized lookups.
+   *
+   * @param listener callback to run on registration changes
+   */
+  public void addRegistrationListener( Runnable listener ) {
+    if ( !registrationListeners.contains( listener ) ) {
+      registrationListeners.add( listener );
+    }
+  }
+
+  public void removeRegistrationListener( Runnable listener ) {
+    registrationListeners.remove( listener );
+  }
+
+  protected void fireRegistrationsChanged() {
+    for ( Runnable listener : registrationListeners ) {
+      listener.run();
+    }
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -426,6 +452,7 @@ public class RuntimeObjectFactory implements IPentahoRegistrableObjectFactory {
       for ( Class<?> aClass : publishedClasses ) {
         registry.get( aClass ).remove( reference );
       }
+      fireRegistrationsChanged();
 
     }
   }
@@ -0,0 +1,166 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.engine.services;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import org.apache.commons.lang.math.NumberUtils;
+import org.dom4j.Document;
+import org.pentaho.platform.api.engine.ISystemConfig;
+import org.pentaho.platform.api.repository2.unified.RepositoryFile;
+import org.pentaho.platform.engine.core.system.PentahoSystem;
+
+import java.io.Serializable;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsed and localized action sequence documents, keyed by file id, version and locale, so running the same action
+ * sequence again does not read and parse it again.
+ * <p>
+ * Since the key holds the version id and last modified date of the file, an updated file is read again the next time
+ * it runs. The localized texts come from property files next to and above the action sequence, which are not part of
+ * the key, so entries also expire a while after they were cached.
+ * <p>
+ * The cached documents are never handed out. Callers get a copy they are free to change, which they do: components
+ * apply the inputs of their execution to the text of their definition nodes.
+ * <p>
+ * This is a cache of documents, not of compiled action sequences: every execution still builds its
+ * {@link org.pentaho.platform.api.engine.IActionSequence} from the copy it gets. A built sequence cannot be shared
+ * as it is, since the runtime sets the values of one execution on its input and output parameters, and its action
+ * definitions hold the components of that execution. Caching compiled sequences needs those split off first.
+ */
+public class ActionSequenceDocumentCache {
+
+  static final int DEFAULT_MAX_SIZE = 500;
+
+  static final int DEFAULT_EXPIRY_MINUTES = 10;
+
+  private final Cache<Key, Document> documents;
+
+  public ActionSequenceDocumentCache( long maxSize, long expiry, TimeUnit unit ) {
+    documents = CacheBuilder.newBuilder().maximumSize( maxSize ).expireAfterWrite( expiry, unit ).recordStats().build();
+  }
+
+  /**
+   * @return the shared cache, sized by the {@code system.actionSequenceCacheSize} and
+   * {@code system.actionSequenceCacheExpiry} (in minutes) settings
+   */
+  public static ActionSequenceDocumentCache getInstance() {
+    return InstanceHolder.INSTANCE;
+  }
+
+  private static ActionSequenceDocumentCache createInstance() {
+    int maxSize = DEFAULT_MAX_SIZE;
+    int expiry = DEFAULT_EXPIRY_MINUTES;
+    ISystemConfig systemConfig = PentahoSystem.get( ISystemConfig.class );
+    if ( systemConfig != null ) {
+      maxSize = NumberUtils.toInt( systemConfig.getProperty( "system.actionSequenceCacheSize" ), DEFAULT_MAX_SIZE );
+      expiry = NumberUtils.toInt( systemConfig.getProperty( "system.actionSequenceCacheExpiry" ),
+        DEFAULT_EXPIRY_MINUTES );
+    }
+    return new ActionSequenceDocumentCache( Math.max( 0, maxSize ), Math.max( 0, expiry ), TimeUnit.MINUTES );
+  }
+
+  /**
+   * Returns a copy of the cached document of the given version of a file.
+   *
+   * @return the copy, or null if the document is not cached
+   */
+  public Document get( RepositoryFile file, Locale locale ) {
+    Key key = Key.of( file, locale );
+    if ( key == null ) {
+      return null;
+    }
+    Document document = documents.getIfPresent( key );
+    return document == null ? null : (Document) document.clone();
+  }
+
+  /**
+   * Caches a copy of the document of the given version of a file. Nothing is cached if the file tells neither its
+   * version nor its last modification.
+   */
+  public void put( RepositoryFile file, Locale locale, Document document ) {
+    Key key = Key.of( file, locale );
+    if ( key != null ) {
+      documents.put( key, (Document) document.clone() );
+    }
+  }
+
+  public void clear() {
+    documents.invalidateAll();
+  }
+
+  /**
+   * @return the number of cached documents
+   */
+  public long size() {
+    return documents.size();
+  }
+
+  /**
+   * @return the hits, misses and evictions of the cache since it was created
+   */
+  public CacheStats getStats() {
+    return documents.stats();
+  }
+
+  // created on the first call of getInstance
+  private static class InstanceHolder {
+    private static final ActionSequenceDocumentCache INSTANCE = createInstance();
+  }
+
+  private static class Key {
+
+    private final Serializable fileId;
+    private final Serializable versionId;
+    private final long lastModified;
+    private final String locale;
+
+    private Key( Serializable fileId, Serializable versionId, long lastModified, String locale ) {
+      this.fileId = fileId;
+      this.versionId = versionId;
+      this.lastModified = lastModified;
+      this.locale = locale;
+    }
+
+    static Key of( RepositoryFile file, Locale locale ) {
+      if ( file.getId() == null || ( file.getVersionId() == null && file.getLastModifiedDate() == null ) ) {
+        return null;
+      }
+      long lastModified = file.getLastModifiedDate() == null ? 0 : file.getLastModifiedDate().getTime();
+      return new Key( file.getId(), file.getVersionId(), lastModified, String.valueOf( locale ) );
+    }
+
+    @Override
+    public boolean equals( Object o ) {
+      if ( this == o ) {
+        return true;
+      }
+      if ( !( o instanceof Key ) ) {
+        return false;
+      }
+      Key key = (Key) o;
+      return lastModified == key.lastModified && fileId.equals( key.fileId )
+        && Objects.equals( versionId, key.versionId ) && locale.equals( key.locale );
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash( fileId, versionId, lastModified, locale );
+    }
+  }
+}
@@ -97,35 +97,63 @@ public class ActionSequenceJCRHelper {
     return actionSequence;
   }
 
+  /**
+   * Returns the parsed and localized document of the given file. Documents are cached by file version and locale in
+   * the {@link ActionSequenceDocumentCache}, every call returns a copy of its own. Action sequences are not cached,
+   * {@link #getActionSequence(String, int, RepositoryFilePermission)} builds a new one from the document every time.
+   */
   public Document getSolutionDocument( final String documentPath, final RepositoryFilePermission actionOperation ) {
 
     RepositoryFile file = repository.getFile( documentPath );
+    if ( file == null ) {
+      return null;
+    }
 
-    Document document = null;
-    SimpleRepositoryFileData data = null;
-    if ( file != null ) {
-      data = repository.getDataForRead( file.getId(), SimpleRepositoryFileData.class );
-      if ( data != null ) {
-        try {
-          document = XmlDom4JHelper.getDocFromStream( data.getStream() );
-        } catch ( Throwable t ) {
-          logger.error( Messages.getInstance().getErrorString(
-              "ActionSequenceJCRHelper.ERROR_0017_INVALID_XML_DOCUMENT", documentPath ), t ); //$NON-NLS-1$
-          return null;
-        }
-      } else {
-        logger.error( Messages.getInstance().getErrorString(
-            "ActionSequenceJCRHelper.ERROR_0019_NO_DATA_IN_FILE", file.getName() ) ); //$NON-NLS-1$
-        return null;
+    ActionSequenceDocumentCache cache = getDocumentCache();
+    Locale locale = getLocale();
+    Document document = cache.get( file, locale );
+    if ( document != null ) {
+      if ( logger.isDebugEnabled() ) {
+        logger.debug( "Action sequence document cache hit for " + documentPath + ", hit rate " //$NON-NLS-1$ //$NON-NLS-2$
+          + cache.getStats().hitRate() );
       }
-      if ( ( document == null ) && ( file != null ) && ( data != null ) ) {
-        // the document exists but cannot be parsed
+      return document;
+    }
+
+    document = loadSolutionDocument( documentPath, file );
+    if ( document != null ) {
+      cache.put( file, locale, document );
+    }
+    return document;
+  }
+
+  protected ActionSequenceDocumentCache getDocumentCache() {
+    return ActionSequenceDocumentCache.getInstance();
+  }
+
+  private Document loadSolutionDocument( final String documentPath, final RepositoryFile file ) {
+    Document document = null;
+    SimpleRepositoryFileData data = repository.getDataForRead( file.getId(), SimpleRepositoryFileData.class );
+    if ( data != null ) {
+      try {
+        document = XmlDom4JHelper.getDocFromStream( data.getStream() );
+      } catch ( Throwable t ) {
         logger.error( Messages.getInstance().getErrorString(
-            "ActionSequenceJCRHelper.ERROR_0009_INVALID_DOCUMENT", documentPath ) ); //$NON-NLS-1$
+            "ActionSequenceJCRHelper.ERROR_0017_INVALID_XML_DOCUMENT", documentPath ), t ); //$NON-NLS-1$
         return null;
       }
-      localizeDoc( document, file );
+    } else {
+      logger.error( Messages.getInstance().getErrorString(
+          "ActionSequenceJCRHelper.ERROR_0019_NO_DATA_IN_FILE", file.getName() ) ); //$NON-NLS-1$
+      return null;
+    }
+    if ( document == null ) {
+      // the document exists but cannot be parsed
+      logger.error( Messages.getInstance().getErrorString(
+          "ActionSequenceJCRHelper.ERROR_0009_INVALID_DOCUMENT", documentPath ) ); //$NON-NLS-1$
+      return null;
     }
+    localizeDoc( document, file );
 
     return document;
   }
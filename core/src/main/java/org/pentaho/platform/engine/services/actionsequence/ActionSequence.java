@@ -13,8 +13,12 @@
 
 package org.pentaho.platform.engine.services.actionsequence;
 
+import org.dom4j.Document;
+import org.dom4j.Element;
+import org.dom4j.Node;
 import org.pentaho.platform.api.engine.IActionSequence;
 import org.pentaho.platform.api.engine.IConditionalExecution;
+import org.pentaho.platform.api.engine.ILogger;
 import org.pentaho.platform.api.engine.ISequenceDefinition;
 
 import java.util.List;
@@ -31,6 +35,16 @@ public class ActionSequence implements IActionSequence {
 
   private boolean loopUsingPeek;
 
+  private int loopParallelism = 1;
+
+  private Node actionsNode;
+
+  private String solutionPath;
+
+  private ILogger logger;
+
+  private int loggingLevel;
+
   protected ActionSequence( final String loopParameter, final ISequenceDefinition sequenceDefinition,
       final List actionDefinitions, boolean loopUsingPeek ) {
     this.loopParameter = loopParameter;
@@ -123,4 +137,40 @@ public class ActionSequence implements IActionSequence {
     return loopUsingPeek;
   }
 
+  public int getLoopParallelism() {
+    return loopParallelism;
+  }
+
+  void setLoopParallelism( final int loopParallelism ) {
+    this.loopParallelism = loopParallelism;
+  }
+
+  /**
+   * Remembers the actions node this sequence was read from, so it can be copied.
+   */
+  void setSource( final Node actionsNode, final String solutionPath, final ILogger logger, final int loggingLevel ) {
+    this.actionsNode = actionsNode;
+    this.solutionPath = solutionPath;
+    this.logger = logger;
+    this.loggingLevel = loggingLevel;
+  }
+
+  /**
+   * Reads the actions again from a copy of the document, since components may change the nodes of their action
+   * definition while they run.
+   */
+  public IActionSequence copyActions() {
+    if ( actionsNode == null ) {
+      return null;
+    }
+    Node copy;
+    Document document = actionsNode.getDocument();
+    if ( document != null ) {
+      copy = ( (Document) document.clone() ).selectSingleNode( actionsNode.getUniquePath() );
+    } else {
+      copy = ( (Element) actionsNode ).createCopy();
+    }
+    return SequenceDefinition.getNextLoopGroup( sequenceDefinition, copy, solutionPath, logger, loggingLevel );
+  }
+
 }
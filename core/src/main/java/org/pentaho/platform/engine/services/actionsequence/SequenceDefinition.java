@@ -15,6 +15,7 @@ package org.pentaho.platform.engine.services.actionsequence;
 
 import org.apache.commons.collections.map.ListOrderedMap;
 import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.lang.math.NumberUtils;
 import org.dom4j.Document;
 import org.dom4j.Node;
 import org.pentaho.commons.connection.memory.MemoryResultSet;
@@ -94,11 +95,12 @@ public class SequenceDefinition implements ISequenceDefinition {
     return ( SequenceDefinition.getNextLoopGroup( seqDef, actionNode, solutionPath, logger, loggingLevel ) );
   }
 
-  private static IActionSequence getNextLoopGroup( final ISequenceDefinition seqDef, final Node actionsNode,
+  static IActionSequence getNextLoopGroup( final ISequenceDefinition seqDef, final Node actionsNode,
       final String solutionPath, final ILogger logger, final int loggingLevel ) {
 
     String loopParameterName = XmlDom4JHelper.getNodeText( "@loop-on", actionsNode ); //$NON-NLS-1$
     boolean loopUsingPeek = "true".equalsIgnoreCase( XmlDom4JHelper.getNodeText( "@peek-only", actionsNode ) ); //$NON-NLS-1$ //$NON-NLS-2$
+    int loopParallelism = NumberUtils.toInt( XmlDom4JHelper.getNodeText( "@parallel", actionsNode ), 1 ); //$NON-NLS-1$
 
     Node actionDefinitionNode;
     ActionDefinition actionDefinition;
@@ -126,6 +128,8 @@ public class SequenceDefinition implements ISequenceDefinition {
     ActionSequence sequence = new ActionSequence( loopParameterName, seqDef, actionDefinitionList, loopUsingPeek );
 
     sequence.setConditionalExecution( conditionalExecution );
+    sequence.setLoopParallelism( Math.max( 1, loopParallelism ) );
+    sequence.setSource( actionsNode, solutionPath, logger, loggingLevel );
     return sequence;
   }
 
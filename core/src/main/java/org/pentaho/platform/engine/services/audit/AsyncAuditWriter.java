@@ -0,0 +1,381 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.engine.services.audit;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.commons.lang.math.NumberUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.pentaho.platform.api.engine.IPentahoSession;
+import org.pentaho.platform.api.engine.IPentahoSystemListener;
+import org.pentaho.platform.api.engine.ISystemConfig;
+import org.pentaho.platform.engine.core.messages.Messages;
+import org.pentaho.platform.engine.core.system.PentahoSystem;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes audit records on a background thread, so auditing does not add to the time of the request being audited.
+ * <p>
+ * Records are queued and written in batches, as soon as a batch is full or a flush interval after the first record of
+ * the batch was queued. What happens when the queue is full depends on the {@link OverflowPolicy}. The writer is
+ * registered as a system listener, and writes what is left in the queue when the platform shuts down. Records queued
+ * after that are written right away, on the thread auditing them.
+ */
+public class AsyncAuditWriter implements IPentahoSystemListener {
+
+  /**
+   * What to do with a record when the queue is full
+   */
+  public enum OverflowPolicy {
+    /**
+     * wait for the writer to make room
+     */
+    BLOCK,
+    /**
+     * drop the record
+     */
+    DROP,
+    /**
+     * append the record to the spill file, which also gets the batches that could not be written
+     */
+    SPILL
+  }
+
+  /**
+   * Where records are written to.
+   */
+  public interface Sink {
+
+    /**
+     * Writes a batch of records. Only called by one thread at a time.
+     */
+    void write( List<AuditRecord> records ) throws Exception;
+
+    /**
+     * Called when no record was queued for a flush interval, to let go of what is held between batches.
+     */
+    void idle();
+  }
+
+  static final int DEFAULT_QUEUE_SIZE = 10000;
+
+  static final int DEFAULT_BATCH_SIZE = 100;
+
+  static final int DEFAULT_FLUSH_INTERVAL = 1000;
+
+  static final int DEFAULT_SHUTDOWN_TIMEOUT = 30;
+
+  private static final int DROP_WARNING_INTERVAL = 1000;
+
+  /**
+   * Queued on shutdown to wake the writer up
+   */
+  private static final AuditRecord STOP = new AuditRecord( null, null, null, null, null, null, null, null, null, 0, 0 );
+
+  private static final Log logger = LogFactory.getLog( AsyncAuditWriter.class );
+
+  private final String name;
+  private final Sink sink;
+  private final BlockingQueue<AuditRecord> queue;
+  private final int batchSize;
+  private final long flushIntervalMillis;
+  private final OverflowPolicy overflowPolicy;
+  private final File spillFile;
+  private final Thread thread;
+
+  private volatile boolean running = true;
+
+  private final AtomicLong written = new AtomicLong();
+  private final AtomicLong dropped = new AtomicLong();
+  private final AtomicLong spilled = new AtomicLong();
+  private final AtomicLong failed = new AtomicLong();
+
+  public AsyncAuditWriter( final String name, final Sink sink, final int queueSize, final int batchSize,
+      final long flushIntervalMillis, final OverflowPolicy overflowPolicy, final File spillFile ) {
+    this.name = name;
+    this.sink = sink;
+    this.queue = new ArrayBlockingQueue<AuditRecord>( Math.max( 1, queueSize ) );
+    this.batchSize = Math.max( 1, batchSize );
+    this.flushIntervalMillis = Math.max( 1, flushIntervalMillis );
+    this.overflowPolicy = ( spillFile == null && overflowPolicy == OverflowPolicy.SPILL ) ? OverflowPolicy.BLOCK
+        : overflowPolicy;
+    this.spillFile = spillFile;
+    thread = new ThreadFactoryBuilder().setNameFormat( "audit-writer-" + name ).setDaemon( true ).build() //$NON-NLS-1$
+        .newThread( new Runnable() {
+          @Override
+          public void run() {
+            writeQueued();
+          }
+        } );
+    thread.start();
+  }
+
+  /**
+   * Creates a writer configured by the {@code system.<prefix>QueueSize}, {@code system.<prefix>BatchSize},
+   * {@code system.<prefix>FlushInterval} (in milliseconds) and {@code system.<prefix>OverflowPolicy} settings, and
+   * registers it to be shut down with the platform.
+   *
+   * @param spillFile
+   *          where records go when the overflow policy is {@link OverflowPolicy#SPILL}
+   */
+  public static AsyncAuditWriter create( final String prefix, final Sink sink, final File spillFile ) {
+    int queueSize = DEFAULT_QUEUE_SIZE;
+    int batchSize = DEFAULT_BATCH_SIZE;
+    int flushInterval = DEFAULT_FLUSH_INTERVAL;
+    OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+    ISystemConfig systemConfig = PentahoSystem.get( ISystemConfig.class );
+    if ( systemConfig != null ) {
+      queueSize = NumberUtils.toInt( systemConfig.getProperty( "system." + prefix + "QueueSize" ), queueSize ); //$NON-NLS-1$ //$NON-NLS-2$
+      batchSize = NumberUtils.toInt( systemConfig.getProperty( "system." + prefix + "BatchSize" ), batchSize ); //$NON-NLS-1$ //$NON-NLS-2$
+      flushInterval =
+          NumberUtils.toInt( systemConfig.getProperty( "system." + prefix + "FlushInterval" ), flushInterval ); //$NON-NLS-1$ //$NON-NLS-2$
+      String policy = systemConfig.getProperty( "system." + prefix + "OverflowPolicy" ); //$NON-NLS-1$ //$NON-NLS-2$
+      if ( policy != null && !policy.trim().isEmpty() ) {
+        try {
+          overflowPolicy = OverflowPolicy.valueOf( policy.trim().toUpperCase( Locale.ROOT ) );
+        } catch ( IllegalArgumentException e ) {
+          logger.warn( Messages.getInstance().getString( "AUDWRITER.WARN_0003_UNKNOWN_OVERFLOW_POLICY", policy ) ); //$NON-NLS-1$
+        }
+      }
+    }
+    AsyncAuditWriter writer =
+        new AsyncAuditWriter( prefix, sink, queueSize, batchSize, flushInterval, overflowPolicy, spillFile );
+    PentahoSystem.addSystemListener( writer );
+    return writer;
+  }
+
+  /**
+   * Queues a record to be written, or handles it according to the overflow policy if the queue is full.
+   */
+  public void write( final AuditRecord record ) {
+    if ( !running ) {
+      writeDirectly( record );
+      return;
+    }
+    if ( queue.offer( record ) ) {
+      return;
+    }
+    switch ( overflowPolicy ) {
+      case DROP:
+        long count = dropped.incrementAndGet();
+        if ( count % DROP_WARNING_INTERVAL == 1 ) {
+          logger.warn( Messages.getInstance().getString( "AUDWRITER.WARN_0001_QUEUE_FULL", name, //$NON-NLS-1$
+              String.valueOf( count ) ) );
+        }
+        break;
+      case SPILL:
+        spill( Collections.singletonList( record ) );
+        break;
+      default:
+        try {
+          while ( !queue.offer( record, flushIntervalMillis, TimeUnit.MILLISECONDS ) ) {
+            if ( !running ) {
+              writeDirectly( record );
+              return;
+            }
+          }
+        } catch ( InterruptedException e ) {
+          Thread.currentThread().interrupt();
+          writeDirectly( record );
+        }
+    }
+  }
+
+  /**
+   * Stops queueing records, and waits for the queued ones to be written.
+   */
+  @Override
+  public void shutdown() {
+    running = false;
+    queue.offer( STOP );
+    try {
+      thread.join( TimeUnit.SECONDS.toMillis( DEFAULT_SHUTDOWN_TIMEOUT ) );
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+    }
+    List<AuditRecord> left = new ArrayList<AuditRecord>();
+    if ( !queue.isEmpty() ) {
+      queue.drainTo( left );
+      left.remove( STOP );
+    }
+    if ( !left.isEmpty() ) {
+      if ( spillFile != null ) {
+        spill( left );
+      } else {
+        failed.addAndGet( left.size() );
+        logger.warn( Messages.getInstance().getString( "AUDWRITER.WARN_0002_ENTRIES_LOST", name, //$NON-NLS-1$
+            String.valueOf( left.size() ) ) );
+      }
+    }
+  }
+
+  @Override
+  public boolean startup( final IPentahoSession session ) {
+    return true;
+  }
+
+  public boolean isRunning() {
+    return running;
+  }
+
+  /**
+   * @return the number of records waiting to be written
+   */
+  public int getQueueSize() {
+    return queue.size();
+  }
+
+  /**
+   * @return the number of records written
+   */
+  public long getWrittenCount() {
+    return written.get();
+  }
+
+  /**
+   * @return the number of records dropped because the queue was full
+   */
+  public long getDroppedCount() {
+    return dropped.get();
+  }
+
+  /**
+   * @return the number of records appended to the spill file
+   */
+  public long getSpilledCount() {
+    return spilled.get();
+  }
+
+  /**
+   * @return the number of records that could neither be written nor spilled
+   */
+  public long getFailedCount() {
+    return failed.get();
+  }
+
+  private void writeQueued() {
+    List<AuditRecord> batch = new ArrayList<AuditRecord>( batchSize );
+    while ( running || !queue.isEmpty() ) {
+      try {
+        AuditRecord first = queue.poll( flushIntervalMillis, TimeUnit.MILLISECONDS );
+        if ( first == null ) {
+          sink.idle();
+          continue;
+        } else if ( first == STOP ) {
+          continue;
+        }
+        batch.add( first );
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos( flushIntervalMillis );
+        while ( batch.size() < batchSize ) {
+          queue.drainTo( batch, batchSize - batch.size() );
+          long remaining = deadline - System.nanoTime();
+          if ( batch.size() >= batchSize || remaining <= 0 || !running ) {
+            break;
+          }
+          AuditRecord next = queue.poll( remaining, TimeUnit.NANOSECONDS );
+          if ( next == null ) {
+            break;
+          }
+          batch.add( next );
+        }
+        batch.remove( STOP );
+        writeNow( batch );
+      } catch ( InterruptedException e ) {
+        // only the shutdown stops the writer
+      } catch ( RuntimeException e ) {
+        logger.error( Messages.getInstance().getErrorString( "AUDWRITER.ERROR_0001_WRITE_FAILED", //$NON-NLS-1$
+            String.valueOf( batch.size() ), name ), e );
+      } finally {
+        batch.clear();
+      }
+    }
+    sink.idle();
+  }
+
+  /**
+   * Writes a record on the calling thread, letting go of what the sink holds right after, since no writer thread
+   * does it once the writer stopped.
+   */
+  private void writeDirectly( final AuditRecord record ) {
+    synchronized ( sink ) {
+      writeNow( Collections.singletonList( record ) );
+      sink.idle();
+    }
+  }
+
+  private void writeNow( final List<AuditRecord> records ) {
+    try {
+      synchronized ( sink ) {
+        sink.write( records );
+      }
+      written.addAndGet( records.size() );
+    } catch ( Exception e ) {
+      logger.error( Messages.getInstance().getErrorString( "AUDWRITER.ERROR_0001_WRITE_FAILED", //$NON-NLS-1$
+          String.valueOf( records.size() ), name ), e );
+      if ( overflowPolicy == OverflowPolicy.SPILL ) {
+        spill( records );
+      } else {
+        failed.addAndGet( records.size() );
+      }
+    }
+  }
+
+  /**
+   * Appends the records to the spill file, a tab separated line each, in the order of the columns of the audit table.
+   */
+  private synchronized void spill( final List<AuditRecord> records ) {
+    File spillDir = spillFile.getParentFile();
+    if ( spillDir != null && !spillDir.exists() ) {
+      spillDir.mkdirs();
+    }
+    try {
+      BufferedWriter writer =
+          new BufferedWriter( new OutputStreamWriter( new FileOutputStream( spillFile, true ), StandardCharsets.UTF_8 ) );
+      try {
+        for ( AuditRecord record : records ) {
+          writer.write( Instant.ofEpochMilli( record.getTimestamp() ).toString() );
+          for ( Object value : new Object[] { record.getJobId(), record.getInstId(), record.getObjId(),
+            record.getObjType(), record.getActor(), record.getMessageType(), record.getMessageName(),
+            record.getMessageTxtValue(), record.getMessageNumValue(), record.getDuration() } ) {
+            writer.write( '\t' );
+            writer.write( ( value == null ) ? "" : value.toString().replaceAll( "[\t\r\n]", " " ) ); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+          }
+          writer.newLine();
+        }
+      } finally {
+        writer.close();
+      }
+      spilled.addAndGet( records.size() );
+    } catch ( IOException e ) {
+      failed.addAndGet( records.size() );
+      logger.error( Messages.getInstance().getErrorString( "AUDWRITER.ERROR_0002_SPILL_FAILED", //$NON-NLS-1$
+          String.valueOf( records.size() ), spillFile.getPath() ), e );
+    }
+  }
+}
@@ -0,0 +1,186 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+
+
+package org.pentaho.platform.engine.services.audit;
+
+import java.text.SimpleDateFormat;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.SignStyle;
+import java.time.temporal.ChronoField;
+
+/**
+ * Turns the {@link SimpleDateFormat} patterns of the {@code audit/auditDateFormat} setting into formatters of
+ * {@link ZonedDateTime}, which print the same text.
+ * <p>
+ * Most pattern letters mean the same to both, but a few do not, or take other counts. Numbers are appended the way
+ * {@link SimpleDateFormat} prints them, padded to the count of letters, milliseconds included. Time zone offsets are
+ * appended as {@link SimpleDateFormat} prints them too.
+ */
+final class AuditDateFormats {
+
+  private AuditDateFormats() {
+  }
+
+  /**
+   * @return the formatter printing what a {@link SimpleDateFormat} of the pattern prints
+   * @throws IllegalArgumentException
+   *           if the pattern is not a valid {@link SimpleDateFormat} pattern, or cannot be translated
+   */
+  static DateTimeFormatter ofPattern( final String pattern ) {
+    // rejects what the setting never accepted
+    new SimpleDateFormat( pattern );
+    DateTimeFormatterBuilder builder = new DateTimeFormatterBuilder();
+    int i = 0;
+    while ( i < pattern.length() ) {
+      char c = pattern.charAt( i );
+      if ( c == '\'' ) {
+        i = appendQuoted( builder, pattern, i );
+      } else if ( ( c >= 'a' && c <= 'z' ) || ( c >= 'A' && c <= 'Z' ) ) {
+        int count = 1;
+        while ( i + count < pattern.length() && pattern.charAt( i + count ) == c ) {
+          count++;
+        }
+        appendField( builder, c, count );
+        i += count;
+      } else {
+        builder.appendLiteral( c );
+        i++;
+      }
+    }
+    DateTimeFormatter formatter = builder.toFormatter();
+    // fails on fields a zoned date time does not have
+    formatter.format( ZonedDateTime.now() );
+    return formatter;
+  }
+
+  /**
+   * Appends the quoted text starting at the given quote, a doubled quote being a quote.
+   *
+   * @return the index after the closing quote
+   */
+  private static int appendQuoted( final DateTimeFormatterBuilder builder, final String pattern, final int start ) {
+    if ( start + 1 < pattern.length() && pattern.charAt( start + 1 ) == '\'' ) {
+      builder.appendLiteral( '\'' );
+      return start + 2;
+    }
+    StringBuilder text = new StringBuilder();
+    int i = start + 1;
+    while ( i < pattern.length() ) {
+      char c = pattern.charAt( i );
+      if ( c == '\'' ) {
+        if ( i + 1 < pattern.length() && pattern.charAt( i + 1 ) == '\'' ) {
+          text.append( '\'' );
+          i += 2;
+          continue;
+        }
+        break;
+      }
+      text.append( c );
+      i++;
+    }
+    builder.appendLiteral( text.toString() );
+    return i + 1;
+  }
+
+  private static void appendField( final DateTimeFormatterBuilder builder, final char letter, final int count ) {
+    switch ( letter ) {
+      case 'd':
+        appendNumber( builder, ChronoField.DAY_OF_MONTH, count );
+        break;
+      case 'D':
+        appendNumber( builder, ChronoField.DAY_OF_YEAR, count );
+        break;
+      case 'F':
+        appendNumber( builder, ChronoField.ALIGNED_WEEK_OF_MONTH, count );
+        break;
+      case 'u':
+        appendNumber( builder, ChronoField.DAY_OF_WEEK, count );
+        break;
+      case 'H':
+        appendNumber( builder, ChronoField.HOUR_OF_DAY, count );
+        break;
+      case 'k':
+        appendNumber( builder, ChronoField.CLOCK_HOUR_OF_DAY, count );
+        break;
+      case 'K':
+        appendNumber( builder, ChronoField.HOUR_OF_AMPM, count );
+        break;
+      case 'h':
+        appendNumber( builder, ChronoField.CLOCK_HOUR_OF_AMPM, count );
+        break;
+      case 'm':
+        appendNumber( builder, ChronoField.MINUTE_OF_HOUR, count );
+        break;
+      case 's':
+        appendNumber( builder, ChronoField.SECOND_OF_MINUTE, count );
+        break;
+      case 'S':
+        appendNumber( builder, ChronoField.MILLI_OF_SECOND, count );
+        break;
+      case 'Z':
+        builder.appendOffset( "+HHMM", "+0000" ); //$NON-NLS-1$ //$NON-NLS-2$
+        break;
+      case 'X':
+        // a single letter prints the hours only, also for offsets with minutes
+        if ( count == 1 ) {
+          builder.appendOffset( "+HH", "Z" ); //$NON-NLS-1$ //$NON-NLS-2$
+        } else if ( count == 2 ) {
+          builder.appendOffset( "+HHMM", "Z" ); //$NON-NLS-1$ //$NON-NLS-2$
+        } else {
+          builder.appendOffset( "+HH:MM", "Z" ); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+        break;
+      case 'a':
+        builder.appendPattern( "a" ); //$NON-NLS-1$
+        break;
+      case 'w':
+        builder.appendPattern( repeat( letter, Math.min( count, 2 ) ) );
+        break;
+      case 'W':
+        builder.appendPattern( "W" ); //$NON-NLS-1$
+        break;
+      case 'G':
+      case 'E':
+      case 'M':
+      case 'L':
+      case 'z':
+        // five letters are the narrow form to DateTimeFormatter, more than four are the full form to SimpleDateFormat
+        builder.appendPattern( repeat( letter, Math.min( count, 4 ) ) );
+        break;
+      default:
+        // y and Y mean the same to both
+        builder.appendPattern( repeat( letter, count ) );
+    }
+  }
+
+  private static void appendNumber( final DateTimeFormatterBuilder builder, final ChronoField field,
+      final int count ) {
+    if ( count == 1 ) {
+      builder.appendValue( field );
+    } else {
+      builder.appendValue( field, Math.min( count, 19 ), 19, SignStyle.NOT_NEGATIVE );
+    }
+  }
+
+  private static String repeat( final char letter, final int count ) {
+    StringBuilder letters = new StringBuilder( count );
+    for ( int i = 0; i < count; i++ ) {
+      letters.append( letter );
+    }
+    return letters.toString();
+  }
+}
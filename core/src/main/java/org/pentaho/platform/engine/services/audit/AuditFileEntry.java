@@ -13,26 +13,32 @@
 
 package org.pentaho.platform.engine.services.audit;
 
+import org.apache.commons.lang.math.NumberUtils;
 import org.pentaho.platform.api.engine.AuditException;
 import org.pentaho.platform.api.engine.IAuditEntry;
 import org.pentaho.platform.engine.core.messages.Messages;
 import org.pentaho.platform.engine.core.system.PentahoSystem;
 import org.pentaho.platform.util.logging.Logger;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.charset.Charset;
 import java.text.DecimalFormat;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.time.Clock;
+import java.time.DateTimeException;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
 
 /**
+ * Appends audit entries to the audit log, one line per entry.
+ * <p>
+ * Entries are formatted on the thread auditing them, and appended by an {@link AuditFileWriter}, which keeps the log
+ * open and starts a new one according to the {@code audit/maxFileSize} (in bytes) and {@code audit/rotation} (none,
+ * hourly or daily) settings. Every write is synced to disk if {@code audit/syncWrites} is true.
+ *
  * @author mbatchel
- * 
- *         TODO To change the template for this generated type comment go to Window - Preferences - Java - Code
- *         Style - Code Templates
  */
 public class AuditFileEntry implements IAuditEntry {
   private static final String auditDirPath = "system/logs/audit"; //$NON-NLS-1$
@@ -40,12 +46,29 @@ public class AuditFileEntry implements IAuditEntry {
   private static final String auditFileName = PentahoSystem.getSystemSetting(
       "audit/auditLogFile", "/PentahoAuditLog.log" ); //$NON-NLS-1$ //$NON-NLS-2$
 
+  private static final String DEFAULT_DATE_FORMAT = "yyyy/MM/dd k:mm:ss"; //$NON-NLS-1$
+
+  private static final int DEFAULT_QUEUE_SIZE = 10000;
+
   private static File auditFile = null;
 
+  private static volatile AuditFileWriter writer = null;
+
   private static String ID_SEPARATOR = PentahoSystem.getSystemSetting( "audit/id_separator", "\t" ); //$NON-NLS-1$ //$NON-NLS-2$
 
-  private static final SimpleDateFormat auditDateFormat = new SimpleDateFormat( PentahoSystem.getSystemSetting(
-      "audit/auditDateFormat", "yyyy/MM/dd k:mm:ss" ) ); //$NON-NLS-1$ //$NON-NLS-2$
+  private static final DateTimeFormatter auditDateFormat = dateFormatter( PentahoSystem.getSystemSetting(
+      "audit/auditDateFormat", DEFAULT_DATE_FORMAT ) ); //$NON-NLS-1$
+
+  private static final ThreadLocal<DecimalFormat> numberFormat = new ThreadLocal<DecimalFormat>() {
+    @Override
+    protected DecimalFormat initialValue() {
+      return new DecimalFormat( "#.###" ); //$NON-NLS-1$
+    }
+  };
+
+  private static final String LINE_SEPARATOR = System.getProperty( "line.separator" ); //$NON-NLS-1$
+
+  private static final Charset charset = Charset.defaultCharset();
 
   public AuditFileEntry() {
     File auditDir = new File( PentahoSystem.getApplicationContext().getFileOutputPath( AuditFileEntry.auditDirPath ) );
@@ -56,49 +79,77 @@ public class AuditFileEntry implements IAuditEntry {
           "AUDFILEENT.ERROR_0001_AUDIT_PATH_NOT_DIRECTORY", AuditFileEntry.auditDirPath ) ); //$NON-NLS-1$
       return;
     }
-    AuditFileEntry.auditFile = new File( auditDir, AuditFileEntry.auditFileName );
+    startWriter( new File( auditDir, AuditFileEntry.auditFileName ) );
     if ( "\\t".equals( AuditFileEntry.ID_SEPARATOR ) ) { //$NON-NLS-1$
       AuditFileEntry.ID_SEPARATOR = "\t"; //$NON-NLS-1$
     }
   }
 
-  public synchronized void auditAll( final String jobId, final String instId, final String objId, final String objType,
+  /**
+   * Starts the writer of the log, unless it is already writing to that file.
+   */
+  private static synchronized void startWriter( final File file ) {
+    if ( writer != null && writer.isRunning() && file.equals( auditFile ) ) {
+      return;
+    }
+    if ( writer != null ) {
+      writer.shutdown();
+    }
+    AuditFileWriter.Rotation rotation = AuditFileWriter.Rotation.NONE;
+    String rotationSetting = PentahoSystem.getSystemSetting( "audit/rotation", null ); //$NON-NLS-1$
+    if ( rotationSetting != null && !rotationSetting.trim().isEmpty() ) {
+      try {
+        rotation = AuditFileWriter.Rotation.valueOf( rotationSetting.trim().toUpperCase( Locale.ROOT ) );
+      } catch ( IllegalArgumentException e ) {
+        Logger.warn( AuditFileEntry.class.getName(), Messages.getInstance().getString(
+            "AUDFILEENT.WARN_0001_UNKNOWN_ROTATION", rotationSetting ) ); //$NON-NLS-1$
+      }
+    }
+    long maxFileSize = NumberUtils.toLong( PentahoSystem.getSystemSetting( "audit/maxFileSize", null ), 0 ); //$NON-NLS-1$
+    int queueSize =
+        NumberUtils.toInt( PentahoSystem.getSystemSetting( "audit/queueSize", null ), DEFAULT_QUEUE_SIZE ); //$NON-NLS-1$
+    boolean syncWrites = Boolean.parseBoolean( PentahoSystem.getSystemSetting( "audit/syncWrites", "false" ) ); //$NON-NLS-1$ //$NON-NLS-2$
+    auditFile = file;
+    writer = new AuditFileWriter( file, queueSize, maxFileSize, rotation, syncWrites, Clock.systemDefaultZone() );
+    PentahoSystem.addSystemListener( writer );
+  }
+
+  /**
+   * @return the formatter of the SimpleDateFormat pattern of the setting, or of the default pattern if it is invalid
+   */
+  private static DateTimeFormatter dateFormatter( final String pattern ) {
+    try {
+      return AuditDateFormats.ofPattern( pattern );
+    } catch ( IllegalArgumentException | DateTimeException e ) {
+      Logger.warn( AuditFileEntry.class.getName(), Messages.getInstance().getString(
+          "AUDFILEENT.WARN_0002_INVALID_DATE_FORMAT", pattern ) ); //$NON-NLS-1$
+      return AuditDateFormats.ofPattern( DEFAULT_DATE_FORMAT );
+    }
+  }
+
+  public void auditAll( final String jobId, final String instId, final String objId, final String objType,
       final String actor, final String messageType, final String messageName, final String messageTxtValue,
       final BigDecimal messageNumValue, final double duration ) throws AuditException {
 
-    if ( AuditFileEntry.auditFile == null ) {
+    AuditFileWriter auditWriter = AuditFileEntry.writer;
+    if ( auditWriter == null ) {
       return;
     }
+    StringBuilder line = new StringBuilder( 256 );
+    line.append( AuditFileEntry.auditDateFormat.format( ZonedDateTime.now() ) );
+    line.append( AuditFileEntry.ID_SEPARATOR ).append( getWritable( jobId ) );
+    line.append( AuditFileEntry.ID_SEPARATOR ).append( getWritable( instId ) );
+    line.append( AuditFileEntry.ID_SEPARATOR ).append( getWritable( objId ) );
+    line.append( AuditFileEntry.ID_SEPARATOR ).append( getWritable( objType ) );
+    line.append( AuditFileEntry.ID_SEPARATOR ).append( getWritable( actor ) );
+    line.append( AuditFileEntry.ID_SEPARATOR ).append( getWritable( messageType ) );
+    line.append( AuditFileEntry.ID_SEPARATOR ).append( getWritable( messageName ) );
+    line.append( AuditFileEntry.ID_SEPARATOR ).append( getWritable( messageTxtValue ) );
+    line.append( AuditFileEntry.ID_SEPARATOR ).append( getWritable( messageNumValue ) );
+    line.append( AuditFileEntry.ID_SEPARATOR ).append( getWritable( duration ) );
+    line.append( LINE_SEPARATOR );
     try {
-      BufferedWriter fw = new BufferedWriter( new FileWriter( AuditFileEntry.auditFile, true ) );
-      try {
-        Date dt = new Date();
-        fw.write( AuditFileEntry.auditDateFormat.format( dt ) );
-        fw.write( AuditFileEntry.ID_SEPARATOR );
-        fw.write( getWritable( jobId ) );
-        fw.write( AuditFileEntry.ID_SEPARATOR );
-        fw.write( getWritable( instId ) );
-        fw.write( AuditFileEntry.ID_SEPARATOR );
-        fw.write( getWritable( objId ) );
-        fw.write( AuditFileEntry.ID_SEPARATOR );
-        fw.write( getWritable( objType ) );
-        fw.write( AuditFileEntry.ID_SEPARATOR );
-        fw.write( getWritable( actor ) );
-        fw.write( AuditFileEntry.ID_SEPARATOR );
-        fw.write( getWritable( messageType ) );
-        fw.write( AuditFileEntry.ID_SEPARATOR );
-        fw.write( getWritable( messageName ) );
-        fw.write( AuditFileEntry.ID_SEPARATOR );
-        fw.write( getWritable( messageTxtValue ) );
-        fw.write( AuditFileEntry.ID_SEPARATOR );
-        fw.write( getWritable( messageNumValue ) );
-        fw.write( AuditFileEntry.ID_SEPARATOR );
-        fw.write( getWritable( duration ) );
-        fw.newLine();
-      } finally {
-        fw.flush();
-        fw.close();
-      }
+      auditWriter.write( line.toString().getBytes( charset ) );
     } catch ( IOException ex ) {
       throw new AuditException( ex );
     }
@@ -106,8 +157,7 @@ public class AuditFileEntry implements IAuditEntry {
 
   private String getWritable( final Object obj ) {
     if ( obj instanceof BigDecimal ) {
-      DecimalFormat format = new DecimalFormat( "#.###" ); //$NON-NLS-1$
-      return format.format( obj );
+      return numberFormat.get().format( obj );
     } else {
       return ( obj != null ) ? obj.toString() : ""; //$NON-NLS-1$
     }
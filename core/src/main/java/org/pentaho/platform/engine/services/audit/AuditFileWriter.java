@@ -0,0 +1,319 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.engine.services.audit;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.pentaho.platform.api.engine.IPentahoSession;
+import org.pentaho.platform.api.engine.IPentahoSystemListener;
+import org.pentaho.platform.engine.core.messages.Messages;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Appends lines to the audit log from a single writer thread, through one file channel kept open.
+ * <p>
+ * Every line queued while the writer was busy is written with the next write, so threads auditing at the same time
+ * share one write, and one sync if every write is to be synced. The log is moved aside to a file named after the time
+ * it was moved at, and a new one is started, when it grows past a maximum size or when a new hour or day begins.
+ */
+class AuditFileWriter implements IPentahoSystemListener {
+
+  /**
+   * When to start a new log regardless of its size
+   */
+  enum Rotation {
+    NONE( null ), HOURLY( ChronoUnit.HOURS ), DAILY( ChronoUnit.DAYS );
+
+    private final ChronoUnit unit;
+
+    Rotation( ChronoUnit unit ) {
+      this.unit = unit;
+    }
+  }
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private static final byte[] STOP = new byte[0];
+
+  private static final DateTimeFormatter ROTATED_SUFFIX = DateTimeFormatter.ofPattern( "yyyy-MM-dd_HH-mm-ss" ); //$NON-NLS-1$
+
+  /**
+   * How long to keep appending to the log after it could not be moved aside before trying again
+   */
+  private static final long ROTATION_RETRY_MILLIS = TimeUnit.MINUTES.toMillis( 1 );
+
+  private static final Log logger = LogFactory.getLog( AuditFileWriter.class );
+
+  private final File file;
+  private final long maxFileSize;
+  private final Rotation rotation;
+  private final boolean sync;
+  private final Clock clock;
+  private final BlockingQueue<byte[]> queue;
+  private final ByteBuffer buffer = ByteBuffer.allocateDirect( BUFFER_SIZE );
+  private final Thread thread;
+
+  private volatile boolean running = true;
+
+  private FileChannel channel;
+  private long fileSize;
+  private LocalDateTime period;
+  private long rotationRetryAt = -1;
+
+  AuditFileWriter( final File file, final int queueSize, final long maxFileSize, final Rotation rotation,
+      final boolean sync, final Clock clock ) {
+    this.file = file;
+    this.queue = new ArrayBlockingQueue<byte[]>( Math.max( 1, queueSize ) );
+    this.maxFileSize = maxFileSize;
+    this.rotation = rotation;
+    this.sync = sync;
+    this.clock = clock;
+    thread = new ThreadFactoryBuilder().setNameFormat( "audit-file-writer" ).setDaemon( true ).build() //$NON-NLS-1$
+        .newThread( new Runnable() {
+          @Override
+          public void run() {
+            writeQueued();
+          }
+        } );
+    thread.start();
+  }
+
+  /**
+   * Queues a line to be appended, waiting for room if the queue is full. Once the writer is shut down, the line is
+   * appended right away and the log closed again.
+   */
+  void write( final byte[] line ) throws IOException {
+    if ( running ) {
+      try {
+        while ( !queue.offer( line, 1, TimeUnit.SECONDS ) ) {
+          if ( !running ) {
+            break;
+          }
+        }
+        if ( running ) {
+          return;
+        }
+      } catch ( InterruptedException e ) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    List<byte[]> lines = new ArrayList<byte[]>( 1 );
+    lines.add( line );
+    synchronized ( this ) {
+      try {
+        append( lines );
+      } finally {
+        if ( !running ) {
+          closeChannel();
+        }
+      }
+    }
+  }
+
+  /**
+   * Stops queueing lines, appends the queued ones and closes the log.
+   */
+  @Override
+  public void shutdown() {
+    running = false;
+    queue.offer( STOP );
+    try {
+      thread.join( TimeUnit.SECONDS.toMillis( 30 ) );
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+    }
+    synchronized ( this ) {
+      List<byte[]> left = new ArrayList<byte[]>();
+      queue.drainTo( left );
+      left.remove( STOP );
+      try {
+        if ( !left.isEmpty() ) {
+          append( left );
+        }
+      } catch ( IOException e ) {
+        logger.error( Messages.getInstance().getErrorString( "AUDFILEENT.ERROR_0002_WRITE_FAILED", //$NON-NLS-1$
+            String.valueOf( left.size() ), file.getPath() ), e );
+      }
+      closeChannel();
+    }
+  }
+
+  @Override
+  public boolean startup( final IPentahoSession session ) {
+    return true;
+  }
+
+  boolean isRunning() {
+    return running;
+  }
+
+  /**
+   * @return whether the log is open
+   */
+  synchronized boolean isOpen() {
+    return channel != null;
+  }
+
+  private void writeQueued() {
+    List<byte[]> lines = new ArrayList<byte[]>();
+    while ( running || !queue.isEmpty() ) {
+      try {
+        byte[] line = queue.poll( 1, TimeUnit.SECONDS );
+        if ( line == null || line == STOP ) {
+          continue;
+        }
+        lines.add( line );
+        queue.drainTo( lines );
+        lines.remove( STOP );
+        synchronized ( this ) {
+          append( lines );
+        }
+      } catch ( InterruptedException e ) {
+        // only the shutdown stops the writer
+      } catch ( IOException e ) {
+        logger.error( Messages.getInstance().getErrorString( "AUDFILEENT.ERROR_0002_WRITE_FAILED", //$NON-NLS-1$
+            String.valueOf( lines.size() ), file.getPath() ), e );
+        synchronized ( this ) {
+          closeChannel();
+        }
+      } finally {
+        lines.clear();
+      }
+    }
+  }
+
+  /**
+   * Appends the lines with as few writes as the buffer allows, starting a new log first if the current one is due.
+   */
+  private void append( final List<byte[]> lines ) throws IOException {
+    rotateIfDue();
+    if ( channel == null ) {
+      open();
+    }
+    buffer.clear();
+    for ( byte[] line : lines ) {
+      int offset = 0;
+      while ( offset < line.length ) {
+        if ( !buffer.hasRemaining() ) {
+          flush();
+        }
+        int length = Math.min( buffer.remaining(), line.length - offset );
+        buffer.put( line, offset, length );
+        offset += length;
+      }
+    }
+    flush();
+    if ( sync ) {
+      channel.force( false );
+    }
+  }
+
+  private void flush() throws IOException {
+    buffer.flip();
+    while ( buffer.hasRemaining() ) {
+      fileSize += channel.write( buffer );
+    }
+    buffer.clear();
+  }
+
+  private void open() throws IOException {
+    File dir = file.getParentFile();
+    if ( dir != null && !dir.exists() ) {
+      dir.mkdirs();
+    }
+    channel = FileChannel.open( file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.APPEND );
+    fileSize = channel.size();
+    period = currentPeriod();
+  }
+
+  /**
+   * Moves the log aside if it is due. If it cannot be moved, e.g. because another process holds it, the lines keep
+   * being appended to it and moving it is tried again a minute later.
+   */
+  private void rotateIfDue() {
+    if ( channel == null ) {
+      return;
+    }
+    boolean tooBig = maxFileSize > 0 && fileSize >= maxFileSize;
+    boolean newPeriod = period != null && !period.equals( currentPeriod() );
+    boolean retry = rotationRetryAt >= 0;
+    if ( ( tooBig || newPeriod || retry ) && fileSize > 0 ) {
+      if ( retry && clock.millis() < rotationRetryAt ) {
+        return;
+      }
+      closeChannel();
+      File rotated = rotatedFile();
+      if ( moveAside( rotated ) ) {
+        rotationRetryAt = -1;
+      } else {
+        logger.warn( Messages.getInstance().getString( "AUDFILEENT.WARN_0003_ROTATION_FAILED", //$NON-NLS-1$
+            file.getPath(), rotated.getPath() ) );
+        rotationRetryAt = clock.millis() + ROTATION_RETRY_MILLIS;
+      }
+    } else if ( newPeriod ) {
+      period = currentPeriod();
+    }
+  }
+
+  /**
+   * @return whether the log could be moved to the given file
+   */
+  boolean moveAside( final File rotated ) {
+    return file.renameTo( rotated );
+  }
+
+  private File rotatedFile() {
+    String name = file.getName();
+    int dot = name.lastIndexOf( '.' );
+    String base = ( dot > 0 ) ? name.substring( 0, dot ) : name;
+    String extension = ( dot > 0 ) ? name.substring( dot ) : ""; //$NON-NLS-1$
+    String suffix = ROTATED_SUFFIX.format( LocalDateTime.now( clock ) );
+    File rotated = new File( file.getParentFile(), base + "." + suffix + extension ); //$NON-NLS-1$
+    for ( int i = 1; rotated.exists(); i++ ) {
+      rotated = new File( file.getParentFile(), base + "." + suffix + "." + i + extension ); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+    return rotated;
+  }
+
+  private LocalDateTime currentPeriod() {
+    return ( rotation.unit == null ) ? null : LocalDateTime.now( clock ).truncatedTo( rotation.unit );
+  }
+
+  private void closeChannel() {
+    if ( channel != null ) {
+      try {
+        channel.close();
+      } catch ( IOException e ) {
+        logger.error( e.getMessage(), e );
+      }
+      channel = null;
+    }
+  }
+}
@@ -14,12 +14,15 @@
 package org.pentaho.platform.engine.services.audit;
 
 import org.pentaho.platform.api.engine.AuditException;
+import org.pentaho.platform.api.engine.IApplicationContext;
 import org.pentaho.platform.api.engine.IAuditEntry;
+import org.pentaho.platform.api.engine.ISystemConfig;
 import org.pentaho.platform.engine.core.audit.AuditHelper;
 import org.pentaho.platform.engine.core.messages.Messages;
 import org.pentaho.platform.engine.core.system.PentahoSystem;
 import org.pentaho.platform.util.logging.Logger;
 
+import java.io.File;
 import java.math.BigDecimal;
 import java.sql.ResultSet;
 import java.sql.PreparedStatement;
@@ -28,16 +31,36 @@ import java.sql.Types;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.Timestamp;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
+ * Writes audit entries to the audit table.
+ * <p>
+ * Entries are inserted in batches by an {@link AsyncAuditWriter}, configured by the {@code system.auditSql*} settings,
+ * unless {@code system.auditSqlAsync} is false, in which case each entry is inserted on the thread auditing it.
+ * Entries that do not fit in the queue of the writer are appended to {@code system/logs/audit/audit_sql_spill.log} if
+ * the overflow policy is spill.
+ *
  * @author mbatchel
  * 
  */
 public class AuditSQLEntry implements IAuditEntry {
   private static AuditConnection audc;
 
+  private static final String WRITER_PREFIX = "auditSql"; //$NON-NLS-1$
+
+  private static final String SPILL_FILE_PATH = "system/logs/audit/audit_sql_spill.log"; //$NON-NLS-1$
+
+  private static volatile AsyncAuditWriter writer;
+
+  /**
+   * Whether the settings were read, the writer stays null if entries are inserted as they are audited
+   */
+  private static volatile boolean writerCreated;
+
   private Map<String, String> columnsSizeMap;
   private static String TABLE_NAME;
   private static final String CONFIG_FILE_NAME = "audit_sql.xml";
@@ -128,24 +151,21 @@ public class AuditSQLEntry implements IAuditEntry {
       final String actor, final String messageType, final String messageName, final String messageTxtValue,
       final BigDecimal messageNumValue, final double duration ) throws AuditException {
 
+    AuditRecord record =
+        new AuditRecord( jobId, instId, objId, objType, actor, messageType, messageName, messageTxtValue,
+            messageNumValue, duration, System.currentTimeMillis() );
+    AsyncAuditWriter auditWriter = getWriter();
+    if ( auditWriter != null ) {
+      auditWriter.write( record );
+      return;
+    }
     Connection con = null;
     try {
       con = AuditSQLEntry.audc.getAuditConnection();
       try {
         PreparedStatement stmt = con.prepareStatement( AuditSQLEntry.INSERT_STMT );
         try {
-          setString( stmt, 1, jobId );
-          setString( stmt, 2, instId );
-          setString( stmt, 3, objId );
-          setString( stmt, 4, objType );
-          setString( stmt, 5, actor );
-          setString( stmt, 6, messageType );
-          setString( stmt, 7, messageName );
-          setObject( stmt, 8, messageTxtValue );
-          setBigDec( stmt, 9, messageNumValue );
-          setBigDec( stmt, 10, BigDecimal.valueOf( duration ) );
-          stmt.setTimestamp( 11, new Timestamp( System.currentTimeMillis() ) );
-          stmt.executeUpdate();
+          insert( con, stmt, Collections.singletonList( record ) );
         } catch ( SQLException ex ) {
           Logger.error( this.getClass().getName(), ex.getMessage(), ex );
           try {
@@ -165,6 +185,119 @@ public class AuditSQLEntry implements IAuditEntry {
     }
   }
 
+  /**
+   * Returns the writer inserting entries in the background. It is created once, the first time an entry is audited.
+   * Once the platform shut it down, it inserts the entries it gets right away, on the thread auditing them.
+   *
+   * @return the writer, or null if entries are inserted as they are audited
+   */
+  protected AsyncAuditWriter getWriter() {
+    if ( !writerCreated ) {
+      synchronized ( AuditSQLEntry.class ) {
+        if ( !writerCreated ) {
+          writer = createWriter();
+          writerCreated = true;
+        }
+      }
+    }
+    return writer;
+  }
+
+  private AsyncAuditWriter createWriter() {
+    ISystemConfig systemConfig = PentahoSystem.get( ISystemConfig.class );
+    String async = ( systemConfig == null ) ? null : systemConfig.getProperty( "system.auditSqlAsync" ); //$NON-NLS-1$
+    if ( async != null && "false".equalsIgnoreCase( async.trim() ) ) { //$NON-NLS-1$
+      return null;
+    }
+    IApplicationContext applicationContext = PentahoSystem.getApplicationContext();
+    File spillFile = ( applicationContext == null ) ? null
+        : new File( applicationContext.getFileOutputPath( SPILL_FILE_PATH ) );
+    return AsyncAuditWriter.create( WRITER_PREFIX, new BatchInsert(), spillFile );
+  }
+
+  /**
+   * Inserts the records with the statement, in one batch if there are more than one.
+   */
+  private void insert( final Connection con, final PreparedStatement stmt, final List<AuditRecord> records )
+    throws SQLException {
+    for ( AuditRecord record : records ) {
+      setString( stmt, 1, record.getJobId() );
+      setString( stmt, 2, record.getInstId() );
+      setString( stmt, 3, record.getObjId() );
+      setString( stmt, 4, record.getObjType() );
+      setString( stmt, 5, record.getActor() );
+      setString( stmt, 6, record.getMessageType() );
+      setString( stmt, 7, record.getMessageName() );
+      setObject( stmt, 8, record.getMessageTxtValue() );
+      setBigDec( stmt, 9, record.getMessageNumValue() );
+      setBigDec( stmt, 10, BigDecimal.valueOf( record.getDuration() ) );
+      stmt.setTimestamp( 11, new Timestamp( record.getTimestamp() ) );
+      if ( records.size() == 1 ) {
+        stmt.executeUpdate();
+      } else {
+        stmt.addBatch();
+      }
+    }
+    if ( records.size() > 1 ) {
+      stmt.executeBatch();
+    }
+    if ( !con.getAutoCommit() ) {
+      con.commit();
+    }
+  }
+
+  /**
+   * Inserts the batches of the writer, keeping the connection and the prepared statement between batches until the
+   * writer is idle.
+   */
+  private class BatchInsert implements AsyncAuditWriter.Sink {
+
+    private Connection con;
+
+    private PreparedStatement stmt;
+
+    @Override
+    public void write( final List<AuditRecord> records ) throws SQLException {
+      try {
+        if ( stmt == null ) {
+          con = AuditSQLEntry.audc.getAuditConnection();
+          stmt = con.prepareStatement( AuditSQLEntry.INSERT_STMT );
+        }
+        insert( con, stmt, records );
+      } catch ( SQLException ex ) {
+        try {
+          if ( con != null ) {
+            con.rollback();
+          }
+        } catch ( SQLException rollbackExc ) {
+          Logger.error( AuditSQLEntry.class.getName(), rollbackExc.getMessage(), rollbackExc );
+        }
+        idle();
+        throw ex;
+      }
+    }
+
+    @Override
+    public void idle() {
+      try {
+        if ( stmt != null ) {
+          stmt.close();
+        }
+      } catch ( SQLException ex ) {
+        Logger.error( AuditSQLEntry.class.getName(), ex.getMessage(), ex );
+      }
+      try {
+        if ( con != null ) {
+          con.close();
+        }
+      } catch ( SQLException ex ) {
+        Logger.error( AuditSQLEntry.class.getName(), ex.getMessage(), ex );
+      }
+      stmt = null;
+      con = null;
+    }
+  }
+
   private Map<String, String> getColumnsSizeMap() {
     if ( columnsSizeMap == null && TABLE_NAME != null ) {
       Connection con = null;
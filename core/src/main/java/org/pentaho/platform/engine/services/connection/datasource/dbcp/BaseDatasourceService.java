@@ -20,10 +20,12 @@ import org.pentaho.platform.api.engine.ICacheManager;
 import org.pentaho.platform.api.repository.datasource.IDatasourceMgmtService;
 import org.pentaho.platform.engine.core.system.PentahoSessionHolder;
 import org.pentaho.platform.engine.core.system.PentahoSystem;
+import org.pentaho.platform.plugin.action.kettle.PoolingManagedDataSource;
 
 import javax.naming.InitialContext;
 import javax.naming.NamingException;
 import javax.sql.DataSource;
+import java.util.List;
 
 public abstract class BaseDatasourceService implements IDBDatasourceService {
   ICacheManager cacheManager;
@@ -39,7 +41,13 @@ public abstract class BaseDatasourceService implements IDBDatasourceService {
    * 
    */
   public void clearCache() {
+    List cached = cacheManager.getAllValuesFromRegionCache( IDBDatasourceService.JDBC_DATASOURCE );
     cacheManager.removeRegionCache( IDBDatasourceService.JDBC_DATASOURCE );
+    if ( cached != null ) {
+      for ( Object dataSource : cached ) {
+        closePool( dataSource );
+      }
+    }
   }
 
   /**
@@ -48,7 +56,18 @@ public abstract class BaseDatasourceService implements IDBDatasourceService {
    * 
    */
   public void clearDataSource( String dsName ) {
+    Object cached = cacheManager.getFromRegionCache( IDBDatasourceService.JDBC_DATASOURCE, dsName );
     cacheManager.removeFromRegionCache( IDBDatasourceService.JDBC_DATASOURCE, dsName );
+    closePool( cached );
+  }
+
+  /**
+   * Closes a connection pool dropped from the cache, or expires it if it is still in use.
+   */
+  private void closePool( Object dataSource ) {
+    if ( dataSource instanceof PoolingManagedDataSource ) {
+      PooledDatasourceRegistry.close( (PoolingManagedDataSource) dataSource );
+    }
   }
 
   public DataSource getDataSource( String dsName ) throws DBDatasourceServiceException {
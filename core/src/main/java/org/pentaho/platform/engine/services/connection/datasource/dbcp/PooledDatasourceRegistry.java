@@ -0,0 +1,323 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.engine.services.connection.datasource.dbcp;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.pentaho.database.model.IDatabaseConnection;
+import org.pentaho.platform.api.data.DBDatasourceServiceException;
+import org.pentaho.platform.api.data.IDBDatasourceService;
+import org.pentaho.platform.api.engine.ICacheManager;
+import org.pentaho.platform.plugin.action.kettle.PoolingManagedDataSource;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The connection pools resolved by a {@link PooledOrJndiDatasourceService}, by connection name.
+ * <p>
+ * The {@link IDBDatasourceService#JDBC_DATASOURCE} region stays the place where the current pool of a connection is
+ * published: a pool found there, e.g. one created by {@link PooledDatasourceSystemListener} at startup, is adopted
+ * rather than created again, and a pool dropped from it by {@link BaseDatasourceService#clearDataSource(String)} or
+ * {@link BaseDatasourceService#clearCache()} is no longer handed out. The registry only adds the bookkeeping that keeps
+ * lookups lock free.
+ * <p>
+ * Looking up a pool whose configuration did not change takes no lock. Creating a pool, or replacing it after its
+ * configuration changed or it expired, only blocks other lookups of the same connection name. A replaced pool is
+ * closed; if it is still in use it is expired instead, so its users can hand over to the new one, and closed once they
+ * let go of it.
+ */
+public class PooledDatasourceRegistry {
+
+  private static final Log log = LogFactory.getLog( PooledDatasourceRegistry.class );
+
+  private final ICacheManager cacheManager;
+
+  private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+
+  private final Queue<PoolingManagedDataSource> retired = new ConcurrentLinkedQueue<PoolingManagedDataSource>();
+
+  /**
+   * @param cacheManager the cache manager holding the {@link IDBDatasourceService#JDBC_DATASOURCE} region, null to
+   *                     keep the pools in the registry only
+   */
+  public PooledDatasourceRegistry( ICacheManager cacheManager ) {
+    this.cacheManager = cacheManager;
+  }
+
+  /**
+   * Returns the pool of the given connection, creating it if there is none yet, if it expired or if the configuration
+   * of the connection changed since it was created.
+   *
+   * @param databaseConnection the connection to pool
+   * @return the pool of the connection
+   * @throws DBDatasourceServiceException if the pool could not be created
+   */
+  public PoolingManagedDataSource getDataSource( final IDatabaseConnection databaseConnection )
+    throws DBDatasourceServiceException {
+    final String name = databaseConnection.getName();
+    final String configHash = databaseConnection.calculateHash();
+
+    Entry entry = entries.get( name );
+    if ( entry != null && entry.isCurrent( configHash ) && isPublished( name, entry.dataSource ) ) {
+      if ( !retired.isEmpty() ) {
+        closeRetired();
+      }
+      return entry.dataSource;
+    }
+
+    try {
+      entry = entries.compute( name, ( key, current ) -> {
+        Object published = getFromRegion( name );
+        if ( current != null && current.isCurrent( configHash )
+          && ( published == null || published == current.dataSource ) ) {
+          // the region may have evicted it on its own
+          putInRegion( name, current.dataSource );
+          return current;
+        }
+
+        Entry next;
+        if ( published instanceof PoolingManagedDataSource
+          && ( (PoolingManagedDataSource) published ).hasSameConfig( configHash )
+          && !( (PoolingManagedDataSource) published ).isExpired() ) {
+          next = new Entry( (PoolingManagedDataSource) published, 0, current == null ? 1 : current.creations );
+        } else {
+          long start = System.nanoTime();
+          try {
+            PoolingManagedDataSource dataSource = createDataSource( databaseConnection );
+            next = new Entry( dataSource, System.nanoTime() - start, current == null ? 1 : current.creations + 1 );
+          } catch ( DBDatasourceServiceException e ) {
+            throw new CreationFailedException( e );
+          }
+          if ( published instanceof PoolingManagedDataSource ) {
+            retire( (PoolingManagedDataSource) published );
+          }
+          putInRegion( name, next.dataSource );
+        }
+        if ( current != null && current.dataSource != next.dataSource && current.dataSource != published ) {
+          retire( current.dataSource );
+        }
+        return next;
+      } );
+    } catch ( CreationFailedException e ) {
+      throw (DBDatasourceServiceException) e.getCause();
+    }
+    closeRetired();
+    return entry.dataSource;
+  }
+
+  /**
+   * Creates the pool of the given connection. Only called by one thread at a time for a given connection name.
+   */
+  protected PoolingManagedDataSource createDataSource( IDatabaseConnection databaseConnection )
+    throws DBDatasourceServiceException {
+    return (PoolingManagedDataSource) PooledDatasourceHelper.setupPooledDataSource( databaseConnection, false );
+  }
+
+  /**
+   * Forgets the pool of the given connection and closes it, the next lookup creates a new one.
+   */
+  public void remove( String name ) {
+    Entry entry = entries.remove( name );
+    if ( entry != null ) {
+      retire( entry.dataSource );
+    }
+    closeRetired();
+  }
+
+  /**
+   * Forgets and closes every pool.
+   */
+  public void clear() {
+    for ( Iterator<Entry> it = entries.values().iterator(); it.hasNext(); ) {
+      retire( it.next().dataSource );
+      it.remove();
+    }
+    closeRetired();
+  }
+
+  /**
+   * Closes the given pool, or expires it if it is still in use.
+   *
+   * @return true if the pool was closed
+   */
+  static boolean close( PoolingManagedDataSource dataSource ) {
+    dataSource.expire();
+    if ( dataSource.isInUse() ) {
+      return false;
+    }
+    try {
+      dataSource.close();
+    } catch ( Exception e ) {
+      log.warn( "Could not close connection pool", e ); //$NON-NLS-1$
+    }
+    return true;
+  }
+
+  private void retire( PoolingManagedDataSource dataSource ) {
+    if ( !close( dataSource ) ) {
+      retired.add( dataSource );
+    }
+  }
+
+  private void closeRetired() {
+    for ( Iterator<PoolingManagedDataSource> it = retired.iterator(); it.hasNext(); ) {
+      PoolingManagedDataSource dataSource = it.next();
+      if ( !dataSource.isInUse() ) {
+        it.remove();
+        close( dataSource );
+      }
+    }
+  }
+
+  private boolean isPublished( String name, PoolingManagedDataSource dataSource ) {
+    return cacheManager == null || getFromRegion( name ) == dataSource;
+  }
+
+  private Object getFromRegion( String name ) {
+    return cacheManager == null ? null : cacheManager.getFromRegionCache( IDBDatasourceService.JDBC_DATASOURCE, name );
+  }
+
+  private void putInRegion( String name, PoolingManagedDataSource dataSource ) {
+    if ( cacheManager != null ) {
+      if ( !cacheManager.cacheEnabled( IDBDatasourceService.JDBC_DATASOURCE ) ) {
+        cacheManager.addCacheRegion( IDBDatasourceService.JDBC_DATASOURCE );
+      }
+      cacheManager.putInRegionCache( IDBDatasourceService.JDBC_DATASOURCE, name, dataSource );
+    }
+  }
+
+  /**
+   * @return the current metrics of every pool, by connection name
+   */
+  public Map<String, PoolMetrics> getMetrics() {
+    Map<String, PoolMetrics> metrics = new TreeMap<String, PoolMetrics>();
+    for ( Map.Entry<String, Entry> entry : entries.entrySet() ) {
+      metrics.put( entry.getKey(), new PoolMetrics( entry.getValue() ) );
+    }
+    return metrics;
+  }
+
+  private static class Entry {
+
+    private final PoolingManagedDataSource dataSource;
+
+    private final long creationNanos;
+
+    private final int creations;
+
+    Entry( PoolingManagedDataSource dataSource, long creationNanos, int creations ) {
+      this.dataSource = dataSource;
+      this.creationNanos = creationNanos;
+      this.creations = creations;
+    }
+
+    boolean isCurrent( String configHash ) {
+      return !dataSource.isExpired() && dataSource.hasSameConfig( configHash );
+    }
+  }
+
+  /**
+   * A snapshot of the state of a pool.
+   */
+  public static class PoolMetrics {
+
+    private final int numActive;
+    private final int numIdle;
+    private final int numWaiters;
+    private final long meanBorrowWaitTimeMillis;
+    private final long maxBorrowWaitTimeMillis;
+    private final long creationTimeMillis;
+    private final int creations;
+    private final boolean expired;
+
+    PoolMetrics( Entry entry ) {
+      PoolingManagedDataSource dataSource = entry.dataSource;
+      numActive = dataSource.getNumActive();
+      numIdle = dataSource.getNumIdle();
+      numWaiters = dataSource.getNumWaiters();
+      meanBorrowWaitTimeMillis = dataSource.getMeanBorrowWaitTimeMillis();
+      maxBorrowWaitTimeMillis = dataSource.getMaxBorrowWaitTimeMillis();
+      creationTimeMillis = TimeUnit.NANOSECONDS.toMillis( entry.creationNanos );
+      creations = entry.creations;
+      expired = dataSource.isExpired();
+    }
+
+    /**
+     * @return the number of connections borrowed from the pool
+     */
+    public int getNumActive() {
+      return numActive;
+    }
+
+    /**
+     * @return the number of idle connections in the pool
+     */
+    public int getNumIdle() {
+      return numIdle;
+    }
+
+    /**
+     * @return the number of threads waiting for a connection, -1 if the pool does not tell
+     */
+    public int getNumWaiters() {
+      return numWaiters;
+    }
+
+    /**
+     * @return the mean time recent borrowers waited for a connection, -1 if the pool does not tell
+     */
+    public long getMeanBorrowWaitTimeMillis() {
+      return meanBorrowWaitTimeMillis;
+    }
+
+    /**
+     * @return the longest time a borrower waited for a connection, -1 if the pool does not tell
+     */
+    public long getMaxBorrowWaitTimeMillis() {
+      return maxBorrowWaitTimeMillis;
+    }
+
+    /**
+     * @return how long the current pool took to create
+     */
+    public long getCreationTimeMillis() {
+      return creationTimeMillis;
+    }
+
+    /**
+     * @return how many pools were created for the connection, including the current one
+     */
+    public int getCreations() {
+      return creations;
+    }
+
+    public boolean isExpired() {
+      return expired;
+    }
+  }
+
+  private static class CreationFailedException extends RuntimeException {
+
+    CreationFailedException( DBDatasourceServiceException cause ) {
+      super( cause );
+    }
+  }
+}
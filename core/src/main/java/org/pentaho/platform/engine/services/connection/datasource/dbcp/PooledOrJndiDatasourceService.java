@@ -15,38 +15,36 @@ package org.pentaho.platform.engine.services.connection.datasource.dbcp;
 
 import org.pentaho.database.model.IDatabaseConnection;
 import org.pentaho.platform.api.data.DBDatasourceServiceException;
-import org.pentaho.platform.api.data.IDBDatasourceService;
-import org.pentaho.platform.api.engine.ICacheManager;
-import org.pentaho.platform.engine.core.system.PentahoSystem;
-import org.pentaho.platform.plugin.action.kettle.PoolingManagedDataSource;
 
 import javax.sql.DataSource;
 
 public class PooledOrJndiDatasourceService extends NonPooledOrJndiDatasourceService {
 
+    private final PooledDatasourceRegistry registry = new PooledDatasourceRegistry( cacheManager );
+
     @Override
     public DataSource resolveDatabaseConnection( IDatabaseConnection databaseConnection )
             throws DBDatasourceServiceException {
-        synchronized (this) {
-            ICacheManager cacheManager = PentahoSystem.getCacheManager( null );
-            Object fromCache = cacheManager.getFromRegionCache( IDBDatasourceService.JDBC_DATASOURCE, databaseConnection.getName() );
-            if ( !( fromCache instanceof PoolingManagedDataSource ) ) {
-                cacheManager.removeFromRegionCache( IDBDatasourceService.JDBC_DATASOURCE, databaseConnection.getName() );
-            } else {
-                PoolingManagedDataSource cachedDataSource = (PoolingManagedDataSource) fromCache;
-                if ( !cachedDataSource.isExpired() ) {
-                    // Check expired
-                    if ( cachedDataSource.hasSameConfig( databaseConnection.calculateHash() ) ) {
-                        return cachedDataSource;
-                    }
-                    if ( cachedDataSource.isInUse() ) {
-                        cachedDataSource.expire();
-                    }
-                    cacheManager.removeFromRegionCache( IDBDatasourceService.JDBC_DATASOURCE, databaseConnection.getName() );
-                }
-            }
-            return PooledDatasourceHelper.setupPooledDataSource( databaseConnection );
-        }
+        return getRegistry().getDataSource( databaseConnection );
+    }
+
+    @Override
+    public void clearCache() {
+        super.clearCache();
+        getRegistry().clear();
+    }
+
+    @Override
+    public void clearDataSource( String dsName ) {
+        super.clearDataSource( dsName );
+        getRegistry().remove( dsName );
+    }
+
+    /**
+     * @return the registry of the connection pools of this service
+     */
+    public PooledDatasourceRegistry getRegistry() {
+        return registry;
     }
 
 }
@@ -0,0 +1,161 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+
+package org.pentaho.platform.engine.services.runtime;
+
+import com.google.common.collect.MapMaker;
+import org.pentaho.platform.api.engine.IPluginManager;
+import org.pentaho.platform.api.engine.IPluginManagerListener;
+import org.pentaho.platform.api.engine.PluginBeanException;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Creates the components named in action definitions, remembering how once per component alias.
+ * <p>
+ * Each alias is resolved once per plugin manager to a factory, rather than for every action. The factory knows
+ * whether the alias is a plugin bean, as asking scans every plugin application context, and creates components that
+ * are not plugin beans through a constructor handle instead of loading the class by name and creating it
+ * reflectively. The beans themselves are still asked for every time, since plugins may declare them as prototypes.
+ * What a plugin manager registers changes when it reloads, so its factories are dropped then.
+ */
+class ComponentFactory {
+
+  private static final MethodType NO_ARGS_CONSTRUCTOR = MethodType.methodType( void.class );
+
+  private static final MethodType FACTORY = MethodType.methodType( Object.class );
+
+  /**
+   * The factories of the component aliases, by plugin manager
+   */
+  private static final ConcurrentMap<IPluginManager, ConcurrentMap<String, ComponentFactory>> pluginFactories =
+      new MapMaker().weakKeys().makeMap();
+
+  /**
+   * The factories of the component aliases resolved without a plugin manager
+   */
+  private static final ConcurrentMap<String, ComponentFactory> platformFactories =
+      new ConcurrentHashMap<String, ComponentFactory>();
+
+  private final IPluginManager pluginManager;
+
+  private final String componentAlias;
+
+  private final String componentClassName;
+
+  private volatile MethodHandle constructor;
+
+  private ComponentFactory( final IPluginManager pluginManager, final String componentAlias,
+      final String componentClassName ) {
+    this.pluginManager = pluginManager;
+    this.componentAlias = componentAlias;
+    this.componentClassName = componentClassName;
+  }
+
+  /**
+   * @param pluginManager
+   *          the plugin manager that may have a bean of the alias, or null
+   * @return the factory of the components of the given alias
+   */
+  static ComponentFactory forAlias( final IPluginManager pluginManager, final String componentAlias,
+      final String componentClassName ) {
+    ConcurrentMap<String, ComponentFactory> factories =
+        pluginManager == null ? platformFactories : getFactories( pluginManager );
+    ComponentFactory factory = factories.get( componentAlias );
+    if ( factory == null || !factory.componentClassName.equals( componentClassName ) ) {
+      boolean pluginBean = pluginManager != null && pluginManager.isBeanRegistered( componentAlias );
+      factory = new ComponentFactory( pluginBean ? pluginManager : null, componentAlias, componentClassName );
+      factories.put( componentAlias, factory );
+    }
+    return factory;
+  }
+
+  /**
+   * @return true if the plugin manager has a bean of the alias
+   */
+  boolean isPluginBean() {
+    return pluginManager != null;
+  }
+
+  /**
+   * @return the plugin bean of the alias, or null if the alias is not a plugin bean
+   */
+  Object getBean() throws PluginBeanException {
+    return pluginManager == null ? null : pluginManager.getBean( componentAlias );
+  }
+
+  /**
+   * Creates an instance of the component class through its public no argument constructor.
+   */
+  Object newInstance() throws ClassNotFoundException, InstantiationException, IllegalAccessException {
+    MethodHandle handle = constructor;
+    if ( handle == null ) {
+      handle = findConstructor( Class.forName( componentClassName ) );
+      constructor = handle;
+    }
+    try {
+      return handle.invokeExact();
+    } catch ( RuntimeException e ) {
+      throw e;
+    } catch ( Error e ) {
+      throw e;
+    } catch ( Throwable t ) {
+      InstantiationException e = new InstantiationException( componentClassName );
+      e.initCause( t );
+      throw e;
+    }
+  }
+
+  /**
+   * Drops the factories of all component aliases.
+   */
+  static void clear() {
+    pluginFactories.clear();
+    platformFactories.clear();
+  }
+
+  private static MethodHandle findConstructor( final Class<?> componentClass )
+    throws InstantiationException, IllegalAccessException {
+    try {
+      return MethodHandles.publicLookup().findConstructor( componentClass, NO_ARGS_CONSTRUCTOR ).asType( FACTORY );
+    } catch ( NoSuchMethodException e ) {
+      InstantiationException instantiationException = new InstantiationException( componentClass.getName() );
+      instantiationException.initCause( e );
+      throw instantiationException;
+    }
+  }
+
+  private static ConcurrentMap<String, ComponentFactory> getFactories( final IPluginManager pluginManager ) {
+    ConcurrentMap<String, ComponentFactory> factories = pluginFactories.get( pluginManager );
+    if ( factories == null ) {
+      final ConcurrentMap<String, ComponentFactory> newFactories = new ConcurrentHashMap<String, ComponentFactory>();
+      factories = pluginFactories.putIfAbsent( pluginManager, newFactories );
+      if ( factories == null ) {
+        // only the thread whose map got in listens for reloads
+        pluginManager.addPluginManagerListener( new IPluginManagerListener() {
+          @Override
+          public void onReload() {
+            newFactories.clear();
+          }
+        } );
+        factories = newFactories;
+      }
+    }
+    return factories;
+  }
+}
@@ -27,6 +27,8 @@ import org.pentaho.platform.engine.services.actionsequence.ActionParameterSource
 import org.pentaho.platform.engine.services.messages.Messages;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -56,6 +58,11 @@ public class ParameterManager implements IParameterManager {
 
   private Map sequenceOutputDefs;
 
+  /**
+   * The parameters of the enclosing scope, when this is the scope of an iteration of a parallel loop
+   */
+  private Set<Object> inheritedParams;
+
   ParameterManager() {
     allParams = new ListOrderedMap();
     allResources = new ListOrderedMap();
@@ -84,6 +91,35 @@ public class ParameterManager implements IParameterManager {
     sequenceOutputDefs.putAll( actionSequence.getOutputDefinitions() );
   }
 
+  /**
+   * Creates the scope of an iteration of a parallel loop. The iteration sees the parameters of the enclosing scope,
+   * but the parameters it sets only replace them in its own scope, since the other iterations read them concurrently.
+   */
+  @SuppressWarnings( { "unchecked" } )
+  ParameterManager( final ParameterManager parent ) {
+    this();
+    allParams.putAll( parent.allParams );
+    allResources.putAll( parent.allResources );
+    sequenceInputNames = parent.sequenceInputNames;
+    sequenceResourceNames = parent.sequenceResourceNames;
+    sequenceOutputDefs = parent.sequenceOutputDefs;
+
+    inheritedParams = Collections.newSetFromMap( new IdentityHashMap<Object, Boolean>() );
+    inheritedParams.addAll( parent.allParams.values() );
+  }
+
+  /**
+   * Takes over the parameters an iteration of a parallel loop set, as if the iteration had run in this scope.
+   */
+  void addIterationParameters( final ParameterManager iteration ) {
+    for ( Iterator it = iteration.allParams.entrySet().iterator(); it.hasNext(); ) {
+      Map.Entry entry = (Map.Entry) it.next();
+      if ( !iteration.inheritedParams.contains( entry.getValue() ) ) {
+        addToAllInputs( (String) entry.getKey(), (IActionParameter) entry.getValue() );
+      }
+    }
+  }
+
   public Map getAllParameters() {
     return ( allParams );
   }
@@ -258,7 +294,10 @@ public class ParameterManager implements IParameterManager {
 
       // If we already have a parameter with this name, set the value and reuse the definition.
       IActionParameter param = (IActionParameter) allParams.get( key );
-      if ( param != null ) {
+      if ( ( param != null ) && ( inheritedParams != null ) && inheritedParams.contains( param ) ) {
+        // the enclosing scope and the other iterations still use the inherited parameter
+        allParams.put( key, outputParam );
+      } else if ( param != null ) {
         if ( param != outputParam ) { // This is a trap for catching temp params that didn't get deleted at the end
                                       // of
                                       // the last loop
@@ -20,26 +20,41 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.math.BigDecimal;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
+import java.util.Deque;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Properties;
 import java.util.ResourceBundle;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringEscapeUtils;
+import org.apache.commons.lang.math.NumberUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.dom4j.Document;
 import org.dom4j.Element;
 import org.pentaho.actionsequence.dom.actions.ActionDefinition;
@@ -74,6 +89,7 @@ import org.pentaho.platform.api.engine.IRuntimeContext;
 import org.pentaho.platform.api.engine.ISelectionMapper;
 import org.pentaho.platform.api.engine.ISolutionActionDefinition;
 import org.pentaho.platform.api.engine.ISolutionEngine;
+import org.pentaho.platform.api.engine.ISystemConfig;
 import org.pentaho.platform.api.engine.InvalidParameterException;
 import org.pentaho.platform.api.engine.PluginBeanException;
 import org.pentaho.platform.api.engine.UnresolvedParameterException;
@@ -85,6 +101,7 @@ import org.pentaho.platform.api.util.XmlParseException;
 import org.pentaho.platform.engine.core.audit.AuditHelper;
 import org.pentaho.platform.engine.core.audit.MessageTypes;
 import org.pentaho.platform.engine.core.output.MultiContentItem;
+import org.pentaho.platform.engine.core.system.PentahoSessionHolder;
 import org.pentaho.platform.engine.core.system.PentahoSystem;
 import org.pentaho.platform.engine.services.PentahoMessenger;
 import org.pentaho.platform.engine.services.SolutionURIResolver;
@@ -101,6 +118,8 @@ import org.pentaho.platform.util.xml.XForm;
 import org.pentaho.platform.util.xml.XMLParserFactoryProducer;
 import org.pentaho.platform.util.xml.XmlHelper;
 import org.pentaho.platform.util.xml.dom4j.XmlDom4JHelper;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
 
 /**
  * @author James Dixon
@@ -188,6 +207,20 @@ public class RuntimeContext extends PentahoMessenger implements IRuntimeContext
    */
   private List<IContentItem> generatedContentItems;
 
+  /**
+   * Set on the threads running an iteration of a parallel loop. Loops started on such a thread run sequentially, also
+   * the ones of sub action sequences, which run in contexts of their own
+   */
+  private static final ThreadLocal<Boolean> IN_PARALLEL_ITERATION = new ThreadLocal<Boolean>();
+
+  /**
+   * Guards the output handler, runtime data and listeners, which the iterations of a parallel loop share with the
+   * context running the loop
+   */
+  private Object sharedStateLock = this;
+
+  private static ExecutorService loopExecutor;
+
   static {
     RuntimeContext.getComponentClassMap();
   }
@@ -337,11 +370,15 @@ public class RuntimeContext extends PentahoMessenger implements IRuntimeContext
   }
 
   public boolean feedbackAllowed() {
-    return ( outputHandler != null ) && outputHandler.allowFeedback();
+    synchronized ( sharedStateLock ) {
+      return ( outputHandler != null ) && outputHandler.allowFeedback();
+    }
   }
 
   public IContentItem getFeedbackContentItem() {
-    return outputHandler.getFeedbackContentItem();
+    synchronized ( sharedStateLock ) {
+      return outputHandler.getFeedbackContentItem();
+    }
   }
 
   @SuppressWarnings( "unused" )
@@ -387,7 +424,10 @@ public class RuntimeContext extends PentahoMessenger implements IRuntimeContext
 
   public IContentItem getOutputContentItem( final String mimeType ) {
     // TODO check the sequence definition to see where this should come from
-    return outputHandler.getOutputContentItem( IOutputHandler.RESPONSE, IOutputHandler.CONTENT, instanceId, mimeType );
+    synchronized ( sharedStateLock ) {
+      return outputHandler.getOutputContentItem( IOutputHandler.RESPONSE, IOutputHandler.CONTENT, instanceId,
+          mimeType );
+    }
   }
 
   public IContentItem getOutputContentItem( final String outputName, final String mimeType ) {
@@ -407,8 +447,11 @@ public class RuntimeContext extends PentahoMessenger implements IRuntimeContext
         String objectName = destination.getSourceName();
         String contentName = destination.getValue();
         contentName = TemplateUtil.applyTemplate( contentName, this );
-        outputHandler.setSession( session );
-        IContentItem tmpContentItem = outputHandler.getOutputContentItem( objectName, contentName, instanceId, mimeType );
+        IContentItem tmpContentItem;
+        synchronized ( sharedStateLock ) {
+          outputHandler.setSession( session );
+          tmpContentItem = outputHandler.getOutputContentItem( objectName, contentName, instanceId, mimeType );
+        }
         addOutputContentItem( tmpContentItem );
         if ( contentItem instanceof MultiContentItem ) {
           ( (MultiContentItem) contentItem ).addContentItem( tmpContentItem );
@@ -531,7 +574,9 @@ public class RuntimeContext extends PentahoMessenger implements IRuntimeContext
       }
     }
     if ( execListener != null ) {
-      execListener.validated( this );
+      synchronized ( sharedStateLock ) {
+        execListener.validated( this );
+      }
     }
   }
 
@@ -642,14 +687,14 @@ public class RuntimeContext extends PentahoMessenger implements IRuntimeContext
     setCurrentComponent( componentClassName );
     setCurrentActionDef( actionDefinition );
     IComponent component = null;
-    Class componentClass = null;
     Object componentTmp = null;
+    ComponentFactory componentFactory = ComponentFactory.forAlias( pluginManager, componentAlias, componentClassName );
     // Explicitly using the short name instead of the fully layed out class name
-    if ( ( pluginManager != null ) && ( pluginManager.isBeanRegistered( componentAlias ) ) ) {
+    if ( componentFactory.isPluginBean() ) {
       if ( RuntimeContext.debug ) {
         this.debug( "Component alias " + componentAlias + " will be resolved by the plugin manager." ); //$NON-NLS-1$ //$NON-NLS-2$
       }
-      componentTmp = pluginManager.getBean( componentAlias );
+      componentTmp = componentFactory.getBean();
       if ( RuntimeContext.debug ) {
         this.debug( "Component found in a plugin, class is: " + componentTmp.getClass().getName() ); //$NON-NLS-1$
       }
@@ -659,8 +704,7 @@ public class RuntimeContext extends PentahoMessenger implements IRuntimeContext
     }
     // Ok - the plugin didn't load - try the old route
     if ( componentTmp == null ) {
-      componentClass = Class.forName( componentClassName );
-      componentTmp = componentClass.newInstance();
+      componentTmp = componentFactory.newInstance();
     }
     if ( componentTmp instanceof IComponent ) {
       component = (IComponent) componentTmp;
@@ -859,6 +903,7 @@ public class RuntimeContext extends PentahoMessenger implements IRuntimeContext
     Object[][] headerSet = loopSet.getMetaData().getColumnHeaders();
     // TODO handle OLAP result sets
     Object[] headers = headerSet[0];
+    ParallelLoop parallelLoop = newParallelLoop( sequence, doneListener, execListener, async );
     while ( row != null ) {
       loopCount++;
       if ( RuntimeContext.debug ) {
@@ -867,7 +912,9 @@ public class RuntimeContext extends PentahoMessenger implements IRuntimeContext
       }
 
       if ( execListener != null ) {
-        execListener.loop( this, loopCount );
+        synchronized ( sharedStateLock ) {
+          execListener.loop( this, loopCount );
+        }
       }
       if ( loopParm != null ) {
         IActionParameter ap;
@@ -892,6 +939,10 @@ public class RuntimeContext extends PentahoMessenger implements IRuntimeContext
             warn( Messages.getInstance().getString(
                 "RuntimeContext.WARN_VARIABLE_IN_LOOP_NOT_RECOGNIZED", name, value.getClass().toString() ) ); //$NON-NLS-1$
           }
+          if ( parallelLoop != null ) {
+            parallelLoop.bind( name, new ActionParameter( name, type, value, null, null ) );
+            continue;
+          }
           // TODO make sure any previous loop values are removed
           ap = paramManager.getInput( name );
           if ( ap == null ) {
@@ -903,14 +954,23 @@ public class RuntimeContext extends PentahoMessenger implements IRuntimeContext
           }
         }
       }
-      try {
-        performActions( sequence, doneListener, execListener, async );
-      } catch ( ActionSequenceException e ) {
-        e.setLoopIndex( loopCount );
-        throw e;
+      if ( parallelLoop != null ) {
+        if ( !parallelLoop.submit( loopCount ) ) {
+          return;
+        }
+      } else {
+        try {
+          performActions( sequence, doneListener, execListener, async );
+        } catch ( ActionSequenceException e ) {
+          e.setLoopIndex( loopCount );
+          throw e;
+        }
       }
       row = peekOnly ? ( (IPeekable) loopSet ).peek() : loopSet.next();
     }
+    if ( parallelLoop != null && !parallelLoop.finish() ) {
+      return;
+    }
     status = IRuntimeContext.RUNTIME_STATUS_SUCCESS;
   }
 
@@ -919,6 +979,7 @@ public class RuntimeContext extends PentahoMessenger implements IRuntimeContext
     throws ActionSequenceException {
     // execute the actions
     int loopCount = -1;
+    ParallelLoop parallelLoop = newParallelLoop( sequence, doneListener, execListener, async );
     for ( Iterator it = loopList.iterator(); it.hasNext(); ) {
       loopCount++;
       if ( RuntimeContext.debug ) {
@@ -926,7 +987,9 @@ public class RuntimeContext extends PentahoMessenger implements IRuntimeContext
             .getString( "RuntimeContext.DEBUG_EXECUTING_ACTION", Integer.toString( loopCount ) ) ); //$NON-NLS-1$
       }
       if ( execListener != null ) {
-        execListener.loop( this, loopCount );
+        synchronized ( sharedStateLock ) {
+          execListener.loop( this, loopCount );
+        }
       }
       Object loopVar = it.next();
       if ( loopParm != null ) {
@@ -936,7 +999,17 @@ public class RuntimeContext extends PentahoMessenger implements IRuntimeContext
         } else {
           ap = new ActionParameter( loopParm.getName(), "string", loopVar, null, null ); //$NON-NLS-1$
         }
-        addInputParameter( loopParm.getName(), ap );
+        if ( parallelLoop != null ) {
+          parallelLoop.bind( loopParm.getName(), ap );
+        } else {
+          addInputParameter( loopParm.getName(), ap );
+        }
+      }
+      if ( parallelLoop != null ) {
+        if ( !parallelLoop.submit( loopCount ) ) {
+          return;
+        }
+        continue;
       }
       try {
         performActions( sequence, doneListener, execListener, async );
@@ -948,9 +1021,96 @@ public class RuntimeContext extends PentahoMessenger implements IRuntimeContext
         return;
       }
     }
+    if ( parallelLoop != null && !parallelLoop.finish() ) {
+      return;
+    }
     status = IRuntimeContext.RUNTIME_STATUS_SUCCESS;
   }
 
+  /**
+   * Returns the runner of a loop declared with a {@code parallel} attribute, or null if the loop runs sequentially.
+   * Loops started on a thread running an iteration of a parallel loop run sequentially, so they cannot take all the
+   * threads of the pool and wait for iterations that find no thread left.
+   */
+  private ParallelLoop newParallelLoop( final IActionSequence sequence, final IActionCompleteListener doneListener,
+      final IExecutionListener execListener, final boolean async ) {
+    if ( Boolean.TRUE.equals( IN_PARALLEL_ITERATION.get() ) || ( sequence.getLoopParallelism() <= 1 )
+        || !( paramManager instanceof ParameterManager ) ) {
+      return null;
+    }
+    IActionSequence actions = sequence.copyActions();
+    if ( actions == null ) {
+      return null;
+    }
+    if ( RuntimeContext.debug ) {
+      debug( "Running loop on " + sequence.getLoopParameter() + " with " + sequence.getLoopParallelism() //$NON-NLS-1$ //$NON-NLS-2$
+          + " iterations at a time" ); //$NON-NLS-1$
+    }
+    return new ParallelLoop( sequence, actions, doneListener, execListener, async );
+  }
+
+  /**
+   * Creates the context an iteration of a parallel loop runs in. It has its own parameter scope, messages and
+   * content items, which the loop takes over once the iteration is done. The output handler, runtime data and
+   * listeners are shared, the contexts take turns using them.
+   */
+  protected RuntimeContext createIterationContext() {
+    RuntimeContext context =
+        new RuntimeContext( instanceId, solutionEngine, null, runtimeData, session, outputHandler, processId,
+            urlFactory, parameterProviders, ( getMessages() == null ) ? null : new ArrayList(),
+            createFeedbackParameterCallback );
+    context.actionSequence = actionSequence;
+    context.paramManager = new ParameterManager( (ParameterManager) paramManager );
+    context.logId = logId;
+    context.audit = audit;
+    context.sharedStateLock = sharedStateLock;
+    context.setLoggingLevel( getLoggingLevel() );
+    return context;
+  }
+
+  /**
+   * Runs the actions of an iteration of a parallel loop in the context created for it.
+   */
+  protected void performIteration( final RuntimeContext iteration, final IActionSequence actions,
+      final IActionCompleteListener doneListener, final IExecutionListener execListener, final boolean async )
+    throws ActionSequenceException {
+    iteration.validateComponents( actions, null );
+    iteration.performActions( actions, doneListener, execListener, async );
+  }
+
+  @SuppressWarnings( { "unchecked" } )
+  private void addIterationResults( final RuntimeContext iteration ) {
+    ( (ParameterManager) paramManager ).addIterationParameters( (ParameterManager) iteration.paramManager );
+    generatedContentItems.addAll( iteration.generatedContentItems );
+    if ( getMessages() != null ) {
+      getMessages().addAll( iteration.getMessages() );
+    }
+    if ( iteration.promptStatus > promptStatus ) {
+      promptStatus = iteration.promptStatus;
+    }
+  }
+
+  /**
+   * @return the pool the iterations of all parallel loops run on, sized by the
+   *         {@code system.actionSequenceLoopThreads} setting
+   */
+  protected static synchronized ExecutorService getLoopExecutor() {
+    if ( loopExecutor == null ) {
+      int threads = Runtime.getRuntime().availableProcessors();
+      ISystemConfig systemConfig = PentahoSystem.get( ISystemConfig.class );
+      if ( systemConfig != null ) {
+        threads = NumberUtils.toInt( systemConfig.getProperty( "system.actionSequenceLoopThreads" ), threads ); //$NON-NLS-1$
+      }
+      threads = Math.max( 1, threads );
+      ThreadPoolExecutor executor =
+          new ThreadPoolExecutor( threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+              new ThreadFactoryBuilder().setNameFormat( "action-sequence-loop-%d" ).setDaemon( true ).build() ); //$NON-NLS-1$
+      executor.allowCoreThreadTimeOut( true );
+      loopExecutor = executor;
+    }
+    return loopExecutor;
+  }
+
   private void performActions( final IActionSequence sequence, final IActionCompleteListener doneListener,
       final IExecutionListener execListener, final boolean async ) throws ActionSequenceException {
     IConditionalExecution conditional = sequence.getConditionalExecution();
@@ -1018,7 +1178,9 @@ public class RuntimeContext extends PentahoMessenger implements IRuntimeContext
       audit( MessageTypes.COMPONENT_EXECUTE_FAILED, MessageTypes.VALIDATION, Messages.getInstance().getErrorString(
           "RuntimeContext.ERROR_0013_BAD_PARAMETERS" ), 0 ); //$NON-NLS-1$
       if ( doneListener != null ) {
-        doneListener.actionComplete( this );
+        synchronized ( sharedStateLock ) {
+          doneListener.actionComplete( this );
+        }
       }
       status = IRuntimeContext.RUNTIME_STATUS_FAILURE;
       ex.setActionClass( actionDefinition.getComponentName() );
@@ -1063,7 +1225,9 @@ public class RuntimeContext extends PentahoMessenger implements IRuntimeContext
       audit( MessageTypes.COMPONENT_EXECUTE_FAILED, MessageTypes.VALIDATION, Messages.getInstance().getErrorString(
           "RuntimeContext.ERROR_0016_COMPONENT_INITIALIZE_FAILED" ), 0 ); //$NON-NLS-1$
       if ( doneListener != null ) {
-        doneListener.actionComplete( this );
+        synchronized ( sharedStateLock ) {
+          doneListener.actionComplete( this );
+        }
       }
       throw new ActionInitializationException( Messages.getInstance().getErrorString(
           "RuntimeContext.ERROR_0016_COMPONENT_INITIALIZE_FAILED" ), //$NON-NLS-1$
@@ -1074,7 +1238,9 @@ public class RuntimeContext extends PentahoMessenger implements IRuntimeContext
       executeComponent( actionDefinition );
     } catch ( ActionExecutionException ex ) {
       if ( doneListener != null ) {
-        doneListener.actionComplete( this );
+        synchronized ( sharedStateLock ) {
+          doneListener.actionComplete( this );
+        }
       }
       throw ex;
     }
@@ -1089,11 +1255,13 @@ public class RuntimeContext extends PentahoMessenger implements IRuntimeContext
       audit( MessageTypes.COMPONENT_EXECUTE_END, MessageTypes.END, "", (int) ( end - start ) ); //$NON-NLS-1$
     }
 
-    if ( doneListener != null ) {
-      doneListener.actionComplete( this );
-    }
-    if ( execListener != null ) {
-      execListener.action( this, actionDefinition );
+    synchronized ( sharedStateLock ) {
+      if ( doneListener != null ) {
+        doneListener.actionComplete( this );
+      }
+      if ( execListener != null ) {
+        execListener.action( this, actionDefinition );
+      }
     }
   }
 
@@ -1143,7 +1311,10 @@ public class RuntimeContext extends PentahoMessenger implements IRuntimeContext
     // TODO get audit setting from action sequence
 
     int actionLogLevel = actionSequence.getLoggingLevel();
-    int instanceLogLevel = runtimeData.getLoggingLevel();
+    int instanceLogLevel;
+    synchronized ( sharedStateLock ) {
+      instanceLogLevel = runtimeData.getLoggingLevel();
+    }
     int actionSequenceLoggingLevel =
         ( instanceLogLevel != ILogger.UNKNOWN ) ? instanceLogLevel : ( ( actionLogLevel != ILogger.UNKNOWN )
             ? actionLogLevel : solutionEngine.getLoggingLevel() );
@@ -1188,7 +1359,9 @@ public class RuntimeContext extends PentahoMessenger implements IRuntimeContext
           variableValue = getStringParameter( sourceValue, null );
           if ( variableValue == null ) {
             // now check the runtime data
-            variableValue = runtimeData.getStringProperty( sourceValue, null );
+            synchronized ( sharedStateLock ) {
+              variableValue = runtimeData.getStringProperty( sourceValue, null );
+            }
           }
           if ( variableValue != null ) {
             break;
@@ -1334,20 +1507,21 @@ public class RuntimeContext extends PentahoMessenger implements IRuntimeContext
     }
     actionParameter.setValue( output );
 
-    if ( output instanceof String ) {
-      runtimeData.setStringProperty( name, (String) output );
-    } else if ( output instanceof Date ) {
-      runtimeData.setDateProperty( name, (Date) output );
-    } else if ( output instanceof Long ) {
-      runtimeData.setLongProperty( name, (Long) output );
-    } else if ( output instanceof List ) {
-      runtimeData.setListProperty( name, (List) output );
-    } else if ( output instanceof Map ) {
-      runtimeData.setMapProperty( name, (Map) output );
-    } else if ( output instanceof IContentItem ) {
-      runtimeData.setStringProperty( name, ( (IContentItem) output ).getPath() );
+    synchronized ( sharedStateLock ) {
+      if ( output instanceof String ) {
+        runtimeData.setStringProperty( name, (String) output );
+      } else if ( output instanceof Date ) {
+        runtimeData.setDateProperty( name, (Date) output );
+      } else if ( output instanceof Long ) {
+        runtimeData.setLongProperty( name, (Long) output );
+      } else if ( output instanceof List ) {
+        runtimeData.setListProperty( name, (List) output );
+      } else if ( output instanceof Map ) {
+        runtimeData.setMapProperty( name, (Map) output );
+      } else if ( output instanceof IContentItem ) {
+        runtimeData.setStringProperty( name, ( (IContentItem) output ).getPath() );
+      }
     }
-
   }
 
   public InputStream getInputStream( final String parameterName ) {
@@ -1913,7 +2087,9 @@ public class RuntimeContext extends PentahoMessenger implements IRuntimeContext
    */
   public void forceSaveRuntimeData() {
     if ( runtimeData != null ) {
-      runtimeData.forceSave();
+      synchronized ( sharedStateLock ) {
+        runtimeData.forceSave();
+      }
     }
   }
 
@@ -1960,4 +2136,209 @@ public class RuntimeContext extends PentahoMessenger implements IRuntimeContext
   private void addOutputContentItem( IContentItem contentItem ) {
     generatedContentItems.add( contentItem );
   }
+
+  /**
+   * Runs the iterations of a loop declared with a {@code parallel} attribute on the shared loop pool, at most as many
+   * at a time as the attribute allows. Every iteration runs its own copy of the actions in its own context. The
+   * results of the iterations are taken over in the order of the iterations, on the thread running the loop, so the
+   * loop leaves the same parameters, content items and messages behind as when it runs sequentially.
+   * <p>
+   * If an iteration fails, no further iteration is started and the failure of the first failed iteration is thrown
+   * once the running ones are done.
+   * <p>
+   * The iterations run with the session, security context and thread locales of the caller, so the components of a
+   * parallel loop have to be able to share the session, as the requests of one user share an HTTP session.
+   */
+  private class ParallelLoop {
+
+    private final IActionSequence sequence;
+
+    private final int parallelism;
+
+    private final IActionCompleteListener doneListener;
+
+    private final IExecutionListener execListener;
+
+    private final boolean async;
+
+    private final IPentahoSession callerSession = PentahoSessionHolder.getSession();
+
+    private final SecurityContext securityContext = SecurityContextHolder.getContext();
+
+    private final Locale localeBase = LocaleHelper.getThreadLocaleBase();
+
+    private final Locale localeOverride = LocaleHelper.getThreadLocaleOverride();
+
+    private final Map<String, IActionParameter> bindings = new LinkedHashMap<String, IActionParameter>();
+
+    private final Deque<Iteration> running = new ArrayDeque<Iteration>();
+
+    private IActionSequence nextActions;
+
+    ParallelLoop( final IActionSequence sequence, final IActionSequence firstActions,
+        final IActionCompleteListener doneListener, final IExecutionListener execListener, final boolean async ) {
+      this.sequence = sequence;
+      this.parallelism = sequence.getLoopParallelism();
+      this.nextActions = firstActions;
+      this.doneListener = doneListener;
+      this.execListener = execListener;
+      this.async = async;
+    }
+
+    /**
+     * Binds a loop parameter of the next iteration.
+     */
+    void bind( final String name, final IActionParameter parameter ) {
+      bindings.put( name, parameter );
+    }
+
+    /**
+     * Starts the next iteration with the parameters bound since the previous one, waiting for the oldest running
+     * iteration if as many iterations run as allowed.
+     * 
+     * @return false if an iteration asked for a prompt and the loop has to stop
+     */
+    boolean submit( final int loopIndex ) throws ActionSequenceException {
+      while ( running.size() >= parallelism ) {
+        if ( !completeOldest() ) {
+          return false;
+        }
+      }
+      final RuntimeContext context = createIterationContext();
+      for ( Map.Entry<String, IActionParameter> binding : bindings.entrySet() ) {
+        context.addInputParameter( binding.getKey(), binding.getValue() );
+      }
+      bindings.clear();
+      // the actions are copied on this thread, the copies do not share any node
+      final IActionSequence actions = ( nextActions != null ) ? nextActions : sequence.copyActions();
+      nextActions = null;
+
+      final Iteration iteration = new Iteration( loopIndex );
+      iteration.future = getLoopExecutor().submit( new Callable<RuntimeContext>() {
+        public RuntimeContext call() throws ActionSequenceException {
+          if ( !iteration.started.compareAndSet( false, true ) ) {
+            // the loop was cancelled before this iteration started
+            return null;
+          }
+          Locale previousBase = LocaleHelper.getThreadLocaleBase();
+          Locale previousOverride = LocaleHelper.getThreadLocaleOverride();
+          PentahoSessionHolder.setSession( callerSession );
+          SecurityContextHolder.setContext( securityContext );
+          LocaleHelper.setThreadLocaleBase( localeBase );
+          LocaleHelper.setThreadLocaleOverride( localeOverride );
+          IN_PARALLEL_ITERATION.set( Boolean.TRUE );
+          try {
+            performIteration( context, actions, doneListener, execListener, async );
+            return context;
+          } catch ( ActionSequenceException e ) {
+            e.setLoopIndex( loopIndex );
+            throw e;
+          } finally {
+            IN_PARALLEL_ITERATION.remove();
+            LocaleHelper.setThreadLocaleBase( previousBase );
+            LocaleHelper.setThreadLocaleOverride( previousOverride );
+            PentahoSessionHolder.removeSession();
+            SecurityContextHolder.clearContext();
+            iteration.done.countDown();
+          }
+        }
+      } );
+      running.add( iteration );
+      return true;
+    }
+
+    /**
+     * Waits for the remaining iterations.
+     * 
+     * @return false if an iteration asked for a prompt
+     */
+    boolean finish() throws ActionSequenceException {
+      while ( !running.isEmpty() ) {
+        if ( !completeOldest() ) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private boolean completeOldest() throws ActionSequenceException {
+      Iteration oldest = running.poll();
+      Integer loopIndex = oldest.loopIndex;
+      try {
+        addIterationResults( oldest.future.get() );
+      } catch ( ExecutionException e ) {
+        cancel();
+        throw failure( e.getCause(), loopIndex );
+      } catch ( InterruptedException e ) {
+        Thread.currentThread().interrupt();
+        cancel();
+        throw failure( e, loopIndex );
+      }
+      if ( promptStatus == IRuntimeContext.PROMPT_NOW ) {
+        cancel();
+        return false;
+      }
+      return true;
+    }
+
+    private ActionSequenceException failure( final Throwable cause, final Integer loopIndex ) {
+      status = IRuntimeContext.RUNTIME_STATUS_FAILURE;
+      if ( cause instanceof ActionSequenceException ) {
+        return (ActionSequenceException) cause;
+      }
+      ActionSequenceException failure =
+          new ActionExecutionException( Messages.getInstance().getErrorString(
+              "RuntimeContext.ERROR_0036_LOOP_ITERATION_FAILED" ), cause, //$NON-NLS-1$
+              session.getName(), instanceId, getActionSequence().getSequenceName(), null );
+      failure.setLoopIndex( loopIndex );
+      return failure;
+    }
+
+    /**
+     * Drops the iterations that did not start yet and waits for the running ones, their results are not used.
+     */
+    private void cancel() {
+      for ( Iteration iteration : running ) {
+        if ( iteration.started.compareAndSet( false, true ) ) {
+          iteration.dropped = true;
+          iteration.future.cancel( false );
+        }
+      }
+      boolean interrupted = false;
+      for ( Iteration iteration : running ) {
+        while ( !iteration.dropped && iteration.done.getCount() > 0 ) {
+          try {
+            iteration.done.await();
+          } catch ( InterruptedException e ) {
+            interrupted = true;
+          }
+        }
+      }
+      if ( interrupted ) {
+        Thread.currentThread().interrupt();
+      }
+      running.clear();
+    }
+
+    /**
+     * An iteration submitted to the loop pool. It is either started by a pool thread or dropped by
+     * {@link ParallelLoop#cancel()}, whichever claims it first.
+     */
+    private class Iteration {
+
+      private final int loopIndex;
+
+      private final AtomicBoolean started = new AtomicBoolean();
+
+      private final CountDownLatch done = new CountDownLatch( 1 );
+
+      private Future<RuntimeContext> future;
+
+      private boolean dropped;
+
+      Iteration( final int loopIndex ) {
+        this.loopIndex = loopIndex;
+      }
+    }
+  }
 }
@@ -37,7 +37,6 @@ import java.io.OutputStream;
 import java.lang.reflect.GenericSignatureFormatError;
 import java.lang.reflect.Method;
 import java.math.BigDecimal;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
@@ -92,7 +91,7 @@ public class PojoComponent extends ComponentBase {
   public void done() {
     if ( doneMethod != null && pojo != null ) {
       try {
-        doneMethod.invoke( pojo, (Object[]) null );
+        getPojoMethods().invoke( doneMethod, pojo );
       } catch ( Exception e ) {
         e.printStackTrace();
       }
@@ -104,6 +103,13 @@ public class PojoComponent extends ComponentBase {
     callMethods( methods, value );
   }
 
+  /**
+   * @return the methods of the class of the pojo, looked up once per class
+   */
+  PojoMethods getPojoMethods() {
+    return PojoMethods.of( pojo.getClass() );
+  }
+
   protected void callMethods( List<Method> methods, Object value ) throws Throwable {
     if ( value instanceof String ) {
       callMethodWithString( methods, value.toString() );
@@ -111,71 +117,71 @@ public class PojoComponent extends ComponentBase {
     }
 
     boolean done = false;
+    PojoMethods pojoMethods = getPojoMethods();
 
     for ( Method method : methods ) {
-      Class<?>[] paramClasses = method.getParameterTypes();
-      if ( paramClasses.length != 1 ) {
+      Class<?> paramclass = pojoMethods.getParameterType( method );
+      if ( paramclass == null ) {
         // we don't know how to handle this
         throw new GenericSignatureFormatError();
       }
-      Class<?> paramclass = paramClasses[0];
       // do some type safety. this would be the point to do automatic type conversions
       if ( value instanceof IPentahoResultSet && paramclass.equals( IPentahoResultSet.class ) ) {
         done = true;
-        method.invoke( pojo, new Object[] { (IPentahoResultSet) value } );
+        pojoMethods.invoke( method, pojo, value );
         break;
       } else if ( value instanceof java.lang.Boolean
           && ( paramclass.equals( Boolean.class ) || paramclass.equals( boolean.class ) ) ) {
         done = true;
-        method.invoke( pojo, new Object[] { value } );
+        pojoMethods.invoke( method, pojo, value );
         break;
       } else if ( value instanceof java.lang.Integer
           && ( paramclass.equals( Integer.class ) || paramclass.equals( int.class ) ) ) {
         done = true;
-        method.invoke( pojo, new Object[] { value } );
+        pojoMethods.invoke( method, pojo, value );
         break;
       } else if ( value instanceof java.lang.Long
           && ( paramclass.equals( Long.class ) || paramclass.equals( long.class ) ) ) {
         done = true;
-        method.invoke( pojo, new Object[] { value } );
+        pojoMethods.invoke( method, pojo, value );
         break;
       } else if ( value instanceof java.lang.Double
           && ( paramclass.equals( Double.class ) || paramclass.equals( double.class ) ) ) {
         done = true;
-        method.invoke( pojo, new Object[] { value } );
+        pojoMethods.invoke( method, pojo, value );
         break;
       } else if ( value instanceof java.lang.Float
           && ( paramclass.equals( Float.class ) || paramclass.equals( float.class ) ) ) {
         done = true;
-        method.invoke( pojo, new Object[] { value } );
+        pojoMethods.invoke( method, pojo, value );
         break;
       } else if ( value instanceof IPentahoStreamSource && paramclass.equals( IPentahoStreamSource.class ) ) {
         done = true;
-        method.invoke( pojo, new Object[] { value } );
+        pojoMethods.invoke( method, pojo, value );
         break;
       } else if ( value instanceof Date && paramclass.equals( Date.class ) ) {
         done = true;
-        method.invoke( pojo, new Object[] { value } );
+        pojoMethods.invoke( method, pojo, value );
         break;
       } else if ( value instanceof BigDecimal && paramclass.equals( BigDecimal.class ) ) {
         done = true;
-        method.invoke( pojo, new Object[] { value } );
+        pojoMethods.invoke( method, pojo, value );
         break;
       } else if ( value instanceof IContentItem && paramclass.equals( IContentItem.class ) ) {
         done = true;
-        method.invoke( pojo, new Object[] { value } );
+        pojoMethods.invoke( method, pojo, value );
         break;
       } else if ( value instanceof IContentItem && paramclass.equals( String.class ) ) {
         done = true;
-        method.invoke( pojo, new Object[] { value.toString() } );
+        pojoMethods.invoke( method, pojo, value.toString() );
         break;
       } else if ( paramclass.equals( IPentahoSession.class ) ) {
         done = true;
-        method.invoke( pojo, new Object[] { (IPentahoSession) value } );
+        pojoMethods.invoke( method, pojo, value );
         break;
       } else if ( paramclass.equals( Log.class ) ) {
         done = true;
-        method.invoke( pojo, new Object[] { (Log) value } );
+        pojoMethods.invoke( method, pojo, value );
         break;
       }
     }
@@ -195,56 +201,36 @@ public class PojoComponent extends ComponentBase {
     boolean done = false;
 
     value = applyInputsToFormat( value );
+    PojoMethods pojoMethods = getPojoMethods();
 
     // Search ALL instances of a given method for an implementation
     // that takes a single string
     for ( Method method : methodList ) {
-      Class<?>[] paramClasses = method.getParameterTypes();
-      if ( paramClasses.length != 1 ) {
+      Class<?> paramclass = pojoMethods.getParameterType( method );
+      if ( paramclass == null ) {
         // we don't know how to handle this
         throw new GenericSignatureFormatError();
       }
 
-      Class<?> paramclass = paramClasses[0];
       if ( paramclass.equals( String.class ) ) {
         done = true;
-        method.invoke( pojo, new Object[] { value } );
+        pojoMethods.invoke( method, pojo, value );
         break;
       }
     }
 
     if ( !done ) {
       for ( Method method : methodList ) {
-        Class<?>[] paramClasses = method.getParameterTypes();
-        if ( paramClasses.length != 1 ) {
+        if ( pojoMethods.getParameterType( method ) == null ) {
           // we don't know how to handle this
           throw new GenericSignatureFormatError();
         }
 
-        Class<?> paramclass = paramClasses[0];
-        if ( paramclass.equals( Boolean.class ) || paramclass.equals( boolean.class ) ) {
-          done = true;
-          method.invoke( pojo, new Object[] { new Boolean( value ) } );
-          break;
-        } else if ( paramclass.equals( Integer.class ) || paramclass.equals( int.class ) ) {
-          done = true;
-          method.invoke( pojo, new Object[] { new Integer( value ) } );
-          break;
-        } else if ( paramclass.equals( Long.class ) || paramclass.equals( long.class ) ) {
-          done = true;
-          method.invoke( pojo, new Object[] { new Long( value ) } );
-          break;
-        } else if ( paramclass.equals( Double.class ) || paramclass.equals( double.class ) ) {
-          done = true;
-          method.invoke( pojo, new Object[] { new Double( value ) } );
-          break;
-        } else if ( paramclass.equals( Float.class ) || paramclass.equals( float.class ) ) {
-          done = true;
-          method.invoke( pojo, new Object[] { new Float( value ) } );
-          break;
-        } else if ( paramclass.equals( BigDecimal.class ) ) {
+        // booleans, numbers and big decimals are converted from the string
+        Object converted = pojoMethods.fromString( method, value );
+        if ( converted != null ) {
           done = true;
-          method.invoke( pojo, new Object[] { new BigDecimal( value ) } );
+          pojoMethods.invoke( method, pojo, converted );
           break;
         }
       }
@@ -266,7 +252,7 @@ public class PojoComponent extends ComponentBase {
     if ( getMethods.containsKey( "CONFIGSETTINGSPATHS" ) && configureMethod != null ) { //$NON-NLS-1$
 
       Method method = getMethods.get( "CONFIGSETTINGSPATHS" ); //$NON-NLS-1$
-      Set<String> settingsPaths = (Set<String>) method.invoke( pojo, new Object[] {} );
+      Set<String> settingsPaths = (Set<String>) getPojoMethods().invoke( method, pojo );
       Iterator<String> keys = settingsPaths.iterator();
       Map<String, String> settings = new HashMap<String, String>();
       SystemSettingsParameterProvider params = new SystemSettingsParameterProvider();
@@ -277,7 +263,7 @@ public class PojoComponent extends ComponentBase {
           settings.put( path, value );
         }
       }
-      configureMethod.invoke( pojo, new Object[] { settings } );
+      getPojoMethods().invoke( configureMethod, pojo, settings );
     }
 
     // set the PentahoSession
@@ -331,17 +317,17 @@ public class PojoComponent extends ComponentBase {
 
         if ( methods != null ) {
           for ( Method method : methods ) {
-            Class<?>[] paramTypes = method.getParameterTypes();
-            if ( paramTypes.length == 1 ) {
+            Class<?> paramType = getPojoMethods().getParameterType( method );
+            if ( paramType != null ) {
               Object value = null;
 
-              if ( paramTypes[0] == InputStream.class ) {
+              if ( paramType == InputStream.class ) {
                 value = resource.getInputStream( RepositoryFilePermission.READ, LocaleHelper.getLocale() );
-              } else if ( paramTypes[0] == IActionSequenceResource.class ) {
+              } else if ( paramType == IActionSequenceResource.class ) {
                 value = resource;
-              } else if ( paramTypes[0] == String.class ) {
+              } else if ( paramType == String.class ) {
                 value = getRuntimeContext().getResourceAsString( resource );
-              } else if ( paramTypes[0] == Document.class ) {
+              } else if ( paramType == Document.class ) {
                 value = getRuntimeContext().getResourceAsDocument( resource );
               }
 
@@ -375,12 +361,12 @@ public class PojoComponent extends ComponentBase {
 
     if ( resourceMap.size() > 0 && resourcesMethod != null ) {
       // call the resources setter
-      resourcesMethod.invoke( pojo, new Object[] { resourceMap } );
+      getPojoMethods().invoke( resourcesMethod, pojo, resourceMap );
     }
 
     if ( inputMap.size() > 0 && runtimeInputsMethod != null ) {
       // call the generic input setter
-      runtimeInputsMethod.invoke( pojo, new Object[] { inputMap } );
+      getPojoMethods().invoke( runtimeInputsMethod, pojo, inputMap );
     }
 
     if ( getOutputNames().contains( "outputstream" ) && setMethods.containsKey( "OUTPUTSTREAM" ) //$NON-NLS-1$ //$NON-NLS-2$
@@ -388,7 +374,7 @@ public class PojoComponent extends ComponentBase {
       // get the mime-type
       // Get the first method to match
       Method method = getMethods.get( "MIMETYPE" ); //$NON-NLS-1$
-      String mimeType = (String) method.invoke( pojo, new Object[] {} );
+      String mimeType = (String) getPojoMethods().invoke( method, pojo );
       String mappedOutputName = "outputstream"; //$NON-NLS-1$
       if ( ( getActionDefinition() != null ) && ( getActionDefinition().getOutput( "outputstream" ) != null ) ) { //$NON-NLS-1$
         mappedOutputName = getActionDefinition().getOutput( "outputstream" ).getPublicName(); //$NON-NLS-1$
@@ -405,11 +391,11 @@ public class PojoComponent extends ComponentBase {
       // set the output stream
       OutputStream out = contentItem.getOutputStream( getActionName() );
       method = setMethods.get( "OUTPUTSTREAM" ).get( 0 ); //$NON-NLS-1$
-      method.invoke( pojo, new Object[] { out } );
+      getPojoMethods().invoke( method, pojo, out );
     }
 
     if ( validateMethod != null ) {
-      Object obj = validateMethod.invoke( pojo, (Object[]) null );
+      Object obj = getPojoMethods().invoke( validateMethod, pojo );
       if ( obj instanceof Boolean ) {
         Boolean ok = (Boolean) obj;
         if ( !ok ) {
@@ -421,7 +407,7 @@ public class PojoComponent extends ComponentBase {
     // now execute the pojo
     Boolean result = Boolean.FALSE;
     if ( executeMethod != null ) {
-      result = (Boolean) executeMethod.invoke( pojo, new Object[] {} );
+      result = (Boolean) getPojoMethods().invoke( executeMethod, pojo );
     } else {
       // we can only assume we are ok so far
       result = Boolean.TRUE;
@@ -432,7 +418,7 @@ public class PojoComponent extends ComponentBase {
     // first get the runtime outputs
     Map<String, Object> outputMap = new HashMap<String, Object>();
     if ( runtimeOutputsMethod != null ) {
-      outputMap = (Map<String, Object>) runtimeOutputsMethod.invoke( pojo, new Object[] {} );
+      outputMap = (Map<String, Object>) getPojoMethods().invoke( runtimeOutputsMethod, pojo );
     }
     it = outputNames.iterator();
     while ( it.hasNext() ) {
@@ -444,7 +430,7 @@ public class PojoComponent extends ComponentBase {
         IActionParameter param = getOutputItem( name );
         Method method = getMethods.get( name.toUpperCase() );
         if ( method != null ) {
-          Object value = method.invoke( pojo, new Object[] {} );
+          Object value = getPojoMethods().invoke( method, pojo );
           param.setValue( value );
         } else {
           Object value = outputMap.get( name );
@@ -499,50 +485,22 @@ public class PojoComponent extends ComponentBase {
     if ( pojo != null ) {
       // By the time we get here, we've got our class
       try {
-        Method[] methods = pojo.getClass().getMethods();
-        // create a method map
-        for ( Method method : methods ) {
-          String name = method.getName();
-          Class<?>[] paramTypes = method.getParameterTypes();
-          if ( name.equals( "getOutputs" ) ) { //$NON-NLS-1$
-            runtimeOutputsMethod = method;
-          } else if ( name.equals( "setInputs" ) ) { //$NON-NLS-1$
-            runtimeInputsMethod = method;
-          } else if ( name.equals( "setResources" ) ) { //$NON-NLS-1$
-            resourcesMethod = method;
-          } else if ( name.equals( "setLogger" ) ) { //$NON-NLS-1$
-            if ( paramTypes.length == 1 && paramTypes[0] == Log.class ) {
-              loggerMethod = method;
-            }
-          } else if ( name.equals( "setSession" ) ) { //$NON-NLS-1$
-            if ( paramTypes.length == 1 && paramTypes[0] == IPentahoSession.class ) {
-              sessionMethod = method;
-            }
-          } else if ( name.equalsIgnoreCase( "configure" ) ) { //$NON-NLS-1$
-            configureMethod = method;
-          } else if ( name.startsWith( "set" ) ) { //$NON-NLS-1$
-            name = name.substring( 3 ).toUpperCase();
-            if ( name.equals( "CLASS" ) ) { //$NON-NLS-1$
-              warn( Messages.getInstance().getString( "PojoComponent.CANNOT_USE_SETCLASS" ) ); //$NON-NLS-1$
-            } else {
-              if ( !setMethods.containsKey( name ) ) {
-                setMethods.put( name, new ArrayList<Method>() );
-              }
-
-              setMethods.get( name ).add( method );
-            }
-          } else if ( name.startsWith( "get" ) ) { //$NON-NLS-1$
-            name = name.substring( 3 ).toUpperCase();
-
-            getMethods.put( name, method );
-          } else if ( name.equalsIgnoreCase( "execute" ) ) { //$NON-NLS-1$
-            executeMethod = method;
-          } else if ( name.equalsIgnoreCase( "validate" ) ) { //$NON-NLS-1$
-            validateMethod = method;
-          } else if ( name.equalsIgnoreCase( "done" ) ) { //$NON-NLS-1$
-            doneMethod = method;
-          }
+        // the methods of a class are looked up once, and shared by every component of the class
+        PojoMethods pojoMethods = getPojoMethods();
+        if ( pojoMethods.hasSetClass ) {
+          warn( Messages.getInstance().getString( "PojoComponent.CANNOT_USE_SETCLASS" ) ); //$NON-NLS-1$
         }
+        getMethods = pojoMethods.getMethods;
+        setMethods = pojoMethods.setMethods;
+        executeMethod = pojoMethods.executeMethod;
+        validateMethod = pojoMethods.validateMethod;
+        doneMethod = pojoMethods.doneMethod;
+        resourcesMethod = pojoMethods.resourcesMethod;
+        runtimeInputsMethod = pojoMethods.runtimeInputsMethod;
+        runtimeOutputsMethod = pojoMethods.runtimeOutputsMethod;
+        loggerMethod = pojoMethods.loggerMethod;
+        sessionMethod = pojoMethods.sessionMethod;
+        configureMethod = pojoMethods.configureMethod;
 
         ok = true;
       } catch ( Throwable ex ) {
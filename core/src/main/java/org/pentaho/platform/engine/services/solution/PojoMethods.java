@@ -0,0 +1,240 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.engine.services.solution;
+
+import org.apache.commons.logging.Log;
+import org.pentaho.platform.api.engine.IPentahoSession;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.WrongMethodTypeException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * The methods {@link PojoComponent} calls on a pojo class, looked up once per class rather than once per action.
+ * <p>
+ * Every instance method taking no or one argument comes with a method handle, so calling it does not go through
+ * reflection, and setters come with the conversion of strings from the action definition to their parameter type.
+ * Static methods are called reflectively.
+ */
+class PojoMethods {
+
+  private static final MethodType GETTER = MethodType.methodType( Object.class, Object.class );
+
+  private static final MethodType SETTER = MethodType.methodType( Object.class, Object.class, Object.class );
+
+  private static final Map<Class<?>, Function<String, Object>> STRING_CONVERTERS =
+      new HashMap<Class<?>, Function<String, Object>>();
+
+  static {
+    STRING_CONVERTERS.put( Boolean.class, Boolean::valueOf );
+    STRING_CONVERTERS.put( boolean.class, Boolean::valueOf );
+    STRING_CONVERTERS.put( Integer.class, Integer::valueOf );
+    STRING_CONVERTERS.put( int.class, Integer::valueOf );
+    STRING_CONVERTERS.put( Long.class, Long::valueOf );
+    STRING_CONVERTERS.put( long.class, Long::valueOf );
+    STRING_CONVERTERS.put( Double.class, Double::valueOf );
+    STRING_CONVERTERS.put( double.class, Double::valueOf );
+    STRING_CONVERTERS.put( Float.class, Float::valueOf );
+    STRING_CONVERTERS.put( float.class, Float::valueOf );
+    STRING_CONVERTERS.put( BigDecimal.class, BigDecimal::new );
+  }
+
+  private static final ClassValue<PojoMethods> METHODS = new ClassValue<PojoMethods>() {
+    @Override
+    protected PojoMethods computeValue( Class<?> type ) {
+      return new PojoMethods( type );
+    }
+  };
+
+  final Map<String, Method> getMethods = new HashMap<String, Method>();
+  final Map<String, List<Method>> setMethods = new HashMap<String, List<Method>>();
+  Method executeMethod;
+  Method validateMethod;
+  Method doneMethod;
+  Method resourcesMethod;
+  Method runtimeInputsMethod;
+  Method runtimeOutputsMethod;
+  Method loggerMethod;
+  Method sessionMethod;
+  Method configureMethod;
+
+  /**
+   * Whether the class has a setClass method, which cannot be used as the class input names the pojo class
+   */
+  boolean hasSetClass;
+
+  private final Map<Method, Invoker> invokers = new HashMap<Method, Invoker>();
+
+  static PojoMethods of( Class<?> type ) {
+    return METHODS.get( type );
+  }
+
+  private PojoMethods( Class<?> type ) {
+    for ( Method method : type.getMethods() ) {
+      String name = method.getName();
+      Class<?>[] paramTypes = method.getParameterTypes();
+      if ( name.equals( "getOutputs" ) ) { //$NON-NLS-1$
+        runtimeOutputsMethod = method;
+      } else if ( name.equals( "setInputs" ) ) { //$NON-NLS-1$
+        runtimeInputsMethod = method;
+      } else if ( name.equals( "setResources" ) ) { //$NON-NLS-1$
+        resourcesMethod = method;
+      } else if ( name.equals( "setLogger" ) ) { //$NON-NLS-1$
+        if ( paramTypes.length == 1 && paramTypes[0] == Log.class ) {
+          loggerMethod = method;
+        }
+      } else if ( name.equals( "setSession" ) ) { //$NON-NLS-1$
+        if ( paramTypes.length == 1 && paramTypes[0] == IPentahoSession.class ) {
+          sessionMethod = method;
+        }
+      } else if ( name.equalsIgnoreCase( "configure" ) ) { //$NON-NLS-1$
+        configureMethod = method;
+      } else if ( name.startsWith( "set" ) ) { //$NON-NLS-1$
+        name = name.substring( 3 ).toUpperCase();
+        if ( name.equals( "CLASS" ) ) { //$NON-NLS-1$
+          hasSetClass = true;
+        } else {
+          if ( !setMethods.containsKey( name ) ) {
+            setMethods.put( name, new ArrayList<Method>() );
+          }
+          setMethods.get( name ).add( method );
+        }
+      } else if ( name.startsWith( "get" ) ) { //$NON-NLS-1$
+        name = name.substring( 3 ).toUpperCase();
+        getMethods.put( name, method );
+      } else if ( name.equalsIgnoreCase( "execute" ) ) { //$NON-NLS-1$
+        executeMethod = method;
+      } else if ( name.equalsIgnoreCase( "validate" ) ) { //$NON-NLS-1$
+        validateMethod = method;
+      } else if ( name.equalsIgnoreCase( "done" ) ) { //$NON-NLS-1$
+        doneMethod = method;
+      }
+      if ( paramTypes.length <= 1 && !Modifier.isStatic( method.getModifiers() ) ) {
+        invokers.put( method, new Invoker( method, paramTypes ) );
+      }
+    }
+    for ( Map.Entry<String, List<Method>> entry : setMethods.entrySet() ) {
+      entry.setValue( Collections.unmodifiableList( entry.getValue() ) );
+    }
+  }
+
+  /**
+   * @return the type of the single parameter of the method, or null if it does not take exactly one
+   */
+  Class<?> getParameterType( Method method ) {
+    Invoker invoker = invokers.get( method );
+    if ( invoker != null ) {
+      return invoker.parameterType;
+    }
+    Class<?>[] paramTypes = method.getParameterTypes();
+    return ( paramTypes.length == 1 ) ? paramTypes[0] : null;
+  }
+
+  /**
+   * @return the value of the string converted to the parameter type of the setter, or null if the setter takes a
+   *         type strings are not converted to
+   */
+  Object fromString( Method method, String value ) {
+    Class<?> parameterType = getParameterType( method );
+    Function<String, Object> converter = ( parameterType == null ) ? null : STRING_CONVERTERS.get( parameterType );
+    return ( converter == null ) ? null : converter.apply( value );
+  }
+
+  /**
+   * Calls a method taking no argument. Like {@link Method#invoke}, whatever the method throws is wrapped in an
+   * {@link InvocationTargetException}. A pojo the method cannot be called on is left to {@link Method#invoke}, so it
+   * fails the way it always did.
+   */
+  Object invoke( Method method, Object pojo ) throws Exception {
+    Invoker invoker = invokers.get( method );
+    if ( invoker == null || invoker.handle == null || invoker.parameterType != null
+        || !invoker.declaringClass.isInstance( pojo ) ) {
+      return method.invoke( pojo );
+    }
+    try {
+      return invoker.handle.invokeExact( pojo );
+    } catch ( Throwable t ) {
+      throw new InvocationTargetException( t );
+    }
+  }
+
+  /**
+   * Calls a method taking one argument. Like {@link Method#invoke}, whatever the method throws is wrapped in an
+   * {@link InvocationTargetException}. A pojo or an argument the method handle does not take as is, such as an
+   * argument of another type or one that needs widening to a primitive parameter, is left to {@link Method#invoke},
+   * so it is converted or fails the way it always did.
+   */
+  Object invoke( Method method, Object pojo, Object arg ) throws Exception {
+    Invoker invoker = invokers.get( method );
+    if ( invoker == null || invoker.handle == null || invoker.parameterType == null
+        || !invoker.declaringClass.isInstance( pojo ) || !invoker.takes( arg ) ) {
+      return method.invoke( pojo, arg );
+    }
+    try {
+      return invoker.handle.invokeExact( pojo, arg );
+    } catch ( Throwable t ) {
+      throw new InvocationTargetException( t );
+    }
+  }
+
+  private static class Invoker {
+
+    private final MethodHandle handle;
+
+    private final Class<?> declaringClass;
+
+    private final Class<?> parameterType;
+
+    /**
+     * The parameter type, boxed if it is primitive
+     */
+    private final Class<?> argumentType;
+
+    Invoker( Method method, Class<?>[] paramTypes ) {
+      declaringClass = method.getDeclaringClass();
+      parameterType = ( paramTypes.length == 1 ) ? paramTypes[0] : null;
+      argumentType = ( parameterType == null ) ? null : MethodType.methodType( parameterType ).wrap().returnType();
+      MethodHandle methodHandle;
+      try {
+        methodHandle =
+            MethodHandles.publicLookup().unreflect( method ).asType( ( paramTypes.length == 1 ) ? SETTER : GETTER );
+      } catch ( IllegalAccessException e ) {
+        // a public method of a class that is not public, calling it reflectively fails the way it always did
+        methodHandle = null;
+      } catch ( WrongMethodTypeException e ) {
+        // the method cannot be called as getter or setter of an instance, it is called reflectively
+        methodHandle = null;
+      }
+      handle = methodHandle;
+    }
+
+    /**
+     * @return true if the argument can be passed to the method handle without conversion
+     */
+    boolean takes( Object arg ) {
+      return ( arg == null ) ? !parameterType.isPrimitive() : argumentType.isInstance( arg );
+    }
+  }
+}
@@ -15,6 +15,8 @@ package org.pentaho.platform.plugin.action.kettle;
 
 
 import org.apache.commons.dbcp2.PoolingDataSource;
+import org.apache.commons.pool2.ObjectPool;
+import org.apache.commons.pool2.impl.GenericObjectPool;
 import org.pentaho.database.IDatabaseDialect;
 import org.pentaho.database.model.IDatabaseConnection;
 import org.pentaho.di.core.database.CachedManagedDataSourceInterface;
@@ -29,8 +31,8 @@ import java.util.logging.Logger;
 
 public class PoolingManagedDataSource extends PoolingDataSource implements CachedManagedDataSourceInterface {
 
-    private boolean isExpired;
-    private String poolConfigHash;
+    private volatile boolean isExpired;
+    private volatile String poolConfigHash;
     private List<String> usedBy;
 
     public PoolingManagedDataSource( IDatabaseConnection databaseConnection, IDatabaseDialect dialect )
@@ -71,14 +73,14 @@ public class PoolingManagedDataSource extends PoolingDataSource implements Cache
     }
 
     @Override
-    public void addInUseBy( String ownerName ) {
+    public synchronized void addInUseBy( String ownerName ) {
         if ( !usedBy.contains( ownerName ) ){
             usedBy.add( ownerName );
         }
     }
 
     @Override
-    public void removeInUseBy( String invalidatedBy ) {
+    public synchronized void removeInUseBy( String invalidatedBy ) {
         usedBy.remove( invalidatedBy );
     }
 
@@ -97,12 +99,12 @@ public class PoolingManagedDataSource extends PoolingDataSource implements Cache
     }
 
     @Override
-    public boolean isInUse() {
+    public synchronized boolean isInUse() {
         return !usedBy.isEmpty();
     }
 
     @Override
-    public void setInUseBy( List<String> ownerList ) {
+    public synchronized void setInUseBy( List<String> ownerList ) {
         usedBy = ownerList;
     }
 
@@ -110,4 +112,42 @@ public class PoolingManagedDataSource extends PoolingDataSource implements Cache
     public void expire() {
         isExpired = true;
     }
+
+    /**
+     * @return the number of connections borrowed from the pool
+     */
+    public int getNumActive() {
+        return getPool().getNumActive();
+    }
+
+    /**
+     * @return the number of idle connections in the pool
+     */
+    public int getNumIdle() {
+        return getPool().getNumIdle();
+    }
+
+    /**
+     * @return the number of threads waiting for a connection, -1 if the pool does not tell
+     */
+    public int getNumWaiters() {
+        ObjectPool<?> pool = getPool();
+        return pool instanceof GenericObjectPool ? ( (GenericObjectPool<?>) pool ).getNumWaiters() : -1;
+    }
+
+    /**
+     * @return the mean time recent borrowers waited for a connection, -1 if the pool does not tell
+     */
+    public long getMeanBorrowWaitTimeMillis() {
+        ObjectPool<?> pool = getPool();
+        return pool instanceof GenericObjectPool ? ( (GenericObjectPool<?>) pool ).getMeanBorrowWaitTimeMillis() : -1;
+    }
+
+    /**
+     * @return the longest time a borrower waited for a connection, -1 if the pool does not tell
+     */
+    public long getMaxBorrowWaitTimeMillis() {
+        ObjectPool<?> pool = getPool();
+        return pool instanceof GenericObjectPool ? ( (GenericObjectPool<?>) pool ).getMaxBorrowWaitTimeMillis() : -1;
+    }
 }
@@ -15,19 +15,36 @@ package org.pentaho.platform.engine.core;
 
 import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.pentaho.platform.api.engine.IMimeTypeListener;
 import org.pentaho.platform.api.engine.IPentahoDefinableObjectFactory;
+import org.pentaho.platform.api.engine.IPentahoObjectFactory;
+import org.pentaho.platform.api.engine.IPentahoObjectReference;
+import org.pentaho.platform.api.engine.IPentahoObjectRegistration;
+import org.pentaho.platform.api.engine.IPentahoSession;
 import org.pentaho.platform.engine.core.system.PentahoSystem;
 import org.pentaho.platform.engine.core.system.StandaloneSession;
 import org.pentaho.platform.engine.core.system.objfac.AggregateObjectFactory;
+import org.pentaho.platform.engine.core.system.objfac.RuntimeObjectFactory;
 import org.pentaho.platform.engine.core.system.objfac.StandaloneObjectFactory;
 import org.pentaho.platform.engine.core.system.objfac.StandaloneSpringPentahoObjectFactory;
+import org.pentaho.platform.engine.core.system.objfac.references.SingletonPentahoObjectReference;
 import org.pentaho.platform.engine.core.system.objfac.spring.PublishedBeanRegistry;
 import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.context.support.FileSystemXmlApplicationContext;
@@ -192,4 +209,140 @@ public class AggregateObjectFactoryTest {
     assertEquals( 0, PublishedBeanRegistry.getRegisteredFactories().size() );
 
   }
+
+  @Test
+  public void testResolutionCache() throws Exception {
+
+    StandaloneSession session = new StandaloneSession();
+    RuntimeObjectFactory runtimeFactory = new RuntimeObjectFactory();
+    AggregateObjectFactory aggFactory = new AggregateObjectFactory();
+    aggFactory.registerObjectFactory( runtimeFactory );
+
+    MimeTypeListener first = new MimeTypeListener();
+    runtimeFactory.registerReference(
+        new SingletonPentahoObjectReference<MimeTypeListener>( MimeTypeListener.class, first,
+            new HashMap<String, Object>(), 1 ), MimeTypeListener.class );
+
+    assertSame( first, aggFactory.get( MimeTypeListener.class, session, null ) );
+    assertEquals( 1, aggFactory.getResolutionCacheMisses() );
+    assertSame( first, aggFactory.get( MimeTypeListener.class, session, null ) );
+    assertEquals( 1, aggFactory.getResolutionCacheHits() );
+    assertEquals( 1, aggFactory.getResolutionCacheSize() );
+
+    // another session is served by the memoized factory, without a memo entry of its own
+    assertSame( first, aggFactory.get( MimeTypeListener.class, new StandaloneSession(), null ) );
+    assertEquals( 1, aggFactory.getResolutionCacheMisses() );
+    assertEquals( 2, aggFactory.getResolutionCacheHits() );
+    assertEquals( 1, aggFactory.getResolutionCacheSize() );
+  }
+
+  @Test
+  public void testResolutionCacheReturnsRuntimeReferences() throws Exception {
+
+    RuntimeObjectFactory runtimeFactory = spy( new RuntimeObjectFactory() );
+    AggregateObjectFactory aggFactory = new AggregateObjectFactory();
+    aggFactory.registerObjectFactory( runtimeFactory );
+    IPentahoObjectReference<MimeTypeListener> reference =
+        new SingletonPentahoObjectReference<MimeTypeListener>( MimeTypeListener.class, new MimeTypeListener(),
+            new HashMap<String, Object>(), 1 );
+    runtimeFactory.registerReference( reference, MimeTypeListener.class );
+
+    assertSame( reference, aggFactory.getObjectReference( MimeTypeListener.class, new StandaloneSession(), null ) );
+    assertSame( reference, aggFactory.getObjectReference( MimeTypeListener.class, new StandaloneSession(), null ) );
+
+    assertEquals( 1, aggFactory.getResolutionCacheHits() );
+    verify( runtimeFactory, times( 1 ) )
+        .getObjectReferences( eq( MimeTypeListener.class ), any( IPentahoSession.class ), isNull() );
+  }
+
+  @Test
+  public void testResolutionCacheAsksWinningFactoryForEachSession() throws Exception {
+
+    IPentahoObjectFactory factory = mock( IPentahoObjectFactory.class );
+    when( factory.objectDefined( MimeTypeListener.class ) ).thenReturn( true );
+    IPentahoObjectReference<MimeTypeListener> reference =
+        new SingletonPentahoObjectReference<MimeTypeListener>( MimeTypeListener.class, new MimeTypeListener(),
+            new HashMap<String, Object>(), 1 );
+    when( factory.getObjectReferences( eq( MimeTypeListener.class ), any( IPentahoSession.class ), isNull() ) )
+        .thenReturn( Collections.singletonList( reference ) );
+    AggregateObjectFactory aggFactory = new AggregateObjectFactory();
+    aggFactory.registerObjectFactory( factory );
+
+    StandaloneSession first = new StandaloneSession();
+    StandaloneSession second = new StandaloneSession();
+    aggFactory.getObjectReference( MimeTypeListener.class, first, null );
+    aggFactory.getObjectReference( MimeTypeListener.class, second, null );
+
+    assertEquals( 1, aggFactory.getResolutionCacheHits() );
+    verify( factory ).getObjectReferences( MimeTypeListener.class, first, null );
+    verify( factory ).getObjectReferences( MimeTypeListener.class, second, null );
+  }
+
+  @Test
+  public void testResolutionCacheIsBounded() throws Exception {
+
+    IPentahoObjectFactory factory = mock( IPentahoObjectFactory.class );
+    when( factory.objectDefined( MimeTypeListener.class ) ).thenReturn( true );
+    IPentahoObjectReference<MimeTypeListener> reference =
+        new SingletonPentahoObjectReference<MimeTypeListener>( MimeTypeListener.class, new MimeTypeListener(),
+            new HashMap<String, Object>(), 1 );
+    when( factory.getObjectReferences( eq( MimeTypeListener.class ), any( IPentahoSession.class ), any() ) )
+        .thenReturn( Collections.singletonList( reference ) );
+    AggregateObjectFactory aggFactory = new AggregateObjectFactory();
+    aggFactory.setMaxCachedResolutions( 2 );
+    aggFactory.registerObjectFactory( factory );
+
+    StandaloneSession session = new StandaloneSession();
+    for ( int i = 0; i < 10; i++ ) {
+      assertNotNull( aggFactory.getObjectReference( MimeTypeListener.class, session,
+          Collections.singletonMap( "id", String.valueOf( i ) ) ) );
+    }
+    assertEquals( 10, aggFactory.getResolutionCacheMisses() );
+    assertTrue( aggFactory.getResolutionCacheSize() <= 2 );
+  }
+
+  @Test
+  public void testResolutionCacheInvalidatedOnRuntimeRegistration() throws Exception {
+
+    StandaloneSession session = new StandaloneSession();
+    RuntimeObjectFactory runtimeFactory = new RuntimeObjectFactory();
+    AggregateObjectFactory aggFactory = new AggregateObjectFactory();
+    aggFactory.registerObjectFactory( runtimeFactory );
+
+    MimeTypeListener low = new MimeTypeListener();
+    runtimeFactory.registerReference(
+        new SingletonPentahoObjectReference<MimeTypeListener>( MimeTypeListener.class, low,
+            new HashMap<String, Object>(), 1 ), MimeTypeListener.class );
+    assertSame( low, aggFactory.get( MimeTypeListener.class, session, null ) );
+
+    MimeTypeListener high = new MimeTypeListener();
+    IPentahoObjectRegistration registration = runtimeFactory.registerReference(
+        new SingletonPentahoObjectReference<MimeTypeListener>( MimeTypeListener.class, high,
+            new HashMap<String, Object>(), 10 ), MimeTypeListener.class );
+    assertEquals( 0, aggFactory.getResolutionCacheSize() );
+    assertSame( high, aggFactory.get( MimeTypeListener.class, session, null ) );
+
+    registration.remove();
+    assertSame( low, aggFactory.get( MimeTypeListener.class, session, null ) );
+  }
+
+  @Test
+  public void testResolutionCacheInvalidatedOnFactoryChanges() throws Exception {
+
+    StandaloneSession session = new StandaloneSession();
+    RuntimeObjectFactory runtimeFactory = new RuntimeObjectFactory();
+    AggregateObjectFactory aggFactory = new AggregateObjectFactory();
+    aggFactory.registerObjectFactory( runtimeFactory );
+    runtimeFactory.registerObject( new MimeTypeListener(), MimeTypeListener.class );
+
+    aggFactory.get( MimeTypeListener.class, session, null );
+    assertEquals( 1, aggFactory.getResolutionCacheSize() );
+
+    aggFactory.registerObjectFactory( new RuntimeObjectFactory() );
+    assertEquals( 0, aggFactory.getResolutionCacheSize() );
+
+    aggFactory.get( MimeTypeListener.class, session, null );
+    aggFactory.deregisterObjectFactory( runtimeFactory );
+    assertEquals( 0, aggFactory.getResolutionCacheSize() );
+  }
 }
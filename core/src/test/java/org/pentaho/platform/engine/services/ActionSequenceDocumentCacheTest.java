@@ -0,0 +1,89 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.engine.services;
+
+import org.dom4j.Document;
+import org.dom4j.DocumentHelper;
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.platform.api.repository2.unified.RepositoryFile;
+
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+
+public class ActionSequenceDocumentCacheTest {
+
+  private ActionSequenceDocumentCache cache;
+  private Document document;
+
+  @Before
+  public void setUp() {
+    cache = new ActionSequenceDocumentCache( 10, 1, TimeUnit.MINUTES );
+    document = DocumentHelper.createDocument();
+    document.addElement( "action-sequence" ).addElement( "title" ).setText( "Sample" );
+  }
+
+  @Test
+  public void testHitReturnsCopy() {
+    RepositoryFile file = file( "1", "v1" );
+    cache.put( file, Locale.US, document );
+
+    Document first = cache.get( file, Locale.US );
+    assertNotNull( first );
+    assertNotSame( document, first );
+    first.getRootElement().element( "title" ).setText( "Changed" );
+
+    assertEquals( "Sample", cache.get( file, Locale.US ).valueOf( "/action-sequence/title" ) );
+    assertEquals( 2, cache.getStats().hitCount() );
+  }
+
+  @Test
+  public void testOtherVersionOrLocaleMisses() {
+    cache.put( file( "1", "v1" ), Locale.US, document );
+
+    assertNull( cache.get( file( "1", "v2" ), Locale.US ) );
+    assertNull( cache.get( file( "1", "v1" ), Locale.GERMANY ) );
+    assertEquals( 2, cache.getStats().missCount() );
+  }
+
+  @Test
+  public void testUpdatedFileMisses() {
+    cache.put( file( "1", "v1" ), Locale.US, document );
+    RepositoryFile updated = new RepositoryFile.Builder( file( "1", "v1" ) )
+      .lastModificationDate( new Date( 2000L ) ).build();
+
+    assertNull( cache.get( updated, Locale.US ) );
+    assertNotNull( cache.get( file( "1", "v1" ), Locale.US ) );
+  }
+
+  @Test
+  public void testFileWithoutVersionIsNotCached() {
+    RepositoryFile file = new RepositoryFile.Builder( "1", "sample.xaction" ).build();
+    cache.put( file, Locale.US, document );
+
+    assertEquals( 0, cache.size() );
+    assertNull( cache.get( file, Locale.US ) );
+  }
+
+  private RepositoryFile file( String id, String versionId ) {
+    return new RepositoryFile.Builder( id, "sample.xaction" ).versionId( versionId )
+      .lastModificationDate( new Date( 1000L ) ).build();
+  }
+}
@@ -0,0 +1,203 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.engine.services.audit;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.pentaho.platform.engine.services.audit.AsyncAuditWriter.OverflowPolicy;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AsyncAuditWriterTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private AsyncAuditWriter writer;
+
+  @After
+  public void tearDown() {
+    if ( writer != null ) {
+      writer.shutdown();
+    }
+  }
+
+  @Test
+  public void testFullBatchesAreWrittenTogether() throws Exception {
+    RecordingSink sink = new RecordingSink();
+    writer = new AsyncAuditWriter( "test", sink, 100, 5, 60000, OverflowPolicy.BLOCK, null );
+    for ( int i = 0; i < 10; i++ ) {
+      writer.write( record( i ) );
+    }
+    sink.await( 10 );
+
+    assertEquals( 2, sink.batches.size() );
+    assertEquals( 5, sink.batches.get( 0 ).size() );
+    assertEquals( "job0", sink.batches.get( 0 ).get( 0 ).getJobId() );
+    assertEquals( 10, writer.getWrittenCount() );
+  }
+
+  @Test
+  public void testPartialBatchIsWrittenAfterFlushInterval() throws Exception {
+    RecordingSink sink = new RecordingSink();
+    writer = new AsyncAuditWriter( "test", sink, 100, 50, 50, OverflowPolicy.BLOCK, null );
+    writer.write( record( 1 ) );
+    writer.write( record( 2 ) );
+
+    sink.await( 2 );
+    assertEquals( 1, sink.batches.size() );
+  }
+
+  @Test
+  public void testShutdownWritesQueuedRecords() throws Exception {
+    RecordingSink sink = new RecordingSink();
+    writer = new AsyncAuditWriter( "test", sink, 100, 50, 60000, OverflowPolicy.BLOCK, null );
+    for ( int i = 0; i < 3; i++ ) {
+      writer.write( record( i ) );
+    }
+    writer.shutdown();
+
+    assertFalse( writer.isRunning() );
+    assertEquals( 3, sink.count() );
+
+    // written right away once the writer is shut down, and the sink lets go of its connection
+    int idles = sink.idles.get();
+    writer.write( record( 4 ) );
+    assertEquals( 4, sink.count() );
+    assertEquals( idles + 1, sink.idles.get() );
+  }
+
+  @Test
+  public void testDropWhenFull() throws Exception {
+    BlockingSink sink = new BlockingSink();
+    writer = new AsyncAuditWriter( "test", sink, 1, 1, 60000, OverflowPolicy.DROP, null );
+    writer.write( record( 1 ) );
+    sink.writing.await( 10, TimeUnit.SECONDS );
+    writer.write( record( 2 ) );
+    writer.write( record( 3 ) );
+
+    assertEquals( 1, writer.getDroppedCount() );
+    sink.release.countDown();
+  }
+
+  @Test
+  public void testSpillWhenFull() throws Exception {
+    File spillFile = new File( folder.getRoot(), "spill/audit.log" );
+    BlockingSink sink = new BlockingSink();
+    writer = new AsyncAuditWriter( "test", sink, 1, 1, 60000, OverflowPolicy.SPILL, spillFile );
+    writer.write( record( 1 ) );
+    sink.writing.await( 10, TimeUnit.SECONDS );
+    writer.write( record( 2 ) );
+    writer.write( record( 3 ) );
+
+    assertEquals( 1, writer.getSpilledCount() );
+    List<String> lines = Files.readAllLines( spillFile.toPath(), StandardCharsets.UTF_8 );
+    assertEquals( 1, lines.size() );
+    assertTrue( lines.get( 0 ), lines.get( 0 ).contains( "\tjob3\t" ) );
+    sink.release.countDown();
+  }
+
+  @Test
+  public void testFailedBatchIsSpilled() throws Exception {
+    File spillFile = new File( folder.getRoot(), "audit.log" );
+    writer = new AsyncAuditWriter( "test", new AsyncAuditWriter.Sink() {
+      @Override
+      public void write( List<AuditRecord> records ) throws Exception {
+        throw new Exception( "database is down" );
+      }
+
+      @Override
+      public void idle() {
+      }
+    }, 10, 10, 10, OverflowPolicy.SPILL, spillFile );
+    writer.write( record( 1 ) );
+    writer.shutdown();
+
+    assertEquals( 1, writer.getSpilledCount() );
+    assertEquals( 0, writer.getWrittenCount() );
+  }
+
+  private static AuditRecord record( int i ) {
+    return new AuditRecord( "job" + i, "inst", "obj", "type", "actor", "message_type", "name", "text",
+        BigDecimal.ONE, 1.5, System.currentTimeMillis() );
+  }
+
+  private static class RecordingSink implements AsyncAuditWriter.Sink {
+
+    private final List<List<AuditRecord>> batches = Collections.synchronizedList( new ArrayList<>() );
+
+    private final AtomicInteger idles = new AtomicInteger();
+
+    @Override
+    public void write( List<AuditRecord> records ) {
+      batches.add( new ArrayList<>( records ) );
+      synchronized ( this ) {
+        notifyAll();
+      }
+    }
+
+    @Override
+    public void idle() {
+      idles.incrementAndGet();
+    }
+
+    synchronized int count() {
+      int count = 0;
+      for ( List<AuditRecord> batch : batches ) {
+        count += batch.size();
+      }
+      return count;
+    }
+
+    synchronized void await( int count ) throws InterruptedException {
+      long deadline = System.currentTimeMillis() + 10000;
+      while ( count() < count && System.currentTimeMillis() < deadline ) {
+        wait( 100 );
+      }
+      assertEquals( count, count() );
+    }
+  }
+
+  private static class BlockingSink implements AsyncAuditWriter.Sink {
+
+    private final CountDownLatch writing = new CountDownLatch( 1 );
+
+    private final CountDownLatch release = new CountDownLatch( 1 );
+
+    @Override
+    public void write( List<AuditRecord> records ) throws InterruptedException {
+      writing.countDown();
+      release.await( 10, TimeUnit.SECONDS );
+    }
+
+    @Override
+    public void idle() {
+    }
+  }
+}
@@ -0,0 +1,69 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+
+
+package org.pentaho.platform.engine.services.audit;
+
+import org.junit.Test;
+
+import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Date;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+public class AuditDateFormatsTest {
+
+  private static final Instant INSTANT = Instant.parse( "2024-03-07T00:05:09.042Z" );
+
+  @Test
+  public void testSameTextAsSimpleDateFormat() {
+    for ( String zone : new String[] { "UTC", "America/Los_Angeles", "Asia/Kolkata" } ) {
+      for ( String pattern : new String[] { "yyyy/MM/dd k:mm:ss", "yyyy-MM-dd'T'HH:mm:ss.SSSZ",
+        "yy-M-d H:m:s.S X", "yyyy-MM-dd HH:mm:ss,SSSS XXX", "u 'day' ''F'' D", "KK hh [yyyy] #ddd" } ) {
+        assertEquals( pattern + " " + zone, simpleDateFormat( pattern, zone ), format( pattern, zone ) );
+      }
+    }
+  }
+
+  @Test
+  public void testZoneNames() {
+    assertNotNull( AuditDateFormats.ofPattern( "yyyy/MM/dd HH:mm:ss z" ) );
+    assertNotNull( AuditDateFormats.ofPattern( "yyyy/MM/dd HH:mm:ss zzzz" ) );
+  }
+
+  @Test( expected = IllegalArgumentException.class )
+  public void testInvalidPattern() {
+    AuditDateFormats.ofPattern( "yyyy/MM/dd qq" );
+  }
+
+  @Test( expected = IllegalArgumentException.class )
+  public void testUnterminatedQuote() {
+    AuditDateFormats.ofPattern( "yyyy 'at" );
+  }
+
+  private static String simpleDateFormat( String pattern, String zone ) {
+    SimpleDateFormat format = new SimpleDateFormat( pattern );
+    format.setTimeZone( TimeZone.getTimeZone( zone ) );
+    return format.format( Date.from( INSTANT ) );
+  }
+
+  private static String format( String pattern, String zone ) {
+    return AuditDateFormats.ofPattern( pattern ).format( ZonedDateTime.ofInstant( INSTANT, ZoneId.of( zone ) ) );
+  }
+}
@@ -0,0 +1,179 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.engine.services.audit;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AuditFileWriterTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private AuditFileWriter writer;
+
+  @After
+  public void tearDown() {
+    if ( writer != null ) {
+      writer.shutdown();
+    }
+  }
+
+  @Test
+  public void testLinesAreAppendedInOrder() throws Exception {
+    File file = new File( folder.getRoot(), "logs/audit.log" );
+    writer = new AuditFileWriter( file, 10, 0, AuditFileWriter.Rotation.NONE, false, Clock.systemUTC() );
+    List<String> expected = new ArrayList<>();
+    for ( int i = 0; i < 100; i++ ) {
+      expected.add( "line " + i );
+      writer.write( ( "line " + i + "\n" ).getBytes( StandardCharsets.UTF_8 ) );
+    }
+    writer.shutdown();
+
+    assertEquals( expected, Files.readAllLines( file.toPath(), StandardCharsets.UTF_8 ) );
+  }
+
+  @Test
+  public void testLogIsRotatedBySize() throws Exception {
+    File file = new File( folder.getRoot(), "audit.log" );
+    writer = new AuditFileWriter( file, 10, 10, AuditFileWriter.Rotation.NONE, false, Clock.systemUTC() );
+    writer.write( "0123456789\n".getBytes( StandardCharsets.UTF_8 ) );
+    awaitLength( file, 11 );
+    writer.write( "abc\n".getBytes( StandardCharsets.UTF_8 ) );
+    writer.shutdown();
+
+    assertEquals( Arrays.asList( "abc" ), Files.readAllLines( file.toPath(), StandardCharsets.UTF_8 ) );
+    File[] rotated = folder.getRoot().listFiles( ( dir, name ) -> !name.equals( "audit.log" ) );
+    assertEquals( 1, rotated.length );
+    assertTrue( rotated[0].getName(), rotated[0].getName().matches( "audit\\..*\\.log" ) );
+    assertEquals( Arrays.asList( "0123456789" ), Files.readAllLines( rotated[0].toPath(), StandardCharsets.UTF_8 ) );
+  }
+
+  @Test
+  public void testLogIsRotatedHourly() throws Exception {
+    File file = new File( folder.getRoot(), "audit.log" );
+    MutableClock clock = new MutableClock( Instant.parse( "2024-05-01T10:15:00Z" ) );
+    writer = new AuditFileWriter( file, 10, 0, AuditFileWriter.Rotation.HOURLY, false, clock );
+    writer.write( "first\n".getBytes( StandardCharsets.UTF_8 ) );
+    awaitLength( file, 6 );
+    clock.advance( Duration.ofMinutes( 30 ) );
+    writer.write( "second\n".getBytes( StandardCharsets.UTF_8 ) );
+    awaitLength( file, 13 );
+    clock.advance( Duration.ofMinutes( 30 ) );
+    writer.write( "third\n".getBytes( StandardCharsets.UTF_8 ) );
+    writer.shutdown();
+
+    assertEquals( Arrays.asList( "third" ), Files.readAllLines( file.toPath(), StandardCharsets.UTF_8 ) );
+    File rotated = new File( folder.getRoot(), "audit.2024-05-01_11-15-00.log" );
+    assertEquals( Arrays.asList( "first", "second" ), Files.readAllLines( rotated.toPath(), StandardCharsets.UTF_8 ) );
+  }
+
+  @Test
+  public void testLogIsKeptWhenItCannotBeMoved() throws Exception {
+    File file = new File( folder.getRoot(), "audit.log" );
+    MutableClock clock = new MutableClock( Instant.parse( "2024-05-01T10:15:00Z" ) );
+    AtomicBoolean moveFails = new AtomicBoolean( true );
+    writer = new AuditFileWriter( file, 10, 10, AuditFileWriter.Rotation.NONE, false, clock ) {
+      @Override
+      boolean moveAside( File rotated ) {
+        return !moveFails.get() && super.moveAside( rotated );
+      }
+    };
+    writer.write( "0123456789\n".getBytes( StandardCharsets.UTF_8 ) );
+    awaitLength( file, 11 );
+    writer.write( "abc\n".getBytes( StandardCharsets.UTF_8 ) );
+    awaitLength( file, 15 );
+    moveFails.set( false );
+    // not tried again right away
+    writer.write( "def\n".getBytes( StandardCharsets.UTF_8 ) );
+    awaitLength( file, 19 );
+    clock.advance( Duration.ofMinutes( 2 ) );
+    writer.write( "ghi\n".getBytes( StandardCharsets.UTF_8 ) );
+    writer.shutdown();
+
+    assertEquals( Arrays.asList( "ghi" ), Files.readAllLines( file.toPath(), StandardCharsets.UTF_8 ) );
+    File rotated = new File( folder.getRoot(), "audit.2024-05-01_10-17-00.log" );
+    assertEquals( Arrays.asList( "0123456789", "abc", "def" ),
+        Files.readAllLines( rotated.toPath(), StandardCharsets.UTF_8 ) );
+  }
+
+  @Test
+  public void testWriteAfterShutdownClosesLog() throws Exception {
+    File file = new File( folder.getRoot(), "audit.log" );
+    writer = new AuditFileWriter( file, 10, 0, AuditFileWriter.Rotation.NONE, false, Clock.systemUTC() );
+    writer.write( "first\n".getBytes( StandardCharsets.UTF_8 ) );
+    writer.shutdown();
+    assertFalse( writer.isOpen() );
+
+    writer.write( "late\n".getBytes( StandardCharsets.UTF_8 ) );
+
+    assertFalse( writer.isOpen() );
+    assertEquals( Arrays.asList( "first", "late" ), Files.readAllLines( file.toPath(), StandardCharsets.UTF_8 ) );
+  }
+
+  private static void awaitLength( File file, long length ) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 10000;
+    while ( file.length() < length && System.currentTimeMillis() < deadline ) {
+      Thread.sleep( 10 );
+    }
+    assertEquals( length, file.length() );
+  }
+
+  private static class MutableClock extends Clock {
+
+    private volatile Instant instant;
+
+    MutableClock( Instant instant ) {
+      this.instant = instant;
+    }
+
+    void advance( Duration duration ) {
+      instant = instant.plus( duration );
+    }
+
+    @Override
+    public ZoneId getZone() {
+      return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone( ZoneId zone ) {
+      return this;
+    }
+
+    @Override
+    public Instant instant() {
+      return instant;
+    }
+  }
+}
@@ -0,0 +1,205 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.engine.services.connection.datasource.dbcp;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.database.model.IDatabaseConnection;
+import org.pentaho.platform.api.data.DBDatasourceServiceException;
+import org.pentaho.platform.api.data.IDBDatasourceService;
+import org.pentaho.platform.api.engine.ICacheManager;
+import org.pentaho.platform.plugin.action.kettle.PoolingManagedDataSource;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class PooledDatasourceRegistryTest {
+
+  private final Deque<PoolingManagedDataSource> created = new ArrayDeque<PoolingManagedDataSource>();
+  private final Map<Object, Object> region = new HashMap<Object, Object>();
+  private PooledDatasourceRegistry registry;
+  private IDatabaseConnection connection;
+
+  @Before
+  public void setUp() {
+    ICacheManager cacheManager = mock( ICacheManager.class );
+    when( cacheManager.cacheEnabled( IDBDatasourceService.JDBC_DATASOURCE ) ).thenReturn( true );
+    when( cacheManager.getFromRegionCache( eq( IDBDatasourceService.JDBC_DATASOURCE ), any() ) )
+      .thenAnswer( invocation -> region.get( invocation.getArgument( 1 ) ) );
+    doAnswer( invocation -> region.put( invocation.getArgument( 1 ), invocation.getArgument( 2 ) ) )
+      .when( cacheManager ).putInRegionCache( eq( IDBDatasourceService.JDBC_DATASOURCE ), any(), any() );
+
+    registry = new PooledDatasourceRegistry( cacheManager ) {
+      @Override
+      protected PoolingManagedDataSource createDataSource( IDatabaseConnection databaseConnection )
+        throws DBDatasourceServiceException {
+        if ( created.isEmpty() ) {
+          throw new DBDatasourceServiceException( "no pool" );
+        }
+        return created.pop();
+      }
+    };
+    connection = mock( IDatabaseConnection.class );
+    when( connection.getName() ).thenReturn( "SampleData" );
+    when( connection.calculateHash() ).thenReturn( "hash1" );
+  }
+
+  @Test
+  public void testPoolIsReusedWhileConfigIsUnchanged() throws Exception {
+    PoolingManagedDataSource pool = pool( "hash1" );
+
+    assertSame( pool, registry.getDataSource( connection ) );
+    assertSame( pool, registry.getDataSource( connection ) );
+  }
+
+  @Test
+  public void testPoolInUseIsExpiredWhenConfigChanges() throws Exception {
+    PoolingManagedDataSource pool = pool( "hash1" );
+    when( pool.isInUse() ).thenReturn( true );
+    registry.getDataSource( connection );
+
+    when( connection.calculateHash() ).thenReturn( "hash2" );
+    PoolingManagedDataSource newPool = pool( "hash2" );
+
+    assertSame( newPool, registry.getDataSource( connection ) );
+    verify( pool ).expire();
+    verify( pool, never() ).close();
+
+    when( pool.isInUse() ).thenReturn( false );
+    registry.getDataSource( connection );
+    verify( pool ).close();
+  }
+
+  @Test
+  public void testPoolNotInUseIsReplacedWhenConfigChanges() throws Exception {
+    PoolingManagedDataSource pool = pool( "hash1" );
+    registry.getDataSource( connection );
+
+    when( connection.calculateHash() ).thenReturn( "hash2" );
+    PoolingManagedDataSource newPool = pool( "hash2" );
+
+    assertSame( newPool, registry.getDataSource( connection ) );
+    assertSame( newPool, region.get( "SampleData" ) );
+    verify( pool ).close();
+  }
+
+  @Test
+  public void testPoolPublishedInRegionIsAdopted() throws Exception {
+    PoolingManagedDataSource startupPool = mock( PoolingManagedDataSource.class );
+    when( startupPool.hasSameConfig( "hash1" ) ).thenReturn( true );
+    region.put( "SampleData", startupPool );
+
+    assertSame( startupPool, registry.getDataSource( connection ) );
+    assertEquals( 1, registry.getMetrics().size() );
+  }
+
+  @Test
+  public void testPoolDroppedFromRegionIsReplaced() throws Exception {
+    PoolingManagedDataSource pool = pool( "hash1" );
+    registry.getDataSource( connection );
+    // what BaseDatasourceService.clearDataSource does
+    region.remove( "SampleData" );
+    PooledDatasourceRegistry.close( pool );
+    when( pool.isExpired() ).thenReturn( true );
+
+    PoolingManagedDataSource newPool = pool( "hash1" );
+
+    assertSame( newPool, registry.getDataSource( connection ) );
+    assertSame( newPool, region.get( "SampleData" ) );
+  }
+
+  @Test
+  public void testPoolEvictedByTheRegionIsPublishedAgain() throws Exception {
+    PoolingManagedDataSource pool = pool( "hash1" );
+    registry.getDataSource( connection );
+    region.clear();
+
+    assertSame( pool, registry.getDataSource( connection ) );
+    assertSame( pool, region.get( "SampleData" ) );
+    verify( pool, never() ).close();
+  }
+
+  @Test
+  public void testExpiredPoolIsReplaced() throws Exception {
+    PoolingManagedDataSource pool = pool( "hash1" );
+    registry.getDataSource( connection );
+    when( pool.isExpired() ).thenReturn( true );
+
+    PoolingManagedDataSource newPool = pool( "hash1" );
+
+    assertNotSame( pool, registry.getDataSource( connection ) );
+    assertSame( newPool, registry.getDataSource( connection ) );
+  }
+
+  @Test
+  public void testFailedCreationKeepsCurrentPool() throws Exception {
+    PoolingManagedDataSource pool = pool( "hash1" );
+    registry.getDataSource( connection );
+    when( connection.calculateHash() ).thenReturn( "hash2" );
+
+    try {
+      registry.getDataSource( connection );
+      fail();
+    } catch ( DBDatasourceServiceException e ) {
+      assertEquals( "no pool", e.getMessage() );
+    }
+    assertEquals( 1, registry.getMetrics().get( "SampleData" ).getCreations() );
+  }
+
+  @Test
+  public void testMetrics() throws Exception {
+    PoolingManagedDataSource pool = pool( "hash1" );
+    when( pool.getNumActive() ).thenReturn( 3 );
+    when( pool.getNumIdle() ).thenReturn( 2 );
+    when( pool.getMeanBorrowWaitTimeMillis() ).thenReturn( 7L );
+    registry.getDataSource( connection );
+
+    Map<String, PooledDatasourceRegistry.PoolMetrics> metrics = registry.getMetrics();
+
+    assertEquals( 1, metrics.size() );
+    PooledDatasourceRegistry.PoolMetrics poolMetrics = metrics.get( "SampleData" );
+    assertEquals( 3, poolMetrics.getNumActive() );
+    assertEquals( 2, poolMetrics.getNumIdle() );
+    assertEquals( 7L, poolMetrics.getMeanBorrowWaitTimeMillis() );
+    assertEquals( 1, poolMetrics.getCreations() );
+    assertFalse( poolMetrics.isExpired() );
+
+    registry.remove( "SampleData" );
+    assertEquals( 0, registry.getMetrics().size() );
+    verify( pool, times( 1 ) ).close();
+  }
+
+  private PoolingManagedDataSource pool( String configHash ) {
+    PoolingManagedDataSource pool = mock( PoolingManagedDataSource.class );
+    when( pool.hasSameConfig( configHash ) ).thenReturn( true );
+    created.add( pool );
+    return pool;
+  }
+}
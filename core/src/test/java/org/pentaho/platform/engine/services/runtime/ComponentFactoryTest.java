@@ -0,0 +1,110 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.platform.engine.services.runtime;
+
+import org.junit.After;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.pentaho.platform.api.engine.IPluginManager;
+import org.pentaho.platform.api.engine.IPluginManagerListener;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ComponentFactoryTest {
+
+  @After
+  public void tearDown() {
+    ComponentFactory.clear();
+  }
+
+  @Test
+  public void testPluginBeansAreAskedForOncePerReload() {
+    IPluginManager pluginManager = mock( IPluginManager.class );
+    when( pluginManager.isBeanRegistered( "bean" ) ).thenReturn( true, false );
+
+    ComponentFactory factory = ComponentFactory.forAlias( pluginManager, "bean", ArrayList.class.getName() );
+    assertTrue( factory.isPluginBean() );
+    assertSame( factory, ComponentFactory.forAlias( pluginManager, "bean", ArrayList.class.getName() ) );
+    verify( pluginManager, times( 1 ) ).isBeanRegistered( "bean" );
+
+    ArgumentCaptor<IPluginManagerListener> listener = ArgumentCaptor.forClass( IPluginManagerListener.class );
+    verify( pluginManager ).addPluginManagerListener( listener.capture() );
+    listener.getValue().onReload();
+
+    assertFalse( ComponentFactory.forAlias( pluginManager, "bean", ArrayList.class.getName() ).isPluginBean() );
+    verify( pluginManager, times( 2 ) ).isBeanRegistered( "bean" );
+  }
+
+  @Test
+  public void testPluginManagersDoNotShareFactories() {
+    IPluginManager pluginManager = mock( IPluginManager.class );
+    IPluginManager otherPluginManager = mock( IPluginManager.class );
+    when( pluginManager.isBeanRegistered( "bean" ) ).thenReturn( true );
+
+    assertTrue( ComponentFactory.forAlias( pluginManager, "bean", ArrayList.class.getName() ).isPluginBean() );
+    assertFalse( ComponentFactory.forAlias( otherPluginManager, "bean", ArrayList.class.getName() ).isPluginBean() );
+    assertFalse( ComponentFactory.forAlias( null, "bean", ArrayList.class.getName() ).isPluginBean() );
+  }
+
+  @Test
+  public void testGetBean() throws Exception {
+    IPluginManager pluginManager = mock( IPluginManager.class );
+    Object bean = new Object();
+    when( pluginManager.isBeanRegistered( "bean" ) ).thenReturn( true );
+    when( pluginManager.getBean( "bean" ) ).thenReturn( bean );
+
+    assertSame( bean, ComponentFactory.forAlias( pluginManager, "bean", ArrayList.class.getName() ).getBean() );
+    assertNull( ComponentFactory.forAlias( null, "bean", ArrayList.class.getName() ).getBean() );
+  }
+
+  @Test
+  public void testOtherClassNameReplacesFactory() throws Exception {
+    ComponentFactory factory = ComponentFactory.forAlias( null, "component", ArrayList.class.getName() );
+    ComponentFactory otherFactory = ComponentFactory.forAlias( null, "component", LinkedList.class.getName() );
+
+    assertNotSame( factory, otherFactory );
+    assertTrue( otherFactory.newInstance() instanceof LinkedList );
+    assertSame( otherFactory, ComponentFactory.forAlias( null, "component", LinkedList.class.getName() ) );
+  }
+
+  @Test
+  public void testNewInstance() throws Exception {
+    ComponentFactory factory = ComponentFactory.forAlias( null, "component", ArrayList.class.getName() );
+    Object first = factory.newInstance();
+    Object second = factory.newInstance();
+
+    assertTrue( first instanceof ArrayList );
+    assertNotSame( first, second );
+  }
+
+  @Test( expected = ClassNotFoundException.class )
+  public void testNewInstanceOfUnknownClass() throws Exception {
+    ComponentFactory.forAlias( null, "component", "org.pentaho.NoSuchComponent" ).newInstance();
+  }
+
+  @Test( expected = InstantiationException.class )
+  public void testNewInstanceWithoutNoArgumentConstructor() throws Exception {
+    ComponentFactory.forAlias( null, "component", Integer.class.getName() ).newInstance();
+  }
+}
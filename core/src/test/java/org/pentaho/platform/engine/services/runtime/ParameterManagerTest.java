@@ -0,0 +1,77 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.engine.services.runtime;
+
+import org.junit.Test;
+import org.pentaho.platform.api.engine.IActionParameter;
+import org.pentaho.platform.api.engine.ISolutionActionDefinition;
+import org.pentaho.platform.engine.services.actionsequence.ActionParameter;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ParameterManagerTest {
+
+  @Test
+  public void testIterationScopeKeepsParametersToItself() {
+    ParameterManager parent = new ParameterManager();
+    IActionParameter shared = new ActionParameter( "shared", "string", "a", null, null );
+    parent.addToAllInputs( "shared", shared );
+
+    ParameterManager iteration = new ParameterManager( parent );
+    IActionParameter row = new ActionParameter( "row", "string", "1", null, null );
+    iteration.addToAllInputs( "row", row );
+
+    assertSame( shared, iteration.getInput( "shared" ) );
+    assertSame( row, iteration.getInput( "row" ) );
+    assertNull( parent.getInput( "row" ) );
+
+    parent.addIterationParameters( iteration );
+
+    assertSame( shared, parent.getInput( "shared" ) );
+    assertSame( row, parent.getInput( "row" ) );
+  }
+
+  @Test
+  public void testIterationOutputReplacesInheritedParameter() {
+    ParameterManager parent = new ParameterManager();
+    IActionParameter inherited = new ActionParameter( "out", "string", "before", null, null );
+    parent.addToAllInputs( "out", inherited );
+
+    ActionParameter output = new ActionParameter( "out", "string", "after", null, null );
+    Map<String, IActionParameter> outputs = new HashMap<String, IActionParameter>();
+    outputs.put( "out", output );
+    ISolutionActionDefinition actionDefinition = mock( ISolutionActionDefinition.class );
+    when( actionDefinition.getActionInputDefinitions() ).thenReturn( Collections.emptyMap() );
+    when( actionDefinition.getActionOutputDefinitions() ).thenReturn( outputs );
+    when( actionDefinition.getMappedOutputName( "out" ) ).thenReturn( "out" );
+
+    ParameterManager iteration = new ParameterManager( parent );
+    iteration.setCurrentParameters( actionDefinition );
+    iteration.addOutputParameters( actionDefinition );
+
+    assertEquals( "before", inherited.getValue() );
+    assertSame( output, iteration.getInput( "out" ) );
+
+    parent.addIterationParameters( iteration );
+    assertSame( output, parent.getInput( "out" ) );
+  }
+}
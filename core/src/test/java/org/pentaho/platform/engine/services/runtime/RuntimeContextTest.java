@@ -19,6 +19,12 @@ import org.mockito.MockedStatic;
 import org.mockito.Mockito;
 import org.mockito.stubbing.Answer;
 import org.pentaho.di.core.util.Assert;
+import org.pentaho.platform.api.engine.ActionExecutionException;
+import org.pentaho.platform.api.engine.ActionSequenceException;
+import org.pentaho.platform.api.engine.IActionCompleteListener;
+import org.pentaho.platform.api.engine.IActionParameter;
+import org.pentaho.platform.api.engine.IActionSequence;
+import org.pentaho.platform.api.engine.IExecutionListener;
 import org.pentaho.platform.api.engine.IParameterProvider;
 import org.pentaho.platform.api.engine.IPentahoSession;
 import org.pentaho.platform.api.engine.IPentahoUrlFactory;
@@ -30,17 +36,23 @@ import org.pentaho.platform.engine.core.system.PentahoSystem;
 import org.pentaho.platform.engine.core.system.StandaloneApplicationContext;
 import org.pentaho.platform.engine.core.system.StandaloneSession;
 import org.pentaho.platform.engine.core.system.objfac.AggregateObjectFactory;
+import org.pentaho.platform.engine.services.actionsequence.ActionParameter;
 import org.pentaho.platform.engine.security.SecurityParameterProvider;
 import org.pentaho.platform.util.JVMParameterProvider;
 import org.pentaho.platform.util.UUIDUtil;
+import org.pentaho.platform.util.messages.LocaleHelper;
 import org.pentaho.platform.util.web.SimpleUrlFactory;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
@@ -50,6 +62,10 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.times;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class RuntimeContextTest {
   IRuntimeRepository mockedRuntimeRepository;
@@ -216,6 +232,181 @@ public class RuntimeContextTest {
     Assert.assertTrue( runtimeCtx.getUrlFactory() == urlFactory );
   }
 
+  @Test
+  public void testParallelLoopTakesResultsInIterationOrder() throws ActionSequenceException {
+    LoopContext context = new LoopContext( loopSequence( 4, "a", "b", "c" ) );
+    // the later iterations finish first
+    context.delays.put( "a", 150L );
+    context.delays.put( "b", 75L );
+
+    context.executeSequence( context.getActionSequence(), null, null, false );
+
+    assertEquals( Arrays.asList( "a", "b", "c" ), context.getMessages() );
+    assertEquals( "c", context.getParameterManager().getLoopParameter( "last" ).getValue() );
+    assertEquals( IRuntimeContext.RUNTIME_STATUS_SUCCESS, context.getStatus() );
+  }
+
+  @Test
+  public void testParallelLoopFailureCarriesLoopIndexAndCancelsLaterIterations() {
+    LoopContext context = new LoopContext( loopSequence( 2, "a", "b", "c", "d" ) );
+    context.failures.add( "b" );
+    context.delays.put( "a", 50L );
+
+    try {
+      context.executeSequence( context.getActionSequence(), null, null, false );
+      fail();
+    } catch ( ActionSequenceException e ) {
+      assertEquals( Integer.valueOf( 1 ), e.getLoopIndex() );
+    }
+    assertEquals( IRuntimeContext.RUNTIME_STATUS_FAILURE, context.getStatus() );
+    // the iterations after the failed one are not started once it is seen
+    assertFalse( context.performed.contains( "d" ) );
+  }
+
+  @Test
+  public void testParallelLoopFailureWaitsForRunningIterations() {
+    final List<Object> finished = Collections.synchronizedList( new ArrayList<>() );
+    LoopContext context = new LoopContext( loopSequence( 2, "a", "b" ) ) {
+      @Override
+      protected void performIteration( RuntimeContext iteration, IActionSequence actions,
+                                       IActionCompleteListener doneListener, IExecutionListener execListener,
+                                       boolean async ) throws ActionSequenceException {
+        Object item = iteration.getParameterManager().getLoopParameter( "items" ).getValue();
+        performed.add( item );
+        try {
+          if ( "a".equals( item ) ) {
+            // fail once the next iteration runs
+            while ( !performed.contains( "b" ) ) {
+              Thread.sleep( 1 );
+            }
+            throw new ActionExecutionException( "failed on " + item );
+          }
+          Thread.sleep( 100 );
+        } catch ( InterruptedException e ) {
+          Thread.currentThread().interrupt();
+        }
+        finished.add( item );
+      }
+    };
+
+    try {
+      context.executeSequence( context.getActionSequence(), null, null, false );
+      fail();
+    } catch ( ActionSequenceException e ) {
+      assertEquals( Integer.valueOf( 0 ), e.getLoopIndex() );
+    }
+    assertTrue( finished.contains( "b" ) );
+  }
+
+  @Test
+  public void testParallelLoopRunsWithCallerLocale() throws ActionSequenceException {
+    final List<Locale> locales = Collections.synchronizedList( new ArrayList<>() );
+    LoopContext context = new LoopContext( loopSequence( 2, "a", "b", "c" ) ) {
+      @Override
+      protected void performIteration( RuntimeContext iteration, IActionSequence actions,
+                                       IActionCompleteListener doneListener, IExecutionListener execListener,
+                                       boolean async ) {
+        locales.add( LocaleHelper.getLocale() );
+      }
+    };
+    LocaleHelper.setThreadLocaleOverride( Locale.FRENCH );
+    try {
+      context.executeSequence( context.getActionSequence(), null, null, false );
+    } finally {
+      LocaleHelper.setThreadLocaleOverride( null );
+    }
+
+    assertEquals( Arrays.asList( Locale.FRENCH, Locale.FRENCH, Locale.FRENCH ), locales );
+  }
+
+  @Test
+  public void testParallelLoopStopsOnPrompt() throws ActionSequenceException {
+    LoopContext context = new LoopContext( loopSequence( 2, "a", "b", "c", "d" ) );
+    context.setPromptStatus( IRuntimeContext.PROMPT_NO );
+    context.prompts.add( "a" );
+
+    context.executeSequence( context.getActionSequence(), null, null, false );
+
+    assertTrue( context.isPromptPending() );
+    assertFalse( context.performed.contains( "c" ) );
+    assertFalse( context.performed.contains( "d" ) );
+  }
+
+  @Test
+  public void testLoopInParallelIterationRunsInline() throws ActionSequenceException {
+    final AtomicReference<LoopContext> nested = new AtomicReference<>();
+    LoopContext context = new LoopContext( loopSequence( 2, "a", "b" ) ) {
+      @Override
+      protected void performIteration( RuntimeContext iteration, IActionSequence actions,
+                                       IActionCompleteListener doneListener, IExecutionListener execListener,
+                                       boolean async ) throws ActionSequenceException {
+        // a sub action sequence runs in a new context on the thread of the iteration
+        LoopContext subContext = new LoopContext( loopSequence( 2, "x", "y" ) );
+        subContext.executeSequence( subContext.getActionSequence(), null, null, false );
+        nested.set( subContext );
+      }
+    };
+
+    context.executeSequence( context.getActionSequence(), null, null, false );
+
+    assertEquals( IRuntimeContext.RUNTIME_STATUS_SUCCESS, nested.get().getStatus() );
+    assertTrue( nested.get().performed.isEmpty() );
+  }
+
+  private IActionSequence loopSequence( final int parallelism, final Object... items ) {
+    IActionSequence sequence = mock( IActionSequence.class );
+    Map<String, IActionParameter> inputs = new HashMap<>();
+    inputs.put( "items", new ActionParameter( "items", "string-list", Arrays.asList( items ), null, null ) );
+    when( sequence.getInputDefinitions() ).thenReturn( inputs );
+    when( sequence.getLoopParameter() ).thenReturn( "items" );
+    when( sequence.getLoopParallelism() ).thenReturn( parallelism );
+    when( sequence.getSequenceName() ).thenReturn( "loop" );
+    when( sequence.copyActions() ).thenAnswer( invocation -> mock( IActionSequence.class ) );
+    return sequence;
+  }
+
+  /**
+   * Runs the iterations of a parallel loop without components: each one records its loop value and sets it as the
+   * "last" parameter and as a message.
+   */
+  private class LoopContext extends RuntimeContext {
+
+    final List<Object> performed = Collections.synchronizedList( new ArrayList<>() );
+    final Map<Object, Long> delays = Collections.synchronizedMap( new HashMap<>() );
+    final List<Object> failures = Collections.synchronizedList( new ArrayList<>() );
+    final List<Object> prompts = Collections.synchronizedList( new ArrayList<>() );
+
+    LoopContext( final IActionSequence sequence ) {
+      super( "id", mockedSolutionEngine, "solutionName", makeRuntimeData( session ), session, null, "processId",
+        urlFactory, makeParameterProviders( session ), new ArrayList<String>(), null );
+      setActionSequence( sequence );
+    }
+
+    @Override
+    protected void performIteration( RuntimeContext iteration, IActionSequence actions,
+                                     IActionCompleteListener doneListener, IExecutionListener execListener,
+                                     boolean async ) throws ActionSequenceException {
+      Object item = iteration.getParameterManager().getLoopParameter( "items" ).getValue();
+      performed.add( item );
+      Long delay = delays.get( item );
+      if ( delay != null ) {
+        try {
+          Thread.sleep( delay );
+        } catch ( InterruptedException e ) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      if ( failures.contains( item ) ) {
+        throw new ActionExecutionException( "failed on " + item );
+      }
+      if ( prompts.contains( item ) ) {
+        iteration.promptNow();
+      }
+      iteration.addInputParameter( "last", new ActionParameter( "last", "string", item, null, null ) );
+      iteration.getMessages().add( item );
+    }
+  }
+
   private Map<String, IParameterProvider> makeParameterProviders( final IPentahoSession session ) {
     final Map<String, IParameterProvider> res = new HashMap<>();
 
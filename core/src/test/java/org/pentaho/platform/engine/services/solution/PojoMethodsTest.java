@@ -0,0 +1,132 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+
+
+package org.pentaho.platform.engine.services.solution;
+
+import org.junit.Test;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PojoMethodsTest {
+
+  @Test
+  public void testClassWithStaticMethods() throws Exception {
+    PojoMethods methods = PojoMethods.of( StaticMethodsPojo.class );
+
+    assertNotNull( methods.executeMethod );
+    assertTrue( methods.getMethods.containsKey( "INSTANCE" ) );
+    assertEquals( 1, methods.setMethods.get( "DEFAULTNAME" ).size() );
+
+    Method getInstance = methods.getMethods.get( "INSTANCE" );
+    assertSame( StaticMethodsPojo.INSTANCE, methods.invoke( getInstance, new StaticMethodsPojo() ) );
+
+    Method setDefaultName = methods.setMethods.get( "DEFAULTNAME" ).get( 0 );
+    methods.invoke( setDefaultName, new StaticMethodsPojo(), "static" );
+    assertEquals( "static", StaticMethodsPojo.defaultName );
+  }
+
+  @Test
+  public void testInstanceMethods() throws Exception {
+    PojoMethods methods = PojoMethods.of( StaticMethodsPojo.class );
+    StaticMethodsPojo pojo = new StaticMethodsPojo();
+
+    Method setCount = methods.setMethods.get( "COUNT" ).get( 0 );
+    assertEquals( int.class, methods.getParameterType( setCount ) );
+    methods.invoke( setCount, pojo, methods.fromString( setCount, "3" ) );
+    assertEquals( 3, methods.invoke( methods.getMethods.get( "COUNT" ), pojo ) );
+    assertEquals( Boolean.TRUE, methods.invoke( methods.executeMethod, pojo ) );
+  }
+
+  @Test
+  public void testExceptionIsWrapped() throws Exception {
+    PojoMethods methods = PojoMethods.of( StaticMethodsPojo.class );
+    try {
+      methods.invoke( methods.getMethods.get( "FAILURE" ), new StaticMethodsPojo() );
+      fail();
+    } catch ( InvocationTargetException e ) {
+      assertTrue( e.getCause() instanceof IllegalStateException );
+    }
+  }
+
+  @Test( expected = IllegalArgumentException.class )
+  public void testArgumentOfOtherType() throws Exception {
+    PojoMethods methods = PojoMethods.of( StaticMethodsPojo.class );
+    methods.invoke( methods.setMethods.get( "COUNT" ).get( 0 ), new StaticMethodsPojo(), "3" );
+  }
+
+  @Test( expected = IllegalArgumentException.class )
+  public void testNullArgumentOfPrimitiveParameter() throws Exception {
+    PojoMethods methods = PojoMethods.of( StaticMethodsPojo.class );
+    methods.invoke( methods.setMethods.get( "COUNT" ).get( 0 ), new StaticMethodsPojo(), null );
+  }
+
+  @Test
+  public void testArgumentIsWidened() throws Exception {
+    PojoMethods methods = PojoMethods.of( StaticMethodsPojo.class );
+    StaticMethodsPojo pojo = new StaticMethodsPojo();
+    methods.invoke( methods.setMethods.get( "COUNT" ).get( 0 ), pojo, (short) 2 );
+    assertEquals( 2, pojo.getCount() );
+  }
+
+  @Test( expected = IllegalArgumentException.class )
+  public void testPojoOfOtherClass() throws Exception {
+    PojoMethods methods = PojoMethods.of( StaticMethodsPojo.class );
+    methods.invoke( methods.getMethods.get( "COUNT" ), new Object() );
+  }
+
+  public static class StaticMethodsPojo {
+
+    static final StaticMethodsPojo INSTANCE = new StaticMethodsPojo();
+
+    static String defaultName;
+
+    private int count;
+
+    public static void main( String[] args ) {
+      // not called
+    }
+
+    public static StaticMethodsPojo getInstance() {
+      return INSTANCE;
+    }
+
+    public static void setDefaultName( String name ) {
+      defaultName = name;
+    }
+
+    public void setCount( int count ) {
+      this.count = count;
+    }
+
+    public int getCount() {
+      return count;
+    }
+
+    public Object getFailure() {
+      throw new IllegalStateException();
+    }
+
+    public boolean execute() {
+      return count > 0;
+    }
+  }
+}
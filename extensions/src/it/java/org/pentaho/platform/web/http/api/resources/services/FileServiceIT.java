@@ -55,6 +55,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 
 import javax.ws.rs.core.StreamingOutput;
 
@@ -95,6 +97,7 @@ import org.pentaho.platform.repository.RepositoryDownloadWhitelist;
 import org.pentaho.platform.repository2.locale.PentahoLocale;
 import org.pentaho.platform.repository2.unified.fileio.RepositoryFileInputStream;
 import org.pentaho.platform.repository2.unified.fileio.RepositoryFileOutputStream;
+import org.pentaho.platform.repository2.unified.jcr.GeneratedContentIndex;
 import org.pentaho.platform.repository2.unified.jcr.PentahoJcrConstants;
 import org.pentaho.platform.repository2.unified.webservices.DefaultUnifiedRepositoryWebService;
 import org.pentaho.platform.repository2.unified.webservices.PropertiesWrapper;
@@ -522,6 +525,7 @@ public class FileServiceIT {
     String permissions = RepositoryFilePermission.READ.ordinal() + "|" + RepositoryFilePermission.WRITE.ordinal() + "|"
       + RepositoryFilePermission.DELETE.ordinal();
     doReturn( true ).when( fileService.repository ).hasAccess( nullable( String.class ), any( EnumSet.class ) );
+    doCallRealMethod().when( fileService.repository ).hasAccess( anyList(), any( EnumSet.class ) );
     List<Setting> settings = fileService.doGetCanAccessList( "pathId", permissions );
     assertTrue( settings.size() > 0 );
   }
@@ -534,6 +538,7 @@ public class FileServiceIT {
     paths.add( "path3" );
 
     doReturn( true ).when( fileService.repository ).hasAccess( nullable( String.class ), any( EnumSet.class ) );
+    doCallRealMethod().when( fileService.repository ).hasAccess( anyList(), any( EnumSet.class ) );
     List<Setting> settings = fileService.doGetPathsAccessList( new StringListWrapper( paths ) );
     assertTrue( settings.size() > 0 );
 
@@ -1429,11 +1434,15 @@ public class FileServiceIT {
     List<RepositoryFile> children = new ArrayList<RepositoryFile>();
     RepositoryFile mockedChild = mock( RepositoryFile.class );
     doReturn( false ).when( mockedChild ).isFolder();
+    doReturn( "childId" ).when( mockedChild ).getId();
+    doReturn( userFolder + "/child.html" ).when( mockedChild ).getPath();
     children.add( mockedChild );
 
     Map<String, Serializable> mockedFileMetadata = mock( Map.class );
     doReturn( pathId ).when( mockedFileMetadata ).get( PentahoJcrConstants.PHO_CONTENTCREATOR );
     when( fileService.repository.getFileMetadata( mockedChild.getId() ) ).thenReturn( mockedFileMetadata );
+    doReturn( mockedChild ).when( fileService.repository ).getFileById( "childId" );
+    doReturn( newGeneratedContentIndex() ).when( fileService ).getGeneratedContentIndex();
 
     doReturn( pathId ).when( fileDetailsMock ).getId();
     doReturn( userFolder ).when( sessionResource ).doGetCurrentUserDir();
@@ -1456,6 +1465,18 @@ public class FileServiceIT {
     }
   }
 
+  /**
+   * An index that scans folders as the current user, there is no system user to run as here.
+   */
+  private GeneratedContentIndex newGeneratedContentIndex() {
+    return new GeneratedContentIndex( 10, 1, TimeUnit.MINUTES ) {
+      @Override
+      protected <T> T runAsSystem( Callable<T> callable ) throws Exception {
+        return callable.call();
+      }
+    };
+  }
+
   @Test
   public void testDoGetGeneratedContentFileNotFound() {
     String pathId = "test.prpt",
@@ -1488,11 +1509,15 @@ public class FileServiceIT {
     List<RepositoryFile> children = new ArrayList<RepositoryFile>();
     RepositoryFile mockedChild = mock( RepositoryFile.class );
     doReturn( false ).when( mockedChild ).isFolder();
+    doReturn( "childId" ).when( mockedChild ).getId();
+    doReturn( userFolder + "/child.html" ).when( mockedChild ).getPath();
     children.add( mockedChild );
 
     Map<String, Serializable> mockedFileMetadata = mock( Map.class );
     doReturn( pathId ).when( mockedFileMetadata ).get( PentahoJcrConstants.PHO_CONTENTCREATOR );
     when( fileService.repository.getFileMetadata( mockedChild.getId() ) ).thenReturn( mockedFileMetadata );
+    doReturn( mockedChild ).when( fileService.repository ).getFileById( "childId" );
+    doReturn( newGeneratedContentIndex() ).when( fileService ).getGeneratedContentIndex();
 
     doReturn( pathId ).when( fileDetailsMock ).getId();
     doReturn( userFolder ).when( sessionResource ).doGetUserDir( user );
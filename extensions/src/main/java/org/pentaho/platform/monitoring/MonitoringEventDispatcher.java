@@ -0,0 +1,350 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.monitoring;
+
+import com.google.common.eventbus.DeadEvent;
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * An event bus delivering each subscriber its events from a queue of its own, on a bounded pool of threads.
+ * <p>
+ * Subscribers are found the way {@link EventBus} finds them, through their {@link Subscribe} methods, and events no
+ * subscriber handles are posted again as {@link DeadEvent}s. Posting does not lock: the subscribers are an immutable
+ * snapshot replaced on every registration, and the queues are lock-free. A subscriber gets its events in the order
+ * they were posted, one at a time, on whichever thread of the pool is free, so a slow subscriber only delays its own
+ * events. When the queue of a subscriber is full, posting waits up to a timeout for room, and then drops the event.
+ */
+public class MonitoringEventDispatcher extends EventBus {
+
+  /**
+   * Events a subscriber handles in a row before letting the others have the thread
+   */
+  private static final int DRAIN_BATCH = 64;
+
+  private static final Logger logger = LoggerFactory.getLogger( MonitoringEventDispatcher.class );
+
+  private final Executor executor;
+  private final int queueSize;
+  private final long blockTimeoutNanos;
+
+  private final Object registrationLock = new Object();
+  private volatile SubscriberQueue[] subscribers = new SubscriberQueue[0];
+
+  private final AtomicLong posted = new AtomicLong();
+  private final AtomicLong dispatched = new AtomicLong();
+  private final AtomicLong dropped = new AtomicLong();
+  private final AtomicLong dispatchLatencyNanos = new AtomicLong();
+  private final AtomicLong maxDispatchLatencyNanos = new AtomicLong();
+
+  /**
+   * @param threads
+   *          the number of threads delivering events
+   * @param queueSize
+   *          the number of events waiting for each subscriber before posting waits
+   * @param blockTimeoutMillis
+   *          how long posting waits for room in a full queue before dropping the event, 0 to drop right away
+   */
+  public MonitoringEventDispatcher( final int threads, final int queueSize, final long blockTimeoutMillis ) {
+    super( "monitoring" ); //$NON-NLS-1$
+    ThreadPoolExecutor pool = new ThreadPoolExecutor( Math.max( 1, threads ), Math.max( 1, threads ), 60,
+        TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+        new ThreadFactoryBuilder().setNameFormat( "MonitoringService pool %d" ).setDaemon( true ).build() ); //$NON-NLS-1$
+    pool.allowCoreThreadTimeOut( true );
+    this.executor = pool;
+    this.queueSize = Math.max( 1, queueSize );
+    this.blockTimeoutNanos = TimeUnit.MILLISECONDS.toNanos( Math.max( 0, blockTimeoutMillis ) );
+  }
+
+  @Override
+  public void register( final Object subscriber ) {
+    List<Method> methods = findSubscriberMethods( subscriber.getClass() );
+    if ( methods.isEmpty() ) {
+      return;
+    }
+    synchronized ( registrationLock ) {
+      for ( SubscriberQueue queue : subscribers ) {
+        if ( queue.target == subscriber ) {
+          return;
+        }
+      }
+      SubscriberQueue[] registered = Arrays.copyOf( subscribers, subscribers.length + 1 );
+      registered[registered.length - 1] = new SubscriberQueue( subscriber, methods );
+      subscribers = registered;
+    }
+  }
+
+  @Override
+  public void unregister( final Object subscriber ) {
+    synchronized ( registrationLock ) {
+      List<SubscriberQueue> registered = new ArrayList<SubscriberQueue>( Arrays.asList( subscribers ) );
+      for ( int i = 0; i < registered.size(); i++ ) {
+        if ( registered.get( i ).target == subscriber ) {
+          registered.remove( i );
+          subscribers = registered.toArray( new SubscriberQueue[registered.size()] );
+          return;
+        }
+      }
+    }
+    throw new IllegalArgumentException( "missing event subscriber for an annotated method. Is " + subscriber //$NON-NLS-1$
+        + " registered?" ); //$NON-NLS-1$
+  }
+
+  @Override
+  public void post( final Object event ) {
+    posted.incrementAndGet();
+    long postTime = System.nanoTime();
+    boolean delivered = false;
+    for ( SubscriberQueue queue : subscribers ) {
+      if ( queue.handles( event.getClass() ) ) {
+        delivered = true;
+        queue.offer( new Posted( event, postTime ) );
+      }
+    }
+    if ( !delivered && !( event instanceof DeadEvent ) ) {
+      post( new DeadEvent( this, event ) );
+    }
+  }
+
+  /**
+   * @return the number of events posted, including dead events
+   */
+  public long getPostedCount() {
+    return posted.get();
+  }
+
+  /**
+   * @return the number of times a subscriber was handed an event
+   */
+  public long getDispatchedCount() {
+    return dispatched.get();
+  }
+
+  /**
+   * @return the number of events not handed to a subscriber because its queue stayed full
+   */
+  public long getDroppedCount() {
+    return dropped.get();
+  }
+
+  /**
+   * @return the number of events waiting for their subscribers
+   */
+  public int getQueueDepth() {
+    int depth = 0;
+    for ( SubscriberQueue queue : subscribers ) {
+      depth += queue.size.get();
+    }
+    return depth;
+  }
+
+  /**
+   * @return the number of events waiting for the given subscriber, or -1 if it is not registered
+   */
+  public int getQueueDepth( final Object subscriber ) {
+    for ( SubscriberQueue queue : subscribers ) {
+      if ( queue.target == subscriber ) {
+        return queue.size.get();
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * @return the average time from posting an event to handing it to a subscriber, in nanoseconds
+   */
+  public long getAverageDispatchLatencyNanos() {
+    long count = dispatched.get();
+    return count == 0 ? 0 : dispatchLatencyNanos.get() / count;
+  }
+
+  /**
+   * @return the longest time from posting an event to handing it to a subscriber, in nanoseconds
+   */
+  public long getMaxDispatchLatencyNanos() {
+    return maxDispatchLatencyNanos.get();
+  }
+
+  /**
+   * @return the {@link Subscribe} methods of the class and of the classes and interfaces it extends, taking one
+   *         argument
+   */
+  private static List<Method> findSubscriberMethods( final Class<?> subscriberClass ) {
+    List<Method> methods = new ArrayList<Method>();
+    Set<String> signatures = new HashSet<String>();
+    LinkedList<Class<?>> types = new LinkedList<Class<?>>();
+    types.add( subscriberClass );
+    while ( !types.isEmpty() ) {
+      Class<?> type = types.removeFirst();
+      for ( Method method : type.getDeclaredMethods() ) {
+        if ( method.isAnnotationPresent( Subscribe.class ) && !method.isSynthetic()
+            && method.getParameterTypes().length == 1
+            && signatures.add( method.getName() + method.getParameterTypes()[0].getName() ) ) {
+          method.setAccessible( true );
+          methods.add( method );
+        }
+      }
+      if ( type.getSuperclass() != null ) {
+        types.add( type.getSuperclass() );
+      }
+      types.addAll( Arrays.asList( type.getInterfaces() ) );
+    }
+    return methods;
+  }
+
+  private static class Posted {
+
+    private final Object event;
+
+    private final long postTime;
+
+    Posted( Object event, long postTime ) {
+      this.event = event;
+      this.postTime = postTime;
+    }
+  }
+
+  /**
+   * The events waiting for one subscriber. At most one thread of the pool drains it at a time.
+   */
+  private class SubscriberQueue implements Runnable {
+
+    private final Object target;
+    private final List<Method> methods;
+    private final ConcurrentMap<Class<?>, Method[]> methodsByEventType = new ConcurrentHashMap<Class<?>, Method[]>();
+    private final ConcurrentLinkedQueue<Posted> events = new ConcurrentLinkedQueue<Posted>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    SubscriberQueue( Object target, List<Method> methods ) {
+      this.target = target;
+      this.methods = methods;
+    }
+
+    boolean handles( Class<?> eventType ) {
+      return getMethods( eventType ).length > 0;
+    }
+
+    Method[] getMethods( Class<?> eventType ) {
+      Method[] handlers = methodsByEventType.get( eventType );
+      if ( handlers == null ) {
+        List<Method> matching = new ArrayList<Method>();
+        for ( Method method : methods ) {
+          if ( method.getParameterTypes()[0].isAssignableFrom( eventType ) ) {
+            matching.add( method );
+          }
+        }
+        handlers = matching.toArray( new Method[matching.size()] );
+        methodsByEventType.put( eventType, handlers );
+      }
+      return handlers;
+    }
+
+    void offer( Posted posted ) {
+      if ( !reserve() ) {
+        dropped.incrementAndGet();
+        logger.debug( "dropped event for subscriber " + target ); //$NON-NLS-1$
+        return;
+      }
+      events.offer( posted );
+      schedule();
+    }
+
+    /**
+     * Makes room for one more event, waiting up to the timeout for the subscriber to catch up.
+     */
+    private boolean reserve() {
+      long deadline = System.nanoTime() + blockTimeoutNanos;
+      while ( true ) {
+        int current = size.get();
+        if ( current < queueSize ) {
+          if ( size.compareAndSet( current, current + 1 ) ) {
+            return true;
+          }
+        } else if ( System.nanoTime() - deadline >= 0 ) {
+          return false;
+        } else {
+          LockSupport.parkNanos( TimeUnit.MICROSECONDS.toNanos( 100 ) );
+        }
+      }
+    }
+
+    private void schedule() {
+      if ( scheduled.compareAndSet( false, true ) ) {
+        executor.execute( this );
+      }
+    }
+
+    @Override
+    public void run() {
+      try {
+        for ( int i = 0; i < DRAIN_BATCH; i++ ) {
+          Posted posted = events.poll();
+          if ( posted == null ) {
+            break;
+          }
+          size.decrementAndGet();
+          dispatch( posted );
+        }
+      } finally {
+        scheduled.set( false );
+        if ( !events.isEmpty() ) {
+          schedule();
+        }
+      }
+    }
+
+    private void dispatch( Posted posted ) {
+      long latency = System.nanoTime() - posted.postTime;
+      dispatched.incrementAndGet();
+      dispatchLatencyNanos.addAndGet( latency );
+      long max = maxDispatchLatencyNanos.get();
+      while ( latency > max && !maxDispatchLatencyNanos.compareAndSet( max, latency ) ) {
+        max = maxDispatchLatencyNanos.get();
+      }
+      for ( Method method : getMethods( posted.event.getClass() ) ) {
+        try {
+          method.invoke( target, posted.event );
+        } catch ( InvocationTargetException e ) {
+          logger.error( "Could not dispatch event " + posted.event + " to " + method, e.getCause() ); //$NON-NLS-1$ //$NON-NLS-2$
+        } catch ( Exception e ) {
+          logger.error( "Could not dispatch event " + posted.event + " to " + method, e ); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+      }
+    }
+  }
+}
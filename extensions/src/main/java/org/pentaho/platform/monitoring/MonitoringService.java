@@ -13,8 +13,9 @@
 
 package org.pentaho.platform.monitoring;
 
-import com.google.common.eventbus.AsyncEventBus;
 import com.google.common.eventbus.EventBus;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.pentaho.platform.api.engine.ISystemConfig;
 import org.pentaho.platform.api.monitoring.IMonitoringEvent;
 import org.pentaho.platform.api.monitoring.IMonitoringService;
 import org.pentaho.platform.api.monitoring.IMonitoringSubscriber;
@@ -25,34 +26,40 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Collections;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ThreadFactory;
 
 /**
- * Wrapper for the AsyncEventBus class.
+ * Wrapper for the {@link MonitoringEventDispatcher} event bus.
  * <p/>
- * The methods of AsyncEventBus use internal synchronization, so this singleton is thread-safe
+ * Posting never locks and every subscriber has a bounded queue of its own, so this singleton is thread-safe and a
+ * slow subscriber does not hold up the others. The number of threads, the size of the queues and how long posting
+ * waits for a full queue are read from the system settings.
  */
 public class MonitoringService implements IMonitoringService {
 
   private Logger logger = LoggerFactory.getLogger( MonitoringService.class );
 
-  private AsyncEventBus asyncEventBus; // asynchronous dispatching of events
+  private static final int DEFAULT_THREADS = 4;
+
+  private static final int DEFAULT_QUEUE_SIZE = 10000;
+
+  private static final long DEFAULT_BLOCK_TIMEOUT = 0;
+
+  private MonitoringEventDispatcher asyncEventBus; // asynchronous dispatching of events
 
 
   public MonitoringService() {
 
-    asyncEventBus = new AsyncEventBus( Executors.newCachedThreadPool(
-        new ThreadFactory() {
-          @Override
-          public Thread newThread( Runnable r ) {
-            Thread thread = Executors.defaultThreadFactory().newThread( r );
-            thread.setDaemon( true );
-            thread.setName( "MonitoringService pool" );
-            return thread;
-          }
-        }
-    ) );
+    int threads = DEFAULT_THREADS;
+    int queueSize = DEFAULT_QUEUE_SIZE;
+    long blockTimeout = DEFAULT_BLOCK_TIMEOUT;
+    final ISystemConfig systemConfig = PentahoSystem.get( ISystemConfig.class );
+    if ( systemConfig != null ) {
+      threads = NumberUtils.toInt( systemConfig.getProperty( "system.monitoringThreads" ), DEFAULT_THREADS );
+      queueSize = NumberUtils.toInt( systemConfig.getProperty( "system.monitoringQueueSize" ), DEFAULT_QUEUE_SIZE );
+      blockTimeout = NumberUtils.toLong( systemConfig.getProperty( "system.monitoringBlockTimeout" ),
+        DEFAULT_BLOCK_TIMEOUT );
+    }
+    asyncEventBus = new MonitoringEventDispatcher( threads, queueSize, blockTimeout );
 
     // register the bus with PentahoSystem
     PentahoSystem.registerReference(
@@ -73,7 +80,7 @@ public class MonitoringService implements IMonitoringService {
    * @param subscriber IMonitoringSubscriber event handler
    */
   @Override
-  public synchronized <T extends IMonitoringSubscriber> void register( T subscriber ) {
+  public <T extends IMonitoringSubscriber> void register( T subscriber ) {
     logger.debug( "registering subscriber " + ( subscriber != null ? subscriber.getSubscriberId() : "null" ) );
     getAsyncEventBus().register( subscriber );
   }
@@ -84,7 +91,7 @@ public class MonitoringService implements IMonitoringService {
    * @param subscriber IMonitoringSubscriber event handler
    */
   @Override
-  public synchronized <T extends IMonitoringSubscriber> void unregister( T subscriber ) {
+  public <T extends IMonitoringSubscriber> void unregister( T subscriber ) {
     logger.debug( "unregistering subscriber " + ( subscriber != null ? subscriber.getSubscriberId() : "null" ) );
     getAsyncEventBus().unregister( subscriber );
   }
@@ -95,12 +102,47 @@ public class MonitoringService implements IMonitoringService {
    * @param event IMonitoringEvent event object
    */
   @Override
-  public synchronized <T extends IMonitoringEvent> void post( T event ) {
+  public <T extends IMonitoringEvent> void post( T event ) {
     logger.debug( "posting event " + ( event != null ? event.getId() : "null" ) );
     getAsyncEventBus().post( event );
   }
 
-  private AsyncEventBus getAsyncEventBus() {
+  /**
+   * @return the number of events waiting for their subscribers
+   */
+  public int getQueueDepth() {
+    return getAsyncEventBus().getQueueDepth();
+  }
+
+  /**
+   * @return the number of times a subscriber was handed an event
+   */
+  public long getDispatchedCount() {
+    return getAsyncEventBus().getDispatchedCount();
+  }
+
+  /**
+   * @return the number of events dropped because the queue of their subscriber stayed full
+   */
+  public long getDroppedCount() {
+    return getAsyncEventBus().getDroppedCount();
+  }
+
+  /**
+   * @return the average time from posting an event to handing it to a subscriber, in nanoseconds
+   */
+  public long getAverageDispatchLatencyNanos() {
+    return getAsyncEventBus().getAverageDispatchLatencyNanos();
+  }
+
+  /**
+   * @return the longest time from posting an event to handing it to a subscriber, in nanoseconds
+   */
+  public long getMaxDispatchLatencyNanos() {
+    return getAsyncEventBus().getMaxDispatchLatencyNanos();
+  }
+
+  private MonitoringEventDispatcher getAsyncEventBus() {
     return asyncEventBus;
   }
 
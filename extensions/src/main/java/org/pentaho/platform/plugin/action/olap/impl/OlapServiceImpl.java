@@ -15,6 +15,7 @@ package org.pentaho.platform.plugin.action.olap.impl;
 
 import com.google.common.base.Predicate;
 import com.google.common.collect.Collections2;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import mondrian.olap.MondrianServer;
 import mondrian.olap.Role;
 import mondrian.olap.Util;
@@ -25,6 +26,7 @@ import mondrian.server.MondrianServerRegistry;
 import mondrian.spi.CatalogLocator;
 import mondrian.util.LockBox.Entry;
 import mondrian.xmla.XmlaHandler;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.commons.vfs2.FileSystemException;
@@ -35,6 +37,7 @@ import org.olap4j.OlapException;
 import org.pentaho.platform.api.engine.ICacheManager;
 import org.pentaho.platform.api.engine.IConnectionUserRoleMapper;
 import org.pentaho.platform.api.engine.IPentahoSession;
+import org.pentaho.platform.api.engine.ISystemConfig;
 import org.pentaho.platform.api.engine.PentahoAccessControlException;
 import org.pentaho.platform.api.repository2.unified.IUnifiedRepository;
 import org.pentaho.platform.api.repository2.unified.RepositoryFilePermission;
@@ -67,11 +70,21 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Properties;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
-import java.util.stream.Collectors;
 
 /**
  * Implementation of the IOlapService which uses the
@@ -83,7 +96,8 @@ import java.util.stream.Collectors;
  * and change the roles accordingly before creating a connection.
  * <p/>
  * <p>This implementation is thread safe. It will use a {@link ReadWriteLock}
- * to manage the access to its metadata.
+ * to manage the access to its metadata. The metadata of each catalog is
+ * loaded on its own, in parallel, the first time it is asked for.
  */
 public class OlapServiceImpl implements IOlapService {
 
@@ -93,6 +107,20 @@ public class OlapServiceImpl implements IOlapService {
 
   final ReadWriteLock cacheLock = new ReentrantReadWriteLock();
 
+  static final int DEFAULT_CATALOG_LOAD_THREADS = 4;
+
+  /**
+   * How long, in seconds, we wait for a catalog to load before leaving it out.
+   */
+  static final long DEFAULT_CATALOG_LOAD_TIMEOUT = 60;
+
+  private static final Comparator<IOlapService.Catalog> CATALOG_NAME_COMPARATOR =
+    new Comparator<IOlapService.Catalog>() {
+      public int compare( Catalog o1, Catalog o2 ) {
+        return o1.name.compareTo( o2.name );
+      }
+    };
+
   /**
    * This is the default name of an XMLA data source on the server.
    * Mondrian XMLA servers only support a single data source.
@@ -113,6 +141,9 @@ public class OlapServiceImpl implements IOlapService {
   private final List<IOlapConnectionFilter> filters;
   private Role role;
 
+  private ExecutorService catalogLoader;
+  private volatile long catalogLoadTimeout = DEFAULT_CATALOG_LOAD_TIMEOUT;
+
   private static Log getLogger() {
     return LogFactory.getLog( IOlapService.class );
   }
@@ -187,15 +218,17 @@ public class OlapServiceImpl implements IOlapService {
   }
 
   /**
-   * Returns a list of catalogs for the current session.
+   * Returns the loading tasks of the catalogs for the current session,
+   * by catalog name.
    *
-   * <p>The cache is stored in the platform's caches in the region
+   * <p>The tasks are stored in the platform's caches in the region
    * {@link #CATALOG_CACHE_REGION}. It is also segmented by
    * locale, but we only return the correct sub-region according to the
    * session passed as a parameter.
    */
   @SuppressWarnings( "unchecked" )
-  protected synchronized List<IOlapService.Catalog> getCache( IPentahoSession session ) {
+  protected synchronized ConcurrentMap<String, FutureTask<IOlapService.Catalog>> getCatalogTasks(
+    IPentahoSession session ) {
     // Create the cache region if necessary.
     final ICacheManager cacheMgr = PentahoSystem.getCacheManager( session );
     final Object cacheKey = makeCacheSubRegionKey( getLocale() );
@@ -216,10 +249,10 @@ public class OlapServiceImpl implements IOlapService {
         cacheMgr.putInRegionCache(
           CATALOG_CACHE_REGION,
           cacheKey,
-          new ArrayList<IOlapService.Catalog>() );
+          new ConcurrentHashMap<String, FutureTask<IOlapService.Catalog>>() );
       }
 
-      return (List<IOlapService.Catalog>)
+      return (ConcurrentMap<String, FutureTask<IOlapService.Catalog>>)
         cacheMgr.getFromRegionCache( CATALOG_CACHE_REGION, cacheKey );
 
     } finally {
@@ -227,6 +260,23 @@ public class OlapServiceImpl implements IOlapService {
     }
   }
 
+  /**
+   * Returns the catalogs loaded so far for the current session, sorted by name.
+   */
+  protected List<IOlapService.Catalog> getCache( IPentahoSession session ) {
+    final List<IOlapService.Catalog> cache = new ArrayList<IOlapService.Catalog>();
+    for ( FutureTask<IOlapService.Catalog> task : getCatalogTasks( session ).values() ) {
+      if ( task.isDone() ) {
+        final IOlapService.Catalog catalog = awaitCatalog( null, task, 0 );
+        if ( catalog != null ) {
+          cache.add( catalog );
+        }
+      }
+    }
+    Collections.sort( cache, CATALOG_NAME_COMPARATOR );
+    return cache;
+  }
+
   /**
    * Clears all caches for all locales.
    */
@@ -248,98 +298,156 @@ public class OlapServiceImpl implements IOlapService {
   /**
    * Initializes the cache. Only the cache specific to the sesison's locale
    * will be populated.
+   *
+   * <p>This only starts loading the catalogs which are not loaded yet, it
+   * does not wait for them. Each catalog is loaded on its own, by a pool of
+   * at most {@code system.olapCatalogLoadThreads} threads.
    */
   protected void initCache( IPentahoSession session ) {
-
-    final List<Catalog> cache = getCache( session );
-
-    final boolean needUpdate;
-    final Lock readLock = cacheLock.readLock();
-
     try {
-      readLock.lock();
-      // Check if the cache is empty.
-      if ( cache.size() == 0 ) {
-        needUpdate = true;
-      } else {
-        needUpdate = false;
+      final ConcurrentMap<String, FutureTask<IOlapService.Catalog>> tasks = getCatalogTasks( session );
+      for ( String name : getHelper().getHostedCatalogs() ) {
+        getCatalogTask( tasks, name, session );
       }
-    } finally {
-      readLock.unlock();
+      for ( String name : getHelper().getOlap4jServers() ) {
+        getCatalogTask( tasks, name, session );
+      }
+    } catch ( Throwable t ) {
+
+      LOG.error(
+        "Failed to initialize the connection cache",
+        t );
+
+      throw new IOlapServiceException( t );
     }
+  }
 
-    if ( needUpdate ) {
-      final Lock writeLock = cacheLock.writeLock();
-      try {
-        writeLock.lock();
-
-        // First clear the cache
-        cache.clear();
-
-        final Callable<Void> call = new Callable<Void>() {
-          public Void call() throws Exception {
-            // Now build the cache. Use the system session in the holder.
-            for ( String name : getHelper().getHostedCatalogs() ) {
-              try {
-                addCatalogToCache( PentahoSessionHolder.getSession(), name );
-              } catch ( Throwable t ) {
-                LOG.error(
-                  "Failed to initialize the cache for OLAP connection "
-                  + name,
-                  t );
-              }
-            }
-            for ( String name : getHelper().getOlap4jServers() ) {
-              try {
-                addCatalogToCache( PentahoSessionHolder.getSession(), name );
-              } catch ( Throwable t ) {
-                LOG.error(
-                  "Failed to initialize the cache for OLAP connection "
-                  + name,
-                  t );
-              }
-            }
-            return null;
-          }
-        };
+  /**
+   * Returns the task loading the given catalog, and schedules it if
+   * the catalog was not asked for yet.
+   */
+  private FutureTask<IOlapService.Catalog> getCatalogTask(
+    final ConcurrentMap<String, FutureTask<IOlapService.Catalog>> tasks,
+    final String catalogName,
+    final IPentahoSession session ) {
 
-        if ( isSecurityEnabled() ) {
-          SecurityHelper.getInstance().runAsSystem( call );
-        } else {
-          call.call();
+    FutureTask<IOlapService.Catalog> task = tasks.get( catalogName );
+    if ( task != null ) {
+      return task;
+    }
+
+    final FutureTask<IOlapService.Catalog> newTask = new FutureTask<IOlapService.Catalog>(
+      new Callable<IOlapService.Catalog>() {
+        public IOlapService.Catalog call() {
+          return loadCatalog( session, catalogName );
         }
+      } );
+    task = tasks.putIfAbsent( catalogName, newTask );
+    if ( task != null ) {
+      return task;
+    }
 
-        // Sort it all.
-        Collections.sort(
-          cache,
-          new Comparator<IOlapService.Catalog>() {
-            public int compare( Catalog o1, Catalog o2 ) {
-              return o1.name.compareTo( o2.name );
-            }
-          } );
+    try {
+      getCatalogLoader().execute( newTask );
+    } catch ( RejectedExecutionException e ) {
+      newTask.run();
+    }
+    return newTask;
+  }
 
-      } catch ( Throwable t ) {
+  /**
+   * Waits until the given catalog is loaded, but not beyond the deadline.
+   *
+   * @return The catalog, or null if it failed to load or is not loaded yet.
+   */
+  private IOlapService.Catalog awaitCatalog(
+    String catalogName,
+    FutureTask<IOlapService.Catalog> task,
+    long deadline ) {
+    try {
+      return task.get( Math.max( 0, deadline - System.nanoTime() ), TimeUnit.NANOSECONDS );
+    } catch ( TimeoutException e ) {
+      LOG.warn(
+        "Timed out waiting for the olap connection cache of catalog "
+        + catalogName
+        + ". It will be left out until it is loaded." );
+      return null;
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new IOlapServiceException( e );
+    } catch ( ExecutionException | CancellationException e ) {
+      // loadCatalog logs its own failures.
+      return null;
+    }
+  }
 
-        LOG.error(
-          "Failed to initialize the connection cache",
-          t );
+  private long getCatalogLoadDeadline() {
+    return System.nanoTime() + TimeUnit.SECONDS.toNanos( catalogLoadTimeout );
+  }
 
-        throw new IOlapServiceException( t );
+  /**
+   * Returns the pool loading the catalogs. Its size and how long we wait
+   * for a catalog are read from the system settings the first time it is used.
+   */
+  synchronized ExecutorService getCatalogLoader() {
+    if ( catalogLoader == null ) {
+      int threads = DEFAULT_CATALOG_LOAD_THREADS;
+      final ISystemConfig systemConfig = PentahoSystem.get( ISystemConfig.class );
+      if ( systemConfig != null ) {
+        threads = NumberUtils.toInt( systemConfig.getProperty( "system.olapCatalogLoadThreads" ),
+          DEFAULT_CATALOG_LOAD_THREADS );
+        catalogLoadTimeout = NumberUtils.toLong( systemConfig.getProperty( "system.olapCatalogLoadTimeout" ),
+          DEFAULT_CATALOG_LOAD_TIMEOUT );
+      }
+      final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+        Math.max( 1, threads ), Math.max( 1, threads ), 60, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<Runnable>(),
+        new ThreadFactoryBuilder().setNameFormat( "olap-catalog-cache-%d" ).setDaemon( true ).build() );
+      executor.allowCoreThreadTimeOut( true );
+      catalogLoader = executor;
+    }
+    return catalogLoader;
+  }
 
-      } finally {
-        writeLock.unlock();
+  /**
+   * Loads a catalog and its children. Uses the system session when
+   * security is enabled, the given session otherwise.
+   *
+   * @return The catalog, or null if it could not be loaded.
+   */
+  private IOlapService.Catalog loadCatalog( final IPentahoSession session, final String catalogName ) {
+    final Callable<IOlapService.Catalog> call = new Callable<IOlapService.Catalog>() {
+      public IOlapService.Catalog call() throws Exception {
+        // Use the system session in the holder.
+        return makeCatalog( PentahoSessionHolder.getSession(), catalogName );
       }
+    };
+
+    final IPentahoSession origSession = PentahoSessionHolder.getSession();
+    try {
+      if ( isSecurityEnabled() ) {
+        return SecurityHelper.getInstance().runAsSystem( call );
+      }
+      PentahoSessionHolder.setSession( session );
+      return call.call();
+    } catch ( Throwable t ) {
+      LOG.error(
+        "Failed to initialize the cache for OLAP connection "
+        + catalogName,
+        t );
+      return null;
+    } finally {
+      PentahoSessionHolder.setSession( origSession );
     }
   }
 
   /**
-   * Adds a catalog and its children to the cache.
-   * Do not use directly. This must be called with a write lock
-   * on the cache.
+   * Creates a catalog and its children.
    *
-   * @param catalogName The name of the catalog to load in cache.
+   * @param catalogName The name of the catalog to load.
+   * @return The catalog, or null if it could not be loaded.
    */
-  private void addCatalogToCache( IPentahoSession session, String catalogName ) {
+  private IOlapService.Catalog makeCatalog( IPentahoSession session, String catalogName ) {
 
     final IOlapService.Catalog catalog =
       new Catalog( catalogName, new ArrayList<IOlapService.Schema>() );
@@ -371,7 +479,7 @@ public class OlapServiceImpl implements IOlapService {
       }
 
       // We're done.
-      getCache( session ).add( catalog );
+      return catalog;
 
     } catch ( OlapException e ) {
 
@@ -380,6 +488,8 @@ public class OlapServiceImpl implements IOlapService {
         + catalogName,
         e );
 
+      return null;
+
     } finally {
       try {
         if ( connection != null ) {
@@ -606,34 +716,61 @@ public class OlapServiceImpl implements IOlapService {
   }
 
 
+  /**
+   * Returns the catalogs the session can read. Catalogs which are not
+   * loaded yet are loaded in parallel. A catalog which fails to load,
+   * or takes longer than {@code system.olapCatalogLoadTimeout} seconds,
+   * is left out.
+   */
   public List<IOlapService.Catalog> getCatalogs( IPentahoSession session ) throws IOlapServiceException {
 
-    // Make sure the cache is initialized.
-    initCache( session );
-    final List<Catalog> cache = getCache( session );
+    final ConcurrentMap<String, FutureTask<IOlapService.Catalog>> tasks = getCatalogTasks( session );
 
-    final Lock readLock = cacheLock.readLock();
-    try {
-      readLock.lock();
+    // Start loading them all before waiting for any.
+    final List<String> names = getCatalogNames( session );
+    final List<FutureTask<IOlapService.Catalog>> catalogTasks = new ArrayList<FutureTask<IOlapService.Catalog>>();
+    for ( String name : names ) {
+      catalogTasks.add( getCatalogTask( tasks, name, session ) );
+    }
 
-      return cache.stream()
-        .filter( catalog -> hasAccess( catalog.name, EnumSet.of( RepositoryFilePermission.READ ), session ) )
-        .collect( Collectors.toList() );
+    final long deadline = getCatalogLoadDeadline();
+    final List<IOlapService.Catalog> catalogs = new ArrayList<IOlapService.Catalog>();
+    for ( int i = 0; i < names.size(); i++ ) {
+      final IOlapService.Catalog catalog = awaitCatalog( names.get( i ), catalogTasks.get( i ), deadline );
+      if ( catalog != null ) {
+        catalogs.add( catalog );
+      }
+    }
+    return catalogs;
+  }
 
-    } finally {
-      readLock.unlock();
+  /**
+   * Returns the catalog if the session can read it. If it is not loaded
+   * yet, it is loaded by the calling thread unless it is already being
+   * loaded, so we don't wait for the other catalogs.
+   */
+  private IOlapService.Catalog getCatalog( String catalogName, IPentahoSession session ) {
+    if ( !getCatalogNames( session ).contains( catalogName ) ) {
+      return null;
     }
+    final FutureTask<IOlapService.Catalog> task = getCatalogTask( getCatalogTasks( session ), catalogName, session );
+    task.run();
+    return awaitCatalog( catalogName, task, getCatalogLoadDeadline() );
   }
 
   public List<IOlapService.Schema> getSchemas(
     String parentCatalog,
     IPentahoSession session ) {
     final List<IOlapService.Schema> schemas = new ArrayList<IOlapService.Schema>();
-    for ( IOlapService.Catalog catalog : getCatalogs( session ) ) {
-      if ( parentCatalog == null
-        || catalog.name.equals( parentCatalog ) ) {
+    if ( parentCatalog != null ) {
+      final IOlapService.Catalog catalog = getCatalog( parentCatalog, session );
+      if ( catalog != null ) {
         schemas.addAll( catalog.schemas );
       }
+      return schemas;
+    }
+    for ( IOlapService.Catalog catalog : getCatalogs( session ) ) {
+      schemas.addAll( catalog.schemas );
     }
     return schemas;
   }
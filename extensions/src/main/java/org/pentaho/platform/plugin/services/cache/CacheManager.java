@@ -38,12 +38,13 @@ import org.pentaho.platform.util.xml.dom4j.XmlDom4JHelper;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
 
 /**
  * This class provides an access point for pluggable caching mechanisms. Right now, it only supports the caching
@@ -131,6 +132,12 @@ public class CacheManager implements ICacheManager {
 
   private ICacheExpirationRegistry cacheExpirationRegistry;
 
+  /**
+   * Secondary index of the keys held in the SESSION region, grouped by the Pentaho session id that prefixes them. Lets
+   * {@link #killSessionCache(IPentahoSession)} evict one session's entries without scanning the whole region.
+   */
+  private final SessionKeyIndex sessionKeyIndex = new SessionKeyIndex();
+
   // ~ Constructors =========================================================
 
   /**
@@ -185,6 +192,7 @@ public class CacheManager implements ICacheManager {
               .error( Messages.getInstance().getString( "CacheManager.ERROR_0005_UNABLE_TO_BUILD_CACHE" ) ); //$NON-NLS-1$
         } else {
           regionCache.put( SESSION, cache );
+          ( (HvCache) cache ).getCache().getCacheEventNotificationService().registerListener( sessionKeyIndex );
         }
         cache = buildCache( GLOBAL, HibernateUtil.getSessionFactory(), cacheProperties );
         if ( cache == null ) {
@@ -314,6 +322,9 @@ public class CacheManager implements ICacheManager {
           try ( SessionImpl session = (SessionImpl) cache.getSessionFactory().openSession() ) {
             cache.getStorageAccess().clearCache( session );
           }
+          if ( SESSION.equals( region ) ) {
+            sessionKeyIndex.clear();
+          }
         } catch ( CacheException e ) {
           CacheManager.logger.error( Messages.getInstance().getString(
             "CacheManager.ERROR_0006_CACHE_EXCEPTION", e.getLocalizedMessage() ) ); //$NON-NLS-1$
@@ -334,8 +345,9 @@ public class CacheManager implements ICacheManager {
   public void putInRegionCache( String region, Object key, Object value ) {
     if ( checkRegionEnabled( region ) ) {
       HvCache hvcache = (HvCache) regionCache.get( region );  //This is our LastModifiedCache or CarteStatusCache
-      try ( SessionImpl session = (SessionImpl) hvcache.getSessionFactory().openSession() ) {
-        hvcache.getDirectAccessRegion().putIntoCache( key, value, session );
+      hvcache.putIntoCacheDirect( key, value );
+      if ( SESSION.equals( region ) ) {
+        sessionKeyIndex.add( key );
       }
     }
   }
@@ -344,10 +356,7 @@ public class CacheManager implements ICacheManager {
     Object returnValue = null;
     if ( checkRegionEnabled( region ) ) {
       HvCache hvcache = (HvCache) regionCache.get( region );  //This is our LastModifiedCache or CarteStatusCache
-      try ( SessionImpl session = (SessionImpl) hvcache.getSessionFactory().openSession() ) {
-
-        return ( (HvCache) hvcache ).getDirectAccessRegion().getFromCache( key, session );
-      }
+      return hvcache.getFromCacheDirect( key );
     }
     return returnValue;
   }
@@ -356,27 +365,29 @@ public class CacheManager implements ICacheManager {
     List list = new ArrayList<Object>();
     if ( checkRegionEnabled( region ) ) {
       HvCache hvcache = (HvCache) regionCache.get( region );  //This is our LastModifiedCache or CarteStatusCache
-      try ( SessionImpl session = (SessionImpl) hvcache.getSessionFactory().openSession() ) {
-        Ehcache ehcache = hvcache.getStorageAccess().getCache();
-        Map cacheMap = ehcache.getAll( ehcache.getKeys() );
-        if ( cacheMap != null ) {
-          Iterator it = cacheMap.entrySet().iterator();
-          while ( it.hasNext() ) {
-            Map.Entry entry = (Map.Entry) it.next();
-            list.add( entry.getValue() );
-          }
-        }
-      }
+      forEachValueInRegion( hvcache, list::add );
     }
     return list;
   }
 
+  /**
+   * Visits the live values of a region one entry at a time instead of materializing a key/value map of the whole
+   * region first.
+   */
+  private void forEachValueInRegion( HvCache hvcache, Consumer<Object> consumer ) {
+    Ehcache ehcache = hvcache.getCache();
+    for ( Object key : ehcache.getKeys() ) {
+      net.sf.ehcache.Element element = ehcache.get( key );
+      if ( element != null ) {
+        consumer.accept( element.getObjectValue() );
+      }
+    }
+  }
+
   public Set getAllKeysFromRegionCache( String region ) {
     if ( checkRegionEnabled( region ) ) {
       HvCache hvcache = (HvCache) regionCache.get( region );  //This is our LastModifiedCache or CarteStatusCache
-      try ( SessionImpl session = (SessionImpl) hvcache.getSessionFactory().openSession() ) {
-        return hvcache.getAllKeys();
-      }
+      return hvcache.getAllKeys();
     }
     return null;
   }
@@ -384,10 +395,9 @@ public class CacheManager implements ICacheManager {
   public Set getAllEntriesFromRegionCache( String region ) {
     if ( checkRegionEnabled( region ) ) {
       HvCache hvcache = (HvCache) regionCache.get( region );  //This is our LastModifiedCache or CarteStatusCache
-      try ( SessionImpl session = (SessionImpl) hvcache.getSessionFactory().openSession() ) {
-        Ehcache ehcache = hvcache.getStorageAccess().getCache();
-        return ehcache.getAll( ehcache.getKeys() ).values().stream().collect( Collectors.toSet() );
-      }
+      Set<Object> values = new HashSet<Object>();
+      forEachValueInRegion( hvcache, values::add );
+      return values;
     }
     return null;
   }
@@ -395,10 +405,13 @@ public class CacheManager implements ICacheManager {
   public void removeFromRegionCache( String region, Object key ) {
     if ( checkRegionEnabled( region ) ) {
       HvCache hvcache = (HvCache) regionCache.get( region );
-      try ( SessionImpl session = (SessionImpl) hvcache.getSessionFactory().openSession() ) {
-        hvcache.getStorageAccess().removeFromCache( key, session );
+      hvcache.removeFromCacheDirect( key );
+      if ( key instanceof String ) {
         hvcache.evictEntityData( (String) key );
       }
+      if ( SESSION.equals( region ) ) {
+        sessionKeyIndex.remove( key );
+      }
     } else {
       CacheManager.logger.warn( Messages.getInstance().getString(
         "CacheManager.WARN_0003_REGION_DOES_NOT_EXIST", region ) ); //$NON-NLS-1$
@@ -432,22 +445,11 @@ public class CacheManager implements ICacheManager {
   }
 
   public void killSessionCache( IPentahoSession session ) {
-    if ( cacheEnabled ) {
+    if ( cacheEnabled && session.getId() != null ) {
       HvCache hvcache = (HvCache) regionCache.get( SESSION );
-      if ( hvcache != null ) {
-        Ehcache ehcache = hvcache.getStorageAccess().getCache();
-        Map cacheMap = ehcache.getAll( ehcache.getKeys() );
-        if ( cacheMap != null ) {
-          Iterator it = cacheMap.keySet().iterator();
-          while ( it.hasNext() ) {
-            String key = (String) it.next();
-            if ( key.indexOf( session.getId() ) >= 0 ) {
-              try ( SessionImpl hibSession = (SessionImpl) hvcache.getSessionFactory().openSession() ) {
-                hvcache.getStorageAccess().removeFromCache( key, hibSession );
-              }
-            }
-          }
-        }
+      Set<Object> keys = sessionKeyIndex.removeSession( session.getId() );
+      if ( hvcache != null && !keys.isEmpty() ) {
+        hvcache.getStorageAccess().getCache().removeAll( keys );
       }
     }
   }
@@ -475,7 +477,7 @@ public class CacheManager implements ICacheManager {
   private String getCorrectedKey( final IPentahoSession session, final String key ) {
     String sessionId = session.getId();
     if ( sessionId != null ) {
-      String newKey = sessionId + "\t" + key; //$NON-NLS-1$
+      String newKey = sessionId + SessionKeyIndex.SESSION_KEY_SEPARATOR + key;
       return newKey;
     } else {
       throw new CacheException( Messages.getInstance().getErrorString( "CacheManager.ERROR_0001_NOSESSION" ) ); //$NON-NLS-1$
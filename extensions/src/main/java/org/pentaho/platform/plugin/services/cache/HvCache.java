@@ -13,6 +13,7 @@
 package org.pentaho.platform.plugin.services.cache;
 
 import net.sf.ehcache.Ehcache;
+import net.sf.ehcache.Element;
 import org.hibernate.Cache;
 import org.hibernate.cache.ehcache.internal.StorageAccessImpl;
 import org.hibernate.cache.spi.DirectAccessRegion;
@@ -44,4 +45,32 @@ public interface HvCache extends Cache {
    */
   Ehcache getCache();
 
+  /**
+   * Reads a value straight from the backing EhCache, without opening a Hibernate session. Only valid for regions that
+   * do not hold Hibernate entity data, which is the case for every region managed by {@link CacheManager}.
+   * @param key The key of the entry
+   * @return The cached value or null if absent or expired
+   */
+  default Object getFromCacheDirect( Object key ) {
+    Element element = getCache().get( key );
+    return element == null ? null : element.getObjectValue();
+  }
+
+  /**
+   * Writes a value straight to the backing EhCache, without opening a Hibernate session.
+   * @param key The key of the entry
+   * @param value The value to cache
+   */
+  default void putIntoCacheDirect( Object key, Object value ) {
+    getCache().put( new Element( key, value ) );
+  }
+
+  /**
+   * Removes an entry straight from the backing EhCache, without opening a Hibernate session.
+   * @param key The key of the entry
+   */
+  default void removeFromCacheDirect( Object key ) {
+    getCache().remove( key );
+  }
+
 }
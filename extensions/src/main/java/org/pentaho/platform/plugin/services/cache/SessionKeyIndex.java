@@ -0,0 +1,139 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.platform.plugin.services.cache;
+
+import net.sf.ehcache.CacheException;
+import net.sf.ehcache.Ehcache;
+import net.sf.ehcache.Element;
+import net.sf.ehcache.event.CacheEventListener;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Index of the keys held in the SESSION region, grouped by the Pentaho session id that prefixes them. Lets a logout
+ * evict one session's entries without scanning the whole region.
+ * <p>
+ * Registered as a listener of the region's EhCache, so that keys the cache expires, evicts or removes on its own leave
+ * the index as well.
+ */
+public class SessionKeyIndex implements CacheEventListener {
+
+  static final char SESSION_KEY_SEPARATOR = '\t';
+
+  private final ConcurrentMap<String, Set<Object>> keysBySession = new ConcurrentHashMap<String, Set<Object>>();
+
+  /**
+   * Records a key under the Pentaho session id it was built from. Keys not prefixed by a session id are ignored.
+   */
+  public void add( Object key ) {
+    String sessionId = getSessionId( key );
+    if ( sessionId != null ) {
+      keysBySession.compute( sessionId, ( id, keys ) -> {
+        Set<Object> sessionKeys = keys != null ? keys : ConcurrentHashMap.newKeySet();
+        sessionKeys.add( key );
+        return sessionKeys;
+      } );
+    }
+  }
+
+  public void remove( Object key ) {
+    String sessionId = getSessionId( key );
+    if ( sessionId != null ) {
+      keysBySession.computeIfPresent( sessionId, ( id, keys ) -> {
+        keys.remove( key );
+        return keys.isEmpty() ? null : keys;
+      } );
+    }
+  }
+
+  /**
+   * Forgets the keys of a session.
+   *
+   * @return the keys the session had, never <code>null</code>
+   */
+  public Set<Object> removeSession( String sessionId ) {
+    Set<Object> keys = keysBySession.remove( sessionId );
+    return keys != null ? keys : Collections.emptySet();
+  }
+
+  public Set<Object> getKeys( String sessionId ) {
+    Set<Object> keys = keysBySession.get( sessionId );
+    return keys != null ? Collections.unmodifiableSet( keys ) : Collections.emptySet();
+  }
+
+  /**
+   * @return the number of sessions having keys in the index
+   */
+  public int getSessionCount() {
+    return keysBySession.size();
+  }
+
+  public void clear() {
+    keysBySession.clear();
+  }
+
+  static String getSessionId( Object key ) {
+    if ( key instanceof String ) {
+      int separator = ( (String) key ).indexOf( SESSION_KEY_SEPARATOR );
+      if ( separator >= 0 ) {
+        return ( (String) key ).substring( 0, separator );
+      }
+    }
+    return null;
+  }
+
+  // ----------------------------------------------------< CacheEventListener >---
+
+  @Override
+  public void notifyElementPut( Ehcache cache, Element element ) throws CacheException {
+    add( element.getObjectKey() );
+  }
+
+  @Override
+  public void notifyElementUpdated( Ehcache cache, Element element ) throws CacheException {
+    add( element.getObjectKey() );
+  }
+
+  @Override
+  public void notifyElementRemoved( Ehcache cache, Element element ) throws CacheException {
+    remove( element.getObjectKey() );
+  }
+
+  @Override
+  public void notifyElementExpired( Ehcache cache, Element element ) {
+    remove( element.getObjectKey() );
+  }
+
+  @Override
+  public void notifyElementEvicted( Ehcache cache, Element element ) {
+    remove( element.getObjectKey() );
+  }
+
+  @Override
+  public void notifyRemoveAll( Ehcache cache ) {
+    clear();
+  }
+
+  @Override
+  public void dispose() {
+    clear();
+  }
+
+  @Override
+  public Object clone() throws CloneNotSupportedException {
+    throw new CloneNotSupportedException();
+  }
+}
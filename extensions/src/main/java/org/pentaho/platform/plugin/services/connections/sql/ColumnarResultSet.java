@@ -0,0 +1,517 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.plugin.services.connections.sql;
+
+import org.pentaho.commons.connection.IPeekable;
+import org.pentaho.commons.connection.IPentahoMetaData;
+import org.pentaho.commons.connection.IPentahoResultSet;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An in memory copy of a JDBC result set which keeps its values by column. Integer, long, double, date and timestamp
+ * columns are held in primitive arrays and string columns are dictionary encoded, so a large cached result set does
+ * not keep a boxed object per cell. Values are boxed again when they are read.
+ * <p>
+ * The storage of a column is picked from its JDBC type. If a value does not have the class the driver is expected to
+ * return for that type, the column falls back to keeping the values as they are, so reading a value always returns
+ * an object of the class {@link ResultSet#getObject(int)} returned.
+ * <p>
+ * Rows are only added while the copy is built, which ends with {@link #complete()}. From then on the result set is read
+ * only and {@link #memoryCopy()} returns a view sharing the same data.
+ */
+public class ColumnarResultSet implements IPentahoResultSet, IPeekable {
+
+  private static final int INITIAL_CAPACITY = 64;
+
+  private final IPentahoMetaData metaData;
+
+  private final Column[] columns;
+
+  private int rowCount;
+
+  private int cursor;
+
+  ColumnarResultSet( final IPentahoMetaData metaData, final ResultSetMetaData columnTypes ) throws SQLException {
+    this.metaData = metaData;
+    columns = new Column[ columnTypes.getColumnCount() ];
+    for ( int column = 0; column < columns.length; column++ ) {
+      columns[ column ] = newColumn( columnTypes.getColumnType( column + 1 ) );
+    }
+  }
+
+  private ColumnarResultSet( final ColumnarResultSet source ) {
+    metaData = source.metaData;
+    columns = source.columns;
+    rowCount = source.rowCount;
+  }
+
+  private static Column newColumn( final int sqlType ) {
+    switch ( sqlType ) {
+      case Types.TINYINT:
+      case Types.SMALLINT:
+      case Types.INTEGER:
+        return new IntColumn();
+      case Types.BIGINT:
+        return new LongColumn();
+      case Types.FLOAT:
+      case Types.DOUBLE:
+        return new DoubleColumn();
+      case Types.DATE:
+        return new DateColumn( java.sql.Date.class );
+      case Types.TIME:
+        return new DateColumn( Time.class );
+      case Types.TIMESTAMP:
+        return new TimestampColumn();
+      case Types.CHAR:
+      case Types.VARCHAR:
+      case Types.LONGVARCHAR:
+      case Types.NCHAR:
+      case Types.NVARCHAR:
+      case Types.LONGNVARCHAR:
+        return new StringColumn();
+      default:
+        return new ObjectColumn( INITIAL_CAPACITY );
+    }
+  }
+
+  /**
+   * Adds the current row of the given result set.
+   */
+  void addRow( final ResultSet resultSet ) throws SQLException {
+    for ( int column = 0; column < columns.length; column++ ) {
+      columns[ column ] = columns[ column ].add( rowCount, resultSet.getObject( column + 1 ) );
+    }
+    rowCount++;
+  }
+
+  /**
+   * Adds a row, missing values are null.
+   */
+  void addRow( final Object[] row ) {
+    for ( int column = 0; column < columns.length; column++ ) {
+      columns[ column ] = columns[ column ].add( rowCount, column < row.length ? row[ column ] : null );
+    }
+    rowCount++;
+  }
+
+  /**
+   * Ends the copy, releasing what was only needed to add rows. No rows can be added afterwards.
+   */
+  void complete() {
+    for ( int column = 0; column < columns.length; column++ ) {
+      columns[ column ] = columns[ column ].complete( rowCount );
+    }
+  }
+
+  /**
+   * @return an estimate of the number of bytes held by the values of this result set
+   */
+  public long getMemoryFootprint() {
+    long bytes = 0;
+    for ( Column column : columns ) {
+      bytes += column.getMemoryFootprint();
+    }
+    return bytes;
+  }
+
+  public IPentahoMetaData getMetaData() {
+    return metaData;
+  }
+
+  public Object[] peek() {
+    return cursor < rowCount ? getDataRow( cursor ) : null;
+  }
+
+  public Object[] next() {
+    return cursor < rowCount ? getDataRow( cursor++ ) : null;
+  }
+
+  public void beforeFirst() {
+    cursor = 0;
+  }
+
+  public void close() {
+    // nothing to release
+  }
+
+  public void closeConnection() {
+    // there is no connection
+  }
+
+  public void dispose() {
+    // nothing to release
+  }
+
+  public boolean isScrollable() {
+    return true;
+  }
+
+  public int getColumnCount() {
+    return columns.length;
+  }
+
+  public int getRowCount() {
+    return rowCount;
+  }
+
+  public Object getValueAt( final int row, final int column ) {
+    if ( row < 0 || row >= rowCount ) {
+      throw new IndexOutOfBoundsException( "row " + row + " of " + rowCount ); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+    return columns[ column ].get( row );
+  }
+
+  public Object[] getDataColumn( final int column ) {
+    Object[] result = new Object[ rowCount ];
+    for ( int row = 0; row < rowCount; row++ ) {
+      result[ row ] = columns[ column ].get( row );
+    }
+    return result;
+  }
+
+  public Object[] getDataRow( final int row ) {
+    if ( row < 0 || row >= rowCount ) {
+      return null;
+    }
+    Object[] rowData = new Object[ columns.length ];
+    for ( int column = 0; column < columns.length; column++ ) {
+      rowData[ column ] = columns[ column ].get( row );
+    }
+    return rowData;
+  }
+
+  /**
+   * @return a result set with its own cursor over the same data
+   */
+  public IPentahoResultSet memoryCopy() {
+    return new ColumnarResultSet( this );
+  }
+
+  private abstract static class Column {
+
+    /**
+     * Sets the value of a row. Rows are added in order.
+     *
+     * @return the column to use from now on, another one if this one cannot hold the value
+     */
+    abstract Column add( int row, Object value );
+
+    abstract Object get( int row );
+
+    abstract long getMemoryFootprint();
+
+    /**
+     * Called once all the rows were added.
+     *
+     * @return the column to use from now on
+     */
+    Column complete( int rowCount ) {
+      return this;
+    }
+
+    static int grow( int capacity, int minCapacity ) {
+      return Math.max( minCapacity, Math.max( INITIAL_CAPACITY, capacity * 2 ) );
+    }
+  }
+
+  private static class ObjectColumn extends Column {
+
+    private Object[] values;
+
+    ObjectColumn( int capacity ) {
+      values = new Object[ capacity ];
+    }
+
+    Column add( int row, Object value ) {
+      if ( row >= values.length ) {
+        values = Arrays.copyOf( values, grow( values.length, row + 1 ) );
+      }
+      values[ row ] = value;
+      return this;
+    }
+
+    Object get( int row ) {
+      return values[ row ];
+    }
+
+    long getMemoryFootprint() {
+      // the values themselves are not accounted for
+      return 8L * values.length;
+    }
+  }
+
+  /**
+   * A column keeping its values in a primitive form, with a bit per row telling whether the value is null.
+   */
+  private abstract static class PrimitiveColumn extends Column {
+
+    private final BitSet nulls = new BitSet();
+
+    private int capacity;
+
+    Column add( int row, Object value ) {
+      if ( value != null && !accepts( value ) ) {
+        ObjectColumn column = new ObjectColumn( grow( capacity, row + 1 ) );
+        for ( int i = 0; i < row; i++ ) {
+          column.add( i, get( i ) );
+        }
+        return column.add( row, value );
+      }
+      if ( row >= capacity ) {
+        capacity = grow( capacity, row + 1 );
+        resize( capacity );
+      }
+      if ( value == null ) {
+        nulls.set( row );
+      } else {
+        set( row, value );
+      }
+      return this;
+    }
+
+    Object get( int row ) {
+      return nulls.get( row ) ? null : getValue( row );
+    }
+
+    long getMemoryFootprint() {
+      return nulls.size() / 8 + (long) capacity * getValueSize();
+    }
+
+    abstract boolean accepts( Object value );
+
+    abstract void resize( int capacity );
+
+    abstract void set( int row, Object value );
+
+    abstract Object getValue( int row );
+
+    abstract int getValueSize();
+  }
+
+  private static class IntColumn extends PrimitiveColumn {
+
+    private int[] values = new int[ 0 ];
+
+    boolean accepts( Object value ) {
+      return value instanceof Integer;
+    }
+
+    void resize( int capacity ) {
+      values = Arrays.copyOf( values, capacity );
+    }
+
+    void set( int row, Object value ) {
+      values[ row ] = (Integer) value;
+    }
+
+    Object getValue( int row ) {
+      return values[ row ];
+    }
+
+    int getValueSize() {
+      return 4;
+    }
+  }
+
+  private static class LongColumn extends PrimitiveColumn {
+
+    private long[] values = new long[ 0 ];
+
+    boolean accepts( Object value ) {
+      return value instanceof Long;
+    }
+
+    void resize( int capacity ) {
+      values = Arrays.copyOf( values, capacity );
+    }
+
+    void set( int row, Object value ) {
+      values[ row ] = (Long) value;
+    }
+
+    Object getValue( int row ) {
+      return values[ row ];
+    }
+
+    int getValueSize() {
+      return 8;
+    }
+  }
+
+  private static class DoubleColumn extends PrimitiveColumn {
+
+    private double[] values = new double[ 0 ];
+
+    boolean accepts( Object value ) {
+      return value instanceof Double;
+    }
+
+    void resize( int capacity ) {
+      values = Arrays.copyOf( values, capacity );
+    }
+
+    void set( int row, Object value ) {
+      values[ row ] = (Double) value;
+    }
+
+    Object getValue( int row ) {
+      return values[ row ];
+    }
+
+    int getValueSize() {
+      return 8;
+    }
+  }
+
+  /**
+   * Keeps {@link java.sql.Date} or {@link Time} values as milliseconds.
+   */
+  private static class DateColumn extends PrimitiveColumn {
+
+    private final Class<?> type;
+
+    private long[] values = new long[ 0 ];
+
+    DateColumn( Class<?> type ) {
+      this.type = type;
+    }
+
+    boolean accepts( Object value ) {
+      return value.getClass() == type;
+    }
+
+    void resize( int capacity ) {
+      values = Arrays.copyOf( values, capacity );
+    }
+
+    void set( int row, Object value ) {
+      values[ row ] = ( (java.util.Date) value ).getTime();
+    }
+
+    Object getValue( int row ) {
+      return type == Time.class ? new Time( values[ row ] ) : new java.sql.Date( values[ row ] );
+    }
+
+    int getValueSize() {
+      return 8;
+    }
+  }
+
+  private static class TimestampColumn extends PrimitiveColumn {
+
+    private long[] millis = new long[ 0 ];
+
+    private int[] nanos = new int[ 0 ];
+
+    boolean accepts( Object value ) {
+      return value.getClass() == Timestamp.class;
+    }
+
+    void resize( int capacity ) {
+      millis = Arrays.copyOf( millis, capacity );
+      nanos = Arrays.copyOf( nanos, capacity );
+    }
+
+    void set( int row, Object value ) {
+      Timestamp timestamp = (Timestamp) value;
+      millis[ row ] = timestamp.getTime();
+      nanos[ row ] = timestamp.getNanos();
+    }
+
+    Object getValue( int row ) {
+      Timestamp timestamp = new Timestamp( millis[ row ] );
+      timestamp.setNanos( nanos[ row ] );
+      return timestamp;
+    }
+
+    int getValueSize() {
+      return 12;
+    }
+  }
+
+  /**
+   * Keeps each distinct string once, and a code per row. If most of the strings are distinct the codes do not pay for
+   * the dictionary, so the column is turned into an object column when it is completed.
+   */
+  private static class StringColumn extends PrimitiveColumn {
+
+    private final List<String> dictionary = new ArrayList<String>();
+
+    private Map<String, Integer> codes = new HashMap<String, Integer>();
+
+    private long dictionaryChars;
+
+    private int[] values = new int[ 0 ];
+
+    boolean accepts( Object value ) {
+      return value instanceof String;
+    }
+
+    void resize( int capacity ) {
+      values = Arrays.copyOf( values, capacity );
+    }
+
+    void set( int row, Object value ) {
+      String string = (String) value;
+      Integer code = codes.get( string );
+      if ( code == null ) {
+        code = dictionary.size();
+        dictionary.add( string );
+        codes.put( string, code );
+        dictionaryChars += string.length();
+      }
+      values[ row ] = code;
+    }
+
+    Object getValue( int row ) {
+      return dictionary.get( values[ row ] );
+    }
+
+    int getValueSize() {
+      return 4;
+    }
+
+    @Override
+    Column complete( int rowCount ) {
+      if ( dictionary.size() * 2L > rowCount ) {
+        ObjectColumn column = new ObjectColumn( rowCount );
+        for ( int row = 0; row < rowCount; row++ ) {
+          column.add( row, get( row ) );
+        }
+        return column;
+      }
+      codes = null;
+      return this;
+    }
+
+    @Override
+    long getMemoryFootprint() {
+      // a string header and its characters, and a dictionary list entry, per distinct string, and a map entry until
+      // the column is completed
+      return super.getMemoryFootprint() + dictionary.size() * ( codes == null ? 48L : 96L ) + dictionaryChars * 2;
+    }
+  }
+}
@@ -68,6 +68,7 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -130,14 +131,31 @@ public class PentahoPlatformExporter extends ZipExportProcessor implements IPent
   @Override
   public File performExport( RepositoryFile exportRepositoryFile ) throws ExportException, IOException {
 
-    // always export root
-    exportRepositoryFile = getUnifiedRepository().getFile( ROOT );
-
     // create temp file
     File exportFile = File.createTempFile( EXPORT_TEMP_FILENAME_PREFIX, EXPORT_TEMP_FILENAME_EXT );
     exportFile.deleteOnExit();
 
-    zos = new ZipOutputStream( new FileOutputStream( exportFile ) );
+    try ( OutputStream fileOutputStream = new FileOutputStream( exportFile ) ) {
+      performExport( exportRepositoryFile, fileOutputStream );
+    }
+
+    return exportFile;
+  }
+
+  /**
+   * Performs the export process, writing the zip entries straight to the given stream. The stream is finished but not
+   * closed.
+   *
+   * @throws ExportException indicates an error in import processing
+   */
+  @Override
+  public void performExport( RepositoryFile exportRepositoryFile, OutputStream outputStream ) throws ExportException,
+      IOException {
+
+    // always export root
+    exportRepositoryFile = getUnifiedRepository().getFile( ROOT );
+
+    zos = new ZipOutputStream( outputStream );
 
     exportFileContent( exportRepositoryFile );
     exportDatasources();
@@ -163,13 +181,12 @@ public class PentahoPlatformExporter extends ZipExportProcessor implements IPent
       zos.closeEntry();
     }
 
-    zos.close();
+    zos.finish();
+    zos.flush();
 
     // clean up
     initManifest();
     zos = null;
-
-    return exportFile;
   }
 
   protected void exportDatasources() {
@@ -67,6 +67,21 @@ public class LocaleFilesProcessor {
     localeFiles = new ArrayList<LocaleFileDescriptor>();
   }
 
+  /**
+   * Tells by name only whether {@link #isLocaleFile} may accept the file, so that the content of all other files does
+   * not need to be read up front.
+   *
+   * @param file
+   * @return false if the file is certainly not a locale file
+   */
+  public boolean isLocaleFileCandidate( IRepositoryFileBundle file ) {
+    String fileName = file.getFile().getName();
+    if ( ImportSession.getSession().getManifest() != null && ImportSession.getSession().getManifest().getManifestInformation().getManifestVersion() != null ) {
+      fileName = ExportFileNameEncoder.decodeZipFileName( fileName );
+    }
+    return fileName.endsWith( PROPERTIES_EXT ) || fileName.endsWith( LOCALE_EXT ) || fileName.equals( XML_LOCALE );
+  }
+
   /**
    * 
    * @param file
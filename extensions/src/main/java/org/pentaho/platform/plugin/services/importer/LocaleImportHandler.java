@@ -82,7 +82,7 @@ public class LocaleImportHandler extends RepositoryFileImportFileHandler impleme
     if ( localeParent != null && unifiedRepository != null && bundleFileName != null ) {
       // If the parent file (content) got skipped because it existed then we will not import the locale information
       String fullPath = RepositoryFilenameUtils.concat( localeBundle.getPath(), localeParent.getName() );
-      if ( ImportSession.getSession().getSkippedFiles().contains( fullPath ) ) {
+      if ( ImportSession.getSession().isSkippedFile( fullPath ) ) {
         getLogger().trace(
             "Not importing Locale [" + bundleFileName + "] since parent file not written " );
       } else {
@@ -91,7 +91,7 @@ public class RepositoryFileImportFileHandler implements IPlatformImportHandler {
     // Verify if destination already exists in the repository.
     RepositoryFile file = repository.getFile( repositoryFilePath );
     if ( file != null ) {
-      if ( file.isFolder() && getImportSession().getFoldersCreatedImplicitly().contains( repositoryFilePath ) ) {
+      if ( file.isFolder() && isFolderCreatedImplicitly( repositoryFilePath ) ) {
         getLogger().trace( messages.getString(
           "RepositoryFileImportFileHandler.SkippingImplicitlyCreatedFolder", repositoryFilePath ) );
       } else {
@@ -119,8 +119,7 @@ public class RepositoryFileImportFileHandler implements IPlatformImportHandler {
           } else {
             getLogger().trace( messages.getString( "RepositoryFileImportFileHandler.SkippingExistingFile",
               repositoryFilePath ) );
-            ImportSession importSession = ImportSession.getSession();
-            importSession.getSkippedFiles().add( repositoryFilePath );
+            ImportSession.getSession().addSkippedFile( repositoryFilePath );
           }
         }
       }
@@ -435,19 +434,23 @@ public class RepositoryFileImportFileHandler implements IPlatformImportHandler {
     if ( getParentId( repositoryPath ) == null ) {
       String parentPath = RepositoryFilenameUtils.getFullPathNoEndSeparator( repositoryPath );
       String parentManifestKey = RepositoryFilenameUtils.getFullPathNoEndSeparator( manifestKey );
-      if ( !getImportSession().getFoldersCreatedImplicitly().contains( parentPath ) ) {
-        RepositoryFile parentFile = repository.getFile( parentPath );
-        if ( parentFile == null ) {
-          checkAndCreatePath( parentPath, parentManifestKey );
-          try {
-            parentFile = createFolderJustInTime( parentPath, parentManifestKey );
-          } catch ( Exception e ) {
-            throw new PlatformImportException( messages.getString(
-                "DefaultImportHandler.ERROR_0010_JUST_IN_TIME_FOLDER_CREATION", repositoryPath ) );
+      // folders are created just in time by all threads of a parallel solution import. Only the threads creating the
+      // same folder wait for each other, the locks are always taken from the deepest folder up so they cannot deadlock.
+      synchronized ( getImportSession().getFolderLock( parentPath ) ) {
+        if ( !isFolderCreatedImplicitly( parentPath ) ) {
+          RepositoryFile parentFile = repository.getFile( parentPath );
+          if ( parentFile == null ) {
+            checkAndCreatePath( parentPath, parentManifestKey );
+            try {
+              parentFile = createFolderJustInTime( parentPath, parentManifestKey );
+            } catch ( Exception e ) {
+              throw new PlatformImportException( messages.getString(
+                  "DefaultImportHandler.ERROR_0010_JUST_IN_TIME_FOLDER_CREATION", repositoryPath ) );
+            }
           }
+          Serializable parentFileId = parentFile.getId();
+          Assert.notNull( parentFileId );
         }
-        Serializable parentFileId = parentFile.getId();
-        Assert.notNull( parentFileId );
       }
     }
     return getParentId( repositoryPath );
@@ -534,10 +537,21 @@ public class RepositoryFileImportFileHandler implements IPlatformImportHandler {
     } else {
       repoFile = repository.createFolder( parentId, repoFile, null );
     }
-    getImportSession().getFoldersCreatedImplicitly().add( folderPath );
+    ImportSession importSession = getImportSession();
+    synchronized ( importSession ) {
+      importSession.getFoldersCreatedImplicitly().add( folderPath );
+    }
     return repoFile;
   }
 
+  // the import session is shared by the threads of a parallel solution import
+  private boolean isFolderCreatedImplicitly( String folderPath ) {
+    ImportSession importSession = getImportSession();
+    synchronized ( importSession ) {
+      return importSession.getFoldersCreatedImplicitly().contains( folderPath );
+    }
+  }
+
   @Override
   public List<IMimeType> getMimeTypes() {
     return new ArrayList<IMimeType>( mimeTypeMap.values() );
@@ -14,6 +14,7 @@
 package org.pentaho.platform.plugin.services.importer;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.logging.Log;
@@ -21,6 +22,7 @@ import org.pentaho.database.model.IDatabaseConnection;
 import org.pentaho.metadata.repository.DomainAlreadyExistsException;
 import org.pentaho.metadata.repository.DomainIdNullException;
 import org.pentaho.metadata.repository.DomainStorageException;
+import org.pentaho.platform.api.engine.IPentahoSession;
 import org.pentaho.platform.api.engine.security.userroledao.AlreadyExistsException;
 import org.pentaho.platform.api.engine.security.userroledao.IPentahoRole;
 import org.pentaho.platform.api.engine.security.userroledao.IUserRoleDao;
@@ -41,11 +43,13 @@ import org.pentaho.platform.api.usersettings.IAnyUserSettingService;
 import org.pentaho.platform.api.usersettings.IUserSettingService;
 import org.pentaho.platform.api.usersettings.pojo.IUserSetting;
 import org.pentaho.platform.core.mt.Tenant;
+import org.pentaho.platform.engine.core.system.PentahoSessionHolder;
 import org.pentaho.platform.engine.core.system.PentahoSystem;
 import org.pentaho.platform.engine.core.system.TenantUtils;
 import org.pentaho.platform.plugin.services.importexport.DatabaseConnectionConverter;
 import org.pentaho.platform.plugin.services.importexport.ExportFileNameEncoder;
 import org.pentaho.platform.plugin.services.importexport.ExportManifestUserSetting;
+import org.pentaho.platform.plugin.services.importexport.IRepositoryImportLogger;
 import org.pentaho.platform.plugin.services.importexport.ImportSession;
 import org.pentaho.platform.plugin.services.importexport.ImportSession.ManifestFile;
 import org.pentaho.platform.plugin.services.importexport.ImportSource.IRepositoryFileBundle;
@@ -62,6 +66,8 @@ import org.pentaho.platform.plugin.services.messages.Messages;
 import org.pentaho.platform.repository.RepositoryFilenameUtils;
 import org.pentaho.platform.security.policy.rolebased.IRoleAuthorizationPolicyRoleBindingDao;
 import org.pentaho.platform.web.http.api.resources.services.FileService;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
 
 import javax.ws.rs.core.Response;
 import java.io.ByteArrayInputStream;
@@ -74,9 +80,14 @@ import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
@@ -96,6 +107,7 @@ public class SolutionImportHandler implements IPlatformImportHandler {
   private List<IMimeType> mimeTypes;
   private boolean overwriteFile;
   private List<IRepositoryFileBundle> files;
+  private int importThreads = 1;
 
   public SolutionImportHandler( List<IMimeType> mimeTypes ) {
     this.mimeTypes = mimeTypes;
@@ -103,6 +115,18 @@ public class SolutionImportHandler implements IPlatformImportHandler {
     repository = PentahoSystem.get( IUnifiedRepository.class );
   }
 
+  /**
+   * Sets how many threads write the files of an archive to the repository. Files of the same folder are always written
+   * by one thread; with a value of 1, the default, the whole archive is imported in order on the calling thread.
+   */
+  public void setImportThreads( int importThreads ) {
+    this.importThreads = Math.max( 1, importThreads );
+  }
+
+  public int getImportThreads() {
+    return importThreads;
+  }
+
   public ImportSession getImportSession() {
     return ImportSession.getSession();
   }
@@ -181,6 +205,7 @@ public class SolutionImportHandler implements IPlatformImportHandler {
       }
     }
 
+    List<PendingImport> pendingImports = new ArrayList<>();
     for ( IRepositoryFileBundle fileBundle : files ) {
       String fileName = fileBundle.getFile().getName();
       String actualFilePath = fileBundle.getPath();
@@ -192,16 +217,12 @@ public class SolutionImportHandler implements IPlatformImportHandler {
         RepositoryFilenameUtils.concat( PentahoPlatformImporter.computeBundlePath( actualFilePath ), fileName );
 
       if ( cachedImports.containsKey( repositoryFilePath ) ) {
-        byte[] bytes = IOUtils.toByteArray( fileBundle.getInputStream() );
-        RepositoryFileImportBundle.Builder builder = cachedImports.get( repositoryFilePath );
-        builder.input( new ByteArrayInputStream( bytes ) );
-
-        importer.importFile( build( builder ) );
+        pendingImports.add( new PendingImport( fileBundle, cachedImports.get( repositoryFilePath ), null, null, null ) );
         continue;
       }
 
       RepositoryFileImportBundle.Builder bundleBuilder = new RepositoryFileImportBundle.Builder();
-      InputStream bundleInputStream = null;
+      byte[] bytes = null;
 
       String decodedFilePath = fileBundle.getPath();
       RepositoryFile decodedFile = fileBundle.getFile();
@@ -216,15 +237,19 @@ public class SolutionImportHandler implements IPlatformImportHandler {
         fileName = repositoryFilePath;
         repositoryFilePath = importBundle.getPath();
       } else {
-        byte[] bytes = IOUtils.toByteArray( fileBundle.getInputStream() );
-        bundleInputStream = new ByteArrayInputStream( bytes );
-        // If is locale file store it for later processing.
-        if ( localeFilesProcessor.isLocaleFile( fileBundle, importBundle.getPath(), bytes ) ) {
-          getLogger().trace( Messages.getInstance()
-            .getString( "SolutionImportHandler.SkipLocaleFile",  repositoryFilePath ) );
-          continue;
+        // Only files that may be locale files are read up front, the content of any other file is streamed from
+        // its spooled copy when it is written to the repository.
+        if ( localeFilesProcessor.isLocaleFileCandidate( fileBundle ) ) {
+          try ( InputStream is = fileBundle.getInputStream() ) {
+            bytes = IOUtils.toByteArray( is );
+          }
+          // If is locale file store it for later processing.
+          if ( localeFilesProcessor.isLocaleFile( fileBundle, importBundle.getPath(), bytes ) ) {
+            getLogger().trace( Messages.getInstance()
+              .getString( "SolutionImportHandler.SkipLocaleFile",  repositoryFilePath ) );
+            continue;
+          }
         }
-        bundleBuilder.input( bundleInputStream );
         bundleBuilder.mime( solutionHelper.getMime( fileName ) );
 
         String filePath =
@@ -250,17 +275,150 @@ public class SolutionImportHandler implements IPlatformImportHandler {
         continue;
       }
 
-      getImportSession().setCurrentManifestKey( sourcePath );
-
       bundleBuilder.charSet( bundle.getCharSet() );
       bundleBuilder.overwriteFile( bundle.overwriteInRepository() );
       bundleBuilder.applyAclSettings( bundle.isApplyAclSettings() );
       bundleBuilder.retainOwnership( bundle.isRetainOwnership() );
       bundleBuilder.overwriteAclSettings( bundle.isOverwriteAclSettings() );
+
+      pendingImports.add( new PendingImport( fileBundle, bundleBuilder, sourcePath, repositoryFilePath, bytes ) );
+    }
+
+    importPendingFiles( importer, importBundle, manifest, pendingImports );
+
+    if ( manifest != null ) {
+      importSchedules( manifest.getScheduleList() );
+    }
+
+    // Process locale files.
+    localeFilesProcessor.processLocaleFiles( importer );
+  }
+
+  List<IJob> getAllJobs( ISchedulerResource schedulerResource ) {
+    return schedulerResource.getJobsList();
+  }
+
+  /**
+   * Writes the staged bundles to the repository. With a single import thread this happens in archive order. Otherwise
+   * folders and the files handed over by the other import handlers are written first, in archive order, and then the
+   * remaining files are written concurrently, one task per target folder so that no two threads write siblings.
+   */
+  @VisibleForTesting
+  void importPendingFiles( IPlatformImporter importer, IPlatformImportBundle importBundle,
+                                   ExportManifest manifest, List<PendingImport> pendingImports )
+    throws PlatformImportException, IOException {
+    if ( importThreads <= 1 ) {
+      for ( PendingImport pendingImport : pendingImports ) {
+        importPendingFile( importer, importBundle, manifest, pendingImport );
+      }
+      return;
+    }
+
+    Map<String, List<PendingImport>> filesByFolder = new LinkedHashMap<>();
+    for ( PendingImport pendingImport : pendingImports ) {
+      if ( pendingImport.sourcePath == null || pendingImport.fileBundle.getFile().isFolder() ) {
+        importPendingFile( importer, importBundle, manifest, pendingImport );
+      } else {
+        List<PendingImport> folderFiles = filesByFolder.get( pendingImport.folderPath );
+        if ( folderFiles == null ) {
+          folderFiles = new ArrayList<>();
+          filesByFolder.put( pendingImport.folderPath, folderFiles );
+        }
+        folderFiles.add( pendingImport );
+      }
+    }
+    if ( filesByFolder.isEmpty() ) {
+      return;
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool( Math.min( importThreads, filesByFolder.size() ),
+      new ThreadFactoryBuilder().setNameFormat( "solution-import-%d" ).setDaemon( true ).build() );
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for ( List<PendingImport> folderFiles : filesByFolder.values() ) {
+        futures.add( executor.submit( newFolderImportTask( importer, importBundle, manifest, folderFiles ) ) );
+      }
+      awaitFolderImports( futures );
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private Runnable newFolderImportTask( final IPlatformImporter importer, final IPlatformImportBundle importBundle,
+                                        final ExportManifest manifest, final List<PendingImport> folderFiles ) {
+    final ImportSession importSession = getImportSession();
+    final IPentahoSession pentahoSession = PentahoSessionHolder.getSession();
+    final SecurityContext securityContext = SecurityContextHolder.getContext();
+    Runnable task = new Runnable() {
+      @Override
+      public void run() {
+        ImportSession.setSession( importSession );
+        PentahoSessionHolder.setSession( pentahoSession );
+        SecurityContext previousContext = SecurityContextHolder.getContext();
+        SecurityContextHolder.setContext( securityContext );
+        try {
+          for ( PendingImport pendingImport : folderFiles ) {
+            if ( Thread.currentThread().isInterrupted() ) {
+              return;
+            }
+            importPendingFile( importer, importBundle, manifest, pendingImport );
+          }
+        } catch ( PlatformImportException | IOException e ) {
+          throw new FolderImportException( e );
+        } finally {
+          SecurityContextHolder.setContext( previousContext );
+          PentahoSessionHolder.removeSession();
+          ImportSession.setSession( null );
+        }
+      }
+    };
+    IRepositoryImportLogger importLogger = importer.getRepositoryImportLogger();
+    return importLogger == null ? task : importLogger.wrapForCurrentJob( task );
+  }
+
+  private void awaitFolderImports( List<Future<?>> futures ) throws PlatformImportException, IOException {
+    Throwable failure = null;
+    for ( Future<?> future : futures ) {
+      try {
+        if ( failure == null ) {
+          future.get();
+        } else {
+          future.cancel( true );
+        }
+      } catch ( InterruptedException e ) {
+        Thread.currentThread().interrupt();
+        failure = e;
+      } catch ( ExecutionException e ) {
+        failure = e.getCause();
+      }
+    }
+    if ( failure instanceof FolderImportException ) {
+      failure = failure.getCause();
+    }
+    if ( failure instanceof PlatformImportException ) {
+      throw (PlatformImportException) failure;
+    } else if ( failure instanceof IOException ) {
+      throw (IOException) failure;
+    } else if ( failure instanceof RuntimeException ) {
+      throw (RuntimeException) failure;
+    } else if ( failure instanceof Error ) {
+      throw (Error) failure;
+    } else if ( failure != null ) {
+      throw new PlatformImportException( failure.getMessage(), failure );
+    }
+  }
+
+  private void importPendingFile( IPlatformImporter importer, IPlatformImportBundle importBundle,
+                                  ExportManifest manifest, PendingImport pendingImport )
+    throws PlatformImportException, IOException {
+    RepositoryFileImportBundle.Builder bundleBuilder = pendingImport.builder;
+    String sourcePath = pendingImport.sourcePath;
+    if ( sourcePath != null ) {
+      getImportSession().setCurrentManifestKey( sourcePath );
       bundleBuilder.acl( getImportSession().processAclForFile( sourcePath ) );
       bundleBuilder.extraMetaData( getImportSession().processExtraMetaDataForFile( sourcePath ) );
 
-      RepositoryFile file = getFile( importBundle, fileBundle );
+      RepositoryFile file = getFile( importBundle, pendingImport.fileBundle );
       ManifestFile manifestFile = getImportSession().getManifestFile( sourcePath, file != null );
 
       bundleBuilder.hidden( isFileHidden( file, manifestFile, sourcePath ) );
@@ -271,26 +429,48 @@ public class SolutionImportHandler implements IPlatformImportHandler {
       } else {
         bundleBuilder.schedulable( fileIsScheduleInputSource( manifest, sourcePath ) );
       }
-
-      IPlatformImportBundle platformImportBundle = build( bundleBuilder );
-      importer.importFile( platformImportBundle );
-
-      if ( bundleInputStream != null ) {
-        bundleInputStream.close();
-        bundleInputStream = null;
-      }
     }
 
-    if ( manifest != null ) {
-      importSchedules( manifest.getScheduleList() );
+    if ( pendingImport.fileBundle.getFile().isFolder() ) {
+      importer.importFile( build( bundleBuilder ) );
+      return;
+    }
+    try ( InputStream bundleInputStream = pendingImport.bytes != null
+      ? new ByteArrayInputStream( pendingImport.bytes ) : pendingImport.fileBundle.getInputStream() ) {
+      bundleBuilder.input( bundleInputStream );
+      importer.importFile( build( bundleBuilder ) );
     }
+  }
 
-    // Process locale files.
-    localeFilesProcessor.processLocaleFiles( importer );
+  /**
+   * A bundle staged for import. The source path is null for the bundles handed over by the other import handlers,
+   * the content is only held in memory when it had to be read to tell whether the file is a locale file.
+   */
+  @VisibleForTesting
+  static class PendingImport {
+    private final IRepositoryFileBundle fileBundle;
+    private final RepositoryFileImportBundle.Builder builder;
+    private final String sourcePath;
+    private final String folderPath;
+    private final byte[] bytes;
+
+    PendingImport( IRepositoryFileBundle fileBundle, RepositoryFileImportBundle.Builder builder, String sourcePath,
+                   String folderPath, byte[] bytes ) {
+      this.fileBundle = fileBundle;
+      this.builder = builder;
+      this.sourcePath = sourcePath;
+      this.folderPath = folderPath;
+      this.bytes = bytes;
+    }
   }
 
-  List<IJob> getAllJobs( ISchedulerResource schedulerResource ) {
-    return schedulerResource.getJobsList();
+  /**
+   * Carries a checked import failure out of a folder import task.
+   */
+  private static class FolderImportException extends RuntimeException {
+    FolderImportException( Exception cause ) {
+      super( cause );
+    }
   }
 
   private RepositoryFile getFile( IPlatformImportBundle importBundle, IRepositoryFileBundle fileBundle ) {
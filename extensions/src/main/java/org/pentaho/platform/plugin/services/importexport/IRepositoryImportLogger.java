@@ -113,4 +113,16 @@ public interface IRepositoryImportLogger extends Log {
    * @return true if the logger is present.
    */
   boolean hasLogger();
+
+  /**
+   * Returns a task that runs the given one within the import job of the current thread, so that work handed to other
+   * threads is posted to the same log. Each of those threads keeps its own current file path.
+   *
+   * @param task
+   *          The work to run on another thread.
+   * @return the task to submit instead; the given task if there is nothing to carry over.
+   */
+  default Runnable wrapForCurrentJob( Runnable task ) {
+    return task;
+  }
 }
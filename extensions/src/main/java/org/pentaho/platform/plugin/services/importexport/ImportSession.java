@@ -16,6 +16,8 @@ package org.pentaho.platform.plugin.services.importexport;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -39,6 +41,7 @@ public class ImportSession {
 
   private HashSet<String> skippedFiles = new HashSet<String>(); // Files skipped due to overwriteFlag = false
   private final HashSet<String> foldersCreatedImplicitly = new HashSet<String>(); // Folders created implicitly
+  private final ConcurrentMap<String, Object> folderLocks = new ConcurrentHashMap<String, Object>();
 
   private Log log;
   private Boolean isNotRunningImport = true;
@@ -47,7 +50,8 @@ public class ImportSession {
   private boolean applyAclSettings;
   private boolean retainOwnership;
   private boolean overwriteAclSettings;
-  private String currentManifestKey;
+  // kept per thread, files of an import may be written by several threads
+  private final ThreadLocal<String> currentManifestKey = new ThreadLocal<String>();
 
   private final HashSet<RepositoryFile> importedRepositoryFiles = new HashSet<RepositoryFile>();
   private final List<String> importedScheduleJobIds = new ArrayList<String>();
@@ -62,6 +66,18 @@ public class ImportSession {
     return session;
   }
 
+  /**
+   * Binds the given session to the current thread, so that a worker thread shares the import session of the thread
+   * that started the import.
+   */
+  public static void setSession( ImportSession session ) {
+    if ( session == null ) {
+      sessions.remove();
+    } else {
+      sessions.set( session );
+    }
+  }
+
   /**
    * Clear out any collections, most likely before starting a new import
    */
@@ -70,6 +86,7 @@ public class ImportSession {
     importedScheduleJobIds.clear();
     skippedFiles.clear();
     foldersCreatedImplicitly.clear();
+    folderLocks.clear();
   }
 
   public Log getLogger() {
@@ -182,6 +199,23 @@ public class ImportSession {
     this.skippedFiles = skippedFiles;
   }
 
+  /**
+   * Records a file skipped because it already exists. Safe to call from the threads writing the files of an import.
+   *
+   * @param path the repository path of the skipped file
+   */
+  public synchronized void addSkippedFile( String path ) {
+    skippedFiles.add( path );
+  }
+
+  /**
+   * @param path a repository path
+   * @return true if the file was skipped because it already exists
+   */
+  public synchronized boolean isSkippedFile( String path ) {
+    return skippedFiles.contains( path );
+  }
+
   /**
    * @return the isNotRunningImport
    */
@@ -249,14 +283,14 @@ public class ImportSession {
    * @return The key to finding the current file the export manifest.
    */
   public String getCurrentManifestKey() {
-    return currentManifestKey;
+    return currentManifestKey.get();
   }
 
   /**
    * @param Set the key for looking up the current file in the manifest
    */
   public void setCurrentManifestKey( String currentManifestKey ) {
-    this.currentManifestKey = currentManifestKey;
+    this.currentManifestKey.set( currentManifestKey );
   }
 
   /**
@@ -268,6 +302,25 @@ public class ImportSession {
     return foldersCreatedImplicitly;
   }
 
+  /**
+   * Returns the monitor a thread holds while it creates the given folder on the fly, so that the threads writing the
+   * files of an import create a folder only once but create different folders at the same time.
+   *
+   * @param folderPath the repository path of the folder
+   * @return the lock of that path, the same object for the whole import
+   */
+  public Object getFolderLock( String folderPath ) {
+    Object lock = folderLocks.get( folderPath );
+    if ( lock == null ) {
+      Object newLock = new Object();
+      lock = folderLocks.putIfAbsent( folderPath, newLock );
+      if ( lock == null ) {
+        lock = newLock;
+      }
+    }
+    return lock;
+  }
+
   /**
    * Sets the AclProperties.
    *
@@ -286,7 +339,9 @@ public class ImportSession {
    * @param repositoryFile
    */
   public void addImportedRepositoryFile( RepositoryFile repositoryFile ) {
-    importedRepositoryFiles.add( repositoryFile );
+    synchronized ( importedRepositoryFiles ) {
+      importedRepositoryFiles.add( repositoryFile );
+    }
   }
 
   /**
@@ -36,7 +36,8 @@ public class Log4JRepositoryImportLog {
   private Logger logger;
   static final String FILE_KEY = "currentFile"; // Intentionally scoped as default
   private OutputStream outputStream;
-  private String currentFilePath;
+  // kept per thread, files of an import may be written by several threads
+  private final ThreadLocal<String> currentFilePath = new ThreadLocal<String>();
   private String logName;
   private String importRootPath;
   private Level logLevel;
@@ -74,7 +75,7 @@ public class Log4JRepositoryImportLog {
    * @return the currentFilePath
    */
   public String getCurrentFilePath() {
-    return currentFilePath;
+    return currentFilePath.get();
   }
 
   /**
@@ -82,10 +83,18 @@ public class Log4JRepositoryImportLog {
    *          the currentFilePath to set
    */
   public void setCurrentFilePath( String currentFilePath ) {
-    this.currentFilePath = currentFilePath;
+    this.currentFilePath.set( currentFilePath );
     MDC.put( FILE_KEY, currentFilePath );
   }
 
+  /**
+   * Forgets the current file path of the calling thread, once it stops working for this import.
+   */
+  void clearCurrentFilePath() {
+    currentFilePath.remove();
+    MDC.remove( FILE_KEY );
+  }
+
   /**
    * @return the importRootPath
    */
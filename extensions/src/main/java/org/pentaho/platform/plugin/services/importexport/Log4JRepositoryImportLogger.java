@@ -86,6 +86,31 @@ public class Log4JRepositoryImportLogger implements IRepositoryImportLogger {
     return ( repositoryImportLog.get() == null ) ? false : true;
   }
 
+  @Override
+  public Runnable wrapForCurrentJob( final Runnable task ) {
+    final Log4JRepositoryImportLog currentLog = repositoryImportLog.get();
+    if ( currentLog == null ) {
+      return task;
+    }
+    return new Runnable() {
+      @Override
+      public void run() {
+        Log4JRepositoryImportLog previousLog = repositoryImportLog.get();
+        repositoryImportLog.set( currentLog );
+        try {
+          task.run();
+        } finally {
+          currentLog.clearCurrentFilePath();
+          if ( previousLog == null ) {
+            repositoryImportLog.remove();
+          } else {
+            repositoryImportLog.set( previousLog );
+          }
+        }
+      }
+    };
+  }
+
   @Override
   public void debug( Object arg0 ) {
     getLogger().debug( arg0 );
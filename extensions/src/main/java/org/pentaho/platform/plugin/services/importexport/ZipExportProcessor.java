@@ -24,14 +24,12 @@ import org.pentaho.platform.api.repository2.unified.RepositoryFile;
 import org.pentaho.platform.api.repository2.unified.RepositoryFileAcl;
 import org.pentaho.platform.api.repository2.unified.RepositoryRequest;
 import org.pentaho.platform.engine.core.system.PentahoSessionHolder;
-import org.pentaho.platform.engine.core.system.PentahoSystem;
 import org.pentaho.platform.plugin.services.importexport.exportManifest.ExportManifest;
 import org.pentaho.platform.plugin.services.importexport.exportManifest.ExportManifestFormatException;
 import org.pentaho.platform.repository2.ClientRepositoryPaths;
 import org.pentaho.platform.api.repository2.unified.webservices.LocaleMapDto;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -59,8 +57,6 @@ public class ZipExportProcessor extends BaseExportProcessor {
 
   protected List<String> localeExportList;
 
-  private static final int SAFETY_TMP_FILE_SIZE = 50;
-
   /**
    * Encapsulates the logic of registering import handlers, generating the manifest, and performing the export
    */
@@ -113,6 +109,21 @@ public class ZipExportProcessor extends BaseExportProcessor {
     exportFile = File.createTempFile( EXPORT_TEMP_FILENAME_PREFIX, EXPORT_TEMP_FILENAME_EXT );
     exportFile.deleteOnExit();
 
+    try ( OutputStream fileOutputStream = new FileOutputStream( exportFile ) ) {
+      performExport( exportRepositoryFile, fileOutputStream );
+    }
+
+    return exportFile;
+  }
+
+  /**
+   * Performs the export process, writing the zip entries straight to the given stream as they are produced. The
+   * manifest, if any, is written as the last entry. The stream is finished but not closed.
+   *
+   * @throws ExportException indicates an error in import processing
+   */
+  public void performExport( RepositoryFile exportRepositoryFile, OutputStream outputStream ) throws ExportException,
+      IOException {
     // get the file path
     String filePath = new File( this.path ).getParent();
     if ( filePath == null ) {
@@ -125,42 +136,41 @@ public class ZipExportProcessor extends BaseExportProcessor {
       throw new FileNotFoundException( "JCR file not found: " + this.path );
     }
 
-    try ( ZipOutputStream zos = new ZipOutputStream( new FileOutputStream( exportFile ) ) ) {
-      if ( exportRepositoryFile.isFolder() ) { // Handle recursive export
-        exportManifest.getManifestInformation().setRootFolder( path.substring( 0, path.lastIndexOf( "/" ) + 1 ) );
+    ZipOutputStream zos = new ZipOutputStream( outputStream );
+    if ( exportRepositoryFile.isFolder() ) { // Handle recursive export
+      exportManifest.getManifestInformation().setRootFolder( path.substring( 0, path.lastIndexOf( "/" ) + 1 ) );
 
-        // don't zip root folder without name
-        if ( !ClientRepositoryPaths.getRootFolderPath().equals( exportRepositoryFile.getPath() ) ) {
-          zos.putNextEntry( new ZipEntry( getFixedZipEntryName( exportRepositoryFile, filePath ) ) );
-        }
-        exportDirectory( exportRepositoryFile, zos, filePath );
-
-      } else {
-        exportManifest.getManifestInformation().setRootFolder( path.substring( 0, path.lastIndexOf( "/" ) + 1 ) );
-        exportFile( exportRepositoryFile, zos, filePath );
+      // don't zip root folder without name
+      if ( !ClientRepositoryPaths.getRootFolderPath().equals( exportRepositoryFile.getPath() ) ) {
+        zos.putNextEntry( new ZipEntry( getFixedZipEntryName( exportRepositoryFile, filePath ) ) );
       }
+      exportDirectory( exportRepositoryFile, zos, filePath );
 
-      if ( this.withManifest ) {
-        // write manifest to zip output stream
-        ZipEntry entry = new ZipEntry( EXPORT_MANIFEST_FILENAME );
-        zos.putNextEntry( entry );
-
-        // pass output stream to manifest class for writing
-        try {
-          exportManifest.toXml( zos );
-        } catch ( Exception e ) {
-          // todo: add to messages.properties
-          log.error( "Error generating export XML" );
-        }
+    } else {
+      exportManifest.getManifestInformation().setRootFolder( path.substring( 0, path.lastIndexOf( "/" ) + 1 ) );
+      exportFile( exportRepositoryFile, zos, filePath );
+    }
 
-        zos.closeEntry();
+    if ( this.withManifest ) {
+      // write manifest to zip output stream
+      ZipEntry entry = new ZipEntry( EXPORT_MANIFEST_FILENAME );
+      zos.putNextEntry( entry );
+
+      // pass output stream to manifest class for writing
+      try {
+        exportManifest.toXml( zos );
+      } catch ( Exception e ) {
+        // todo: add to messages.properties
+        log.error( "Error generating export XML" );
       }
+
+      zos.closeEntry();
     }
+    zos.finish();
+    zos.flush();
 
     // clean up
     exportManifest = null;
-
-    return exportFile;
   }
 
   /**
@@ -317,14 +327,10 @@ public class ZipExportProcessor extends BaseExportProcessor {
         if ( properties != null ) {
           properties.remove( "jcr:primaryType" ); // Pentaho Type
 
-          try ( InputStream is = createLocaleFile( name + localeName, properties, locale.getLocale() ) ) {
-            if ( is != null ) {
-              entry = new ZipEntry( zipEntryName + localeName + LOCALE_EXT );
-              zos.putNextEntry( entry );
-              IOUtils.copy( is, outputStream );
-              zos.closeEntry();
-            }
-          }
+          entry = new ZipEntry( zipEntryName + localeName + LOCALE_EXT );
+          zos.putNextEntry( entry );
+          properties.store( zos, "Locale = " + locale.getLocale() );
+          zos.closeEntry();
         }
       }
     }
@@ -371,44 +377,6 @@ public class ZipExportProcessor extends BaseExportProcessor {
     return availableLocales;
   }
 
-  /**
-   * need to create the locale file
-   *
-   * @param name
-   * @param properties
-   * @param locale
-   * @throws IOException
-   * @returns inputStream pointer to created file or null
-   */
-  private InputStream createLocaleFile( String name, Properties properties, String locale ) throws IOException {
-    if ( properties != null ) {
-      File localeFile = null;
-
-      try {
-        localeFile = PentahoSystem
-          .getApplicationContext().createTempFile( getSession(), ExportFileNameEncoder.encodeZipFileName( name ), LOCALE_EXT, true );
-      } catch ( IOException e ) {
-        // BISERVER-14140 - Retry when temp file name exceeds the limit of OS
-        // Retry inside a catch because there isn't an accurate mechanism to determine the effective temp file max length
-        // This is the local temp file only, inside the zip, the final file will have the original name
-        String smallerName = ExportFileNameEncoder.encodeZipFileName( name ).substring( 0, SAFETY_TMP_FILE_SIZE );
-        log.debug( "Error with original name file. Retrying with a smaller temp file name - " + smallerName );
-        localeFile = PentahoSystem
-          .getApplicationContext().createTempFile( getSession(), smallerName, LOCALE_EXT, true );
-      } finally {
-        if ( localeFile != null ) {
-          localeFile.deleteOnExit();
-        }
-      }
-
-      try ( FileOutputStream fileOut = new FileOutputStream( localeFile ) ) {
-        properties.store( fileOut, "Locale = " + locale );
-      }
-      return new FileInputStream( localeFile );
-    }
-    return null;
-  }
-
   /**
    * get the list of files we are interested in supporting locale from Spring
    *
@@ -0,0 +1,34 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.plugin.services.metadata;
+
+import org.pentaho.metadata.repository.IMetadataDomainRepository;
+
+import java.io.Serializable;
+
+/**
+ * A metadata domain repository that can tell which revision of a domain {@link #getDomain(String)} would currently
+ * load. Caches use it to share one parsed domain between sessions for as long as the stored domain does not change.
+ */
+public interface IVersionAwareMetadataDomainRepository extends IMetadataDomainRepository {
+
+  /**
+   * Returns a token that identifies the stored revision of a domain. Tokens are only compared for equality, a different
+   * token means the domain has changed since the previous token was handed out.
+   *
+   * @param domainId the domain id
+   * @return the revision token, or null if the domain does not exist
+   */
+  Serializable getDomainVersion( String domainId );
+}
@@ -79,7 +79,7 @@ import static java.util.stream.Collectors.toMap;
 public class PentahoMetadataDomainRepository implements IMetadataDomainRepository,
   IModelAnnotationsAwareMetadataDomainRepositoryImporter,
   IAclAwarePentahoMetadataDomainRepositoryImporter, IPentahoMetadataDomainRepositoryExporter,
-        IDataSourceAwareMetadataDomainRepository {
+        IDataSourceAwareMetadataDomainRepository, IVersionAwareMetadataDomainRepository {
   // The logger for this class
   private static final Log logger = LogFactory.getLog( PentahoMetadataDomainRepository.class );
 
@@ -505,6 +505,26 @@ public class PentahoMetadataDomainRepository implements IMetadataDomainRepositor
     return domain;
   }
 
+  /**
+   * The revision of a domain is identified by the id, version and last modification date of its XMI file, read from
+   * the repository rather than from the metadata mapping so that updates made behind our back are noticed as well.
+   *
+   * @param domainId the domain id
+   * @return the revision token, or null if the domain does not exist
+   */
+  @Override
+  public Serializable getDomainVersion( final String domainId ) {
+    RepositoryFile file = getMetadataRepositoryFile( domainId );
+    if ( file != null ) {
+      file = repository.getFileById( file.getId() );
+    }
+    if ( file == null ) {
+      return null;
+    }
+    return file.getId() + ":" + file.getVersionId() + ":"
+      + ( file.getLastModifiedDate() != null ? file.getLastModifiedDate().getTime() : 0L );
+  }
+
   /**
    * Parses SimpleRepositoryFileData to Domain object.
    * @param fileMetadata jcr file metadata information.
@@ -13,6 +13,9 @@
 
 package org.pentaho.platform.plugin.services.metadata;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.apache.commons.lang3.math.NumberUtils;
 import org.apache.commons.logging.Log;
@@ -42,6 +45,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -54,6 +59,13 @@ import static java.util.Optional.ofNullable;
 /**
  * This is the platform implementation which provides session-based caching for an existing {@link
  * IMetadataDomainRepository}.
+ * <p>
+ * Domains are cached in two tiers. When the delegate is an {@link IVersionAwareMetadataDomainRepository}, the first
+ * tier holds one parsed domain per domain id and stored revision, shared by all sessions, so the XMI of a domain is
+ * parsed once rather than once per session. The second tier, kept in the {@link #CACHE_REGION} cache region, holds the
+ * secured view of a domain that {@link SecurityHelper#createSecureDomain} makes for each session. Both tiers are
+ * purged when a domain is changed through this repository, and when the first tier finds that the stored revision of a
+ * domain has changed.
  *
  * @author Jordan Ganoff (jganoff@pentaho.com)
  */
@@ -72,6 +84,9 @@ public class SessionCachingMetadataDomainRepository implements IMetadataDomainRe
   // default number for threads
   static final int DEFAULT_NUMBER_OF_THREADS = 3;
 
+  // default maximum number of parsed domains shared across sessions
+  static final int DEFAULT_SHARED_DOMAINS_CACHE_SIZE = 100;
+
   ICacheManager cacheManager;
   boolean domainIdsCacheEnabled = true;
 
@@ -80,6 +95,34 @@ public class SessionCachingMetadataDomainRepository implements IMetadataDomainRe
   private final IMetadataDomainRepository delegate;
   private static final String DOMAIN_CACHE_KEY_PREDICATE = "domain-id-cache-for-session:";
 
+  /**
+   * First tier: parsed domains by domain id, shared across sessions
+   */
+  private final Cache<String, SharedDomain> sharedDomains;
+
+  /**
+   * Keys of the session views in the cache region by domain id, so purging a domain does not have to scan the region
+   */
+  private final ConcurrentMap<String, Set<CacheKey>> sessionDomainKeys = new ConcurrentHashMap<>();
+
+  /**
+   * Keys of the domain id lists in the cache region
+   */
+  private final Set<String> domainIdsKeys = ConcurrentHashMap.newKeySet();
+
+  /**
+   * A parsed domain together with the revision of the stored domain it was parsed from
+   */
+  private static class SharedDomain {
+    private final Serializable version;
+    private final Domain domain;
+
+    SharedDomain( Serializable version, Domain domain ) {
+      this.version = version;
+      this.domain = domain;
+    }
+  }
+
   /**
    * this as a public class so that if necessary someone can get access to a session key and clear the cache in their
    * own way via javascript rule / etc
@@ -153,12 +196,16 @@ public class SessionCachingMetadataDomainRepository implements IMetadataDomainRe
         getClass().getSimpleName() + " (" + CACHE_REGION + ") cannot be initialized" ); //$NON-NLS-1$ //$NON-NLS-2$
     }
     PentahoSystem.addLogoutListener( this ); // So you can remove a users' region when their session disappears
+    int sharedDomainsCacheSize = DEFAULT_SHARED_DOMAINS_CACHE_SIZE;
     ISystemConfig systemConfig = PentahoSystem.get( ISystemConfig.class );
     if ( systemConfig != null ) {
       String enableDomainIdCache = systemConfig.getProperty( "system.enableDomainIdCache" );
       domainIdsCacheEnabled = ( enableDomainIdCache == null ) || Boolean.valueOf( enableDomainIdCache );
       numberOfThreads = getNumberOfThreads( systemConfig );
+      sharedDomainsCacheSize = NumberUtils.toInt( systemConfig.getProperty( "system.sharedDomainsCacheSize" ),
+        DEFAULT_SHARED_DOMAINS_CACHE_SIZE );
     }
+    sharedDomains = CacheBuilder.newBuilder().maximumSize( Math.max( 0, sharedDomainsCacheSize ) ).build();
   }
 
   public SessionCachingMetadataDomainRepository( final IMetadataDomainRepository delegate,
@@ -168,6 +215,7 @@ public class SessionCachingMetadataDomainRepository implements IMetadataDomainRe
     this.cacheManager = cacheManager;
     this.domainIdsCacheEnabled = domainIdsCacheEnabled;
     this.numberOfThreads = numberOfThreads;
+    this.sharedDomains = CacheBuilder.newBuilder().maximumSize( DEFAULT_SHARED_DOMAINS_CACHE_SIZE ).build();
   }
 
   /**
@@ -278,7 +326,7 @@ public class SessionCachingMetadataDomainRepository implements IMetadataDomainRe
       }
       return domain;
     }
-    domain = delegate.getDomain( id );
+    domain = getSharedDomain( id );
     if ( domain != null ) {
 
       if ( logger.isDebugEnabled() ) {
@@ -292,31 +340,92 @@ public class SessionCachingMetadataDomainRepository implements IMetadataDomainRe
         logger.debug( "Caching domain by session: " + key ); //$NON-NLS-1$
       }
       cacheManager.putInRegionCache( CACHE_REGION, key, domain );
+      if ( id != null ) {
+        sessionDomainKeys.computeIfAbsent( id, domainId -> ConcurrentHashMap.newKeySet() ).add( key );
+      }
     }
     return domain;
   }
 
+  /**
+   * Returns the parsed domain shared by all sessions, loading it from the delegate if it is not cached or if the
+   * stored domain has changed since it was cached. Delegates that cannot tell the revision of a domain are asked for
+   * the domain every time, as are requests of sessions that cannot read the domain.
+   *
+   * @param id Domain id
+   * @return the domain, or null if it does not exist or cannot be read
+   */
+  Domain getSharedDomain( final String id ) {
+    if ( !( delegate instanceof IVersionAwareMetadataDomainRepository ) || !hasAccessFor( id ) ) {
+      return delegate.getDomain( id );
+    }
+    final Serializable version = ( (IVersionAwareMetadataDomainRepository) delegate ).getDomainVersion( id );
+    if ( version == null ) {
+      return delegate.getDomain( id );
+    }
+
+    SharedDomain shared = sharedDomains.getIfPresent( id );
+    if ( shared != null && !version.equals( shared.version ) ) {
+      if ( logger.isDebugEnabled() ) {
+        logger.debug( "Stored domain has changed, purging it from the cache: " + id ); //$NON-NLS-1$
+      }
+      purgeDomainViews( id );
+    }
+    try {
+      shared = sharedDomains.get( id, new Callable<SharedDomain>() {
+        @Override
+        public SharedDomain call() {
+          return new SharedDomain( version, delegate.getDomain( id ) );
+        }
+      } );
+    } catch ( ExecutionException | UncheckedExecutionException e ) {
+      if ( e.getCause() instanceof RuntimeException ) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException( e.getCause() );
+    }
+    if ( shared.domain == null ) {
+      sharedDomains.asMap().remove( id, shared );
+    }
+    return shared.domain;
+  }
+
   /**
    * Remove all cache entries whose domain's id is equal to {@code domainId}.
    *
    * @param domainId Domain id to remove from cache
    */
   private void purgeDomain( final String domainId ) {
-    forAllKeys( new CacheIteratorCallback() {
-      @Override
-      public Boolean call( ICacheManager cacheManager, CacheKey key ) {
-        if ( domainId == null ? key.domainId == null : domainId.equals( key.domainId ) ) {
+    purgeDomainViews( domainId );
+    removeDomainFromIDCache( domainId );
+  }
+
+  /**
+   * Remove the shared domain and the session views of the domain with id {@code domainId} from the cache, looking the
+   * session views up by domain id rather than scanning the cache region.
+   *
+   * @param domainId Domain id to remove from cache
+   */
+  private void purgeDomainViews( final String domainId ) {
+    if ( domainId != null ) {
+      sharedDomains.invalidate( domainId );
+      Set<CacheKey> keys = sessionDomainKeys.remove( domainId );
+      if ( keys != null ) {
+        for ( CacheKey key : keys ) {
+          if ( logger.isDebugEnabled() ) {
+            logger.debug( "Removing domain from cache: " + key ); //$NON-NLS-1$
+          }
           cacheManager.removeFromRegionCache( CACHE_REGION, key );
         }
-        return true; // continue
       }
-    } );
-    removeDomainFromIDCache( domainId );
+    }
   }
 
   @Override
   public void reloadDomains() {
     forAllKeys( REMOVE_ALL_CALLBACK );
+    sessionDomainKeys.clear();
+    sharedDomains.invalidateAll();
     clearDomainIdsFromCache();
     delegate.reloadDomains();
   }
@@ -324,12 +433,17 @@ public class SessionCachingMetadataDomainRepository implements IMetadataDomainRe
   @Override
   public void flushDomains() {
     forAllKeys( REMOVE_ALL_CALLBACK );
+    sessionDomainKeys.clear();
+    sharedDomains.invalidateAll();
     clearDomainIdsFromCache();
     delegate.flushDomains();
   }
 
   protected void flushDomains( final IPentahoSession session ) {
     forAllKeysInSession( session, REMOVE_ALL_CALLBACK );
+    for ( Set<CacheKey> keys : sessionDomainKeys.values() ) {
+      keys.removeIf( key -> session.getId() == null ? key.sessionId == null : session.getId().equals( key.sessionId ) );
+    }
     clearDomainIdsFromCache( session );
   }
 
@@ -337,26 +451,9 @@ public class SessionCachingMetadataDomainRepository implements IMetadataDomainRe
    * Remove domain ID cache for all sessions
    */
   protected void clearDomainIdsFromCache() {
-    try {
-      Set<?> cachedObjects = cacheManager.getAllKeysFromRegionCache( CACHE_REGION );
-      if ( cachedObjects != null ) {
-        for ( Object k : cachedObjects ) {
-          if ( k instanceof String ) {
-            String key = (String) k;
-            if ( key != null && key.startsWith( DOMAIN_CACHE_KEY_PREDICATE ) ) {
-              cacheManager.removeFromRegionCache( CACHE_REGION, key );
-            }
-          }
-        }
-      }
-    } catch ( Throwable e ) {
-      // due to a known issue in hibernate cache
-      // the getAll* methods of ICacheManager throw a NullPointerException if
-      // cache values are null (this can happen due to cache object timeouts)
-      // please see: http://opensource.atlassian.com/projects/hibernate/browse/HHH-3248
-      if ( logger.isDebugEnabled() ) {
-        logger.debug( "", e ); //$NON-NLS-1$
-      }
+    for ( String key : domainIdsKeys ) {
+      domainIdsKeys.remove( key );
+      cacheManager.removeFromRegionCache( CACHE_REGION, key );
     }
   }
 
@@ -367,6 +464,7 @@ public class SessionCachingMetadataDomainRepository implements IMetadataDomainRe
    */
   protected void clearDomainIdsFromCache( IPentahoSession session ) {
     final String key = generateDomainIdCacheKeyForSession( session );
+    domainIdsKeys.remove( key );
     if ( cacheManager.getFromRegionCache( CACHE_REGION, key ) != null ) {
       cacheManager.removeFromRegionCache( CACHE_REGION, key );
     }
@@ -397,27 +495,13 @@ public class SessionCachingMetadataDomainRepository implements IMetadataDomainRe
    * @param domainId
    */
   private void removeDomainFromIDCache( String domainId ) {
-    try {
-      Set<?> cachedObjects = cacheManager.getAllKeysFromRegionCache( CACHE_REGION );
-      if ( cachedObjects != null ) {
-        for ( Object k : cachedObjects ) {
-          if ( k instanceof String ) {
-            String key = (String) k;
-            if ( key != null && key.startsWith( DOMAIN_CACHE_KEY_PREDICATE ) ) {
-              Set<String> domainIds = (Set<String>) cacheManager.getFromRegionCache( CACHE_REGION, key );
-              domainIds.remove( domainId );
-              cacheManager.putInRegionCache( CACHE_REGION, key, domainIds );
-            }
-          }
-        }
-      }
-    } catch ( Throwable e ) {
-      // due to a known issue in hibernate cache
-      // the getAll* methods of ICacheManager throw a NullPointerException if
-      // cache values are null (this can happen due to cache object timeouts)
-      // please see: http://opensource.atlassian.com/projects/hibernate/browse/HHH-3248
-      if ( logger.isDebugEnabled() ) {
-        logger.debug( "", e ); //$NON-NLS-1$
+    for ( String key : domainIdsKeys ) {
+      Set<String> domainIds = (Set<String>) cacheManager.getFromRegionCache( CACHE_REGION, key );
+      if ( domainIds == null ) {
+        // expired from the cache region
+        domainIdsKeys.remove( key );
+      } else if ( domainIds.remove( domainId ) ) {
+        cacheManager.putInRegionCache( CACHE_REGION, key, domainIds );
       }
     }
   }
@@ -537,6 +621,7 @@ public class SessionCachingMetadataDomainRepository implements IMetadataDomainRe
     if ( domainIdsCacheEnabled ) {
       domainIds = (Set<String>) cacheManager.getFromRegionCache( CACHE_REGION, domainKey );
       if ( domainIds != null ) {
+        domainIdsKeys.add( domainKey );
         boolean dirtyCache = removeDomainFromIDCache( domainIds );
         if ( dirtyCache ) {
           cacheManager.putInRegionCache( CACHE_REGION, domainKey, new HashSet<>( domainIds ) );
@@ -552,6 +637,7 @@ public class SessionCachingMetadataDomainRepository implements IMetadataDomainRe
     domainIds = delegateGetDomainIds.get();
     if ( domainIdsCacheEnabled ) {
       cacheManager.putInRegionCache( CACHE_REGION, domainKey, new HashSet<>( domainIds ) );
+      domainIdsKeys.add( domainKey );
     }
     return domainIds;
   }
@@ -585,6 +671,8 @@ public class SessionCachingMetadataDomainRepository implements IMetadataDomainRe
     throws DomainIdNullException, DomainAlreadyExistsException, DomainStorageException {
     if ( delegate instanceof IAclAwarePentahoMetadataDomainRepositoryImporter ) {
       ( (IAclAwarePentahoMetadataDomainRepositoryImporter) delegate ).storeDomain( inputStream, domainId, overwrite, acl );
+      purgeDomain( domainId );
+      clearDomainIdsFromCache();
     }
   }
 
@@ -615,6 +703,8 @@ public class SessionCachingMetadataDomainRepository implements IMetadataDomainRe
     DomainAlreadyExistsException, DomainStorageException {
     if ( delegate instanceof IPentahoMetadataDomainRepositoryImporter ) {
       ( (IAclAwarePentahoMetadataDomainRepositoryImporter) delegate ).storeDomain( inputStream, domainId, overwrite );
+      purgeDomain( domainId );
+      clearDomainIdsFromCache();
     }
   }
 
@@ -624,6 +714,7 @@ public class SessionCachingMetadataDomainRepository implements IMetadataDomainRe
     if ( delegate instanceof IPentahoMetadataDomainRepositoryImporter ) {
       ( (IAclAwarePentahoMetadataDomainRepositoryImporter) delegate ).addLocalizationFile( domainId, locale,
           inputStream, overwrite );
+      purgeDomainViews( domainId );
     }
   }
 
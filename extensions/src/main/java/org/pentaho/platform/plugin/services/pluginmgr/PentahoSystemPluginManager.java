@@ -16,7 +16,10 @@ package org.pentaho.platform.plugin.services.pluginmgr;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Multimaps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
 import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.dom4j.Document;
 import org.dom4j.DocumentException;
 import org.dom4j.Element;
@@ -52,6 +55,7 @@ import org.pentaho.platform.config.PropertiesFileConfiguration;
 import org.pentaho.platform.engine.core.system.PentahoSessionHolder;
 import org.pentaho.platform.engine.core.system.PentahoSystem;
 import org.pentaho.platform.engine.core.system.objfac.spring.PentahoBeanScopeValidatorPostProcessor;
+import org.pentaho.platform.engine.core.system.objfac.AggregateObjectFactory;
 import org.pentaho.platform.engine.core.system.objfac.StandaloneSpringPentahoObjectFactory;
 import org.pentaho.platform.engine.core.system.objfac.references.PrototypePentahoObjectReference;
 import org.pentaho.platform.engine.core.system.objfac.references.SingletonPentahoObjectReference;
@@ -86,6 +90,14 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * An IPluginManager implementation based on registering objects to the PentahoSystem and querying for them there. This
@@ -107,7 +119,8 @@ public class PentahoSystemPluginManager implements IPluginManager {
       .<String, IPentahoObjectRegistration>create() );
   private ISystemConfig systemConfig = PentahoSystem.get( ISystemConfig.class );
   private Logger logger = LoggerFactory.getLogger( getClass() );
-  private Set<IPluginManagerListener> listeners = new HashSet<IPluginManagerListener>();
+  private Set<IPluginManagerListener> listeners = new CopyOnWriteArraySet<IPluginManagerListener>();
+  private volatile RoutingIndex routingIndex;
 
   private static void createAndRegisterLifecycleListeners( IPlatformPlugin plugin, ClassLoader loader )
     throws PlatformPluginRegistrationException {
@@ -226,6 +239,7 @@ public class PentahoSystemPluginManager implements IPluginManager {
       entry.getValue().remove();
     }
     handleRegistry.clear();
+    routingIndex = null;
 
   }
 
@@ -252,16 +266,26 @@ public class PentahoSystemPluginManager implements IPluginManager {
       anyErrors = true;
     }
 
-    for ( IPlatformPlugin plugin : providedPlugins ) {
+    // the class loaders and bean definitions of the plugins do not depend on each other, so they are prepared in
+    // parallel. The application context of a plugin may look up the objects of the plugins registered before it
+    // though, so contexts are refreshed and everything is registered in the order the plugins were provided
+    final List<Future<PreparedPlugin>> preparedPlugins = preparePlugins( providedPlugins );
+    final long[][] timings = new long[ providedPlugins.size() ][];
+
+    for ( int i = 0; i < providedPlugins.size(); i++ ) {
+      IPlatformPlugin plugin = providedPlugins.get( i );
       try {
+        PreparedPlugin prepared = getPreparedPlugin( preparedPlugins.get( i ) );
+        long start = System.nanoTime();
         IPlatformPlugin existingPlugin =
           PentahoSystem.get( IPlatformPlugin.class, null, Collections.singletonMap( PLUGIN_ID, plugin.getId() ) );
         if ( existingPlugin != null ) {
+          prepared.close();
           throw new PlatformPluginRegistrationException( Messages.getInstance().getErrorString(
             "PluginManager.ERROR_0024_PLUGIN_ALREADY_LOADED_BY_SAME_NAME", plugin.getId() ) );
         }
 
-        final ClassLoader classloader = createClassloader( plugin );
+        final ClassLoader classloader = prepared.classloader;
 
         // Register the classloader, Spring App Context and Object Factory with PentahoSystem
         IPentahoObjectRegistration handle = PentahoSystem.registerReference(
@@ -279,7 +303,7 @@ public class PentahoSystemPluginManager implements IPluginManager {
           );
         registerReference( plugin.getId(), handle );
 
-        final GenericApplicationContext beanFactory = createBeanFactory( plugin, classloader );
+        final GenericApplicationContext beanFactory = prepared.getBeanFactory();
 
         final StandaloneSpringPentahoObjectFactory pentahoFactory =
           new StandaloneSpringPentahoObjectFactory( "Plugin Factory ( " + plugin.getId() + " )" );
@@ -304,8 +328,7 @@ public class PentahoSystemPluginManager implements IPluginManager {
             IPentahoObjectFactory.class
           );
         registerReference( plugin.getId(), handle );
-
-
+        timings[ i ] = new long[] { prepared.nanos, System.nanoTime() - start, 0 };
       } catch ( Throwable t ) {
         // this has been logged already
         anyErrors = true;
@@ -318,7 +341,9 @@ public class PentahoSystemPluginManager implements IPluginManager {
     }
 
 
-    for ( IPlatformPlugin plugin : providedPlugins ) {
+    for ( int i = 0; i < providedPlugins.size(); i++ ) {
+      IPlatformPlugin plugin = providedPlugins.get( i );
+      long start = System.nanoTime();
       try {
         registerPlugin( plugin );
       } catch ( Throwable t ) {
@@ -330,9 +355,16 @@ public class PentahoSystemPluginManager implements IPluginManager {
         org.pentaho.platform.util.logging.Logger.error( getClass().toString(), msg, t );
         PluginMessageLogger.add( msg );
       }
-
+      if ( timings[ i ] != null ) {
+        timings[ i ][ 2 ] = System.nanoTime() - start;
+        logger.info( Messages.getInstance().getString( "PluginManager.PLUGIN_LOAD_TIME", plugin.getId(),
+          toMillis( timings[ i ][ 0 ] + timings[ i ][ 1 ] + timings[ i ][ 2 ] ), toMillis( timings[ i ][ 0 ] ),
+          toMillis( timings[ i ][ 1 ] ), toMillis( timings[ i ][ 2 ] ) ) );
+      }
     }
 
+    routingIndex = buildRoutingIndex();
+
     IServiceManager svcManager = PentahoSystem.get( IServiceManager.class, null );
     if ( svcManager != null ) {
       try {
@@ -352,6 +384,106 @@ public class PentahoSystemPluginManager implements IPluginManager {
     return !anyErrors;
   }
 
+  /**
+   * Creates the class loaders and bean factories of the plugins on a pool of threads, as many as there are
+   * processors unless set by the system setting pluginLoadThreads.
+   */
+  private List<Future<PreparedPlugin>> preparePlugins( List<IPlatformPlugin> plugins ) {
+    List<Future<PreparedPlugin>> prepared = new ArrayList<Future<PreparedPlugin>>( plugins.size() );
+    int threads = Runtime.getRuntime().availableProcessors();
+    if ( systemConfig != null ) {
+      threads = NumberUtils.toInt( systemConfig.getProperty( "system.pluginLoadThreads" ), threads );
+    }
+    threads = Math.min( threads, plugins.size() );
+    if ( threads <= 1 ) {
+      for ( IPlatformPlugin plugin : plugins ) {
+        FutureTask<PreparedPlugin> task = new FutureTask<PreparedPlugin>( preparePlugin( plugin ) );
+        task.run();
+        prepared.add( task );
+      }
+      return prepared;
+    }
+    final ThreadPoolExecutor executor = new ThreadPoolExecutor( threads, threads, 60, TimeUnit.SECONDS,
+      new LinkedBlockingQueue<Runnable>(),
+      new ThreadFactoryBuilder().setNameFormat( "plugin-loader-%d" ).setDaemon( true ).build() );
+    try {
+      for ( IPlatformPlugin plugin : plugins ) {
+        prepared.add( executor.submit( preparePlugin( plugin ) ) );
+      }
+    } finally {
+      // the submitted plugins are still prepared
+      executor.shutdown();
+    }
+    return prepared;
+  }
+
+  private Callable<PreparedPlugin> preparePlugin( final IPlatformPlugin plugin ) {
+    return new Callable<PreparedPlugin>() {
+      @Override
+      public PreparedPlugin call() throws Exception {
+        long start = System.nanoTime();
+        PreparedPlugin prepared = new PreparedPlugin( createClassloader( plugin ) );
+        try {
+          prepared.beanFactory = createBeanFactory( plugin, prepared.classloader );
+        } catch ( Throwable t ) {
+          // reported once the class loader is registered, as it was before plugins were prepared in parallel
+          prepared.failure = t;
+        }
+        prepared.nanos = System.nanoTime() - start;
+        return prepared;
+      }
+    };
+  }
+
+  private static PreparedPlugin getPreparedPlugin( Future<PreparedPlugin> future ) throws Throwable {
+    try {
+      return Uninterruptibles.getUninterruptibly( future );
+    } catch ( ExecutionException e ) {
+      throw e.getCause();
+    }
+  }
+
+  private static long toMillis( long nanos ) {
+    return TimeUnit.NANOSECONDS.toMillis( nanos );
+  }
+
+  /**
+   * The class loader and bean factory of a plugin, created ahead of its registration
+   */
+  private static class PreparedPlugin {
+
+    private final ClassLoader classloader;
+
+    private GenericApplicationContext beanFactory;
+
+    private Throwable failure;
+
+    private long nanos;
+
+    PreparedPlugin( ClassLoader classloader ) {
+      this.classloader = classloader;
+    }
+
+    GenericApplicationContext getBeanFactory() throws PlatformPluginRegistrationException {
+      if ( failure instanceof PlatformPluginRegistrationException ) {
+        throw (PlatformPluginRegistrationException) failure;
+      } else if ( failure instanceof RuntimeException ) {
+        throw (RuntimeException) failure;
+      } else if ( failure instanceof Error ) {
+        throw (Error) failure;
+      } else if ( failure != null ) {
+        throw new PlatformPluginRegistrationException( failure.getMessage(), failure );
+      }
+      return beanFactory;
+    }
+
+    void close() throws IOException {
+      if ( classloader instanceof PluginClassLoader ) {
+        ( (PluginClassLoader) classloader ).close();
+      }
+    }
+  }
+
   @SuppressWarnings( "unchecked" )
   private void registerPlugin( final IPlatformPlugin plugin ) throws PlatformPluginRegistrationException,
     PluginLifecycleException {
@@ -1026,31 +1158,52 @@ public class PentahoSystemPluginManager implements IPluginManager {
 
   @Deprecated
   public String getServicePlugin( String path ) {
-    for ( IPlatformPlugin plugin : PentahoSystem.getAll( IPlatformPlugin.class ) ) {
-      String pluginId = getStaticResourcePluginId( plugin, path );
-      if ( pluginId != null ) {
-        return pluginId;
-      }
+    PluginRoutingIndex.Route route = getRoutingIndex().getService( path );
+    return ( route != null ) ? route.getPluginId() : null;
+  }
 
-      for ( IContentGeneratorInfo contentGenerator : plugin.getContentGenerators() ) {
-        String cgId = contentGenerator.getId();
-        if ( isRequested( cgId, path ) ) {
-          return plugin.getId();
-        }
-      }
+  /**
+   * Returns the index routing request paths to plugins. It is built again from the registered plugins if they were not
+   * loaded through {@link #reload()}, or if the registered objects changed since, e.g. when a plugin is registered
+   * through OSGI.
+   */
+  private PluginRoutingIndex getRoutingIndex() {
+    RoutingIndex index = routingIndex;
+    if ( index == null || index.generation != getObjectFactoryGeneration() ) {
+      index = buildRoutingIndex();
+      routingIndex = index;
     }
+    return index.index;
+  }
 
-    return null;
+  private static RoutingIndex buildRoutingIndex() {
+    // read first, so that plugins registered while the index is built cause it to be built again
+    long generation = getObjectFactoryGeneration();
+    return new RoutingIndex( generation, new PluginRoutingIndex( PentahoSystem.getAll( IPlatformPlugin.class ) ) );
   }
 
-  private String getStaticResourcePluginId( IPlatformPlugin plugin, String path ) {
-    Map<String, String> resourceMap = plugin.getStaticResourceMap();
-    for ( String url : resourceMap.keySet() ) {
-      if ( isRequested( url, path ) ) {
-        return plugin.getId();
-      }
+  /**
+   * @return the generation of the registered objects, see {@link AggregateObjectFactory#getResolutionCacheGeneration()}
+   */
+  private static long getObjectFactoryGeneration() {
+    IPentahoObjectFactory objectFactory = PentahoSystem.getObjectFactory();
+    return ( objectFactory instanceof AggregateObjectFactory )
+      ? ( (AggregateObjectFactory) objectFactory ).getResolutionCacheGeneration() : -1;
+  }
+
+  /**
+   * The routing index and the generation of the registered objects it was built from
+   */
+  private static final class RoutingIndex {
+
+    private final long generation;
+
+    private final PluginRoutingIndex index;
+
+    private RoutingIndex( long generation, PluginRoutingIndex index ) {
+      this.generation = generation;
+      this.index = index;
     }
-    return null;
   }
 
   @Override
@@ -1065,50 +1218,25 @@ public class PentahoSystemPluginManager implements IPluginManager {
 
   @Override
   public boolean isStaticResource( String path ) {
-
-    for ( IPlatformPlugin plugin : PentahoSystem.getAll( IPlatformPlugin.class ) ) {
-      String pluginId = getStaticResourcePluginId( plugin, path );
-      if ( pluginId != null ) {
-        return true;
-      }
-    }
-    return false;
+    return getRoutingIndex().getStaticResource( path ) != null;
   }
 
   @Override
   public boolean isPublic( String pluginId, String path ) {
-    IPlatformPlugin plugin = PentahoSystem.get( IPlatformPlugin.class, PentahoSessionHolder.getSession(),
-      Collections.singletonMap( PLUGIN_ID, pluginId ) );
-    if ( plugin == null ) {
-      return false;
-    }
-    Map<String, String> resourceMap = plugin.getStaticResourceMap();
-    if ( path.startsWith( "/" ) ) { //$NON-NLS-1$
-      path = path.substring( 1 );
-    }
-    for ( String pluginRelativeDir : resourceMap.values() ) {
-      if ( path.startsWith( pluginRelativeDir ) ) {
-        return true;
-      }
-    }
-    return false;
+    return getRoutingIndex().isPublic( pluginId, path );
   }
 
   @Override
   public InputStream getStaticResource( String path ) {
-    for ( IPlatformPlugin plugin : PentahoSystem.getAll( IPlatformPlugin.class ) ) {
-      Map<String, String> resourceMap = plugin.getStaticResourceMap();
-      for ( String url : resourceMap.keySet() ) {
-        if ( isRequested( url, path ) ) {
-          IPluginResourceLoader resLoader = PentahoSystem.get( IPluginResourceLoader.class, null );
-          ClassLoader classLoader =
-            PentahoSystem.get( ClassLoader.class, null, Collections.singletonMap( PLUGIN_ID, plugin.getId() ) );
-          String resourcePath = path.replace( url, resourceMap.get( url ) );
-          return resLoader.getResourceAsStream( classLoader, resourcePath );
-        }
-      }
+    PluginRoutingIndex.Route route = getRoutingIndex().getStaticResource( path );
+    if ( route == null ) {
+      return null;
     }
-    return null;
+    IPluginResourceLoader resLoader = PentahoSystem.get( IPluginResourceLoader.class, null );
+    ClassLoader classLoader =
+      PentahoSystem.get( ClassLoader.class, null, Collections.singletonMap( PLUGIN_ID, route.getPluginId() ) );
+    String resourcePath = path.replace( route.getUrl(), route.getResourceDir() );
+    return resLoader.getResourceAsStream( classLoader, resourcePath );
   }
 
   @Override
@@ -34,12 +34,19 @@ import java.util.List;
  * Note: {@link PluginClassLoader} will search for jar files in a 'lib' subdirectory under the pluginDir provided in the
  * constructor. Class and other resources will be visible to this classloader in either the root directory of the plugin
  * or in the lib folder.
+ * <p>
+ * The class loader is parallel capable: classes of different names are loaded concurrently, each under a lock of its
+ * own, so plugins can be loaded on several threads.
  * 
  * @author aphillips
  */
 public class PluginClassLoader extends URLClassLoader {
   private static Log log = LogFactory.getLog( PluginClassLoader.class );
 
+  static {
+    ClassLoader.registerAsParallelCapable();
+  }
+
   private File pluginDir;
 
   private boolean overrideLoad = false;
@@ -139,7 +146,7 @@ public class PluginClassLoader extends URLClassLoader {
 
   @Override
   public Class<?> loadClass( String name, boolean resolve ) throws ClassNotFoundException {
-    synchronized ( this ) {
+    synchronized ( getClassLoadingLock( name ) ) {
       if ( log.isDebugEnabled() ) {
         log.debug( "loadClass(" + name + ")... " ); //$NON-NLS-1$ //$NON-NLS-2$
       }
@@ -0,0 +1,217 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.plugin.services.pluginmgr;
+
+import org.pentaho.platform.api.engine.IContentGeneratorInfo;
+import org.pentaho.platform.api.engine.IPlatformPlugin;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Routes request paths to the plugins serving them, in time proportional to the length of the path.
+ * <p/>
+ * The static resource urls and content generator ids of the plugins are kept in a trie of path elements, so a request
+ * path is matched by walking its elements once instead of comparing it with every url of every plugin. A path is
+ * routed the way {@link PentahoSystemPluginManager} always did: to the first plugin, in the order given, having a url
+ * whose elements the path starts with, static resources being looked at before content generators. The index is
+ * immutable; it is built again when plugins are reloaded or the registered objects change.
+ */
+public class PluginRoutingIndex {
+
+  /**
+   * What a request path is routed to
+   */
+  public static class Route {
+
+    private final int order;
+
+    private final String pluginId;
+
+    private final String url;
+
+    private final String resourceDir;
+
+    private final String contentGeneratorId;
+
+    Route( int order, String pluginId, String url, String resourceDir, String contentGeneratorId ) {
+      this.order = order;
+      this.pluginId = pluginId;
+      this.url = url;
+      this.resourceDir = resourceDir;
+      this.contentGeneratorId = contentGeneratorId;
+    }
+
+    public String getPluginId() {
+      return pluginId;
+    }
+
+    /**
+     * @return the static resource url or content generator id the path starts with
+     */
+    public String getUrl() {
+      return url;
+    }
+
+    /**
+     * @return the plugin folder the static resource url maps to, or <code>null</code> for a content generator
+     */
+    public String getResourceDir() {
+      return resourceDir;
+    }
+
+    /**
+     * @return the id of the content generator, or <code>null</code> for a static resource
+     */
+    public String getContentGeneratorId() {
+      return contentGeneratorId;
+    }
+  }
+
+  private static class PathNode {
+
+    private final Map<String, PathNode> children = new HashMap<String, PathNode>();
+
+    private Route route;
+  }
+
+  private static class CharNode {
+
+    private final Map<Character, CharNode> children = new HashMap<Character, CharNode>();
+
+    private boolean terminal;
+  }
+
+  private final PathNode staticResources = new PathNode();
+
+  private final PathNode services = new PathNode();
+
+  private final Map<String, CharNode> publicDirs = new HashMap<String, CharNode>();
+
+  /**
+   * @param plugins
+   *          the plugins, in the order they are to be looked at
+   */
+  public PluginRoutingIndex( List<IPlatformPlugin> plugins ) {
+    int order = 0;
+    for ( IPlatformPlugin plugin : plugins ) {
+      CharNode dirs = publicDirs.get( plugin.getId() );
+      if ( dirs == null ) {
+        dirs = new CharNode();
+        publicDirs.put( plugin.getId(), dirs );
+      }
+      for ( Map.Entry<String, String> entry : plugin.getStaticResourceMap().entrySet() ) {
+        Route route = new Route( order++, plugin.getId(), entry.getKey(), entry.getValue(), null );
+        add( staticResources, route );
+        add( services, route );
+        addDir( dirs, entry.getValue() );
+      }
+      List<IContentGeneratorInfo> contentGenerators = plugin.getContentGenerators();
+      if ( contentGenerators != null ) {
+        for ( IContentGeneratorInfo contentGenerator : contentGenerators ) {
+          String id = contentGenerator.getId();
+          if ( id != null ) {
+            add( services, new Route( order++, plugin.getId(), id, null, id ) );
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * @return the static resource the path asks for, or <code>null</code> if no plugin serves it
+   */
+  public Route getStaticResource( String path ) {
+    return find( staticResources, path );
+  }
+
+  /**
+   * @return the static resource or content generator the path asks for, or <code>null</code> if no plugin serves it
+   */
+  public Route getService( String path ) {
+    return find( services, path );
+  }
+
+  /**
+   * @return <code>true</code> if the path, relative to the plugin, is in one of the plugin's static resource folders
+   */
+  public boolean isPublic( String pluginId, String path ) {
+    CharNode node = publicDirs.get( pluginId );
+    if ( node == null ) {
+      return false;
+    }
+    int start = path.startsWith( "/" ) ? 1 : 0; //$NON-NLS-1$
+    for ( int i = start; !node.terminal; i++ ) {
+      if ( i == path.length() ) {
+        return false;
+      }
+      node = node.children.get( path.charAt( i ) );
+      if ( node == null ) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static String[] elements( String path ) {
+    return ( path.startsWith( "/" ) ? path.substring( 1 ) : path ).split( "/" ); //$NON-NLS-1$ //$NON-NLS-2$
+  }
+
+  private static void add( PathNode root, Route route ) {
+    PathNode node = root;
+    for ( String element : elements( route.url ) ) {
+      PathNode child = node.children.get( element );
+      if ( child == null ) {
+        child = new PathNode();
+        node.children.put( element, child );
+      }
+      node = child;
+    }
+    if ( node.route == null || node.route.order > route.order ) {
+      node.route = route;
+    }
+  }
+
+  private static void addDir( CharNode root, String dir ) {
+    CharNode node = root;
+    for ( int i = 0; i < dir.length(); i++ ) {
+      CharNode child = node.children.get( dir.charAt( i ) );
+      if ( child == null ) {
+        child = new CharNode();
+        node.children.put( dir.charAt( i ), child );
+      }
+      node = child;
+    }
+    node.terminal = true;
+  }
+
+  /**
+   * Walks the elements of the path, keeping the first route, in plugin order, of every url the path starts with.
+   */
+  private static Route find( PathNode root, String path ) {
+    Route found = root.route;
+    PathNode node = root;
+    for ( String element : elements( path ) ) {
+      node = node.children.get( element );
+      if ( node == null ) {
+        break;
+      }
+      if ( node.route != null && ( found == null || node.route.order < found.order ) ) {
+        found = node.route;
+      }
+    }
+    return found;
+  }
+}
@@ -1567,6 +1567,8 @@ public class FileResource extends AbstractJaxRSResource {
    * </p>
    *
    * @param pathId Colon separated path for the destination for files to be copied.
+   * @param offset The number of executed contents to skip, 0 by default.
+   * @param limit  The maximum number of executed contents to return, all of them by default.
    *
    * @return A list of RepositoryDto objects containing the executed contents for a selected content from the repository.
    *
@@ -1622,10 +1624,12 @@ public class FileResource extends AbstractJaxRSResource {
   @StatusCodes ( {
     @ResponseCode ( code = 200, condition = "Successfully retrieved the list of RepositoryFileDto objects." ),
     @ResponseCode ( code = 200, condition = "Empty list of RepositoryFileDto objects." ) } )
-  public List<RepositoryFileDto> doGetGeneratedContent( @PathParam ( "pathId" ) String pathId ) {
+  public List<RepositoryFileDto> doGetGeneratedContent( @PathParam ( "pathId" ) String pathId,
+                                                        @DefaultValue ( "0" ) @QueryParam ( "offset" ) int offset,
+                                                        @DefaultValue ( "-1" ) @QueryParam ( "limit" ) int limit ) {
     List<RepositoryFileDto> repositoryFileDtoList = new ArrayList<RepositoryFileDto>();
     try {
-      repositoryFileDtoList = fileService.doGetGeneratedContent( pathId );
+      repositoryFileDtoList = fileService.doGetGeneratedContent( pathId, offset, limit );
     } catch ( FileNotFoundException e ) {
       //return the empty list
     } catch ( Throwable t ) {
@@ -1634,6 +1638,17 @@ public class FileResource extends AbstractJaxRSResource {
     return repositoryFileDtoList;
   }
 
+  /**
+   * Retrieve the list of all executed contents for a selected content from the repository.
+   *
+   * @param pathId Colon separated path for the destination for files to be copied.
+   *
+   * @return A list of RepositoryDto objects containing the executed contents for a selected content from the repository.
+   */
+  public List<RepositoryFileDto> doGetGeneratedContent( String pathId ) {
+    return doGetGeneratedContent( pathId, 0, -1 );
+  }
+
   /**
    * Retrieve the executed contents for a selected repository file and a given user.
    *
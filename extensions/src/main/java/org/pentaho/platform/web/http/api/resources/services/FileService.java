@@ -60,6 +60,7 @@ import org.pentaho.platform.repository2.ClientRepositoryPaths;
 import org.pentaho.platform.repository2.locale.PentahoLocale;
 import org.pentaho.platform.repository2.unified.fileio.RepositoryFileInputStream;
 import org.pentaho.platform.repository2.unified.fileio.RepositoryFileOutputStream;
+import org.pentaho.platform.repository2.unified.jcr.GeneratedContentIndex;
 import org.pentaho.platform.repository2.unified.jcr.PentahoJcrConstants;
 import org.pentaho.platform.repository2.unified.webservices.DefaultUnifiedRepositoryWebService;
 import org.pentaho.platform.repository2.unified.webservices.PropertiesWrapper;
@@ -255,13 +256,19 @@ public class FileService {
   }
 
   public List<Setting> doGetCanAccessList( String pathId, String permissions ) {
+    List<Integer> perms = new ArrayList<Integer>();
     StringTokenizer tokenizer = new StringTokenizer( permissions, "|" );
-    ArrayList<Setting> permMap = new ArrayList<Setting>();
     while ( tokenizer.hasMoreTokens() ) {
-      Integer perm = Integer.valueOf( tokenizer.nextToken() );
-      EnumSet<RepositoryFilePermission> permission = EnumSet.of( RepositoryFilePermission.values()[perm] );
-      permMap.add( new Setting( perm.toString(), new Boolean( getRepository()
-        .hasAccess( idToPath( pathId ), permission ) ).toString() ) );
+      perms.add( Integer.valueOf( tokenizer.nextToken() ) );
+    }
+    String path = idToPath( pathId );
+    EnumSet<RepositoryFilePermission> granted =
+      getRepository().hasAccess( Collections.singletonList( path ), toPermissions( perms ) ).get( path );
+
+    ArrayList<Setting> permMap = new ArrayList<Setting>();
+    for ( Integer perm : perms ) {
+      boolean hasAccess = granted != null && granted.contains( RepositoryFilePermission.values()[perm] );
+      permMap.add( new Setting( perm.toString(), Boolean.toString( hasAccess ) ) );
     }
     return permMap;
   }
@@ -269,19 +276,28 @@ public class FileService {
   public List<Setting> doGetPathsAccessList( StringListWrapper pathsWrapper ) {
     List<Setting> pathsPermissonsSettings = new ArrayList<Setting>();
 
-    String permissions =
-      RepositoryFilePermission.READ.ordinal() + "|" + RepositoryFilePermission.WRITE.ordinal() + "|"
-        + RepositoryFilePermission.DELETE.ordinal() + "|" + RepositoryFilePermission.ACL_MANAGEMENT.ordinal() + "|"
-        + RepositoryFilePermission.ALL.ordinal();
+    EnumSet<RepositoryFilePermission> permissions =
+      EnumSet.of( RepositoryFilePermission.READ, RepositoryFilePermission.WRITE, RepositoryFilePermission.DELETE,
+        RepositoryFilePermission.ACL_MANAGEMENT, RepositoryFilePermission.ALL );
 
+    // all paths are checked in one call to the repository
     List<String> paths = pathsWrapper.getStrings();
+    List<String> repositoryPaths = new ArrayList<String>( paths.size() );
     for ( String path : paths ) {
-      List<Setting> permList = doGetCanAccessList( path, permissions );
-      for ( Setting perm : permList ) {
-        if ( Boolean.parseBoolean( perm.getValue() ) ) {
+      repositoryPaths.add( idToPath( path ) );
+    }
+    Map<String, EnumSet<RepositoryFilePermission>> access = getRepository().hasAccess( repositoryPaths, permissions );
+
+    for ( int i = 0; i < paths.size(); i++ ) {
+      EnumSet<RepositoryFilePermission> granted = access.get( repositoryPaths.get( i ) );
+      if ( granted == null ) {
+        continue;
+      }
+      for ( RepositoryFilePermission permission : permissions ) {
+        if ( granted.contains( permission ) ) {
           Setting setting = new Setting();
-          setting.setName( path );
-          setting.setValue( perm.getName() );
+          setting.setName( paths.get( i ) );
+          setting.setValue( String.valueOf( permission.ordinal() ) );
           pathsPermissonsSettings.add( setting );
         }
       }
@@ -289,6 +305,14 @@ public class FileService {
     return pathsPermissonsSettings;
   }
 
+  private EnumSet<RepositoryFilePermission> toPermissions( List<Integer> perms ) {
+    EnumSet<RepositoryFilePermission> permissions = EnumSet.noneOf( RepositoryFilePermission.class );
+    for ( Integer perm : perms ) {
+      permissions.add( RepositoryFilePermission.values()[perm] );
+    }
+    return permissions;
+  }
+
   /**
    * Creates a new file with the provided contents at a given path
    *
@@ -1494,8 +1518,22 @@ public class FileService {
    * @throws FileNotFoundException if the file is not found
    */
   public List<RepositoryFileDto> doGetGeneratedContent( String pathId ) throws FileNotFoundException {
+    return doGetGeneratedContent( pathId, 0, -1 );
+  }
+
+  /**
+   * Retrieve a page of the executed contents for a selected repository file
+   *
+   * @param pathId the path for the file
+   * @param offset the number of executed contents to skip
+   * @param limit  the maximum number of executed contents to return, negative for all
+   * @return list of <code> repositoryFileDto </code>
+   * @throws FileNotFoundException if the file is not found
+   */
+  public List<RepositoryFileDto> doGetGeneratedContent( String pathId, int offset, int limit )
+    throws FileNotFoundException {
     SessionResource sessionResource = getSessionResource();
-    return doGetGeneratedContentForUser( pathId, sessionResource.doGetCurrentUserDir() );
+    return doGetGeneratedContentForUser( pathId, sessionResource.doGetCurrentUserDir(), offset, limit );
   }
 
   /**
@@ -1508,7 +1546,7 @@ public class FileService {
    */
   public List<RepositoryFileDto> doGetGeneratedContent( String pathId, String user ) throws FileNotFoundException {
     SessionResource sessionResource = getSessionResource();
-    return doGetGeneratedContentForUser( pathId, sessionResource.doGetUserDir( user ) );
+    return doGetGeneratedContentForUser( pathId, sessionResource.doGetUserDir( user ), 0, -1 );
   }
 
   /**
@@ -1516,16 +1554,18 @@ public class FileService {
    *
    * @param pathId  the path for the file
    * @param userDir the user home directory
+   * @param offset  the number of executed contents to skip
+   * @param limit   the maximum number of executed contents to return, negative for all
    * @return list of <code> repositoryFileDto </code>
    * @throws FileNotFoundException
    * @private
    */
-  private List<RepositoryFileDto> doGetGeneratedContentForUser( String pathId, String userDir )
+  private List<RepositoryFileDto> doGetGeneratedContentForUser( String pathId, String userDir, int offset, int limit )
     throws FileNotFoundException {
     RepositoryFileDto targetFile = doGetProperties( pathId );
     if ( targetFile != null ) {
       String targetFileId = targetFile.getId();
-      return searchGeneratedContent( userDir, targetFileId, PentahoJcrConstants.PHO_CONTENTCREATOR );
+      return searchGeneratedContent( userDir, targetFileId, offset, limit );
     } else {
       logger.error( Messages.getInstance().getString( "FileResource.FILE_NOT_FOUND", pathId ) );
       throw new FileNotFoundException( pathId );
@@ -1543,6 +1583,10 @@ public class FileService {
   public List<RepositoryFileDto> searchGeneratedContent( String userDir, String targetComparator,
                                                          String metadataConstant )
     throws FileNotFoundException {
+    if ( PentahoJcrConstants.PHO_CONTENTCREATOR.equals( metadataConstant ) ) {
+      return searchGeneratedContent( userDir, targetComparator, 0, -1 );
+    }
+
     List<RepositoryFileDto> content = new ArrayList<RepositoryFileDto>();
 
     RepositoryFile workspaceFolder = getRepository().getFile( userDir );
@@ -1565,6 +1609,38 @@ public class FileService {
     return content;
   }
 
+  /**
+   * Looks up the content generated by a file in the {@link GeneratedContentIndex}, which avoids reading the metadata
+   * of every file in the user home directory.
+   *
+   * @param userDir   the user home directory
+   * @param creatorId the id of the file that generated the content
+   * @param offset    the number of executed contents to skip
+   * @param limit     the maximum number of executed contents to return, negative for all
+   * @return list of <code> repositoryFileDto </code>
+   * @throws FileNotFoundException
+   * @private
+   */
+  public List<RepositoryFileDto> searchGeneratedContent( String userDir, String creatorId, int offset, int limit )
+    throws FileNotFoundException {
+    RepositoryFile workspaceFolder = getRepository().getFile( userDir );
+    if ( workspaceFolder == null ) {
+      logger.error( Messages.getInstance().getString( "FileResource.WORKSPACE_FOLDER_NOT_FOUND", userDir ) );
+      throw new FileNotFoundException( userDir );
+    }
+
+    List<RepositoryFileDto> content = new ArrayList<RepositoryFileDto>();
+    for ( RepositoryFile file : getGeneratedContentIndex().getGeneratedFiles( getRepository(), workspaceFolder,
+      userDir, creatorId, offset, limit ) ) {
+      content.add( toFileDto( file, null, false ) );
+    }
+    return content;
+  }
+
+  protected GeneratedContentIndex getGeneratedContentIndex() {
+    return GeneratedContentIndex.getInstance();
+  }
+
   /**
    * Gets an instance of SessionResource
    *
@@ -1810,8 +1886,22 @@ public class FileService {
     return PentahoSystem.get( DefaultExportHandler.class );
   }
 
-  protected StreamingOutput getDownloadStream( RepositoryFile repositoryFile, BaseExportProcessor exportProcessor )
+  protected StreamingOutput getDownloadStream( final RepositoryFile repositoryFile,
+                                              final BaseExportProcessor exportProcessor )
     throws ExportException, IOException {
+    if ( exportProcessor instanceof ZipExportProcessor ) {
+      // write the archive straight to the response, no temp file and no wait for the whole export
+      return new StreamingOutput() {
+        @Override
+        public void write( OutputStream output ) throws IOException {
+          try {
+            ( (ZipExportProcessor) exportProcessor ).performExport( repositoryFile, output );
+          } catch ( ExportException e ) {
+            throw new IOException( e );
+          }
+        }
+      };
+    }
     File zipFile = exportProcessor.performExport( repositoryFile );
     final FileInputStream is = new FileInputStream( zipFile );
     // copy streaming output
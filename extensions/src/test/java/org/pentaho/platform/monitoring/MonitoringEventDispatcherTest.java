@@ -0,0 +1,141 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.monitoring;
+
+import com.google.common.eventbus.DeadEvent;
+import com.google.common.eventbus.Subscribe;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MonitoringEventDispatcherTest {
+
+  @Test
+  public void testEventsAreDeliveredInOrder() throws Exception {
+    MonitoringEventDispatcher dispatcher = new MonitoringEventDispatcher( 2, 1000, 0 );
+    RecordingSubscriber subscriber = new RecordingSubscriber( 100 );
+    dispatcher.register( subscriber );
+    for ( int i = 0; i < 100; i++ ) {
+      dispatcher.post( i );
+    }
+
+    assertTrue( subscriber.done.await( 10, TimeUnit.SECONDS ) );
+    List<Integer> expected = new ArrayList<>();
+    for ( int i = 0; i < 100; i++ ) {
+      expected.add( i );
+    }
+    assertEquals( expected, subscriber.events );
+    assertEquals( 100, dispatcher.getDispatchedCount() );
+    assertEquals( 0, dispatcher.getDroppedCount() );
+  }
+
+  @Test
+  public void testSlowSubscriberDoesNotStallOthers() throws Exception {
+    MonitoringEventDispatcher dispatcher = new MonitoringEventDispatcher( 2, 1000, 0 );
+    BlockingSubscriber slow = new BlockingSubscriber();
+    RecordingSubscriber fast = new RecordingSubscriber( 10 );
+    dispatcher.register( slow );
+    dispatcher.register( fast );
+    for ( int i = 0; i < 10; i++ ) {
+      dispatcher.post( i );
+    }
+
+    assertTrue( slow.handling.await( 10, TimeUnit.SECONDS ) );
+    assertTrue( fast.done.await( 10, TimeUnit.SECONDS ) );
+    assertEquals( 9, dispatcher.getQueueDepth( slow ) );
+    slow.release.countDown();
+  }
+
+  @Test
+  public void testEventsAreDroppedWhenQueueIsFull() throws Exception {
+    MonitoringEventDispatcher dispatcher = new MonitoringEventDispatcher( 1, 2, 0 );
+    BlockingSubscriber slow = new BlockingSubscriber();
+    dispatcher.register( slow );
+    dispatcher.post( 1 );
+    assertTrue( slow.handling.await( 10, TimeUnit.SECONDS ) );
+    for ( int i = 0; i < 5; i++ ) {
+      dispatcher.post( i );
+    }
+
+    assertEquals( 2, dispatcher.getQueueDepth() );
+    assertEquals( 3, dispatcher.getDroppedCount() );
+    slow.release.countDown();
+  }
+
+  @Test
+  public void testUnhandledEventsArePostedAsDeadEvents() throws Exception {
+    MonitoringEventDispatcher dispatcher = new MonitoringEventDispatcher( 1, 10, 0 );
+    DeadEventSubscriber subscriber = new DeadEventSubscriber();
+    dispatcher.register( subscriber );
+    dispatcher.post( "not handled" );
+
+    assertTrue( subscriber.done.await( 10, TimeUnit.SECONDS ) );
+    assertEquals( "not handled", subscriber.event.getEvent() );
+  }
+
+  @Test( expected = IllegalArgumentException.class )
+  public void testUnregisterUnknownSubscriber() {
+    new MonitoringEventDispatcher( 1, 10, 0 ).unregister( new RecordingSubscriber( 1 ) );
+  }
+
+  public static class RecordingSubscriber {
+
+    private final List<Integer> events = Collections.synchronizedList( new ArrayList<Integer>() );
+
+    private final CountDownLatch done;
+
+    RecordingSubscriber( int count ) {
+      done = new CountDownLatch( count );
+    }
+
+    @Subscribe
+    public void handle( Integer event ) {
+      events.add( event );
+      done.countDown();
+    }
+  }
+
+  public static class BlockingSubscriber {
+
+    private final CountDownLatch handling = new CountDownLatch( 1 );
+
+    private final CountDownLatch release = new CountDownLatch( 1 );
+
+    @Subscribe
+    public void handle( Integer event ) throws InterruptedException {
+      handling.countDown();
+      release.await( 10, TimeUnit.SECONDS );
+    }
+  }
+
+  public static class DeadEventSubscriber {
+
+    private final CountDownLatch done = new CountDownLatch( 1 );
+
+    private volatile DeadEvent event;
+
+    @Subscribe
+    public void handle( DeadEvent event ) {
+      this.event = event;
+      done.countDown();
+    }
+  }
+}
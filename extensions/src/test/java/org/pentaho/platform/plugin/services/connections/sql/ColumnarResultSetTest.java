@@ -0,0 +1,168 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.plugin.services.connections.sql;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.commons.connection.IPentahoMetaData;
+import org.pentaho.commons.connection.IPentahoResultSet;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ColumnarResultSetTest {
+
+  private IPentahoMetaData metaData;
+  private ResultSetMetaData columnTypes;
+
+  @Before
+  public void setUp() throws SQLException {
+    metaData = mock( IPentahoMetaData.class );
+    columnTypes = mock( ResultSetMetaData.class );
+    when( columnTypes.getColumnCount() ).thenReturn( 6 );
+    when( columnTypes.getColumnType( 1 ) ).thenReturn( Types.INTEGER );
+    when( columnTypes.getColumnType( 2 ) ).thenReturn( Types.BIGINT );
+    when( columnTypes.getColumnType( 3 ) ).thenReturn( Types.DOUBLE );
+    when( columnTypes.getColumnType( 4 ) ).thenReturn( Types.TIMESTAMP );
+    when( columnTypes.getColumnType( 5 ) ).thenReturn( Types.VARCHAR );
+    when( columnTypes.getColumnType( 6 ) ).thenReturn( Types.DECIMAL );
+  }
+
+  @Test
+  public void testValuesAreReturnedAsAdded() throws SQLException {
+    Timestamp timestamp = new Timestamp( 1000000L );
+    timestamp.setNanos( 123456789 );
+    Object[] row1 = new Object[] { 1, 2L, 3.5d, timestamp, "a", new BigDecimal( "1.5" ) };
+    Object[] row2 = new Object[] { null, null, null, null, null, null };
+    Object[] row3 = new Object[] { 7, 8L, 9.5d, timestamp, "a", BigDecimal.ONE };
+
+    ColumnarResultSet resultSet = new ColumnarResultSet( metaData, columnTypes );
+    resultSet.addRow( row1 );
+    resultSet.addRow( row2 );
+    resultSet.addRow( row3 );
+
+    assertSame( metaData, resultSet.getMetaData() );
+    assertEquals( 3, resultSet.getRowCount() );
+    assertEquals( 6, resultSet.getColumnCount() );
+    assertArrayEquals( row1, resultSet.getDataRow( 0 ) );
+    assertArrayEquals( row2, resultSet.getDataRow( 1 ) );
+    assertArrayEquals( row3, resultSet.getDataRow( 2 ) );
+    assertEquals( 123456789, ( (Timestamp) resultSet.getValueAt( 0, 3 ) ).getNanos() );
+    assertArrayEquals( new Object[] { "a", null, "a" }, resultSet.getDataColumn( 4 ) );
+  }
+
+  @Test
+  public void testColumnKeepsValuesOfUnexpectedClass() throws SQLException {
+    ColumnarResultSet resultSet = new ColumnarResultSet( metaData, columnTypes );
+    resultSet.addRow( new Object[] { 1, 2L, 3d, null, "a", null } );
+    resultSet.addRow( new Object[] { 2L, 3, 4f, null, 5, null } );
+
+    assertEquals( 1, resultSet.getValueAt( 0, 0 ) );
+    assertEquals( 2L, resultSet.getValueAt( 1, 0 ) );
+    assertEquals( 2L, resultSet.getValueAt( 0, 1 ) );
+    assertEquals( 3, resultSet.getValueAt( 1, 1 ) );
+    assertEquals( 4f, resultSet.getValueAt( 1, 2 ) );
+    assertEquals( "a", resultSet.getValueAt( 0, 4 ) );
+    assertEquals( 5, resultSet.getValueAt( 1, 4 ) );
+  }
+
+  @Test
+  public void testCursorAndMemoryCopy() throws SQLException {
+    ColumnarResultSet resultSet = new ColumnarResultSet( metaData, columnTypes );
+    resultSet.addRow( new Object[] { 1 } );
+    resultSet.addRow( new Object[] { 2 } );
+
+    assertEquals( 1, resultSet.peek()[ 0 ] );
+    assertEquals( 1, resultSet.next()[ 0 ] );
+    assertEquals( 2, resultSet.next()[ 0 ] );
+    assertNull( resultSet.next() );
+
+    IPentahoResultSet copy = resultSet.memoryCopy();
+    assertEquals( 1, copy.next()[ 0 ] );
+
+    resultSet.beforeFirst();
+    assertEquals( 1, resultSet.next()[ 0 ] );
+  }
+
+  @Test
+  public void testAddResultSetRows() throws SQLException {
+    ResultSet nativeResultSet = mock( ResultSet.class );
+    when( nativeResultSet.getObject( 1 ) ).thenReturn( 1, 2 );
+    when( nativeResultSet.getObject( 5 ) ).thenReturn( "x", "y" );
+
+    ColumnarResultSet resultSet = new ColumnarResultSet( metaData, columnTypes );
+    resultSet.addRow( nativeResultSet );
+    resultSet.addRow( nativeResultSet );
+    resultSet.complete();
+
+    assertEquals( 2, resultSet.getRowCount() );
+    assertArrayEquals( new Object[] { 1, 2 }, resultSet.getDataColumn( 0 ) );
+    assertArrayEquals( new Object[] { "x", "y" }, resultSet.getDataColumn( 4 ) );
+  }
+
+  @Test
+  public void testCompleteKeepsValues() throws SQLException {
+    ColumnarResultSet resultSet = new ColumnarResultSet( metaData, columnTypes );
+    for ( int i = 0; i < 100; i++ ) {
+      resultSet.addRow( new Object[] { i, null, null, null, i % 10 == 0 ? null : "value" + i % 3, null } );
+    }
+    long footprint = resultSet.getMemoryFootprint();
+    resultSet.complete();
+
+    assertTrue( resultSet.getMemoryFootprint() < footprint );
+    assertNull( resultSet.getValueAt( 0, 4 ) );
+    assertEquals( "value1", resultSet.getValueAt( 1, 4 ) );
+    assertEquals( "value2", resultSet.getValueAt( 99, 4 ) );
+  }
+
+  @Test
+  public void testCompleteWithDistinctStrings() throws SQLException {
+    ColumnarResultSet resultSet = new ColumnarResultSet( metaData, columnTypes );
+    for ( int i = 0; i < 100; i++ ) {
+      resultSet.addRow( new Object[] { i, null, null, null, "value" + i, null } );
+    }
+    long footprint = resultSet.getMemoryFootprint();
+    resultSet.complete();
+
+    // the strings are kept as they are, without codes and a dictionary
+    assertTrue( resultSet.getMemoryFootprint() < footprint );
+    assertEquals( "value0", resultSet.getValueAt( 0, 4 ) );
+    assertEquals( "value99", resultSet.getValueAt( 99, 4 ) );
+  }
+
+  @Test
+  public void testMemoryFootprintOfRepeatedStrings() throws SQLException {
+    ColumnarResultSet resultSet = new ColumnarResultSet( metaData, columnTypes );
+    for ( int i = 0; i < 10000; i++ ) {
+      resultSet.addRow( new Object[] { i, (long) i, null, null, i % 2 == 0 ? "even" : "odd", null } );
+    }
+
+    // less than a reference and a boxed value per cell
+    long footprint = resultSet.getMemoryFootprint();
+    assertTrue( String.valueOf( footprint ), footprint < 10000 * 6 * 24 );
+    assertEquals( "odd", resultSet.getValueAt( 9999, 4 ) );
+  }
+}
@@ -193,6 +193,21 @@ public class LocaleFilesProcessorTest {
     assertFalse( localeFilesProcessor.isXMLlocale( new ByteArrayInputStream( xml.getBytes() ) ) );
   }
 
+  @Test
+  public void isLocaleFileCandidateTest() {
+    localeFilesProcessor = new LocaleFilesProcessor();
+    assertTrue( localeFilesProcessor.isLocaleFileCandidate( bundle( "report.prpt.locale" ) ) );
+    assertTrue( localeFilesProcessor.isLocaleFileCandidate( bundle( "messages.properties" ) ) );
+    assertTrue( localeFilesProcessor.isLocaleFileCandidate( bundle( "index.xml" ) ) );
+    assertFalse( localeFilesProcessor.isLocaleFileCandidate( bundle( "report.prpt" ) ) );
+    assertFalse( localeFilesProcessor.isLocaleFileCandidate( bundle( "other.xml" ) ) );
+  }
+
+  private RepositoryFileBundle bundle( String fileName ) {
+    RepositoryFile file = new RepositoryFile.Builder( fileName ).build();
+    return new RepositoryFileBundle( file, null, StringUtils.EMPTY, null, DEFAULT_ENCODING, null );
+  }
+
   private boolean processIsLocalFile( String fileName, StringBuffer localeContent ) throws Exception {
     RepositoryFile file = new RepositoryFile.Builder( fileName ).build();
     RepositoryFileBundle repoFileBundle =
@@ -38,11 +38,16 @@ import org.pentaho.platform.security.userroledao.DefaultTenantedPrincipleNameRes
 import org.pentaho.test.platform.repository2.unified.MockUnifiedRepository;
 import org.pentaho.test.platform.repository2.unified.MockUnifiedRepository.ICurrentUserProvider;
 
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -379,6 +384,69 @@ public class RepositoryFileImportFileHandlerTest {
     assertEquals( name, title );
   }
 
+  @Test
+  public void testConcurrentImportsCreateEachFolderOnce() throws Exception {
+    setup( MIMENAME, MIME_EXTENSION, "", "", false );
+    final IUnifiedRepository repository = mockRepository;
+    final Map<String, Integer> createdFolders = new ConcurrentHashMap<>();
+    final CountDownLatch siblingsCreating = new CountDownLatch( 2 );
+    fileHandler.setRepository( mock( IUnifiedRepository.class, invocation -> {
+      if ( invocation.getMethod().getName().equals( "createFolder" ) ) {
+        String name = ( (RepositoryFile) invocation.getArgument( 1 ) ).getName();
+        createdFolders.merge( name, 1, Integer::sum );
+        if ( name.startsWith( "sibling" ) ) {
+          // neither thread goes on before the other one creates its folder as well
+          siblingsCreating.countDown();
+          if ( !siblingsCreating.await( 10, TimeUnit.SECONDS ) ) {
+            throw new IllegalStateException( "sibling folders are not created concurrently" );
+          }
+        }
+      }
+      try {
+        synchronized ( repository ) {
+          return invocation.getMethod().invoke( repository, invocation.getArguments() );
+        }
+      } catch ( InvocationTargetException e ) {
+        throw e.getCause();
+      }
+    } ) );
+
+    final List<Throwable> failures = Collections.synchronizedList( new ArrayList<Throwable>() );
+    List<Thread> threads = new ArrayList<>();
+    for ( int i = 0; i < 2; i++ ) {
+      final RepositoryFileImportBundle bundle = mock( RepositoryFileImportBundle.class );
+      when( bundle.getPath() ).thenReturn( "/public/shared/sibling" + i );
+      when( bundle.getName() ).thenReturn( TARGET_RESOURCE_NAME );
+      when( bundle.getMimeType() ).thenReturn( MIMENAME );
+      threads.add( new Thread( () -> {
+        // static mocks only apply to the thread that creates them
+        try ( MockedStatic<PentahoSystem> pentahoSystem = mockStatic( PentahoSystem.class ) ) {
+          pentahoSystem.when( () -> PentahoSystem.get( IUnifiedRepository.class ) )
+            .thenReturn( mock( IUnifiedRepository.class ) );
+          ImportSession.setSession( importSession );
+          fileHandler.importFile( bundle );
+        } catch ( Throwable t ) {
+          failures.add( t );
+        } finally {
+          ImportSession.setSession( null );
+        }
+      } ) );
+    }
+    for ( Thread thread : threads ) {
+      thread.start();
+    }
+    for ( Thread thread : threads ) {
+      thread.join();
+    }
+
+    assertTrue( failures.toString(), failures.isEmpty() );
+    assertEquals( Integer.valueOf( 1 ), createdFolders.get( "shared" ) );
+    assertEquals( Integer.valueOf( 1 ), createdFolders.get( "sibling0" ) );
+    assertEquals( Integer.valueOf( 1 ), createdFolders.get( "sibling1" ) );
+    assertNotNull( repository.getFile( "/public/shared/sibling0/" + TARGET_RESOURCE_NAME ) );
+    assertNotNull( repository.getFile( "/public/shared/sibling1/" + TARGET_RESOURCE_NAME ) );
+  }
+
   private void assertHasDefaultPermissions( RepositoryFileAcl acl ) {
     assertNotNull( acl );
     assertTrue( acl.isEntriesInheriting() );
@@ -31,8 +31,10 @@ import org.pentaho.platform.api.engine.security.userroledao.IUserRoleDao;
 import org.pentaho.platform.api.mimetype.IMimeType;
 import org.pentaho.platform.api.mimetype.IPlatformMimeResolver;
 import org.pentaho.platform.api.mt.ITenant;
+import org.pentaho.platform.api.repository2.unified.IPlatformImportBundle;
 import org.pentaho.platform.api.repository2.unified.IUnifiedRepository;
 import org.pentaho.platform.api.repository2.unified.RepositoryFile;
+import org.pentaho.platform.api.repository2.unified.RepositoryFileAcl;
 import org.pentaho.platform.api.scheduler2.ICronJobTrigger;
 import org.pentaho.platform.api.scheduler2.IJobScheduleParam;
 import org.pentaho.platform.api.scheduler2.IJobScheduleRequest;
@@ -53,6 +55,7 @@ import org.pentaho.platform.plugin.services.importexport.RepositoryFileBundle;
 import org.pentaho.platform.plugin.services.importexport.RoleExport;
 import org.pentaho.platform.plugin.services.importexport.UserExport;
 import org.pentaho.platform.plugin.services.importexport.exportManifest.ExportManifest;
+import org.pentaho.platform.plugin.services.importexport.exportManifest.ExportManifestEntity;
 import org.pentaho.platform.plugin.services.importexport.exportManifest.bindings.ExportManifestMetaStore;
 import org.pentaho.platform.security.policy.rolebased.IRoleAuthorizationPolicyRoleBindingDao;
 
@@ -63,7 +66,11 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
@@ -700,6 +707,135 @@ public class SolutionImportHandlerTest {
     Assert.assertTrue( importHandler.fileIsScheduleInputSource( manifest, "/public/test/file3" ) );
     Assert.assertTrue( importHandler.fileIsScheduleInputSource( manifest, "public/test/file3" ) );
   }
+
+  @Test
+  public void testParallelImportAppliesManifestOnImportThreads() throws Exception {
+    final ImportSession importSession = new ImportSession();
+    ExportManifest manifest = mock( ExportManifest.class );
+    importSession.setManifest( manifest );
+    importSession.setApplyAclSettings( true );
+    SolutionImportHandler handler = newParallelImportHandler( importSession );
+    List<SolutionImportHandler.PendingImport> pendingImports = newPendingImports( manifest );
+
+    final Thread callingThread = Thread.currentThread();
+    final Map<String, String> aclOwners = new ConcurrentHashMap<>();
+    final Map<String, String> manifestKeys = new ConcurrentHashMap<>();
+    final Set<Thread> importThreads = ConcurrentHashMap.newKeySet();
+    final List<String> filesBeforeFolders = new ArrayList<>();
+    IPlatformImporter importer = mock( IPlatformImporter.class );
+    doAnswer( invocation -> {
+      RepositoryFileImportBundle bundle = invocation.getArgument( 0 );
+      aclOwners.put( bundle.getName(), bundle.getAcl().getOwner().getName() );
+      if ( bundle.isFolder() ) {
+        if ( Thread.currentThread() != callingThread || !importThreads.isEmpty() ) {
+          filesBeforeFolders.add( bundle.getName() );
+        }
+      } else {
+        importThreads.add( Thread.currentThread() );
+        // the handler writing the file reads the manifest key to apply the manifest to the folders it creates
+        if ( ImportSession.getSession() == importSession ) {
+          manifestKeys.put( bundle.getName(), importSession.getCurrentManifestKey() );
+        }
+      }
+      return null;
+    } ).when( importer ).importFile( any( IPlatformImportBundle.class ) );
+
+    handler.importPendingFiles( importer, newImportBundle(), manifest, pendingImports );
+
+    Assert.assertTrue( filesBeforeFolders.isEmpty() );
+    Assert.assertFalse( importThreads.contains( callingThread ) );
+    Assert.assertEquals( 12, aclOwners.size() );
+    Assert.assertEquals( 9, manifestKeys.size() );
+    for ( int i = 0; i < 3; i++ ) {
+      Assert.assertEquals( "folder" + i, aclOwners.get( "/public/folder" + i ) );
+      for ( int j = 0; j < 3; j++ ) {
+        String name = "file" + i + j + ".txt";
+        Assert.assertEquals( "folder" + i + "/" + name, aclOwners.get( name ) );
+        Assert.assertEquals( "folder" + i + "/" + name, manifestKeys.get( name ) );
+      }
+    }
+  }
+
+  @Test
+  public void testParallelImportRethrowsFailureOfImportThread() throws Exception {
+    SolutionImportHandler handler = newParallelImportHandler( new ImportSession() );
+    List<SolutionImportHandler.PendingImport> pendingImports = newPendingImports( null );
+
+    final PlatformImportException failure = new PlatformImportException( "failed" );
+    IPlatformImporter importer = mock( IPlatformImporter.class );
+    doAnswer( invocation -> {
+      RepositoryFileImportBundle bundle = invocation.getArgument( 0 );
+      if ( "file11.txt".equals( bundle.getName() ) ) {
+        throw failure;
+      }
+      return null;
+    } ).when( importer ).importFile( any( IPlatformImportBundle.class ) );
+
+    try {
+      handler.importPendingFiles( importer, newImportBundle(), null, pendingImports );
+      Assert.fail();
+    } catch ( PlatformImportException e ) {
+      Assert.assertSame( failure, e );
+    }
+  }
+
+  private SolutionImportHandler newParallelImportHandler( ImportSession importSession ) {
+    SolutionImportHandler handler;
+    try ( MockedStatic<PentahoSystem> pentahoSystemMockedStatic = Mockito.mockStatic( PentahoSystem.class ) ) {
+      pentahoSystemMockedStatic.when( () -> PentahoSystem.get( IPlatformMimeResolver.class ) )
+        .thenReturn( mockMimeResolver );
+      pentahoSystemMockedStatic.when( () -> PentahoSystem.get( IUnifiedRepository.class ) ).thenReturn( repository );
+      handler = spy( new SolutionImportHandler( new ArrayList<>() ) );
+    }
+    handler.setImportThreads( 4 );
+    doReturn( importSession ).when( handler ).getImportSession();
+    doReturn( mock( Log.class ) ).when( handler ).getLogger();
+    return handler;
+  }
+
+  private RepositoryFileImportBundle newImportBundle() {
+    RepositoryFileImportBundle importBundle = new RepositoryFileImportBundle();
+    importBundle.setPath( "/public" );
+    return importBundle;
+  }
+
+  /**
+   * Three folders of three files each, in archive order.
+   */
+  private List<SolutionImportHandler.PendingImport> newPendingImports( ExportManifest manifest ) throws Exception {
+    List<SolutionImportHandler.PendingImport> pendingImports = new ArrayList<>();
+    for ( int i = 0; i < 3; i++ ) {
+      String folder = "folder" + i;
+      RepositoryFile folderFile = new RepositoryFile.Builder( folder ).folder( true ).build();
+      RepositoryFileImportBundle.Builder folderBuilder = new RepositoryFileImportBundle.Builder()
+        .mime( "text/directory" ).file( folderFile ).name( "/public/" + folder ).path( "/public" );
+      pendingImports.add( new SolutionImportHandler.PendingImport(
+        new RepositoryFileBundle( folderFile, null, "/", null, "UTF-8", null ), folderBuilder, folder, "/public",
+        null ) );
+      addManifestEntity( manifest, folder );
+      for ( int j = 0; j < 3; j++ ) {
+        String name = "file" + i + j + ".txt";
+        RepositoryFile file = new RepositoryFile.Builder( name ).build();
+        RepositoryFileImportBundle.Builder fileBuilder = new RepositoryFileImportBundle.Builder()
+          .mime( "text/plain" ).name( name ).path( "/public/" + folder );
+        pendingImports.add( new SolutionImportHandler.PendingImport(
+          new RepositoryFileBundle( file, null, folder + "/", null, "UTF-8", null ), fileBuilder, folder + "/" + name,
+          "/public/" + folder, new byte[ 0 ] ) );
+        addManifestEntity( manifest, folder + "/" + name );
+      }
+    }
+    return pendingImports;
+  }
+
+  // the owner of the manifest ACL of a file is its source path
+  private void addManifestEntity( ExportManifest manifest, String sourcePath ) throws Exception {
+    if ( manifest != null ) {
+      ExportManifestEntity entity = mock( ExportManifestEntity.class );
+      when( entity.getRepositoryFileAcl() ).thenReturn( new RepositoryFileAcl.Builder( sourcePath ).build() );
+      when( manifest.getExportManifestEntity( sourcePath ) ).thenReturn( entity );
+    }
+  }
+
   @After
   public void tearDown() throws Exception {
     ImportSession.getSession().getImportedScheduleJobIds().clear();
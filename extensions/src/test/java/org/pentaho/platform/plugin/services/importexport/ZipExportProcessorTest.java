@@ -24,10 +24,12 @@ import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -334,6 +336,30 @@ public class ZipExportProcessorTest {
     assertEquals( "entries count", expectedEntries.length, zipEntriesFiles.size() );
   }
 
+  @Test
+  public void testPerformExport_streamed() throws Exception {
+    String expFolderPath = "/home/test user/two words/";
+    ZipExportProcessor zipMF = new ZipExportProcessor( expFolderPath, repo, true );
+
+    exportHandler.setConverters( assignConverterForExt( defaultConverter, "prpt" ) );
+    zipMF.addExportHandler( exportHandler );
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    zipMF.performExport( repo.getFile( expFolderPath ), out );
+
+    List<String> zipEntries = new ArrayList<String>();
+    try ( ZipInputStream zis = new ZipInputStream( new ByteArrayInputStream( out.toByteArray() ) ) ) {
+      for ( ZipEntry entry = zis.getNextEntry(); entry != null; entry = zis.getNextEntry() ) {
+        if ( !entry.isDirectory() ) {
+          zipEntries.add( entry.getName() );
+        }
+      }
+    }
+    assertEquals( "entries count", 4, zipEntries.size() );
+    assertTrue( zipEntries.contains( "two+words/eval+%28%2B%29%25.prpt_en.locale" ) );
+    assertEquals( "manifest is the trailing entry", "exportManifest.xml", zipEntries.get( zipEntries.size() - 1 ) );
+  }
+
   private Map<String, Converter> assignConverterForExt( Converter conv, String... exts ) {
     final Map<String, Converter> converters = new HashMap<String, Converter>();
     for ( String ext : exts ) {
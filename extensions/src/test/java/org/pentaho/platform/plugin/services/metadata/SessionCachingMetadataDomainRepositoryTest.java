@@ -32,8 +32,10 @@ import org.pentaho.test.platform.plugin.services.metadata.MockSessionAwareMetada
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import java.util.concurrent.Callable;
@@ -49,6 +51,8 @@ import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
@@ -469,6 +473,97 @@ public class SessionCachingMetadataDomainRepositoryTest {
     assertTrue( actualExecuteTasks.contains( 6 ) );
   }
 
+  @Test
+  public void testGetDomainParsesOnceForAllSessions() throws Exception {
+    PentahoMetadataDomainRepository delegate = versionAwareDelegate( "domain", "v1" );
+    SessionCachingMetadataDomainRepository repo =
+      new SessionCachingMetadataDomainRepository( delegate, mapCacheManager(), true, 1 );
+
+    PentahoSessionHolder.setSession( new StandaloneSession( "session", "1" ) );
+    Domain first = repo.getDomain( "domain" );
+    PentahoSessionHolder.setSession( new StandaloneSession( "session", "2" ) );
+    Domain second = repo.getDomain( "domain" );
+
+    assertNotNull( first );
+    assertNotSame( first, second );
+    verify( delegate, times( 1 ) ).getDomain( "domain" );
+  }
+
+  @Test
+  public void testGetDomainReloadsChangedDomain() throws Exception {
+    PentahoMetadataDomainRepository delegate = versionAwareDelegate( "domain", "v1" );
+    ICacheManager cacheManager = mapCacheManager();
+    SessionCachingMetadataDomainRepository repo =
+      new SessionCachingMetadataDomainRepository( delegate, cacheManager, true, 1 );
+
+    PentahoSessionHolder.setSession( new StandaloneSession( "session", "1" ) );
+    repo.getDomain( "domain" );
+    when( delegate.getDomainVersion( "domain" ) ).thenReturn( "v2" );
+    PentahoSessionHolder.setSession( new StandaloneSession( "session", "2" ) );
+    repo.getDomain( "domain" );
+
+    verify( delegate, times( 2 ) ).getDomain( "domain" );
+    // the view of the first session was made from the old revision
+    assertNull( cacheManager.getFromRegionCache( SessionCachingMetadataDomainRepository.CACHE_REGION,
+      new SessionCachingMetadataDomainRepository.CacheKey( "1", "domain" ) ) );
+  }
+
+  @Test
+  public void testRemoveDomainPurgesBothTiersWithoutScanningTheRegion() throws Exception {
+    PentahoMetadataDomainRepository delegate = versionAwareDelegate( "domain", "v1" );
+    ICacheManager cacheManager = mapCacheManager();
+    SessionCachingMetadataDomainRepository repo =
+      new SessionCachingMetadataDomainRepository( delegate, cacheManager, true, 1 );
+
+    PentahoSessionHolder.setSession( new StandaloneSession( "session", "1" ) );
+    repo.getDomain( "domain" );
+    repo.removeDomain( "domain" );
+    repo.getDomain( "domain" );
+
+    verify( delegate, times( 2 ) ).getDomain( "domain" );
+    verify( cacheManager ).removeFromRegionCache( SessionCachingMetadataDomainRepository.CACHE_REGION,
+      new SessionCachingMetadataDomainRepository.CacheKey( "1", "domain" ) );
+    verify( cacheManager, times( 0 ) ).getAllKeysFromRegionCache( SessionCachingMetadataDomainRepository.CACHE_REGION );
+  }
+
+  @Test
+  public void testGetDomainWithoutAccessIsNotShared() throws Exception {
+    PentahoMetadataDomainRepository delegate = versionAwareDelegate( "domain", "v1" );
+    when( delegate.hasAccessFor( "domain" ) ).thenReturn( false );
+    when( delegate.getDomain( "domain" ) ).thenReturn( null );
+    SessionCachingMetadataDomainRepository repo =
+      new SessionCachingMetadataDomainRepository( delegate, mapCacheManager(), true, 1 );
+
+    PentahoSessionHolder.setSession( new StandaloneSession( "session", "1" ) );
+
+    assertNull( repo.getDomain( "domain" ) );
+    verify( delegate, times( 0 ) ).getDomainVersion( "domain" );
+  }
+
+  private PentahoMetadataDomainRepository versionAwareDelegate( String domainId, String version ) {
+    PentahoMetadataDomainRepository delegate = mock( PentahoMetadataDomainRepository.class );
+    when( delegate.hasAccessFor( domainId ) ).thenReturn( true );
+    when( delegate.getDomainVersion( domainId ) ).thenReturn( version );
+    when( delegate.getDomain( domainId ) ).thenAnswer( invocation -> {
+      Domain domain = new Domain();
+      domain.setId( domainId );
+      return domain;
+    } );
+    return delegate;
+  }
+
+  private ICacheManager mapCacheManager() {
+    final Map<Object, Object> region = new HashMap<>();
+    ICacheManager cacheManager = mock( ICacheManager.class );
+    when( cacheManager.getFromRegionCache( any(), any() ) ).thenAnswer( invocation ->
+      region.get( invocation.getArgument( 1 ) ) );
+    doAnswer( invocation -> region.put( invocation.getArgument( 1 ), invocation.getArgument( 2 ) ) )
+      .when( cacheManager ).putInRegionCache( any(), any(), any() );
+    doAnswer( invocation -> region.remove( invocation.getArgument( 1 ) ) )
+      .when( cacheManager ).removeFromRegionCache( any(), any() );
+    return cacheManager;
+  }
+
   public ISystemConfig createSystemConfigTestObject( Properties properties ) throws Exception {
     IConfiguration configuration = Mockito.mock( IConfiguration.class );
     Mockito.when( configuration.getId() ).thenReturn( "system" );
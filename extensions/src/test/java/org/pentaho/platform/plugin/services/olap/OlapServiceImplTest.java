@@ -27,11 +27,13 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.olap4j.OlapConnection;
+import org.olap4j.metadata.NamedList;
 import org.pentaho.platform.api.engine.IPentahoSession;
 import org.pentaho.platform.api.repository2.unified.IRepositoryFileData;
 import org.pentaho.platform.api.repository2.unified.IUnifiedRepository;
 import org.pentaho.platform.api.repository2.unified.RepositoryFile;
 import org.pentaho.platform.api.repository2.unified.RepositoryFilePermission;
+import org.pentaho.platform.engine.core.system.PentahoSystem;
 import org.pentaho.platform.engine.core.system.StandaloneSession;
 import org.pentaho.platform.plugin.action.olap.IOlapService;
 import org.pentaho.platform.plugin.action.olap.IOlapServiceException;
@@ -42,6 +44,8 @@ import org.pentaho.platform.util.messages.LocaleHelper;
 import java.io.InputStream;
 import java.io.PrintWriter;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Locale;
@@ -56,6 +60,7 @@ import static org.mockito.ArgumentMatchers.nullable;
 import static org.mockito.hamcrest.MockitoHamcrest.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
@@ -827,6 +832,68 @@ public class OlapServiceImplTest {
     }
   }
 
+  @Test
+  public void testGetCatalogsSkipsCatalogsFailingToLoad() throws Exception {
+    PentahoSystem.getCacheManager( session ).clearRegionCache( OlapServiceImpl.CATALOG_CACHE_REGION );
+    stubHostedServers( "broken", "myHostedServer", "otherServer" );
+    doThrow( new IOlapServiceException( "broken" ) ).when( olapService ).getConnection( "broken", session );
+    stubCatalogConnection( "myHostedServer", "cube1" );
+    stubCatalogConnection( "otherServer" );
+
+    final List<IOlapService.Catalog> catalogs = olapService.getCatalogs( session );
+
+    assertEquals( 2, catalogs.size() );
+    assertEquals( "myHostedServer", catalogs.get( 0 ).name );
+    assertEquals( "otherServer", catalogs.get( 1 ).name );
+    assertEquals( 1, catalogs.get( 0 ).schemas.size() );
+  }
+
+  @Test
+  public void testGetCubesOnlyLoadsTheRequestedCatalog() throws Exception {
+    PentahoSystem.getCacheManager( session ).clearRegionCache( OlapServiceImpl.CATALOG_CACHE_REGION );
+    stubHostedServers( "myHostedServer", "otherServer" );
+    stubCatalogConnection( "myHostedServer", "cube1", "cube2" );
+
+    final List<IOlapService.Cube> cubes = olapService.getCubes( "myHostedServer", null, session );
+    assertEquals( 2, cubes.size() );
+    assertEquals( "cube1", cubes.get( 0 ).name );
+    assertEquals( "cube2", cubes.get( 1 ).name );
+
+    // The second time it comes from the cache.
+    assertEquals( 2, olapService.getCubes( "myHostedServer", null, session ).size() );
+    verify( olapService, times( 1 ) ).getConnection( "myHostedServer", session );
+    verify( olapService, never() ).getConnection( "otherServer", session );
+  }
+
+  /**
+   * Stubs a connection to the catalog with a single schema holding the given cubes,
+   * or no schema at all if there are no cubes.
+   */
+  @SuppressWarnings( "unchecked" )
+  private void stubCatalogConnection( String catalogName, String... cubeNames ) throws Exception {
+    final List<org.olap4j.metadata.Schema> schemaList = new ArrayList<org.olap4j.metadata.Schema>();
+    final OlapConnection connection = mock( OlapConnection.class );
+    if ( cubeNames.length > 0 ) {
+      final List<org.olap4j.metadata.Cube> cubeList = new ArrayList<org.olap4j.metadata.Cube>();
+      for ( String cubeName : cubeNames ) {
+        final org.olap4j.metadata.Cube cube = mock( org.olap4j.metadata.Cube.class );
+        doReturn( cubeName ).when( cube ).getName();
+        cubeList.add( cube );
+      }
+      final NamedList<org.olap4j.metadata.Cube> cubes = mock( NamedList.class );
+      doReturn( cubeList.iterator() ).when( cubes ).iterator();
+      final org.olap4j.metadata.Schema schema = mock( org.olap4j.metadata.Schema.class );
+      doReturn( catalogName ).when( schema ).getName();
+      doReturn( cubes ).when( schema ).getCubes();
+      schemaList.add( schema );
+      doReturn( Collections.emptyList() ).when( connection ).getAvailableRoleNames();
+    }
+    final NamedList<org.olap4j.metadata.Schema> schemas = mock( NamedList.class );
+    doReturn( schemaList.iterator() ).when( schemas ).iterator();
+    doReturn( schemas ).when( connection ).getOlapSchemas();
+    doReturn( connection ).when( olapService ).getConnection( catalogName, session );
+  }
+
   private static Locale getLocale() {
     return LocaleHelper.getLocale();
   }
@@ -0,0 +1,75 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.plugin.services.pluginmgr;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class PluginClassLoaderTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private PluginClassLoader loader;
+
+  @Before
+  public void setUp() {
+    loader = new PluginClassLoader( folder.getRoot(), getClass().getClassLoader() );
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    loader.close();
+  }
+
+  @Test
+  public void testIsParallelCapable() {
+    assertTrue( loader.isRegisteredAsParallelCapable() );
+  }
+
+  @Test
+  public void testClassesAreLoadedConcurrently() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool( 8 );
+    try {
+      List<Future<Class<?>>> loaded = new ArrayList<>();
+      for ( int i = 0; i < 64; i++ ) {
+        final String name = ( i % 2 == 0 ) ? PlatformPlugin.class.getName() : PluginRoutingIndex.class.getName();
+        loaded.add( executor.submit( new Callable<Class<?>>() {
+          @Override
+          public Class<?> call() throws Exception {
+            return loader.loadClass( name );
+          }
+        } ) );
+      }
+      for ( int i = 0; i < loaded.size(); i++ ) {
+        assertSame( ( i % 2 == 0 ) ? PlatformPlugin.class : PluginRoutingIndex.class, loaded.get( i ).get() );
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
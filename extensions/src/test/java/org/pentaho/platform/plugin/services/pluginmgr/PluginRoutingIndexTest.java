@@ -0,0 +1,92 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.plugin.services.pluginmgr;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.platform.api.engine.IPlatformPlugin;
+import org.pentaho.platform.engine.core.solution.ContentGeneratorInfo;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class PluginRoutingIndexTest {
+
+  private PluginRoutingIndex index;
+
+  @Before
+  public void setUp() {
+    PlatformPlugin analyzer = new PlatformPlugin();
+    analyzer.setId( "analyzer" );
+    analyzer.addStaticResourcePath( "/analyzer/resources", "analyzer/web" );
+    analyzer.addContentGenerator( contentGenerator( "analyzer" ) );
+
+    PlatformPlugin reports = new PlatformPlugin();
+    reports.setId( "reports" );
+    reports.addStaticResourcePath( "/reports/resources/js", "reports/js" );
+    reports.addStaticResourcePath( "/analyzer/resources/shared", "reports/shared" );
+    reports.addContentGenerator( contentGenerator( "reports" ) );
+
+    index = new PluginRoutingIndex( Arrays.<IPlatformPlugin>asList( analyzer, reports ) );
+  }
+
+  @Test
+  public void testStaticResourceIsRoutedByPathElements() {
+    PluginRoutingIndex.Route route = index.getStaticResource( "/reports/resources/js/main.js" );
+    assertEquals( "reports", route.getPluginId() );
+    assertEquals( "/reports/resources/js", route.getUrl() );
+    assertEquals( "reports/js", route.getResourceDir() );
+
+    assertNull( index.getStaticResource( "/reports/resources/jsx/main.js" ) );
+    assertNull( index.getStaticResource( "/reports/resources" ) );
+    assertNull( index.getStaticResource( "/reports" ) );
+  }
+
+  @Test
+  public void testFirstPluginWins() {
+    // both plugins serve this path; the analyzer plugin comes first
+    assertEquals( "analyzer", index.getStaticResource( "/analyzer/resources/shared/x.css" ).getPluginId() );
+  }
+
+  @Test
+  public void testServicesIncludeContentGenerators() {
+    assertNull( index.getStaticResource( "reports/viewer" ) );
+    PluginRoutingIndex.Route route = index.getService( "reports/viewer" );
+    assertEquals( "reports", route.getPluginId() );
+    assertEquals( "reports", route.getContentGeneratorId() );
+    assertNull( route.getResourceDir() );
+
+    assertEquals( "analyzer", index.getService( "/analyzer/resources/a.js" ).getPluginId() );
+    assertNull( index.getService( "/unknown/path" ) );
+  }
+
+  @Test
+  public void testIsPublic() {
+    assertTrue( index.isPublic( "reports", "/reports/js/main.js" ) );
+    assertTrue( index.isPublic( "reports", "reports/shared" ) );
+    assertFalse( index.isPublic( "reports", "reports/other/main.js" ) );
+    assertFalse( index.isPublic( "analyzer", "reports/js/main.js" ) );
+    assertFalse( index.isPublic( "unknown", "reports/js/main.js" ) );
+  }
+
+  private static ContentGeneratorInfo contentGenerator( String id ) {
+    ContentGeneratorInfo info = new ContentGeneratorInfo();
+    info.setId( id );
+    return info;
+  }
+}
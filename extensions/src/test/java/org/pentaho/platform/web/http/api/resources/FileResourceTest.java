@@ -1502,7 +1502,7 @@ public class FileResourceTest {
 
 
     List<RepositoryFileDto> mockList = mock( List.class );
-    doReturn( mockList ).when( fileResource.fileService ).doGetGeneratedContent( PATH_ID );
+    doReturn( mockList ).when( fileResource.fileService ).doGetGeneratedContent( PATH_ID, 0, -1 );
 
     List<RepositoryFileDto> testList = fileResource.doGetGeneratedContent( PATH_ID );
     assertEquals( mockList, testList );
@@ -1515,7 +1515,7 @@ public class FileResourceTest {
 
 
     Exception mockFileNotFoundException = mock( FileNotFoundException.class );
-    doThrow( mockFileNotFoundException ).when( fileResource.fileService ).doGetGeneratedContent( PATH_ID );
+    doThrow( mockFileNotFoundException ).when( fileResource.fileService ).doGetGeneratedContent( PATH_ID, 0, -1 );
 
     Messages mockMessages = mock( Messages.class );
     doReturn( mockMessages ).when( fileResource ).getMessagesInstance();
@@ -1526,7 +1526,7 @@ public class FileResourceTest {
 
     // Test 2
     Throwable mockThrowable = mock( RuntimeException.class );
-    doThrow( mockThrowable ).when( fileResource.fileService ).doGetGeneratedContent( PATH_ID );
+    doThrow( mockThrowable ).when( fileResource.fileService ).doGetGeneratedContent( PATH_ID, 0, -1 );
 
     testList = fileResource.doGetGeneratedContent( PATH_ID );
     assertEquals( 0, testList.size() );
@@ -0,0 +1,103 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+
+package org.pentaho.test.platform.plugin.services.cache;
+
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.CacheManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.platform.plugin.services.cache.HvCache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.CALLS_REAL_METHODS;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class HvCacheDirectAccessTest {
+
+  private CacheManager manager;
+  private Cache ehcache;
+  private HvCache cache;
+
+  @Before
+  public void setUp() {
+    manager = CacheManager.create();
+    ehcache = new Cache( "hvCacheDirectAccessTest", 100, false, true, 0, 0 );
+    manager.addCache( ehcache );
+    cache = mock( HvCache.class, CALLS_REAL_METHODS );
+    doReturn( ehcache ).when( cache ).getCache();
+  }
+
+  @After
+  public void tearDown() {
+    manager.removeCache( ehcache.getName() );
+  }
+
+  @Test
+  public void testPutAndGet() {
+    Object value = new Object();
+    cache.putIntoCacheDirect( "key", value );
+
+    assertSame( value, cache.getFromCacheDirect( "key" ) );
+    assertSame( value, ehcache.get( "key" ).getObjectValue() );
+  }
+
+  @Test
+  public void testPutReplacesValue() {
+    cache.putIntoCacheDirect( "key", "first" );
+    cache.putIntoCacheDirect( "key", "second" );
+
+    assertEquals( "second", cache.getFromCacheDirect( "key" ) );
+    assertEquals( 1, ehcache.getSize() );
+  }
+
+  @Test
+  public void testGetMissingKey() {
+    assertNull( cache.getFromCacheDirect( "missing" ) );
+  }
+
+  @Test
+  public void testRemove() {
+    cache.putIntoCacheDirect( "key", "value" );
+    cache.removeFromCacheDirect( "key" );
+
+    assertNull( cache.getFromCacheDirect( "key" ) );
+    assertEquals( 0, ehcache.getSize() );
+  }
+
+  @Test
+  public void testRemoveMissingKey() {
+    cache.putIntoCacheDirect( "key", "value" );
+    cache.removeFromCacheDirect( "other" );
+
+    assertEquals( "value", cache.getFromCacheDirect( "key" ) );
+  }
+
+  @Test
+  public void testDirectAccessDoesNotUseHibernateSessions() {
+    cache.putIntoCacheDirect( "key", "value" );
+    cache.getFromCacheDirect( "key" );
+    cache.removeFromCacheDirect( "key" );
+
+    verify( cache, never() ).getSessionFactory();
+    verify( cache, never() ).getDirectAccessRegion();
+    verify( cache, never() ).getStorageAccess();
+  }
+}
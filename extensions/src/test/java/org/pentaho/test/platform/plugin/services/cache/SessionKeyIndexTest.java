@@ -0,0 +1,98 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+
+package org.pentaho.test.platform.plugin.services.cache;
+
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Element;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.platform.plugin.services.cache.SessionKeyIndex;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SessionKeyIndexTest {
+
+  private CacheManager manager;
+  private Cache cache;
+  private SessionKeyIndex index;
+
+  @Before
+  public void setUp() {
+    manager = CacheManager.create();
+    cache = new Cache( "sessionKeyIndexTest", 2, false, true, 0, 0 );
+    manager.addCache( cache );
+    index = new SessionKeyIndex();
+    cache.getCacheEventNotificationService().registerListener( index );
+  }
+
+  @After
+  public void tearDown() {
+    manager.removeCache( cache.getName() );
+  }
+
+  @Test
+  public void testKeysAreGroupedBySession() {
+    index.add( "s1\ta" );
+    index.add( "s1\tb" );
+    index.add( "s2\ta" );
+    index.add( "global" );
+
+    assertEquals( new HashSet<Object>( Arrays.asList( "s1\ta", "s1\tb" ) ), index.getKeys( "s1" ) );
+    assertEquals( 2, index.getSessionCount() );
+
+    index.remove( "s2\ta" );
+    assertEquals( 1, index.getSessionCount() );
+    assertEquals( new HashSet<Object>( Arrays.asList( "s1\ta", "s1\tb" ) ), index.removeSession( "s1" ) );
+    assertEquals( 0, index.getSessionCount() );
+    assertTrue( index.removeSession( "s1" ).isEmpty() );
+  }
+
+  @Test
+  public void testCacheEventsMaintainIndex() {
+    cache.put( new Element( "s1\ta", "value" ) );
+    cache.put( new Element( "s2\ta", "value" ) );
+    assertEquals( 2, index.getSessionCount() );
+
+    cache.remove( "s1\ta" );
+    assertTrue( index.getKeys( "s1" ).isEmpty() );
+
+    cache.removeAll();
+    assertEquals( 0, index.getSessionCount() );
+  }
+
+  @Test
+  public void testEvictedKeysArePruned() {
+    for ( int i = 0; i < 10; i++ ) {
+      cache.put( new Element( "s" + i + "\ta", "value" ) );
+    }
+
+    assertTrue( cache.getSize() <= 2 );
+    assertEquals( cache.getSize(), index.getSessionCount() );
+  }
+
+  @Test
+  public void testExpiredKeysArePruned() {
+    index.add( "s1\ta" );
+    index.notifyElementExpired( cache, new Element( "s1\ta", "value" ) );
+
+    assertEquals( 0, index.getSessionCount() );
+  }
+}
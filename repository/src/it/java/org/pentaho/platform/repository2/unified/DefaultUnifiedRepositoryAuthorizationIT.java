@@ -30,6 +30,7 @@ import java.util.Arrays;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 import javax.jcr.security.Privilege;
 
@@ -549,6 +550,16 @@ public class DefaultUnifiedRepositoryAuthorizationIT extends DefaultUnifiedRepos
     assertTrue( repo.hasAccess( ClientRepositoryPaths.getUserHomeFolderPath( PentahoSessionHolder.getSession()
         .getName() ), EnumSet.of( RepositoryFilePermission.READ ) ) );
 
+    // bulk check, each permission is reported separately and a missing path grants nothing
+    String suzyHomePath = ClientRepositoryPaths.getUserHomeFolderPath( PentahoSessionHolder.getSession().getName() );
+    String missingPath = ClientRepositoryPaths.getRootFolderPath() + "doesnotexist";
+    Map<String, EnumSet<RepositoryFilePermission>> access =
+        repo.hasAccess( Arrays.asList( suzyHomePath, missingPath ), EnumSet.of( RepositoryFilePermission.READ,
+            RepositoryFilePermission.WRITE ) );
+    assertEquals( EnumSet.of( RepositoryFilePermission.READ, RepositoryFilePermission.WRITE ), access.get(
+        suzyHomePath ) );
+    assertTrue( access.get( missingPath ).isEmpty() );
+
     login( USERNAME_PAT, tenantDuff, new String[] { tenantAuthenticatedRoleName } );
     assertFalse( SimpleJcrTestUtils.hasPrivileges( testJcrTemplate, ServerRepositoryPaths
         .getTenantPublicFolderPath( tenantAcme ), Privilege.JCR_READ ) );
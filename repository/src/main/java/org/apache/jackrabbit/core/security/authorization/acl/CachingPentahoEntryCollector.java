@@ -13,34 +13,42 @@
 
 package org.apache.jackrabbit.core.security.authorization.acl;
 
-import org.apache.commons.collections4.map.LRUMap;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import org.apache.jackrabbit.core.NodeImpl;
 import org.apache.jackrabbit.core.SessionImpl;
-import org.apache.jackrabbit.core.cache.GrowingLRUMap;
 import org.apache.jackrabbit.core.id.NodeId;
 import org.apache.jackrabbit.core.security.authorization.AccessControlModifications;
-import org.pentaho.platform.api.engine.ICacheManager;
-import org.pentaho.platform.api.engine.ILogoutListener;
 import org.pentaho.platform.api.engine.IPentahoSession;
+import org.pentaho.platform.api.mt.ITenant;
 import org.pentaho.platform.engine.core.system.PentahoSessionHolder;
-import org.pentaho.platform.engine.core.system.PentahoSystem;
+import org.pentaho.platform.repository2.unified.jcr.JcrTenantUtils;
+import org.pentaho.platform.security.policy.rolebased.IRoleAuthorizationPolicyRoleBindingDao;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.jcr.RepositoryException;
-import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * <code>CachingEntryCollector</code> extends <code>PentahoEntryCollector</code> by keeping a cache of ACEs per access
  * controlled nodeId.
  * <p/>
  * This class is a copy of the one in trunk of Jackrabbit. Backported here for performance reasons.
+ * <p/>
+ * The cache is shared by all sessions. The ACEs of a node only depend on the session through the magic ACEs, which
+ * are granted according to the tenant and the roles of the user, and name the user. Entries are therefore cached per
+ * node for the tenant and roles they were collected for, and only for the user as well when they name the user, so
+ * every session with the same roles reuses them. A change of policy drops the entries of the node and of its subtree.
+ * <p/>
+ * Magic ACEs also depend on the role bindings, so entries are only shared for the version of the role bindings they
+ * were collected for. When the role binding DAO does not track its changes, entries are kept per session instead.
  */
 public class CachingPentahoEntryCollector extends PentahoEntryCollector {
 
@@ -49,11 +57,15 @@ public class CachingPentahoEntryCollector extends PentahoEntryCollector {
    */
   private static final Logger log = LoggerFactory.getLogger( CachingEntryCollector.class );
   public static final String ENTRY_COLLECTOR = "ENTRY_COLLECTOR";
-  private final ICacheManager cacheManager;
 
+  private final EntryCache cache;
+
+  private final ConcurrentMap<EntryKey, FutureEntries> futures = new ConcurrentHashMap<EntryKey, FutureEntries>();
 
-  private final Map<IPentahoSession, ConcurrentMap<NodeId, FutureEntries>> futuresBySession = Collections
-      .synchronizedMap( new LRUMap<IPentahoSession, ConcurrentMap<NodeId, FutureEntries>>( 512, 128 ) );
+  /**
+   * The key of the tenant and roles of a session, kept for as long as the session is
+   */
+  private final Cache<IPentahoSession, String> principalKeys = CacheBuilder.newBuilder().weakKeys().build();
 
   /**
    * Create a new instance.
@@ -65,70 +77,14 @@ public class CachingPentahoEntryCollector extends PentahoEntryCollector {
   public CachingPentahoEntryCollector( SessionImpl systemSession, NodeId rootID, final Map configuration )
       throws RepositoryException {
     super( systemSession, rootID, configuration );
-
-    // Flush caches of session on logout
-    PentahoSystem.addLogoutListener( new ILogoutListener() {
-      @Override
-      public void onLogout( IPentahoSession iPentahoSession ) {
-
-        log.debug( "Flushing ACL Entries due to logout for session: " + iPentahoSession.getName() );
-        flushCachesOfSession( iPentahoSession );
-      }
-    } );
-
-    cacheManager = PentahoSystem.getCacheManager( null ); // not session instanced
-  }
-
-  private void flushCachesOfSession( IPentahoSession iPentahoSession ) {
-
-    cacheManager.removeFromSessionCache( iPentahoSession, ENTRY_COLLECTOR );
-
-    synchronized ( futuresBySession ) {
-      if ( futuresBySession.containsKey( iPentahoSession ) ) {
-        futuresBySession.get( iPentahoSession ).clear();
-        futuresBySession.remove( iPentahoSession );
-      }
-    }
-  }
-
-  private EntryCache getCache() {
-    IPentahoSession session = PentahoSessionHolder.getSession();
-    EntryCache cache = (EntryCache) cacheManager.getFromSessionCache( session, ENTRY_COLLECTOR );
-    if ( cache == null ) {
-      cache = new EntryCache();
-      cacheManager.putInSessionCache( session, ENTRY_COLLECTOR, cache );
-    }
-
-    return cache;
-  }
-
-  private ConcurrentMap<NodeId, FutureEntries> getFutures() {
-    IPentahoSession session = PentahoSessionHolder.getSession();
-    if ( futuresBySession.containsKey( session ) ) {
-      return futuresBySession.get( session );
-    }
-    ConcurrentMap<NodeId, FutureEntries> futures = new ConcurrentHashMap<NodeId, FutureEntries>();
-    futuresBySession.put( session, futures );
-    return futures;
+    cache = new EntryCache();
   }
 
   @Override
   protected void close() {
     super.close();
-
-    performAgainstAllInCache( new CacheCallable() {
-      @Override public void call( EntryCache cache ) {
-        cache.clear();
-      }
-    } );
-
-    synchronized ( futuresBySession ) {
-      for ( Map.Entry<IPentahoSession, ConcurrentMap<NodeId, FutureEntries>> entry : this.futuresBySession
-          .entrySet() ) {
-        entry.getValue().clear();
-      }
-      futuresBySession.clear();
-    }
+    cache.clear();
+    futures.clear();
   }
 
   // -----------------------------------------------------< EntryCollector >---
@@ -138,8 +94,7 @@ public class CachingPentahoEntryCollector extends PentahoEntryCollector {
    */
   @Override
   protected PentahoEntries getEntries( NodeImpl node ) throws RepositoryException {
-    NodeId nodeId = node.getNodeId();
-    Entries entries = getCache().get( nodeId );
+    Entries entries = getCachedEntries( node.getNodeId() );
     if ( entries == null ) {
       // fetch entries and update the cache
       entries = updateCache( node );
@@ -152,7 +107,7 @@ public class CachingPentahoEntryCollector extends PentahoEntryCollector {
    */
   @Override
   protected Entries getEntries( NodeId nodeId ) throws RepositoryException {
-    Entries entries = getCache().get( nodeId );
+    Entries entries = getCachedEntries( nodeId );
     if ( entries == null ) {
       // fetch entries and update the cache
       NodeImpl n = getNodeById( nodeId );
@@ -161,6 +116,93 @@ public class CachingPentahoEntryCollector extends PentahoEntryCollector {
     return entries;
   }
 
+  /**
+   * Looks up the entries collected for the tenant and roles of the current session, and then those collected for its
+   * user.
+   */
+  private Entries getCachedEntries( NodeId nodeId ) {
+    String principalKey = getPrincipalKey();
+    Entries entries = cache.get( new EntryKey( nodeId, principalKey ) );
+    if ( entries == null ) {
+      String user = getUserKey();
+      if ( user != null ) {
+        entries = cache.get( new EntryKey( nodeId, principalKey + '\t' + user ) );
+      }
+    }
+    return entries;
+  }
+
+  /**
+   * @return the tenant and the sorted runtime roles of the current session with the version of the role bindings, or
+   *         an empty string without a session
+   */
+  private String getPrincipalKey() {
+    IPentahoSession session = PentahoSessionHolder.getSession();
+    if ( session == null || session.getId() == null || session.getId().trim().equals( "" ) ) { //$NON-NLS-1$
+      return ""; //$NON-NLS-1$
+    }
+    String key = principalKeys.getIfPresent( session );
+    if ( key == null ) {
+      StringBuilder sb = new StringBuilder();
+      ITenant tenant = JcrTenantUtils.getTenant();
+      sb.append( tenant != null ? tenant.getRootFolderAbsolutePath() : "" ); //$NON-NLS-1$
+      for ( String role : new TreeSet<String>( getRuntimeRoleNames() ) ) {
+        sb.append( '\t' ).append( role );
+      }
+      key = sb.toString();
+      principalKeys.put( session, key );
+    }
+    return withRoleBindingsVersion( key, session, getRoleBindingsVersion() );
+  }
+
+  /**
+   * @return the version of the role bindings the magic ACEs are granted according to, or -1 if unknown
+   */
+  private long getRoleBindingsVersion() {
+    IRoleAuthorizationPolicyRoleBindingDao roleBindingDao = getRoleBindingDao();
+    return roleBindingDao != null ? roleBindingDao.getRoleBindingsVersion() : -1;
+  }
+
+  /**
+   * @return the key of the tenant and roles for the given version of the role bindings, or for the session alone if the
+   *         version is unknown, as the entries may then be out of date for any other session
+   */
+  static String withRoleBindingsVersion( String rolesKey, IPentahoSession session, long version ) {
+    if ( version < 0 ) {
+      return rolesKey + "\nsession:" + session.getId(); //$NON-NLS-1$
+    }
+    return rolesKey + "\nbindings:" + version; //$NON-NLS-1$
+  }
+
+  /**
+   * @return the tenanted name of the user of the current session, which magic ACEs are granted to
+   */
+  private String getUserKey() {
+    IPentahoSession session = PentahoSessionHolder.getSession();
+    if ( session == null || session.getName() == null ) {
+      return null;
+    }
+    return JcrTenantUtils.getTenantedUser( session.getName() );
+  }
+
+  /**
+   * @return <code>true</code> if one of the entries is granted to the user rather than to one of its roles, in which
+   *         case other users with the same roles cannot share them
+   */
+  @SuppressWarnings( "unchecked" )
+  private static boolean namesUser( Entries entries, String user ) {
+    if ( user == null ) {
+      return false;
+    }
+    for ( Object ace : (List<Object>) entries.getACEs() ) {
+      if ( ace instanceof PentahoEntry && !( (PentahoEntry) ace ).isGroupEntry()
+          && user.equals( ( (PentahoEntry) ace ).getPrincipalName() ) ) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   /**
    * Read the entries defined for the specified node and update the cache accordingly.
    *
@@ -168,13 +210,13 @@ public class CachingPentahoEntryCollector extends PentahoEntryCollector {
    * @return The list of entries present on the specified node or an empty list.
    * @throws RepositoryException If an error occurs.
    */
-  private Entries internalUpdateCache( NodeImpl node ) throws RepositoryException {
+  private Entries internalUpdateCache( NodeImpl node, EntryKey key ) throws RepositoryException {
+    long generation = cache.getGeneration();
     Entries entries = super.getEntries( node );
-    if ( ( isRootId( node.getNodeId() ) && getCache().specialCasesRoot() ) || !entries.isEmpty() ) {
-      // adjust the 'nextId' to point to the next access controlled
-      // ancestor node instead of the parent and remember the entries.
-      // entries.setNextId(getNextID(node));
-      getCache().put( node.getNodeId(), entries );
+    if ( ( isRootId( node.getNodeId() ) && cache.specialCasesRoot() ) || !entries.isEmpty() ) {
+      String user = getUserKey();
+      EntryKey cacheKey = namesUser( entries, user ) ? new EntryKey( key.nodeId, key.principals + '\t' + user ) : key;
+      cache.put( cacheKey, node.getPath(), entries, generation );
     } // else: not access controlled -> ignore.
     return entries;
   }
@@ -192,15 +234,16 @@ public class CachingPentahoEntryCollector extends PentahoEntryCollector {
 
   /**
    * See {@link CachingEntryCollector#updateCache(NodeImpl)} ; this variant blocks the current thread if a concurrent
-   * update for the same node id takes place
+   * update for the same node id takes place on behalf of the same user
    */
   private Entries throttledUpdateCache( NodeImpl node ) throws RepositoryException {
-    NodeId id = node.getNodeId();
+    EntryKey key = new EntryKey( node.getNodeId(), getPrincipalKey() );
+    EntryKey id = new EntryKey( key.nodeId, key.principals + '\t' + getUserKey() );
     FutureEntries fe = null;
     FutureEntries nfe = new FutureEntries();
     boolean found = true;
 
-    fe = getFutures().putIfAbsent( id, nfe );
+    fe = futures.putIfAbsent( id, nfe );
     if ( fe == null ) {
       found = false;
       fe = nfe;
@@ -212,12 +255,12 @@ public class CachingPentahoEntryCollector extends PentahoEntryCollector {
     } else {
       // otherwise obtain result and when done notify waiting FutureEntries
       try {
-        Entries e = internalUpdateCache( node );
-        getFutures().remove( id );
+        Entries e = internalUpdateCache( node, key );
+        futures.remove( id );
         fe.setResult( e );
         return e;
       } catch ( Throwable problem ) {
-        getFutures().remove( id );
+        futures.remove( id );
         fe.setProblem( problem );
         if ( problem instanceof RepositoryException ) {
           throw (RepositoryException) problem;
@@ -228,32 +271,6 @@ public class CachingPentahoEntryCollector extends PentahoEntryCollector {
     }
   }
 
-  /**
-   * Find the next access control ancestor in the hierarchy 'null' indicates that there is no ac-controlled ancestor.
-   *
-   * @param node The target node for which the cache needs to be updated.
-   * @return The NodeId of the next access controlled ancestor in the hierarchy or null
-   */
-  private NodeId getNextID( NodeImpl node ) throws RepositoryException {
-    NodeImpl n = node;
-    NodeId nextId = null;
-    while ( nextId == null && !isRootId( n.getNodeId() ) ) {
-      NodeId parentId = n.getParentId();
-      if ( getCache().containsKey( parentId ) ) {
-        nextId = parentId;
-      } else {
-        NodeImpl parent = (NodeImpl) n.getParent();
-        if ( hasEntries( parent ) ) {
-          nextId = parentId;
-        } else {
-          // try next ancestor
-          n = parent;
-        }
-      }
-    }
-    return nextId;
-  }
-
   /**
    * Returns {@code true} if the specified {@code nodeId} is the ID of the root node; false otherwise.
    *
@@ -265,44 +282,14 @@ public class CachingPentahoEntryCollector extends PentahoEntryCollector {
   }
 
   /**
-   * Evaluates if the given node is access controlled and holds a non-empty rep:policy child node.
-   *
-   * @param n The node to test.
-   * @return true if the specified node is access controlled and holds a non-empty policy child node.
-   * @throws RepositoryException If an error occurs.
+   * @return the path of the node, or <code>null</code> if it cannot be read any more
    */
-  private static boolean hasEntries( NodeImpl n ) throws RepositoryException {
-    if ( ACLProvider.isAccessControlled( n ) ) {
-      NodeImpl aclNode = n.getNode( N_POLICY );
-      return aclNode.hasNodes();
-    }
-
-    // no ACL defined here
-    return false;
-  }
-
-  /**
-   * Utility SMI
-   */
-  private interface CacheCallable {
-    void call( EntryCache cache );
-  }
-
-  private static final Pattern SESSION_KEY_PATTERN = Pattern.compile( "[^\\t]*\\t(.*)" );
-
-  private void performAgainstAllInCache( CacheCallable callable ) {
-    Set allKeysFromRegionCache = cacheManager.getAllKeysFromRegionCache( ICacheManager.SESSION );
-    for ( Object compositeKey : allKeysFromRegionCache ) {
-      Matcher matcher = SESSION_KEY_PATTERN.matcher( compositeKey.toString() );
-      if ( matcher.matches() ) {
-        String key = matcher.toMatchResult().group( 1 );
-        if ( ENTRY_COLLECTOR.equals( key ) ) {
-          Object fromRegionCache = cacheManager.getFromRegionCache( ICacheManager.SESSION, compositeKey );
-          if ( EntryCache.class.isAssignableFrom( fromRegionCache.getClass() ) ) {
-            callable.call( (EntryCache) fromRegionCache );
-          }
-        }
-      }
+  private String getPath( NodeId nodeId ) {
+    try {
+      return getNodeById( nodeId ).getPath();
+    } catch ( RepositoryException e ) {
+      log.debug( "Cannot read the path of nodeId {}", nodeId, e );
+      return null;
     }
   }
 
@@ -321,48 +308,54 @@ public class CachingPentahoEntryCollector extends PentahoEntryCollector {
       final NodeId nodeId = (NodeId) key;
       int type = modifications.getType( nodeId );
 
-      if ( ( type & POLICY_ADDED ) == POLICY_ADDED ) {
-
-        // clear the complete cache since the nextAcNodeId may
-        // have changed due to the added ACL.
-        log.debug( "Policy added, clearing the cache" );
-        performAgainstAllInCache( new CacheCallable() {
-          @Override public void call( EntryCache cache ) {
-            cache.clear();
-          }
-        } );
+      if ( ( type & MOVE ) == MOVE ) {
+        // some sort of move operation that may affect the cache
+        log.debug( "Move operation, clearing the cache" );
+        cache.clear();
         break; // no need for further processing.
-      } else if ( ( type & POLICY_REMOVED ) == POLICY_REMOVED ) {
+      } else if ( ( type & ( POLICY_ADDED | POLICY_REMOVED | POLICY_MODIFIED ) ) != 0 ) {
+        // the entries of the node and of the nodes inheriting from it are collected again upon next access.
+        String path = getPath( nodeId );
+        if ( path == null ) {
+          log.debug( "Policy changed on a node that cannot be read, clearing the cache" );
+          cache.clear();
+          break;
+        }
+        cache.removeSubtree( nodeId, path );
+      }
+    }
+    super.notifyListeners( modifications );
+  }
 
-        // clear the entry and change the entries having a nextID
-        // pointing to this node.
-        performAgainstAllInCache( new CacheCallable() {
-          @Override public void call( EntryCache cache ) {
-            cache.remove( nodeId, true );
-          }
-        } );
+  /**
+   * The node and the principals entries were collected for
+   */
+  static final class EntryKey {
 
-      } else if ( ( type & POLICY_MODIFIED ) == POLICY_MODIFIED ) {
-        // simply clear the cache entry -> reload upon next access.
-        performAgainstAllInCache( new CacheCallable() {
-          @Override public void call( EntryCache cache ) {
-            cache.remove( nodeId, false );
-          }
-        } );
+    private final NodeId nodeId;
+    private final String principals;
 
-      } else if ( ( type & MOVE ) == MOVE ) {
-        // some sort of move operation that may affect the cache
-        log.debug( "Move operation, clearing the cache" );
+    EntryKey( NodeId nodeId, String principals ) {
+      this.nodeId = nodeId;
+      this.principals = principals;
+    }
 
-        performAgainstAllInCache( new CacheCallable() {
-          @Override public void call( EntryCache cache ) {
-            cache.clear();
-          }
-        } );
-        break; // no need for further processing.
+    @Override
+    public boolean equals( Object o ) {
+      if ( this == o ) {
+        return true;
+      }
+      if ( !( o instanceof EntryKey ) ) {
+        return false;
       }
+      EntryKey other = (EntryKey) o;
+      return nodeId.equals( other.nodeId ) && principals.equals( other.principals );
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * nodeId.hashCode() + principals.hashCode();
     }
-    super.notifyListeners( modifications );
   }
 
   /**
@@ -406,119 +399,121 @@ public class CachingPentahoEntryCollector extends PentahoEntryCollector {
   }
 
   /**
-   * A cache to lookup the ACEs defined on a given (access controlled) node. The internal map uses the ID of the node as
-   * key while the value consists of {@Entries} objects that not only provide the ACEs defined for that node but also
-   * the ID of the next access controlled parent node.
+   * A bounded cache of the ACEs of nodes, shared by all sessions. Entries are kept with the path of their node so that
+   * a change of policy drops the entries of a whole subtree. Entries collected while the cache was being invalidated
+   * are not kept, as they may have been read before the change.
    */
-  private class EntryCache {
-
-    private final Map<NodeId, Entries> cache;
-    private Entries rootEntries;
-    private boolean specialCaseRoot = true;
-
-    @SuppressWarnings( "unchecked" )
-    public EntryCache() {
-      int maxsize = 5000;
-      String propname = "org.apache.jackrabbit.core.security.authorization.acl.CachingEntryCollector.maxsize";
-      try {
-        maxsize = Integer.parseInt( System.getProperty( propname, Integer.toString( maxsize ) ) );
-      } catch ( NumberFormatException ex ) {
-        log.debug( "Parsing system property " + propname + " with value: " + System.getProperty( propname ), ex );
-      }
+  static class EntryCache {
 
-      log.info( "Creating cache with max size of: " + maxsize );
+    static final String MAX_SIZE_PROPERTY =
+        "org.apache.jackrabbit.core.security.authorization.acl.CachingEntryCollector.maxsize"; //$NON-NLS-1$
 
-      cache = new GrowingLRUMap( 1024, maxsize );
+    static final String VERSION_STORAGE = "/jcr:system/jcr:versionStorage"; //$NON-NLS-1$
 
-      String propsrname = "org.apache.jackrabbit.core.security.authorization.acl.CachingEntryCollector.scroot";
-      specialCaseRoot = Boolean.parseBoolean( System.getProperty( propsrname, "true" ) );
+    private final Cache<EntryKey, CachedEntries> cache;
+    private final boolean specialCaseRoot;
+    private final AtomicLong generation = new AtomicLong();
 
-      log.info( "Root is special-cased: " + specialCaseRoot );
+    EntryCache() {
+      this( getMaxSize(), Boolean.parseBoolean( System.getProperty(
+          "org.apache.jackrabbit.core.security.authorization.acl.CachingEntryCollector.scroot", "true" ) ) );
     }
 
-    public boolean specialCasesRoot() {
-      return specialCaseRoot;
+    EntryCache( long maxSize, boolean specialCaseRoot ) {
+      log.info( "Creating cache with max size of: " + maxSize );
+      cache = CacheBuilder.newBuilder().maximumSize( maxSize ).build();
+      this.specialCaseRoot = specialCaseRoot;
+      log.info( "Root is special-cased: " + specialCaseRoot );
     }
 
-    public boolean containsKey( NodeId id ) {
-      if ( specialCaseRoot && isRootId( id ) ) {
-        return rootEntries != null;
-      } else {
-        synchronized ( cache ) {
-          return cache.containsKey( id );
-        }
+    private static long getMaxSize() {
+      long maxsize = 20000;
+      try {
+        maxsize = Long.parseLong( System.getProperty( MAX_SIZE_PROPERTY, Long.toString( maxsize ) ) );
+      } catch ( NumberFormatException ex ) {
+        log.debug( "Parsing system property " + MAX_SIZE_PROPERTY + " with value: "
+            + System.getProperty( MAX_SIZE_PROPERTY ), ex );
       }
+      return maxsize;
     }
 
-    public void clear() {
-      rootEntries = null;
-      synchronized ( cache ) {
-        cache.clear();
-      }
+    boolean specialCasesRoot() {
+      return specialCaseRoot;
     }
 
-    public Entries get( NodeId id ) {
-      Entries result;
-
-      if ( specialCaseRoot && isRootId( id ) ) {
-        result = rootEntries;
-      } else {
-        synchronized ( cache ) {
-          result = cache.get( id );
-        }
-      }
+    /**
+     * @return a number changing whenever entries are removed, to be read before collecting entries to be put
+     */
+    long getGeneration() {
+      return generation.get();
+    }
 
+    Entries get( EntryKey key ) {
+      CachedEntries result = cache.getIfPresent( key );
       if ( result != null ) {
-        log.debug( "Cache hit for nodeId {}", id );
-      } else {
-        log.debug( "Cache miss for nodeId {}", id );
+        log.debug( "Cache hit for nodeId {}", key.nodeId );
+        return result.entries;
       }
-
-      return result;
+      log.debug( "Cache miss for nodeId {}", key.nodeId );
+      return null;
     }
 
-    public void put( NodeId id, Entries entries ) {
-      log.debug( "Updating cache for nodeId {}", id );
+    void put( EntryKey key, String path, Entries entries, long generation ) {
+      log.debug( "Updating cache for nodeId {}", key.nodeId );
 
       // fail early on potential cache corruption
-      if ( id.equals( entries.getNextId() ) ) {
-        throw new IllegalArgumentException( "Trying to update cache entry for " + id + " with a circular reference" );
+      if ( key.nodeId.equals( entries.getNextId() ) ) {
+        throw new IllegalArgumentException( "Trying to update cache entry for " + key.nodeId
+            + " with a circular reference" );
       }
-
-      if ( specialCaseRoot && isRootId( id ) ) {
-        rootEntries = entries;
-      } else {
-        synchronized ( cache ) {
-          cache.put( id, entries );
+      synchronized ( this ) {
+        if ( generation == this.generation.get() ) {
+          cache.put( key, new CachedEntries( path, entries ) );
         }
       }
     }
 
-    public void remove( NodeId id, boolean adjustNextIds ) {
-      log.debug( "Removing nodeId {} from cache", id );
-      Entries result;
-      synchronized ( cache ) {
-        if ( specialCaseRoot && isRootId( id ) ) {
-          result = rootEntries;
-          rootEntries = null;
-        } else {
-          result = cache.remove( id );
-        }
-
-        if ( adjustNextIds && result != null ) {
-          NodeId nextId = result.getNextId();
-          for ( Entries entry : cache.values() ) {
-            if ( id.equals( entry.getNextId() ) ) {
-              // fail early on potential cache corruption
-              if ( id.equals( nextId ) ) {
-                throw new IllegalArgumentException( "Trying to update cache entry for " + id
-                    + " with a circular reference" );
-              }
-              entry.setNextId( nextId );
-            }
+    /**
+     * Removes the entries of the node, of the nodes below it, and of the version histories, which take their entries
+     * from their versionable nodes.
+     */
+    void removeSubtree( NodeId id, String path ) {
+      log.debug( "Removing nodeId {} and its subtree from cache", id );
+      String prefix = path.endsWith( "/" ) ? path : path + "/"; //$NON-NLS-1$ //$NON-NLS-2$
+      synchronized ( this ) {
+        generation.incrementAndGet();
+        Iterator<Map.Entry<EntryKey, CachedEntries>> it = cache.asMap().entrySet().iterator();
+        while ( it.hasNext() ) {
+          Map.Entry<EntryKey, CachedEntries> entry = it.next();
+          String cachedPath = entry.getValue().path;
+          if ( entry.getKey().nodeId.equals( id ) || cachedPath.equals( path ) || cachedPath.startsWith( prefix )
+              || cachedPath.startsWith( VERSION_STORAGE ) ) {
+            it.remove();
           }
         }
       }
     }
+
+    void clear() {
+      synchronized ( this ) {
+        generation.incrementAndGet();
+        cache.invalidateAll();
+      }
+    }
+
+    long size() {
+      return cache.size();
+    }
+  }
+
+  private static class CachedEntries {
+
+    private final String path;
+    private final Entries entries;
+
+    CachedEntries( String path, Entries entries ) {
+      this.path = path;
+      this.entries = entries;
+    }
   }
 }
@@ -13,10 +13,16 @@
 
 package org.apache.jackrabbit.core.security.authorization.acl;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import org.apache.commons.lang.math.NumberUtils;
 import org.apache.jackrabbit.api.security.principal.PrincipalManager;
 import org.apache.jackrabbit.core.NodeImpl;
 import org.apache.jackrabbit.core.SessionImpl;
 import org.apache.jackrabbit.core.id.NodeId;
+import org.apache.jackrabbit.core.security.authorization.AccessControlListener;
+import org.apache.jackrabbit.core.security.authorization.AccessControlModifications;
 import org.apache.jackrabbit.core.security.authorization.CompiledPermissions;
 import org.pentaho.platform.api.engine.ISystemConfig;
 import org.pentaho.platform.engine.core.system.PentahoSystem;
@@ -34,9 +40,10 @@ import javax.jcr.security.AccessControlPolicy;
 import javax.jcr.security.Privilege;
 import java.security.Principal;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Customization of {@link ACLProvider}.
@@ -45,14 +52,17 @@ import java.util.Set;
  */
 public class PentahoACLProvider extends ACLProvider {
 
+  private static final int DEFAULT_COMPILED_PERMISSIONS_CACHE_SIZE = 1000;
+
   @SuppressWarnings( "rawtypes" )
   private Map configuration;
 
   // Overrides to CompiledPermissions creation require we keep an extra reference
   // because this is private in ACLProvider
   private EntryCollector entryCollector;
-  private Map<Integer, PentahoCompiledPermissionsImpl> compiledPermissionsCache =
-      new HashMap<Integer, PentahoCompiledPermissionsImpl>();
+  // compiled permissions shared by the sessions of the same principals, until an ACL is modified
+  private Cache<PrincipalSetKey, PentahoCompiledPermissionsImpl> compiledPermissionsCache;
+  private final AtomicLong aclEpoch = new AtomicLong();
   private boolean useCachingEntryCollector;
   private Logger logger = LoggerFactory.getLogger( getClass().getName() );
   private boolean initialized;
@@ -69,9 +79,16 @@ public class PentahoACLProvider extends ACLProvider {
   public void init( final Session systemSession, final Map conf ) throws RepositoryException {
     this.configuration = conf;
     ISystemConfig settings = PentahoSystem.get( ISystemConfig.class );
+    int compiledPermissionsCacheSize = DEFAULT_COMPILED_PERMISSIONS_CACHE_SIZE;
     if ( settings != null ) {
       useCachingEntryCollector = "true".equals( settings.getProperty( "system.cachingEntryCollector" ) );
+      String size = settings.getProperty( "system.compiledPermissionsCacheSize" );
+      if ( size != null ) {
+        compiledPermissionsCacheSize = NumberUtils.toInt( size.trim(), DEFAULT_COMPILED_PERMISSIONS_CACHE_SIZE );
+      }
     }
+    compiledPermissionsCache =
+        CacheBuilder.newBuilder().maximumSize( Math.max( 0, compiledPermissionsCacheSize ) ).recordStats().build();
     super.init( systemSession, conf );
     // original initRootACL should run during super.init call above
     updateRootAcl( (SessionImpl) systemSession, new ACLEditor( session, this, false /* allowUnknownPrincipals */ ) );
@@ -163,6 +180,13 @@ public class PentahoACLProvider extends ACLProvider {
       logger.debug( "Using Non-Caching EntryCollector" );
     }
 
+    entryCollector.addListener( new AccessControlListener() {
+      @Override
+      public void acModified( AccessControlModifications modifications ) {
+        invalidateCompiledPermissions();
+      }
+    } );
+
     registerEntryCollectorWithObservationManager( systemSession );
 
     return entryCollector;
@@ -191,16 +215,34 @@ public class PentahoACLProvider extends ACLProvider {
   protected PentahoCompiledPermissionsImpl getCompiledPermissions( Set<Principal> principals )
     throws RepositoryException {
     // check the cache first
-    if ( compiledPermissionsCache.containsKey( principals.hashCode() ) ) {
-      return compiledPermissionsCache.get( principals.hashCode() );
+    PrincipalSetKey key = new PrincipalSetKey( principals, aclEpoch.get() );
+    PentahoCompiledPermissionsImpl compiledPermissions = compiledPermissionsCache.getIfPresent( key );
+    if ( compiledPermissions == null ) {
+      compiledPermissions = new PentahoCompiledPermissionsImpl( principals, session, entryCollector, this, aclEpoch );
+      PentahoCompiledPermissionsImpl cached = compiledPermissionsCache.asMap().putIfAbsent( key, compiledPermissions );
+      if ( cached != null ) {
+        compiledPermissions = cached;
+      }
     }
-
-    PentahoCompiledPermissionsImpl compiledPermissions =
-        new PentahoCompiledPermissionsImpl( principals, session, entryCollector, this, true );
-    compiledPermissionsCache.put( principals.hashCode(), compiledPermissions );
     return compiledPermissions;
   }
 
+  /**
+   * Drops the shared compiled permissions once an ACL is modified. Those still in use by sessions clear their own
+   * cache on next use.
+   */
+  void invalidateCompiledPermissions() {
+    aclEpoch.incrementAndGet();
+    compiledPermissionsCache.invalidateAll();
+  }
+
+  /**
+   * @return the hits and misses of the compiled permissions shared between sessions
+   */
+  public CacheStats getCompiledPermissionsCacheStats() {
+    return compiledPermissionsCache.stats();
+  }
+
   /**
    * Overridden to:
    * <ul>
@@ -225,6 +267,44 @@ public class PentahoACLProvider extends ACLProvider {
     }
   }
 
+  /**
+   * Identifies a set of principals by their sorted names, which are all compiled permissions depend on, and the count
+   * of ACL modifications they were compiled at.
+   */
+  static final class PrincipalSetKey {
+
+    private final String[] names;
+    private final long epoch;
+    private final int hash;
+
+    PrincipalSetKey( Set<Principal> principals, long epoch ) {
+      Set<String> sorted = new TreeSet<String>();
+      for ( Principal principal : principals ) {
+        sorted.add( principal.getName() );
+      }
+      this.names = sorted.toArray( new String[sorted.size()] );
+      this.epoch = epoch;
+      this.hash = 31 * Arrays.hashCode( names ) + Long.hashCode( epoch );
+    }
+
+    @Override
+    public boolean equals( Object o ) {
+      if ( this == o ) {
+        return true;
+      }
+      if ( !( o instanceof PrincipalSetKey ) ) {
+        return false;
+      }
+      PrincipalSetKey other = (PrincipalSetKey) o;
+      return epoch == other.epoch && hash == other.hash && Arrays.equals( names, other.names );
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+
   private NodeId getRootNodeId() throws RepositoryException {
     // TODO: how expensive is this? Should we keep a reference?
     return ( (NodeImpl) session.getRootNode() ).getNodeId();
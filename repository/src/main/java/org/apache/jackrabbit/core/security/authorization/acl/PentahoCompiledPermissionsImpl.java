@@ -47,6 +47,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * A copy-paste of {@code CompiledPermissionsImpl} modified with more lenient locking on cache to prevent deadlocks
@@ -72,11 +73,34 @@ public class PentahoCompiledPermissionsImpl extends AbstractCompiledPermissions
   private final Object monitor = new Object();
   private final Object readMonitor = new Object();
 
+  /*
+   * Counts the ACL modifications, for permissions shared between sessions; null otherwise.
+   */
+  private final AtomicLong aclEpoch;
+  private volatile long cachedEpoch;
+
   PentahoCompiledPermissionsImpl( Set<Principal> principals, SessionImpl session, EntryCollector entryCollector,
                                   AccessControlUtils util, boolean listenToEvents ) throws RepositoryException {
+    this( principals, session, entryCollector, util, listenToEvents, null );
+  }
+
+  /**
+   * Creates permissions shared by the sessions of the same principals. Rather than listening to the entry collector,
+   * they clear their cache once the given count of ACL modifications moves on, and closing them does nothing.
+   */
+  PentahoCompiledPermissionsImpl( Set<Principal> principals, SessionImpl session, EntryCollector entryCollector,
+                                  AccessControlUtils util, AtomicLong aclEpoch ) throws RepositoryException {
+    this( principals, session, entryCollector, util, false, aclEpoch );
+  }
+
+  private PentahoCompiledPermissionsImpl( Set<Principal> principals, SessionImpl session,
+                                          EntryCollector entryCollector, AccessControlUtils util,
+                                          boolean listenToEvents, AtomicLong aclEpoch ) throws RepositoryException {
     this.session = session;
     this.entryCollector = entryCollector;
     this.util = util;
+    this.aclEpoch = aclEpoch;
+    this.cachedEpoch = ( aclEpoch == null ) ? 0 : aclEpoch.get();
 
     principalNames = new ArrayList<String>( principals.size() );
     for ( Principal princ : principals ) {
@@ -241,6 +265,10 @@ public class PentahoCompiledPermissionsImpl extends AbstractCompiledPermissions
    */
   @Override
   public void close() {
+    if ( aclEpoch != null ) {
+      // still in use by the other sessions of the same principals
+      return;
+    }
     entryCollector.removeListener( this );
     // NOTE: do not logout shared session.
     super.close();
@@ -257,6 +285,7 @@ public class PentahoCompiledPermissionsImpl extends AbstractCompiledPermissions
     // no extra check for existence as method may only be called for existing items.
     boolean isExistingNode = id.denotesNode();
     boolean canRead = false;
+    long epoch = checkAclEpoch();
     // emulates behavior of CompiledPermissionsImpl with two locks
     // synchronized (readMonitor) {
     synchronized ( monitor ) {
@@ -312,7 +341,9 @@ public class PentahoCompiledPermissionsImpl extends AbstractCompiledPermissions
       }
     }
     synchronized ( monitor ) {
-      readCache.put( id, canRead );
+      if ( aclEpoch == null || aclEpoch.get() == epoch ) {
+        readCache.put( id, canRead );
+      }
     }
     // } // readMonitor
     return canRead;
@@ -329,6 +360,23 @@ public class PentahoCompiledPermissionsImpl extends AbstractCompiledPermissions
     clearCache();
   }
 
+  /**
+   * Clears the cache of shared permissions if an ACL was modified since it was filled.
+   *
+   * @return the count of ACL modifications the cache is valid for
+   */
+  private long checkAclEpoch() {
+    if ( aclEpoch == null ) {
+      return 0;
+    }
+    long epoch = aclEpoch.get();
+    if ( epoch != cachedEpoch ) {
+      clearCache();
+      cachedEpoch = epoch;
+    }
+    return epoch;
+  }
+
   /**
    * Returns stored entriesInheriting flag for given node
    */
@@ -88,6 +88,16 @@ public class DefaultUnifiedRepository implements IUnifiedRepository {
     return repositoryFileAclDao.hasAccess( path, permissions );
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Map<String, EnumSet<RepositoryFilePermission>> hasAccess( final List<String> paths,
+      final EnumSet<RepositoryFilePermission> permissions ) {
+    Assert.notNull( paths );
+    return repositoryFileAclDao.hasAccess( paths, permissions );
+  }
+
   /**
    * {@inheritDoc}
    */
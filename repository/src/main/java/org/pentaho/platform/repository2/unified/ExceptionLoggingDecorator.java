@@ -378,6 +378,16 @@ public class ExceptionLoggingDecorator implements IUnifiedRepository {
     }, Messages.getInstance().getString( "ExceptionLoggingDecorator.hasAccess", path ) ); //$NON-NLS-1$
   }
 
+  public Map<String, EnumSet<RepositoryFilePermission>> hasAccess( final List<String> paths,
+      final EnumSet<RepositoryFilePermission> permissions ) {
+    return callLogThrow( new Callable<Map<String, EnumSet<RepositoryFilePermission>>>() {
+      public Map<String, EnumSet<RepositoryFilePermission>> call() throws Exception {
+        return delegatee.hasAccess( paths, permissions );
+      }
+    }, Messages.getInstance().getString( "ExceptionLoggingDecorator.hasAccess", //$NON-NLS-1$
+        String.valueOf( paths ) ) );
+  }
+
   public void lockFile( final Serializable fileId, final String message ) {
     callLogThrow( new Callable<Void>() {
       public Void call() throws Exception {
@@ -20,7 +20,9 @@ import org.pentaho.platform.api.repository2.unified.RepositoryFileSid;
 
 import java.io.Serializable;
 import java.util.EnumSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * A data access object for reading and writing {@code RepositoryFileAcl} instances. The methods in this interface
@@ -55,6 +57,31 @@ public interface IRepositoryFileAclDao {
    */
   boolean hasAccess( final String relPath, final EnumSet<RepositoryFilePermission> permissions );
 
+  /**
+   * Checks each of the permissions separately for each of the files. The default implementation delegates to
+   * {@link #hasAccess(String, EnumSet)} for every file and permission.
+   *
+   * @param relPaths
+   *          paths to files
+   * @param permissions
+   *          permissions to check
+   * @return for every path, the subset of the permissions the user has; empty if the file does not exist
+   */
+  default Map<String, EnumSet<RepositoryFilePermission>> hasAccess( final List<String> relPaths,
+      final EnumSet<RepositoryFilePermission> permissions ) {
+    Map<String, EnumSet<RepositoryFilePermission>> access = new LinkedHashMap<>();
+    for ( String relPath : relPaths ) {
+      EnumSet<RepositoryFilePermission> granted = EnumSet.noneOf( RepositoryFilePermission.class );
+      for ( RepositoryFilePermission permission : permissions ) {
+        if ( hasAccess( relPath, EnumSet.of( permission ) ) ) {
+          granted.add( permission );
+        }
+      }
+      access.put( relPath, granted );
+    }
+    return access;
+  }
+
   /**
    * Returns ACL for file.
    * 
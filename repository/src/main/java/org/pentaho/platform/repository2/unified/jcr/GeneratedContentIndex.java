@@ -0,0 +1,228 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.repository2.unified.jcr;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.pentaho.platform.api.repository2.unified.IUnifiedRepository;
+import org.pentaho.platform.api.repository2.unified.RepositoryFile;
+import org.pentaho.platform.engine.security.SecurityHelper;
+import org.pentaho.platform.repository.RepositoryFilenameUtils;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reverse index from the content creator id of generated files (see {@link PentahoJcrConstants#PHO_CONTENTCREATOR})
+ * to the generated files of a folder, typically a user home folder. Folders are indexed by their id.
+ * <p>
+ * The index of a folder is built from a single scan of its metadata the first time the folder is looked up. The scan
+ * runs as the system user, so the index holds every generated file of the folder whatever the permissions of the
+ * first caller; each lookup only returns the files its caller can read. From then on the index is kept current by
+ * {@link JcrRepositoryFileUtils} when the content creator of a file is written, and the folders files are copied,
+ * moved or restored into are dropped by {@link JcrRepositoryFileDao}. Entries of files that were removed or moved away
+ * are dropped when they are looked up. Since other writers may add generated content too, the index of a folder is
+ * rebuilt once it is older than the configured maximum age.
+ */
+public class GeneratedContentIndex {
+
+  private static final long DEFAULT_MAX_FOLDERS = 1000;
+
+  private static final long DEFAULT_MAX_AGE_MINUTES = 30;
+
+  private static final GeneratedContentIndex instance =
+    new GeneratedContentIndex( DEFAULT_MAX_FOLDERS, DEFAULT_MAX_AGE_MINUTES, TimeUnit.MINUTES );
+
+  private final Cache<String, FolderIndex> folders;
+
+  public GeneratedContentIndex( long maxFolders, long maxAge, TimeUnit unit ) {
+    folders = CacheBuilder.newBuilder().maximumSize( maxFolders ).expireAfterWrite( maxAge, unit ).build();
+  }
+
+  public static GeneratedContentIndex getInstance() {
+    return instance;
+  }
+
+  /**
+   * Returns the generated files of the given folder whose content creator is the given file and which the caller can
+   * read.
+   *
+   * @param repository the repository to read from, as the caller
+   * @param folder     the folder holding the generated content
+   * @param folderPath the path of the folder
+   * @param creatorId  the id of the file that created the content
+   * @param offset     the number of matching files to skip
+   * @param limit      the maximum number of files to return, negative for all
+   * @return the matching files, in the order they were indexed
+   */
+  public List<RepositoryFile> getGeneratedFiles( final IUnifiedRepository repository, final RepositoryFile folder,
+                                                 final String folderPath, String creatorId, int offset, int limit ) {
+    FolderIndex folderIndex;
+    try {
+      folderIndex = folders.get( folder.getId().toString(), new Callable<FolderIndex>() {
+        @Override
+        public FolderIndex call() throws Exception {
+          return runAsSystem( new Callable<FolderIndex>() {
+            @Override
+            public FolderIndex call() {
+              return buildFolderIndex( repository, folder );
+            }
+          } );
+        }
+      } );
+    } catch ( ExecutionException | UncheckedExecutionException e ) {
+      throw new IllegalStateException( e.getCause() );
+    }
+
+    List<RepositoryFile> files = new ArrayList<RepositoryFile>();
+    int skipped = 0;
+    for ( Serializable fileId : folderIndex.getFileIds( creatorId ) ) {
+      if ( limit >= 0 && files.size() >= limit ) {
+        break;
+      }
+      RepositoryFile file = repository.getFileById( fileId );
+      if ( file == null ) {
+        // either gone, or not readable by the caller; only the former is a reason to drop the entry
+        if ( !existsInFolder( repository, fileId, folderPath ) ) {
+          folderIndex.remove( fileId );
+        }
+      } else if ( !isInFolder( file, folderPath ) ) {
+        folderIndex.remove( fileId );
+      } else if ( skipped < offset ) {
+        skipped++;
+      } else {
+        files.add( file );
+      }
+    }
+    return files;
+  }
+
+  /**
+   * Records the content creator of the given file. Nothing is recorded if the folder of the file has not been indexed
+   * yet, it will be scanned when it is first looked up.
+   *
+   * @param folderId  the id of the folder of the file
+   * @param fileId    the id of the file
+   * @param creatorId the id of the file that created the content, null if the file is no generated content
+   */
+  public void contentGenerated( Serializable folderId, Serializable fileId, String creatorId ) {
+    if ( folderId == null || fileId == null ) {
+      return;
+    }
+    FolderIndex folderIndex = folders.getIfPresent( folderId.toString() );
+    if ( folderIndex != null ) {
+      folderIndex.put( fileId, creatorId );
+    }
+  }
+
+  /**
+   * Drops the index of the given folder, for changes that bring files of unknown content creators into it.
+   *
+   * @param folderId the id of the folder
+   */
+  public void invalidate( Serializable folderId ) {
+    if ( folderId != null ) {
+      folders.invalidate( folderId.toString() );
+    }
+  }
+
+  /**
+   * Drops the index of every folder.
+   */
+  public void clear() {
+    folders.invalidateAll();
+  }
+
+  protected <T> T runAsSystem( Callable<T> callable ) throws Exception {
+    return SecurityHelper.getInstance().runAsSystem( callable );
+  }
+
+  private boolean existsInFolder( final IUnifiedRepository repository, final Serializable fileId,
+                                  final String folderPath ) {
+    try {
+      return runAsSystem( new Callable<Boolean>() {
+        @Override
+        public Boolean call() {
+          RepositoryFile file = repository.getFileById( fileId );
+          return file != null && isInFolder( file, folderPath );
+        }
+      } );
+    } catch ( Exception e ) {
+      // keep the entry, it is checked again on the next lookup
+      return true;
+    }
+  }
+
+  private static boolean isInFolder( RepositoryFile file, String folderPath ) {
+    return !file.isFolder()
+      && folderPath.equals( RepositoryFilenameUtils.getFullPathNoEndSeparator( file.getPath() ) );
+  }
+
+  private FolderIndex buildFolderIndex( IUnifiedRepository repository, RepositoryFile folder ) {
+    FolderIndex folderIndex = new FolderIndex();
+    for ( RepositoryFile child : repository.getChildren( folder.getId() ) ) {
+      if ( !child.isFolder() ) {
+        Map<String, Serializable> fileMetadata = repository.getFileMetadata( child.getId() );
+        folderIndex.put( child.getId(), (String) fileMetadata.get( PentahoJcrConstants.PHO_CONTENTCREATOR ) );
+      }
+    }
+    return folderIndex;
+  }
+
+  private static class FolderIndex {
+
+    private final Map<String, Set<Serializable>> filesByCreator = new HashMap<String, Set<Serializable>>();
+
+    private final Map<Serializable, String> creatorByFile = new HashMap<Serializable, String>();
+
+    synchronized void put( Serializable fileId, String creatorId ) {
+      remove( fileId );
+      if ( creatorId != null ) {
+        creatorByFile.put( fileId, creatorId );
+        Set<Serializable> fileIds = filesByCreator.get( creatorId );
+        if ( fileIds == null ) {
+          fileIds = new LinkedHashSet<Serializable>();
+          filesByCreator.put( creatorId, fileIds );
+        }
+        fileIds.add( fileId );
+      }
+    }
+
+    synchronized void remove( Serializable fileId ) {
+      String creatorId = creatorByFile.remove( fileId );
+      if ( creatorId != null ) {
+        Set<Serializable> fileIds = filesByCreator.get( creatorId );
+        fileIds.remove( fileId );
+        if ( fileIds.isEmpty() ) {
+          filesByCreator.remove( creatorId );
+        }
+      }
+    }
+
+    synchronized List<Serializable> getFileIds( String creatorId ) {
+      Set<Serializable> fileIds = filesByCreator.get( creatorId );
+      return fileIds == null ? Collections.<Serializable>emptyList() : new ArrayList<Serializable>( fileIds );
+    }
+  }
+}
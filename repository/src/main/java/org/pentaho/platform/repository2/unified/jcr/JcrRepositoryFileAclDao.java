@@ -46,8 +46,13 @@ import java.io.Serializable;
 import java.security.Principal;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.EnumMap;
 import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Jackrabbit-based implementation of {@link IRepositoryFileAclDao}.
@@ -189,6 +194,83 @@ public class JcrRepositoryFileAclDao implements IRepositoryFileAclDao {
     } );
   }
 
+  /**
+   * {@inheritDoc}
+   * <p>
+   * All paths are checked in one session. The privileges of each path are read once and compared against the
+   * privileges backing every requested permission.
+   */
+  @Override
+  public Map<String, EnumSet<RepositoryFilePermission>> hasAccess( final List<String> relPaths,
+      final EnumSet<RepositoryFilePermission> permissions ) {
+    @SuppressWarnings( "unchecked" )
+    Map<String, EnumSet<RepositoryFilePermission>> access =
+        (Map<String, EnumSet<RepositoryFilePermission>>) jcrTemplate.execute( new JcrCallback() {
+          public Object doInJcr( final Session session ) throws RepositoryException, IOException {
+            DefaultPermissionConversionHelper permissionConversionHelper =
+                new DefaultPermissionConversionHelper( session );
+            Map<RepositoryFilePermission, Privilege[]> requiredPrivileges =
+                new EnumMap<RepositoryFilePermission, Privilege[]>( RepositoryFilePermission.class );
+            for ( RepositoryFilePermission permission : permissions ) {
+              requiredPrivileges.put( permission, permissionConversionHelper.pentahoPermissionsToPrivileges( session,
+                  EnumSet.of( permission ) ) );
+            }
+
+            AccessControlManager acMgr = session.getAccessControlManager();
+            Map<String, EnumSet<RepositoryFilePermission>> result =
+                new LinkedHashMap<String, EnumSet<RepositoryFilePermission>>();
+            for ( String relPath : relPaths ) {
+              EnumSet<RepositoryFilePermission> granted = EnumSet.noneOf( RepositoryFilePermission.class );
+              try {
+                String absPath = JcrStringHelper.pathEncode( pathConversionHelper.relToAbs( relPath ) );
+                Set<String> grantedPrivileges = expandPrivileges( acMgr.getPrivileges( absPath ) );
+                for ( Map.Entry<RepositoryFilePermission, Privilege[]> required : requiredPrivileges.entrySet() ) {
+                  if ( containsAll( grantedPrivileges, required.getValue() ) ) {
+                    granted.add( required.getKey() );
+                  }
+                }
+              } catch ( PathNotFoundException e ) {
+                // never throw an exception if the path does not exist; just grant nothing
+              }
+              result.put( relPath, granted );
+            }
+            return result;
+          }
+        } );
+    return access;
+  }
+
+  /**
+   * Returns the names of the given privileges and of all privileges aggregated by them.
+   */
+  private static Set<String> expandPrivileges( final Privilege[] privileges ) {
+    Set<String> names = new HashSet<String>();
+    for ( Privilege privilege : privileges ) {
+      names.add( privilege.getName() );
+      for ( Privilege aggregated : privilege.getAggregatePrivileges() ) {
+        names.add( aggregated.getName() );
+      }
+    }
+    return names;
+  }
+
+  private static boolean containsAll( final Set<String> grantedPrivileges, final Privilege[] requiredPrivileges ) {
+    for ( Privilege required : requiredPrivileges ) {
+      if ( grantedPrivileges.contains( required.getName() ) ) {
+        continue;
+      }
+      if ( !required.isAggregate() ) {
+        return false;
+      }
+      for ( Privilege aggregated : required.getAggregatePrivileges() ) {
+        if ( !aggregated.isAggregate() && !grantedPrivileges.contains( aggregated.getName() ) ) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
   private RepositoryFileAcl toAcl( final Session session, final PentahoJcrConstants pentahoJcrConstants,
       final Serializable id ) throws RepositoryException {
 
@@ -24,6 +24,8 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import javax.jcr.AccessDeniedException;
 import javax.jcr.Item;
@@ -37,6 +39,7 @@ import javax.jcr.RepositoryException;
 import javax.jcr.Session;
 import javax.jcr.lock.Lock;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.pentaho.platform.api.locale.IPentahoLocale;
@@ -58,6 +61,7 @@ import org.pentaho.platform.repository2.messages.Messages;
 import org.pentaho.platform.repository2.unified.IRepositoryFileAclDao;
 import org.pentaho.platform.repository2.unified.IRepositoryFileDao;
 import org.pentaho.platform.repository2.unified.ServerRepositoryPaths;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.extensions.jcr.JcrCallback;
 import org.springframework.extensions.jcr.JcrTemplate;
 import org.springframework.util.Assert;
@@ -68,7 +72,7 @@ import org.springframework.util.StringUtils;
  * 
  * @author mlowery
  */
-public class JcrRepositoryFileDao implements IRepositoryFileDao {
+public class JcrRepositoryFileDao implements IRepositoryFileDao, DisposableBean {
   private static final Log logger = LogFactory.getLog( JcrRepositoryFileDao.class );
 
   // ~ Static fields/initializers
@@ -92,6 +96,11 @@ public class JcrRepositoryFileDao implements IRepositoryFileDao {
 
   private IRepositoryAccessVoterManager accessVoterManager;
 
+  /**
+   * Evaluates the subtrees of {@link #getTree} requests concurrently; null when trees are walked sequentially.
+   */
+  private ExecutorService treeWalkerExecutor;
+
   // ~ Constructors
   // ====================================================================================================
 
@@ -839,6 +848,7 @@ public class JcrRepositoryFileDao implements IRepositoryFileDao {
         session.save();
         JcrRepositoryFileUtils.checkinNearestVersionableFileIfNecessary( session, pentahoJcrConstants,
             origParentFolderId, versionMessage );
+        GeneratedContentIndex.getInstance().invalidate( origParentFolderId );
         return null;
       }
     } );
@@ -968,6 +978,7 @@ public class JcrRepositoryFileDao implements IRepositoryFileDao {
               srcParentFolderId, versionMessage );
         }
         session.save();
+        GeneratedContentIndex.getInstance().invalidate( destParentFolderNode.getIdentifier() );
         return null;
       }
     } );
@@ -1042,6 +1053,59 @@ public class JcrRepositoryFileDao implements IRepositoryFileDao {
     } );
   }
 
+  /**
+   * Sets the number of threads used to walk the subtrees below the folder of a {@link #getTree} request. A value of 1
+   * or less (the default) walks trees on the calling thread only.
+   * <p>
+   * Each subtree is walked on a JCR session of its own, obtained through the JCR template for the requesting user. A
+   * tree request therefore uses up to <code>treeWalkerThreads</code> sessions on top of the one of the requesting
+   * thread, and all tree requests together never use more than <code>treeWalkerThreads</code> extra sessions. With a
+   * pooling session factory these are borrowed from the pool of the user, so the value should stay well below the
+   * number of sessions a user may hold at the same time.
+   */
+  public synchronized void setTreeWalkerThreads( final int treeWalkerThreads ) {
+    if ( treeWalkerExecutor != null ) {
+      treeWalkerExecutor.shutdown();
+      treeWalkerExecutor = null;
+    }
+    if ( treeWalkerThreads > 1 ) {
+      treeWalkerExecutor =
+          Executors.newFixedThreadPool( treeWalkerThreads, new ThreadFactoryBuilder().setDaemon( true ).setNameFormat(
+              "repository-tree-walker-%d" ).build() ); //$NON-NLS-1$
+    }
+  }
+
+  /**
+   * Stops the threads walking repository trees.
+   */
+  @Override
+  public void destroy() {
+    setTreeWalkerThreads( 1 );
+  }
+
+  private JcrRepositoryFileTreeWalker createTreeWalker( final RepositoryRequest repositoryRequest,
+      final String absPath ) {
+    JcrRepositoryFileTreeWalker treeWalker =
+        new JcrRepositoryFileTreeWalker( pathConversionHelper, lockHelper, accessVoterManager, repositoryRequest,
+            absPath );
+    ExecutorService executor = treeWalkerExecutor;
+    if ( executor != null ) {
+      treeWalker.parallel( executor, new JcrRepositoryFileTreeWalker.SessionRunner() {
+        @Override
+        @SuppressWarnings( "unchecked" )
+        public <T> T runInSession( final JcrRepositoryFileTreeWalker.SessionCallback<T> callback ) {
+          return (T) jcrTemplate.execute( new JcrCallback() {
+            @Override
+            public Object doInJcr( final Session session ) throws RepositoryException {
+              return callback.doInSession( session );
+            }
+          } );
+        }
+      } );
+    }
+    return treeWalker;
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -1053,8 +1117,8 @@ public class JcrRepositoryFileDao implements IRepositoryFileDao {
       public Object doInJcr( final Session session ) throws RepositoryException, IOException {
         PentahoJcrConstants pentahoJcrConstants = new PentahoJcrConstants( session );
         String absPath = pathConversionHelper.relToAbs( repositoryRequest.getPath() );
-        return JcrRepositoryFileUtils.getTree( session, pentahoJcrConstants, pathConversionHelper, lockHelper, absPath,
-            repositoryRequest, accessVoterManager );
+        return JcrRepositoryFileUtils.getTree( session, pentahoJcrConstants, absPath, createTreeWalker(
+            repositoryRequest, absPath ) );
       }
     } );
   }
@@ -1073,8 +1137,8 @@ public class JcrRepositoryFileDao implements IRepositoryFileDao {
       public Object doInJcr( final Session session ) throws RepositoryException, IOException {
         PentahoJcrConstants pentahoJcrConstants = new PentahoJcrConstants( session );
         String absPath = pathConversionHelper.relToAbs( relPath );
-        return JcrRepositoryFileUtils.getTree( session, pentahoJcrConstants, pathConversionHelper, lockHelper, absPath,
-            repositoryRequest, accessVoterManager );
+        return JcrRepositoryFileUtils.getTree( session, pentahoJcrConstants, absPath, createTreeWalker(
+            repositoryRequest, absPath ) );
       }
     } );
   }
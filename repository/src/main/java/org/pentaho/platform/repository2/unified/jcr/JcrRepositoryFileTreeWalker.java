@@ -0,0 +1,400 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.repository2.unified.jcr;
+
+import org.apache.commons.lang.mutable.MutableBoolean;
+import org.apache.jackrabbit.util.ChildrenCollectorFilter;
+import org.pentaho.platform.api.engine.IPentahoSession;
+import org.pentaho.platform.api.repository2.unified.IRepositoryAccessVoterManager;
+import org.pentaho.platform.api.repository2.unified.IUnifiedRepository;
+import org.pentaho.platform.api.repository2.unified.RepositoryFile;
+import org.pentaho.platform.api.repository2.unified.RepositoryFileAcl;
+import org.pentaho.platform.api.repository2.unified.RepositoryFilePermission;
+import org.pentaho.platform.api.repository2.unified.RepositoryFileTree;
+import org.pentaho.platform.api.repository2.unified.RepositoryRequest;
+import org.pentaho.platform.engine.core.system.PentahoSessionHolder;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import javax.jcr.AccessDeniedException;
+import javax.jcr.Node;
+import javax.jcr.NodeIterator;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Builds the {@link RepositoryFileTree} answered by {@link JcrRepositoryFileUtils#getTree}. Compared to the original
+ * node-at-a-time recursion this walker
+ * <ul>
+ * <li>enumerates the children of a folder once, applying the JCR name pattern in memory when both the filtered and the
+ * unfiltered folder sets are needed,</li>
+ * <li>resolves the file, ACL and read access of every child of a folder level in a single pass, so a child is no longer
+ * converted and access checked once by its parent and once more by itself,</li>
+ * <li>reads only the system folder flag instead of the whole metadata map at root level, and</li>
+ * <li>optionally evaluates the subtrees below the requested folder concurrently, each on its own JCR session.</li>
+ * </ul>
+ * The resulting tree is the same as the one produced by the sequential algorithm.
+ */
+public class JcrRepositoryFileTreeWalker {
+
+  /**
+   * Runs a unit of work on a JCR session owned by the calling thread.
+   */
+  public interface SessionRunner {
+    <T> T runInSession( SessionCallback<T> callback ) throws RepositoryException;
+  }
+
+  public interface SessionCallback<T> {
+    T doInSession( Session session ) throws RepositoryException;
+  }
+
+  private final IPathConversionHelper pathConversionHelper;
+
+  private final ILockHelper lockHelper;
+
+  private final IRepositoryAccessVoterManager accessVoterManager;
+
+  private final int depth;
+
+  private final String childNodeFilter;
+
+  private final boolean showHidden;
+
+  private final RepositoryRequest.FILES_TYPE_FILTER types;
+
+  private final boolean includeSystemFolders;
+
+  private final String rootPath;
+
+  private ExecutorService executor;
+
+  private SessionRunner sessionRunner;
+
+  public JcrRepositoryFileTreeWalker( final IPathConversionHelper pathConversionHelper, final ILockHelper lockHelper,
+      final IRepositoryAccessVoterManager accessVoterManager, final RepositoryRequest repositoryRequest,
+      final String rootPath ) {
+    this.pathConversionHelper = pathConversionHelper;
+    this.lockHelper = lockHelper;
+    this.accessVoterManager = accessVoterManager;
+    this.depth = repositoryRequest.getDepth();
+    this.childNodeFilter = repositoryRequest.getChildNodeFilter();
+    this.showHidden = repositoryRequest.isShowHidden();
+    this.types = repositoryRequest.getTypes();
+    this.includeSystemFolders = repositoryRequest.isIncludeSystemFolders();
+    this.rootPath = rootPath;
+  }
+
+  /**
+   * Evaluates the subtrees of the requested folder on the given executor. Each task obtains its own session through
+   * the session runner; the Pentaho session and security context of the caller are propagated to the task.
+   *
+   * @param executor      bounded pool the subtree evaluations are submitted to
+   * @param sessionRunner provides a JCR session to the pool threads
+   * @return this walker
+   */
+  public JcrRepositoryFileTreeWalker parallel( final ExecutorService executor, final SessionRunner sessionRunner ) {
+    this.executor = executor;
+    this.sessionRunner = sessionRunner;
+    return this;
+  }
+
+  public RepositoryFileTree walk( final Session session, final PentahoJcrConstants pentahoJcrConstants,
+      final Node rootNode ) throws RepositoryException {
+    boolean fanOut = executor != null && sessionRunner != null;
+    TreeEntry entry =
+        visit( session, pentahoJcrConstants, rootNode, null, false, depth, new MutableBoolean( false ), fanOut, true );
+    return entry == null ? null : toTree( session, pentahoJcrConstants, entry );
+  }
+
+  /**
+   * Evaluates a node and, depth permitting, its children.
+   *
+   * @param file          the already resolved file of the node, or null to resolve it here
+   * @param accessChecked whether read access to the node was already granted by the caller
+   * @param fanOut        whether folder subtrees of this level are handed to the executor
+   * @param keepFiles     whether the resolved files can be reused by the calling thread; false for pool threads
+   */
+  private TreeEntry visit( final Session session, final PentahoJcrConstants pentahoJcrConstants, final Node node,
+      RepositoryFile file, final boolean accessChecked, final int depth, final MutableBoolean foundFiltered,
+      final boolean fanOut, final boolean keepFiles ) throws RepositoryException {
+
+    if ( file == null ) {
+      file =
+          JcrRepositoryFileUtils.nodeToFile( session, pentahoJcrConstants, pathConversionHelper, lockHelper, node,
+              false, null );
+    }
+    if ( ( !showHidden && file.isHidden() ) || file.isAclNode() || ( !accessChecked && !accessVoterManager.hasAccess(
+        file, RepositoryFilePermission.READ, JcrRepositoryFileAclUtils.getAcl( session, pentahoJcrConstants, file
+            .getId() ), PentahoSessionHolder.getSession() ) ) ) {
+      return null;
+    }
+    TreeEntry entry = new TreeEntry( node.getPath(), keepFiles ? file : null );
+    // if depth is neither negative (indicating unlimited depth) nor positive (indicating at least one more level
+    // to go)
+    if ( depth == 0 ) {
+      return entry;
+    }
+
+    List<Node> filteredChildren = new ArrayList<Node>();
+    List<Node> childFolders = new ArrayList<Node>();
+    collectChildren( session, pentahoJcrConstants, node, filteredChildren, childFolders );
+
+    // resolve the whole level first
+    Map<Node, ChildAccess> accessByNode = new IdentityHashMap<Node, ChildAccess>();
+    for ( Node childNode : childFolders ) {
+      resolveAccess( session, pentahoJcrConstants, childNode, accessByNode );
+    }
+    for ( Node childNode : filteredChildren ) {
+      resolveAccess( session, pentahoJcrConstants, childNode, accessByNode );
+    }
+
+    Map<Node, Object> subtrees = new IdentityHashMap<Node, Object>();
+    if ( fanOut && depth - 1 != 0 ) {
+      submitSubtrees( pentahoJcrConstants, accessByNode, depth - 1, subtrees );
+    }
+
+    entry.children = new ArrayList<TreeEntry>();
+    // work on the unfiltered set of folders first, add them only if files have been found somewhere down the tree
+    for ( Node childNode : childFolders ) {
+      addChild( session, pentahoJcrConstants, childNode, accessByNode.get( childNode ), subtrees, depth,
+          foundFiltered, false, keepFiles, entry.children );
+    }
+    // and finally the filtered children
+    for ( Node childNode : filteredChildren ) {
+      foundFiltered.setValue( true );
+      addChild( session, pentahoJcrConstants, childNode, accessByNode.get( childNode ), subtrees, depth,
+          foundFiltered, true, keepFiles, entry.children );
+    }
+    return entry;
+  }
+
+  /**
+   * Splits the children of a node into the set that satisfies the name filter and the file type and system folder
+   * restrictions, and, when a real name filter is given, the set of all child folders that must be traversed to find
+   * matching files further down.
+   */
+  private void collectChildren( final Session session, final PentahoJcrConstants pentahoJcrConstants,
+      final Node node, final List<Node> filteredChildren, final List<Node> childFolders ) throws RepositoryException {
+    boolean atRoot = rootPath.equals( node.getPath() );
+    boolean needsFolders = childNodeFilter != null && !childNodeFilter.equals( "*" )
+        && JcrRepositoryFileUtils.isPentahoFolder( pentahoJcrConstants, node );
+
+    NodeIterator childNodes = needsFolders ? node.getNodes() : node.getNodes( childNodeFilter );
+    while ( childNodes.hasNext() ) {
+      Node childNode = childNodes.nextNode();
+      boolean pentahoFolder = JcrRepositoryFileUtils.isPentahoFolder( pentahoJcrConstants, childNode );
+      if ( !needsFolders || ChildrenCollectorFilter.matches( childNode.getName(), childNodeFilter ) ) {
+        if ( !( !pentahoFolder && types == RepositoryRequest.FILES_TYPE_FILTER.FOLDERS || pentahoFolder
+            && types == RepositoryRequest.FILES_TYPE_FILTER.FILES ) ) {
+          // do not to include (skip) system_folder children that are at root level if includeSystemFolders is false
+          if ( includeSystemFolders || !atRoot || !isSystemFolder( session, pentahoJcrConstants, childNode ) ) {
+            filteredChildren.add( childNode );
+          }
+        }
+      }
+      if ( needsFolders && pentahoFolder ) {
+        childFolders.add( childNode );
+      }
+    }
+  }
+
+  private void resolveAccess( final Session session, final PentahoJcrConstants pentahoJcrConstants,
+      final Node childNode, final Map<Node, ChildAccess> accessByNode ) throws RepositoryException {
+    if ( accessByNode.containsKey( childNode ) ) {
+      return;
+    }
+    RepositoryFile file =
+        JcrRepositoryFileUtils.nodeToFile( session, pentahoJcrConstants, pathConversionHelper, lockHelper, childNode );
+    boolean readable = false;
+    if ( JcrRepositoryFileUtils.isSupportedNodeType( pentahoJcrConstants, childNode ) ) {
+      try {
+        RepositoryFileAcl fileAcl = JcrRepositoryFileAclUtils.getAcl( session, pentahoJcrConstants, file.getId() );
+        readable =
+            accessVoterManager.hasAccess( file, RepositoryFilePermission.READ, fileAcl, PentahoSessionHolder
+                .getSession() );
+      } catch ( AccessDeniedException e ) {
+        readable = false;
+      }
+    }
+    accessByNode.put( childNode, new ChildAccess( file, readable ) );
+  }
+
+  private void addChild( final Session session, final PentahoJcrConstants pentahoJcrConstants, final Node childNode,
+      final ChildAccess access, final Map<Node, Object> subtrees, final int depth, final MutableBoolean foundFiltered,
+      final boolean isRootFiltered, final boolean keepFiles, final List<TreeEntry> children )
+    throws RepositoryException {
+    if ( !access.readable ) {
+      return;
+    }
+    SubtreeResult result = getSubtree( session, pentahoJcrConstants, childNode, access, subtrees, depth, keepFiles );
+    if ( result.tree != null && ( result.foundFiltered || isRootFiltered ) ) {
+      foundFiltered.setValue( true );
+      children.add( result.tree );
+    }
+  }
+
+  private SubtreeResult getSubtree( final Session session, final PentahoJcrConstants pentahoJcrConstants,
+      final Node childNode, final ChildAccess access, final Map<Node, Object> subtrees, final int depth,
+      final boolean keepFiles ) throws RepositoryException {
+    Object known = subtrees.get( childNode );
+    if ( known instanceof Future ) {
+      known = await( (Future<?>) known );
+      subtrees.put( childNode, known );
+    }
+    if ( known != null ) {
+      return (SubtreeResult) known;
+    }
+    MutableBoolean foundFilteredAtomic =
+        new MutableBoolean( !JcrRepositoryFileUtils.isPentahoFolder( pentahoJcrConstants, childNode ) );
+    TreeEntry tree =
+        visit( session, pentahoJcrConstants, childNode, access.file, true, depth - 1, foundFilteredAtomic, false,
+            keepFiles );
+    SubtreeResult result = new SubtreeResult( tree, foundFilteredAtomic.booleanValue() );
+    subtrees.put( childNode, result );
+    return result;
+  }
+
+  private void submitSubtrees( final PentahoJcrConstants pentahoJcrConstants,
+      final Map<Node, ChildAccess> accessByNode, final int childDepth, final Map<Node, Object> subtrees )
+    throws RepositoryException {
+    final IPentahoSession pentahoSession = PentahoSessionHolder.getSession();
+    final SecurityContext securityContext = SecurityContextHolder.getContext();
+    for ( Map.Entry<Node, ChildAccess> childEntry : accessByNode.entrySet() ) {
+      Node childNode = childEntry.getKey();
+      if ( !childEntry.getValue().readable
+          || !JcrRepositoryFileUtils.isPentahoFolder( pentahoJcrConstants, childNode ) ) {
+        continue;
+      }
+      final String childPath = childNode.getPath();
+      subtrees.put( childNode, executor.submit( new Callable<SubtreeResult>() {
+        @Override
+        public SubtreeResult call() throws Exception {
+          IPentahoSession previousPentahoSession = PentahoSessionHolder.getSession();
+          SecurityContext previousSecurityContext = SecurityContextHolder.getContext();
+          PentahoSessionHolder.setSession( pentahoSession );
+          SecurityContextHolder.setContext( securityContext );
+          try {
+            return sessionRunner.runInSession( new SessionCallback<SubtreeResult>() {
+              @Override
+              public SubtreeResult doInSession( final Session workerSession ) throws RepositoryException {
+                PentahoJcrConstants workerConstants = new PentahoJcrConstants( workerSession );
+                MutableBoolean foundFilteredAtomic = new MutableBoolean( false );
+                TreeEntry tree =
+                    visit( workerSession, workerConstants, workerSession.getNode( childPath ), null, true,
+                        childDepth, foundFilteredAtomic, false, false );
+                return new SubtreeResult( tree, foundFilteredAtomic.booleanValue() );
+              }
+            } );
+          } finally {
+            PentahoSessionHolder.setSession( previousPentahoSession );
+            SecurityContextHolder.setContext( previousSecurityContext );
+          }
+        }
+      } ) );
+    }
+  }
+
+  private Object await( final Future<?> future ) throws RepositoryException {
+    try {
+      return future.get();
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new RepositoryException( e );
+    } catch ( ExecutionException e ) {
+      Throwable cause = e.getCause();
+      if ( cause instanceof RepositoryException ) {
+        throw (RepositoryException) cause;
+      }
+      if ( cause instanceof RuntimeException ) {
+        throw (RuntimeException) cause;
+      }
+      throw new RepositoryException( cause );
+    }
+  }
+
+  /**
+   * Turns the evaluated entries into the returned tree. Files resolved on pool threads are not reused since they are
+   * bound to the session of that thread; they are resolved again on the caller's session.
+   */
+  private RepositoryFileTree toTree( final Session session, final PentahoJcrConstants pentahoJcrConstants,
+      final TreeEntry entry ) throws RepositoryException {
+    RepositoryFile file = entry.file;
+    if ( file == null ) {
+      file =
+          JcrRepositoryFileUtils.nodeToFile( session, pentahoJcrConstants, pathConversionHelper, lockHelper, session
+              .getNode( entry.absPath ), false, null );
+    }
+    List<RepositoryFileTree> children = null;
+    if ( entry.children != null ) {
+      children = new ArrayList<RepositoryFileTree>( entry.children.size() );
+      for ( TreeEntry child : entry.children ) {
+        children.add( toTree( session, pentahoJcrConstants, child ) );
+      }
+      Collections.sort( children );
+    }
+    return new RepositoryFileTree( file, children );
+  }
+
+  private boolean isSystemFolder( final Session session, final PentahoJcrConstants pentahoJcrConstants,
+      final Node childNode ) throws RepositoryException {
+    String metadataNodeName = pentahoJcrConstants.getPHO_METADATA();
+    if ( !childNode.hasNode( metadataNodeName ) ) {
+      return false;
+    }
+    Node metadataNode = childNode.getNode( metadataNodeName );
+    String propertyName =
+        session.getNamespacePrefix( PentahoJcrConstants.PHO_NS ) + ":" + IUnifiedRepository.SYSTEM_FOLDER;
+    return metadataNode.hasProperty( propertyName ) && metadataNode.getProperty( propertyName ).getBoolean();
+  }
+
+  private static final class ChildAccess {
+    private final RepositoryFile file;
+    private final boolean readable;
+
+    private ChildAccess( final RepositoryFile file, final boolean readable ) {
+      this.file = file;
+      this.readable = readable;
+    }
+  }
+
+  private static final class SubtreeResult {
+    private final TreeEntry tree;
+    private final boolean foundFiltered;
+
+    private SubtreeResult( final TreeEntry tree, final boolean foundFiltered ) {
+      this.tree = tree;
+      this.foundFiltered = foundFiltered;
+    }
+  }
+
+  private static final class TreeEntry {
+    private final String absPath;
+    private final RepositoryFile file;
+    private List<TreeEntry> children;
+
+    private TreeEntry( final String absPath, final RepositoryFile file ) {
+      this.absPath = absPath;
+      this.file = file;
+    }
+  }
+}
@@ -20,7 +20,6 @@ import java.util.Calendar;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -28,7 +27,6 @@ import java.util.Objects;
 import java.util.Properties;
 import java.util.regex.Pattern;
 
-import javax.jcr.AccessDeniedException;
 import javax.jcr.Item;
 import javax.jcr.ItemNotFoundException;
 import javax.jcr.Node;
@@ -46,21 +44,17 @@ import javax.jcr.version.VersionHistory;
 import javax.jcr.version.VersionManager;
 
 import org.apache.commons.lang.BooleanUtils;
-import org.apache.commons.lang.mutable.MutableBoolean;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.jackrabbit.JcrConstants;
-import org.apache.jackrabbit.core.NodeImpl;
 import org.apache.jackrabbit.core.VersionManagerImpl;
 import org.pentaho.platform.api.engine.IPentahoSession;
 import org.pentaho.platform.api.locale.IPentahoLocale;
 import org.pentaho.platform.api.repository2.unified.IRepositoryAccessVoterManager;
 import org.pentaho.platform.api.repository2.unified.IRepositoryFileData;
 import org.pentaho.platform.api.repository2.unified.IRepositoryVersionManager;
-import org.pentaho.platform.api.repository2.unified.IUnifiedRepository;
 import org.pentaho.platform.api.repository2.unified.RepositoryFile;
 import org.pentaho.platform.api.repository2.unified.RepositoryFileAcl;
-import org.pentaho.platform.api.repository2.unified.RepositoryFilePermission;
 import org.pentaho.platform.api.repository2.unified.RepositoryFileSid;
 import org.pentaho.platform.api.repository2.unified.RepositoryFileTree;
 import org.pentaho.platform.api.repository2.unified.RepositoryRequest;
@@ -607,6 +601,8 @@ public class JcrRepositoryFileUtils {
     }
 
     transformer.createContentNode( session, pentahoJcrConstants, content, fileNode );
+    GeneratedContentIndex.getInstance().contentGenerated( parentFolderNode.getIdentifier(), fileNode.getIdentifier(),
+        file.getCreatorId() );
     return fileNode;
   }
 
@@ -656,6 +652,8 @@ public class JcrRepositoryFileUtils {
     }
     if ( file.getCreatorId() != null ) {
       setMetadataItemForFile( session, PentahoJcrConstants.PHO_CONTENTCREATOR, file.getCreatorId(), metadataNode );
+      GeneratedContentIndex.getInstance().contentGenerated( fileNode.getParent().getIdentifier(),
+          fileNode.getIdentifier(), file.getCreatorId() );
     }
     setMetadataItemForFile( session, RepositoryFile.SCHEDULABLE_KEY, Boolean.toString( file.isSchedulable() ),
         metadataNode );
@@ -1131,175 +1129,24 @@ public class JcrRepositoryFileUtils {
       final RepositoryRequest repositoryRequest, IRepositoryAccessVoterManager accessVoterManager )
     throws RepositoryException {
 
-    Item fileItem = session.getItem( JcrStringHelper.pathEncode( absPath ) );
-    // items are nodes or properties; this must be a node
-    Assert.isTrue( fileItem.isNode() );
-    Node fileNode = (Node) fileItem;
-
-    return getTreeByNode( session, pentahoJcrConstants, pathConversionHelper, lockHelper, fileNode, repositoryRequest
-        .getDepth(), repositoryRequest.getChildNodeFilter(), repositoryRequest.isShowHidden(), accessVoterManager,
-        repositoryRequest.getTypes(), new MutableBoolean( false ), repositoryRequest.isIncludeSystemFolders(),
-        absPath );
-
+    return getTree( session, pentahoJcrConstants, absPath, new JcrRepositoryFileTreeWalker( pathConversionHelper,
+        lockHelper, accessVoterManager, repositoryRequest, absPath ) );
   }
 
   /**
-   * Returns a RepositoryFileTree for a given node. This method will be called recursively for each folder it processes.
-   * The childNodeFilter is a filter used directly by the JCR jar to filter node names. Since JCR does not know a folder
-   * from a file (that is our construct), it is not capable of filtering out filenames but not folder names. Therefore,
-   * this logic will create two sets of children nodes. The <code>filteredChildrenSet</code> keeps the child nodes that
-   * satisfied the childNodeFilter. The <code> childrenFolderSet</code> keeps a set of all child folder nodes regardless
-   * of the value of the filter. We use the <code>childrenFolderSet</code> to know what folders to traverse, but we use
-   * the <code>filteredChildrenSet </code> to determine what actual files to include in the returned tree.
-   * <p>
-   * Just because we process a folder node does not necessarily mean the folder will be reported in the tree. It must
-   * first find a file that satisfies the criteria of the <code>childNodeFilter</code> mask. A file meeting the criteria
-   * may be any number of folders down the repository structure, so the <code>foundFiltered</code> MutableBoolean tells
-   * the caller if a file was found, at any level, meeting that criteria.
-   * 
-   * @param session
-   *          The current session in progress
-   * @param pentahoJcrConstants
-   * @param pathConversionHelper
-   * @param lockHelper
-   * @param fileNode
-   *          The node which will serve as the root of the tree
-   * @param depth
-   *          how many levels do we go down.
-   * @param childNodeFilter
-   *          The filter sent to JCR to retrieve defining which files are in scope
-   * @param showHidden
-   *          Whether to return hidden files
-   * @param accessVoterManager
-   *          See IRepositoryAccessVoterManager
-   * @param types
-   *          <code>FILE_TYPE_FILTERS</code> Types of files to return including FILES, FOLDERS, FILES_FOLDERS
-   * @param foundFiltered
-   *          This <code>MutableBoolean</code> will tell the caller if there was a file encountered, (at any level up to
-   *          the depth), that was compliant with the childNodeFilter. This will determine if this node, (and its
-   *          children), should be discarded because there are no relevant files.
-   * @return A RepositoryFileTree representing the entire tree at and below the given node that complies with file
-   *         filtering and other parameters of the tree request.
-   * @throws RepositoryException
+   * Returns the tree below <code>absPath</code> as evaluated by the given walker.
+   *
+   * @see JcrRepositoryFileTreeWalker
    */
-  private static RepositoryFileTree getTreeByNode( final Session session, final PentahoJcrConstants pentahoJcrConstants,
-      final IPathConversionHelper pathConversionHelper, final ILockHelper lockHelper, final Node fileNode,
-      final int depth, final String childNodeFilter, final boolean showHidden,
-      IRepositoryAccessVoterManager accessVoterManager, RepositoryRequest.FILES_TYPE_FILTER types,
-      MutableBoolean foundFiltered, final boolean includeSystemFolders, final String rootPath )
-      throws RepositoryException {
-
-    RepositoryFile rootFile =
-        nodeToFile( session, pentahoJcrConstants, pathConversionHelper, lockHelper, fileNode, false, null );
-    if ( ( !showHidden && rootFile.isHidden() ) || rootFile.isAclNode() || ( !accessVoterManager.hasAccess( rootFile,
-        RepositoryFilePermission.READ, JcrRepositoryFileAclUtils.getAcl( session, pentahoJcrConstants, rootFile
-            .getId() ), PentahoSessionHolder.getSession() ) ) ) {
-      return null;
-    }
-    List<RepositoryFileTree> children;
-    HashSet<Node> childrenFolderSet;
-    // if depth is neither negative (indicating unlimited depth) nor positive (indicating at least one more level
-    // to go)
-    if ( depth != 0 ) {
-      children = new ArrayList<RepositoryFileTree>();
-      int numberOfPasses = childNodeFilter != null && !childNodeFilter.equals( "*" ) ? 2 : 1;
-
-      // get Filtered Children set
-      HashSet<Node> filteredChildrenSet;
-      filteredChildrenSet = new HashSet<Node>();
-      NodeIterator childNodes = fileNode.getNodes( childNodeFilter );
-      while ( childNodes.hasNext() ) {
-        Node childNode = childNodes.nextNode();
-
-        boolean pentahoFolder = isPentahoFolder( pentahoJcrConstants, childNode );
-        if ( !( !pentahoFolder && types == RepositoryRequest.FILES_TYPE_FILTER.FOLDERS || pentahoFolder
-            && types == RepositoryRequest.FILES_TYPE_FILTER.FILES ) ) {
-          // do not to include (skip) system_folder children that are at root level if includeSystemFolders is false
-          if ( !( !includeSystemFolders && ( rootPath.equals( childNode.getParent().getPath() ) && isSystemFolder(
-            session, childNode ) ) ) ) {
-            filteredChildrenSet.add( childNode );
-          }
-        }
-      }
-
-      // Now get the unfiltered folder set not already in Filtered Set
-      childrenFolderSet = new HashSet<Node>();
-      if ( numberOfPasses == 2 ) {
-        if ( isPentahoFolder( pentahoJcrConstants, fileNode ) ) {
-          childNodes = fileNode.getNodes();
-          while ( childNodes.hasNext() ) {
-            Node childNode = childNodes.nextNode();
-            boolean pentahoFolder = isPentahoFolder( pentahoJcrConstants, childNode );
-            if ( pentahoFolder ) {
-              childrenFolderSet.add( childNode );
-            }
-          }
-        }
-      }
-
-      // Now work on the unfiltered set of folders, if any, add them only if file have been found somewhere down the
-      // tree
-      for ( Node childNode : childrenFolderSet ) {
-        checkNodeForTree( childNode, children, session, pentahoJcrConstants, pathConversionHelper, childNodeFilter,
-            lockHelper, depth, showHidden, accessVoterManager, types, foundFiltered, false, includeSystemFolders, rootPath );
-      }
-
-      // And finally, add Children in filtered
-      for ( Node childNode : filteredChildrenSet ) {
-        foundFiltered.setValue( true );
-        checkNodeForTree( childNode, children, session, pentahoJcrConstants, pathConversionHelper, childNodeFilter,
-            lockHelper, depth, showHidden, accessVoterManager, types, foundFiltered, true, includeSystemFolders, rootPath );
-      }
-
-      children.removeIf( Objects::isNull );
-      Collections.sort( children );
-    } else {
-      children = null;
-    }
-    return new RepositoryFileTree( rootFile, children );
-  }
+  public static RepositoryFileTree getTree( final Session session, final PentahoJcrConstants pentahoJcrConstants,
+      final String absPath, final JcrRepositoryFileTreeWalker treeWalker ) throws RepositoryException {
 
-  private static boolean isSystemFolder( Session session, Node childNode ) throws RepositoryException {
-    Map<String, Serializable> fileMeta = getFileMetadata( session, ( (NodeImpl) childNode ).getNodeId() );
-    boolean isSystemFolder = fileMeta.containsKey( IUnifiedRepository.SYSTEM_FOLDER ) ? (Boolean) fileMeta
-        .get( IUnifiedRepository.SYSTEM_FOLDER ) : false;
-    return isSystemFolder;
-  }
+    Item fileItem = session.getItem( JcrStringHelper.pathEncode( absPath ) );
+    // items are nodes or properties; this must be a node
+    Assert.isTrue( fileItem.isNode() );
+    Node fileNode = (Node) fileItem;
 
-  /**
-   * This method is called twice by <code>getTreeNode</code>. It's job is to determine whether the current child node
-   * should be added to the list of children for the node being processed. It is a separate method simply because it is
-   * too much code to appear twice in the above <code>getTreeNode</code> method. It also makes the recursive call back
-   * to getTreeByNode to process the next lower level of folder node (it must process the lower levels to know if the
-   * folder should be added). Finally, it returns the foundFiltered boolean to let the caller know if a file was found
-   * that satisfied the childNodeFilter.
-   */
-  static void checkNodeForTree( final Node childNode, List<RepositoryFileTree> children, final Session session,
-      final PentahoJcrConstants pentahoJcrConstants, final IPathConversionHelper pathConversionHelper,
-      final String childNodeFilter, final ILockHelper lockHelper, final int depth, final boolean showHidden,
-      final IRepositoryAccessVoterManager accessVoterManager, RepositoryRequest.FILES_TYPE_FILTER types,
-      MutableBoolean foundFiltered, boolean isRootFiltered, final boolean includeSystemFolders,
-      final String rootPath ) throws RepositoryException {
-
-    RepositoryFile file = nodeToFile( session, pentahoJcrConstants, pathConversionHelper, lockHelper, childNode );
-    if ( isSupportedNodeType( pentahoJcrConstants, childNode ) ) {
-      RepositoryFileAcl fileAcl;
-      try {
-        fileAcl = JcrRepositoryFileAclUtils.getAcl( session, pentahoJcrConstants, file.getId() );
-      } catch ( AccessDeniedException e ) {
-        return;
-      }
-      if ( accessVoterManager.hasAccess( file, RepositoryFilePermission.READ, fileAcl, PentahoSessionHolder.getSession() ) ) {
-        MutableBoolean foundFilteredAtomic = new MutableBoolean( !isPentahoFolder( pentahoJcrConstants, childNode ) );
-        RepositoryFileTree repositoryFileTree =
-            getTreeByNode( session, pentahoJcrConstants, pathConversionHelper, lockHelper, childNode, depth - 1,
-                childNodeFilter, showHidden, accessVoterManager, types, foundFilteredAtomic, includeSystemFolders, rootPath );
-        if ( repositoryFileTree != null && ( foundFilteredAtomic.booleanValue() || isRootFiltered ) ) {
-          foundFiltered.setValue( true );
-          children.add( repositoryFileTree );
-        }
-      }
-    }
+    return treeWalker.walk( session, pentahoJcrConstants, fileNode );
   }
 
   public static Node updateFileLocaleProperties( final Session session, final Serializable fileId, String locale,
@@ -1373,6 +1220,11 @@ public class JcrRepositoryFileUtils {
     for ( Map.Entry<String, Serializable> entry : metadataMap.entrySet() ) {
       setMetadataItemForFile( session, entry.getKey(), entry.getValue(), metadataNode );
     }
+    if ( fileNode.getDepth() > 0 ) {
+      Serializable creatorId = metadataMap.get( PentahoJcrConstants.PHO_CONTENTCREATOR );
+      GeneratedContentIndex.getInstance().contentGenerated( fileNode.getParent().getIdentifier(),
+          fileNode.getIdentifier(), creatorId instanceof String ? (String) creatorId : null );
+    }
 
     checkinNearestVersionableNodeIfNecessary( session, pentahoJcrConstants, metadataNode, null );
   }
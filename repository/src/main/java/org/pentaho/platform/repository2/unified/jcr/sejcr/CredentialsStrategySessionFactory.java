@@ -157,7 +157,7 @@ public class CredentialsStrategySessionFactory implements InitializingBean, Disp
   public PentahoJcrSessionFactory getSessionFactory() {
     if ( sessionFactory == null ) {
       // use default
-      sessionFactory = new GuavaCachePoolPentahoJcrSessionFactory( this.repository, this.workspaceName, null );
+      sessionFactory = new UserSessionPoolPentahoJcrSessionFactory( this.repository, this.workspaceName, null );
     }
     return sessionFactory;
   }
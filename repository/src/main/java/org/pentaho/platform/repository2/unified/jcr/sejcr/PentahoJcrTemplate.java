@@ -29,7 +29,7 @@ import java.security.AccessControlException;
 import java.util.Objects;
 import java.util.concurrent.atomic.AtomicInteger;
 
-import static org.pentaho.platform.repository2.unified.jcr.sejcr.GuavaCachePoolPentahoJcrSessionFactory.USAGE_COUNT;
+import static org.pentaho.platform.repository2.unified.jcr.sejcr.UserSessionPoolPentahoJcrSessionFactory.USAGE_COUNT;
 
 /**
  * Copy of superclass' execute with better exception conversions.
@@ -87,13 +87,20 @@ public class PentahoJcrTemplate extends JcrTemplate {
   }
 
   private void releaseSession( Session session ) {
-    getUsageCount( session ).decrementAndGet();
+    if ( session == null ) {
+      return;
+    }
+    AtomicInteger usageCount = getUsageCount( session );
+    if ( usageCount.decrementAndGet() == 0
+      && usageCount instanceof UserSessionPoolPentahoJcrSessionFactory.PooledSession ) {
+      ( (UserSessionPoolPentahoJcrSessionFactory.PooledSession) usageCount ).released();
+    }
   }
 
   /**
-   * Cached Sessions retrieved from {@link GuavaCachePoolPentahoJcrSessionFactory}
+   * Pooled Sessions retrieved from {@link UserSessionPoolPentahoJcrSessionFactory}
    * will have a "usage_count" attribute indicating whether the session is
-   * currently in use.  This allows safe eviction.
+   * currently in use.  The session is returned to the pool once it is no longer used.
    */
   private AtomicInteger getUsageCount( Session session ) {
     Objects.requireNonNull( session );
@@ -0,0 +1,594 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.repository2.unified.jcr.sejcr;
+
+import org.apache.jackrabbit.core.SessionImpl;
+import org.pentaho.platform.api.engine.ISystemConfig;
+import org.pentaho.platform.engine.core.system.PentahoSystem;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.extensions.jcr.SessionFactoryUtils;
+
+import javax.jcr.Credentials;
+import javax.jcr.Repository;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.SimpleCredentials;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * JCR Session Factory which pools Sessions per user. A session is borrowed from the pool of its user by
+ * {@link #getSession(Credentials)} and returned in the finally block of {@link PentahoJcrTemplate}, once its
+ * "usage_count" drops back to zero. Nested requests of the thread holding a session of a user get the same session
+ * back. A returned session is preferably handed to the thread that last held it again, so that a thread still reading
+ * through a returned session (e.g. through {@link javax.jcr.Node#getSession()}) rarely shares it with another one.
+ * <p>
+ * The pool can be configured with repository.spring.properties:
+ * <ul>
+ * <li>cache-size: maximum number of idle sessions kept over all users</li>
+ * <li>cache-ttl: seconds an idle session, or a borrowed session that is not in use, is kept before it is logged
+ * out</li>
+ * <li>cache-max-per-user: maximum number of sessions borrowed at the same time per user</li>
+ * <li>cache-wait-timeout: milliseconds to wait for a session of a user at its limit before an unpooled session is
+ * created</li>
+ * <li>cache-refresh: when a borrowed session is refreshed; <code>always</code> (every request), <code>lazy</code>
+ * (only if it has pending changes) or <code>never</code></li>
+ * </ul>
+ * <p>
+ * Created by nbaker on 6/9/14.
+ */
+class UserSessionPoolPentahoJcrSessionFactory extends NoCachePentahoJcrSessionFactory
+  implements PentahoJcrSessionFactory {
+
+  static final String USAGE_COUNT = "usage_count"; // attribute key for tracking session usages
+
+  enum RefreshPolicy {
+    ALWAYS, LAZY, NEVER
+  }
+
+  private CredentialsStrategySessionFactory credentialsStrategySessionFactory;
+  private int cacheDuration = 300;
+  private int cacheSize = 100;
+  private int maxSessionsPerUser = 20;
+  private long waitTimeout = 30000;
+  private RefreshPolicy refreshPolicy = RefreshPolicy.ALWAYS;
+
+  private Logger logger = LoggerFactory.getLogger( getClass() );
+  private PentahoTransactionManager transactionManager;
+
+  private final ConcurrentMap<String, UserPool> pools = new ConcurrentHashMap<>();
+
+  private final AtomicInteger pooledSessions = new AtomicInteger();
+  private final AtomicInteger idleSessions = new AtomicInteger();
+  private final AtomicLong lastSweep = new AtomicLong( System.nanoTime() );
+
+  private final AtomicLong checkouts = new AtomicLong();
+  private final AtomicLong reuses = new AtomicLong();
+  private final AtomicLong waits = new AtomicLong();
+  private final AtomicLong waitNanos = new AtomicLong();
+  private final AtomicLong maxWaitNanos = new AtomicLong();
+  private final AtomicLong waitTimeouts = new AtomicLong();
+  private final AtomicLong refreshes = new AtomicLong();
+  private final AtomicLong refreshNanos = new AtomicLong();
+
+
+  public UserSessionPoolPentahoJcrSessionFactory( Repository repository, String workspace ) {
+    this( repository, workspace, null );
+  }
+
+  public UserSessionPoolPentahoJcrSessionFactory( Repository repository, String workspace,
+                                                  PentahoTransactionManager transactionManager ) {
+    super( repository, workspace );
+    this.transactionManager = transactionManager;
+
+    ISystemConfig systemConfig = PentahoSystem.get( ISystemConfig.class );
+    if ( systemConfig != null && systemConfig.getConfiguration( "repository" ) != null ) {
+      try {
+        Properties properties = systemConfig.getConfiguration( "repository" ).getProperties();
+        this.cacheDuration = Integer.parseInt( properties.getProperty( "cache-ttl", "300" ) );
+        this.cacheSize = Integer.parseInt( properties.getProperty( "cache-size", "100" ) );
+        this.maxSessionsPerUser = Integer.parseInt( properties.getProperty( "cache-max-per-user", "20" ) );
+        this.waitTimeout = Long.parseLong( properties.getProperty( "cache-wait-timeout", "30000" ) );
+        this.refreshPolicy = RefreshPolicy.valueOf( properties.getProperty( "cache-refresh", "always" ).trim()
+          .toUpperCase() );
+      } catch ( IOException e ) {
+        logger.info( "Could not find repository.cache-duration" );
+      } catch ( IllegalArgumentException e ) {
+        logger.warn( "Invalid session pool configuration, using defaults for the remaining settings", e );
+      }
+    }
+  }
+
+  @Override public Session getSession( Credentials creds ) throws RepositoryException {
+
+    // Aquire from pool
+    Session session;
+
+    if ( transactionManager == null || !transactionManager.isCreatingTransaction() ) {
+      if ( logger.isDebugEnabled() ) {
+        logger.debug( "Thread is not transacted, checking pool for session: " + creds );
+      }
+      try {
+        session = checkout( (SimpleCredentials) creds );
+      } catch ( Exception e ) {
+        logger.error( "Error obtaining session from pool. Creating one directly instead: " + creds, e );
+        session = super.getSession( creds );
+      }
+    } else {
+      if ( logger.isDebugEnabled() ) {
+        logger.debug( "Thread is transacted, obtaining session directly, not pooled: " + creds );
+      }
+      session = super.getSession( creds );
+    }
+    return session;
+  }
+
+  private Session checkout( SimpleCredentials creds ) throws RepositoryException {
+    sweepIfDue();
+    UserPool pool = pools.computeIfAbsent( creds.getUserID(), id -> new UserPool() );
+    PooledSession pooled = pool.held();
+    boolean nested = pooled != null;
+    if ( !nested ) {
+      checkouts.incrementAndGet();
+      pooled = pool.acquire( creds );
+    }
+    if ( refreshPolicy == RefreshPolicy.ALWAYS
+      || !nested && refreshPolicy == RefreshPolicy.LAZY && pooled.session.hasPendingChanges() ) {
+      try {
+        refresh( pooled.session );
+      } catch ( RepositoryException | RuntimeException e ) {
+        if ( !nested ) {
+          pooled.released();
+        }
+        throw e;
+      }
+    }
+    return pooled.session;
+  }
+
+  private void refresh( Session session ) throws RepositoryException {
+    long start = System.nanoTime();
+    session.refresh( false );
+    refreshes.incrementAndGet();
+    refreshNanos.addAndGet( System.nanoTime() - start );
+  }
+
+  private boolean isReusable( Session session ) {
+    if ( !session.isLive() ) {
+      if ( logger.isDebugEnabled() ) {
+        logger.debug( "Pooled session is not longer alive. disposing: " + session );
+      }
+      return false;
+    }
+    if ( SessionFactoryUtils.isSessionThreadBound( session, credentialsStrategySessionFactory ) ) {
+      if ( logger.isDebugEnabled() ) {
+        logger.debug(
+          "Session is bound to a transaction. This should never happen, ignoring this session: " + session );
+      }
+      return false;
+    }
+    return true;
+  }
+
+  private Session createSession( Credentials creds ) throws RepositoryException {
+    return super.getSession( creds );
+  }
+
+  private void recordWait( long nanos ) {
+    waits.incrementAndGet();
+    waitNanos.addAndGet( nanos );
+    long max = maxWaitNanos.get();
+    while ( nanos > max && !maxWaitNanos.compareAndSet( max, nanos ) ) {
+      max = maxWaitNanos.get();
+    }
+  }
+
+  /**
+   * Logs out idle sessions, and borrowed sessions that have not been used through a template, for longer than the
+   * ttl.
+   */
+  private void sweepIfDue() {
+    long now = System.nanoTime();
+    long last = lastSweep.get();
+    if ( now - last < TimeUnit.SECONDS.toNanos( cacheDuration ) || !lastSweep.compareAndSet( last, now ) ) {
+      return;
+    }
+    for ( UserPool pool : pools.values() ) {
+      pool.sweep( now );
+    }
+  }
+
+  private static void logout( List<PooledSession> sessions ) {
+    for ( PooledSession pooled : sessions ) {
+      if ( pooled.session.isLive() ) {
+        pooled.session.logout();
+      }
+    }
+  }
+
+  public void setMaxSessionsPerUser( int maxSessionsPerUser ) {
+    this.maxSessionsPerUser = maxSessionsPerUser;
+  }
+
+  public void setWaitTimeout( long waitTimeout, TimeUnit unit ) {
+    this.waitTimeout = unit.toMillis( waitTimeout );
+  }
+
+  public void setCacheDuration( int cacheDuration ) {
+    this.cacheDuration = cacheDuration;
+  }
+
+  public void setRefreshPolicy( RefreshPolicy refreshPolicy ) {
+    this.refreshPolicy = refreshPolicy;
+  }
+
+  // ~ Metrics
+  // =========================================================================================================
+
+  /**
+   * @return number of pooled sessions, idle or borrowed
+   */
+  public int getPoolSize() {
+    return pooledSessions.get();
+  }
+
+  public int getIdleSessionCount() {
+    return idleSessions.get();
+  }
+
+  /**
+   * @return number of times a thread borrowed a session it did not hold yet
+   */
+  public long getCheckoutCount() {
+    return checkouts.get();
+  }
+
+  /**
+   * @return number of checkouts served by an idle session instead of a new login
+   */
+  public long getReuseCount() {
+    return reuses.get();
+  }
+
+  /**
+   * @return number of checkouts that had to wait for a session to be returned
+   */
+  public long getWaitCount() {
+    return waits.get();
+  }
+
+  public long getTotalWaitTime( TimeUnit unit ) {
+    return unit.convert( waitNanos.get(), TimeUnit.NANOSECONDS );
+  }
+
+  public long getMaxWaitTime( TimeUnit unit ) {
+    return unit.convert( maxWaitNanos.get(), TimeUnit.NANOSECONDS );
+  }
+
+  /**
+   * @return number of checkouts that timed out waiting and were served an unpooled session
+   */
+  public long getWaitTimeoutCount() {
+    return waitTimeouts.get();
+  }
+
+  public long getRefreshCount() {
+    return refreshes.get();
+  }
+
+  public long getTotalRefreshTime( TimeUnit unit ) {
+    return unit.convert( refreshNanos.get(), TimeUnit.NANOSECONDS );
+  }
+
+  /**
+   * The "usage_count" attribute of a borrowed session. {@link PentahoJcrTemplate} calls {@link #released()} once the
+   * count is back to zero, which returns the session to the pool of its user, or logs it out if it was created while
+   * the user was at its limit.
+   */
+  static class PooledSession extends AtomicInteger {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient Session session;
+    private final transient UserPool pool;
+    private final transient boolean unpooled;
+    private transient Thread holder;
+    private transient long lastHolder = -1;
+    private transient volatile long lastUsed = System.nanoTime();
+
+    private PooledSession( Session session, UserPool pool, boolean unpooled ) {
+      super( 0 );
+      this.session = session;
+      this.pool = pool;
+      this.unpooled = unpooled;
+    }
+
+    void released() {
+      if ( pool != null ) {
+        pool.giveBack( this );
+      }
+    }
+  }
+
+  /**
+   * Sessions of a single user. Idle sessions are handed out most recently returned first so that rarely needed
+   * sessions age out. Waiting uses a {@link Condition} rather than monitors so that virtual threads are not pinned.
+   */
+  private class UserPool {
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition returned = lock.newCondition();
+    private final Deque<PooledSession> idle = new ArrayDeque<>();
+    private final Set<PooledSession> borrowed = new HashSet<>();
+    private final Map<Thread, PooledSession> held = new HashMap<>();
+    private int creating;
+
+    /**
+     * @return the session the current thread holds, or <code>null</code> if it holds none that can still be used
+     */
+    private PooledSession held() {
+      lock.lock();
+      try {
+        Thread thread = Thread.currentThread();
+        PooledSession pooled = held.get( thread );
+        if ( pooled == null ) {
+          return null;
+        }
+        if ( !isReusable( pooled.session ) ) {
+          // not logged out, it may be in use by a transaction
+          held.remove( thread );
+          if ( borrowed.remove( pooled ) ) {
+            pooledSessions.decrementAndGet();
+            returned.signal();
+          }
+          return null;
+        }
+        pooled.lastUsed = System.nanoTime();
+        return pooled;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    /**
+     * @return a borrowed session, or an unpooled one if none became available within the wait timeout
+     */
+    private PooledSession acquire( SimpleCredentials creds ) throws RepositoryException {
+      List<PooledSession> discarded = new ArrayList<>();
+      PooledSession pooled = null;
+      boolean create = false;
+      long waitStart = 0;
+      lock.lock();
+      try {
+        while ( pooled == null && !create ) {
+          pooled = pollIdle( discarded );
+          if ( pooled == null ) {
+            reclaimDead();
+            if ( borrowed.size() + creating < maxSessionsPerUser ) {
+              create = true;
+              creating++;
+            } else {
+              if ( waitStart == 0 ) {
+                waitStart = System.nanoTime();
+              }
+              long remaining = TimeUnit.MILLISECONDS.toNanos( waitTimeout ) - ( System.nanoTime() - waitStart );
+              if ( remaining <= 0 ) {
+                break;
+              }
+              returned.awaitNanos( remaining );
+            }
+          }
+        }
+        if ( pooled != null ) {
+          reuses.incrementAndGet();
+          hold( pooled, true );
+        }
+      } catch ( InterruptedException e ) {
+        Thread.currentThread().interrupt();
+        throw new RepositoryException( e );
+      } finally {
+        lock.unlock();
+        if ( waitStart != 0 ) {
+          recordWait( System.nanoTime() - waitStart );
+        }
+        logout( discarded );
+      }
+      if ( pooled != null ) {
+        return pooled;
+      }
+      if ( !create ) {
+        waitTimeouts.incrementAndGet();
+        logger.warn( "Timed out waiting for a pooled session, creating an unpooled one: " + creds );
+      }
+
+      // the login happens outside of the lock
+      Session session = null;
+      try {
+        session = createSession( creds );
+      } finally {
+        if ( create && !( session instanceof SessionImpl ) ) {
+          lock.lock();
+          try {
+            creating--;
+            returned.signal();
+          } finally {
+            lock.unlock();
+          }
+        }
+      }
+      if ( !( session instanceof SessionImpl ) ) {
+        logger.warn( "Expected a Jackrabbit SessionImpl.  Will not be tracking usage." );
+        return new PooledSession( session, null, true );
+      }
+      pooled = new PooledSession( session, this, !create );
+      ( (SessionImpl) session ).setAttribute( USAGE_COUNT, pooled );
+      lock.lock();
+      try {
+        if ( create ) {
+          creating--;
+          pooledSessions.incrementAndGet();
+        }
+        hold( pooled, create );
+      } finally {
+        lock.unlock();
+      }
+      return pooled;
+    }
+
+    private void hold( PooledSession pooled, boolean borrow ) {
+      if ( borrow ) {
+        borrowed.add( pooled );
+      }
+      pooled.holder = Thread.currentThread();
+      pooled.lastUsed = System.nanoTime();
+      held.put( pooled.holder, pooled );
+    }
+
+    /**
+     * Takes the idle session the current thread returned last if there is one, else the most recently returned one.
+     */
+    private PooledSession pollIdle( List<PooledSession> discarded ) {
+      long thread = Thread.currentThread().getId();
+      for ( Iterator<PooledSession> it = idle.iterator(); it.hasNext(); ) {
+        PooledSession pooled = it.next();
+        if ( pooled.lastHolder == thread ) {
+          it.remove();
+          idleSessions.decrementAndGet();
+          if ( isReusable( pooled.session ) ) {
+            return pooled;
+          }
+          pooledSessions.decrementAndGet();
+          discarded.add( pooled );
+          break;
+        }
+      }
+      PooledSession pooled;
+      while ( ( pooled = idle.pollFirst() ) != null ) {
+        idleSessions.decrementAndGet();
+        if ( isReusable( pooled.session ) ) {
+          return pooled;
+        }
+        pooledSessions.decrementAndGet();
+        discarded.add( pooled );
+      }
+      return null;
+    }
+
+    /**
+     * Frees the slots of borrowed sessions that were logged out without being returned.
+     */
+    private void reclaimDead() {
+      for ( Iterator<PooledSession> it = borrowed.iterator(); it.hasNext(); ) {
+        PooledSession pooled = it.next();
+        if ( !pooled.session.isLive() ) {
+          logger.warn( "Borrowed session was logged out without being returned to the pool: " + pooled.session );
+          it.remove();
+          held.remove( pooled.holder, pooled );
+          pooledSessions.decrementAndGet();
+        }
+      }
+    }
+
+    private void giveBack( PooledSession pooled ) {
+      boolean logout = false;
+      lock.lock();
+      try {
+        if ( pooled.holder != null ) {
+          held.remove( pooled.holder, pooled );
+        }
+        if ( pooled.unpooled ) {
+          logout = true;
+        } else if ( borrowed.remove( pooled ) ) {
+          if ( !pooled.session.isLive() || idleSessions.get() >= cacheSize ) {
+            pooledSessions.decrementAndGet();
+            logout = true;
+          } else {
+            pooled.lastHolder = pooled.holder.getId();
+            pooled.lastUsed = System.nanoTime();
+            idle.addFirst( pooled );
+            idleSessions.incrementAndGet();
+          }
+          returned.signal();
+        }
+        pooled.holder = null;
+      } finally {
+        lock.unlock();
+      }
+      if ( logout && pooled.session.isLive() ) {
+        logger.debug( "Logging out session after return " + pooled.session );
+        pooled.session.logout();
+      }
+    }
+
+    /**
+     * Logs out idle sessions older than the ttl, and drops borrowed sessions that were logged out or have not been
+     * used through a template within the ttl, together with the threads holding them.
+     */
+    private void sweep( long now ) {
+      List<PooledSession> discarded = new ArrayList<>();
+      if ( !lock.tryLock() ) {
+        return;
+      }
+      try {
+        long ttl = TimeUnit.SECONDS.toNanos( cacheDuration );
+        PooledSession oldest;
+        while ( ( oldest = idle.peekLast() ) != null && now - oldest.lastUsed > ttl ) {
+          idle.pollLast();
+          idleSessions.decrementAndGet();
+          pooledSessions.decrementAndGet();
+          discarded.add( oldest );
+        }
+        boolean freed = false;
+        for ( Iterator<PooledSession> it = held.values().iterator(); it.hasNext(); ) {
+          PooledSession pooled = it.next();
+          if ( !pooled.session.isLive() || pooled.get() == 0 && now - pooled.lastUsed > ttl ) {
+            it.remove();
+            pooled.holder = null;
+            discarded.add( pooled );
+            if ( borrowed.remove( pooled ) ) {
+              pooledSessions.decrementAndGet();
+              freed = true;
+            }
+          }
+        }
+        if ( freed ) {
+          returned.signalAll();
+        }
+      } finally {
+        lock.unlock();
+      }
+      if ( !discarded.isEmpty() ) {
+        logger.debug( "Logging out " + discarded.size() + " expired pooled sessions" );
+        logout( discarded );
+      }
+    }
+  }
+
+}
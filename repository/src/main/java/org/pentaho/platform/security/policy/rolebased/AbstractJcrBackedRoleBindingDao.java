@@ -22,6 +22,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.jcr.NamespaceException;
 import javax.jcr.Node;
@@ -64,6 +65,8 @@ public abstract class AbstractJcrBackedRoleBindingDao implements IRoleAuthorizat
 
   private List<IAuthorizationAction> authorizationActions = Collections.emptyList();
 
+  private final AtomicLong roleBindingsVersion = new AtomicLong();
+
   public static final String FOLDER_NAME_AUTHZ = ".authz"; //$NON-NLS-1$
 
   public static final String FOLDER_NAME_ROLEBASED = "roleBased"; //$NON-NLS-1$
@@ -128,6 +131,7 @@ public abstract class AbstractJcrBackedRoleBindingDao implements IRoleAuthorizat
             if ( cacheManager.cacheEnabled( LOGICAL_ROLE_BINDINGS_REGION ) ) {
               cacheManager.removeRegionCache( LOGICAL_ROLE_BINDINGS_REGION );
             }
+            roleBindingsVersion.incrementAndGet();
             loaded = true;
           }
         }
@@ -146,6 +150,17 @@ public abstract class AbstractJcrBackedRoleBindingDao implements IRoleAuthorizat
 
   public void setAuthorizationActions( final List<IAuthorizationAction> authorizationActions ) {
     this.authorizationActions = authorizationActions;
+    roleBindingsVersion.incrementAndGet();
+  }
+
+  @Override
+  public List<IAuthorizationAction> getAuthorizationActions() {
+    return authorizationActions;
+  }
+
+  @Override
+  public long getRoleBindingsVersion() {
+    return roleBindingsVersion.get();
   }
 
   @Override
@@ -307,6 +322,7 @@ public abstract class AbstractJcrBackedRoleBindingDao implements IRoleAuthorizat
     // update cache
     String roleId = tenantedRoleNameUtils.getPrincipleId( tenant, runtimeRoleName );
     cacheManager.putInRegionCache( LOGICAL_ROLE_BINDINGS_REGION, roleId, logicalRoleNames );
+    roleBindingsVersion.incrementAndGet();
   }
 
   private String getPrincipalName( String principalId ) {
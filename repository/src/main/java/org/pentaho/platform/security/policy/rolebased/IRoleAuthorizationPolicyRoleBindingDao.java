@@ -13,10 +13,12 @@
 
 package org.pentaho.platform.security.policy.rolebased;
 
+import org.pentaho.platform.api.engine.IAuthorizationAction;
 import org.pentaho.platform.api.mt.ITenant;
 
 import javax.jcr.RepositoryException;
 import javax.jcr.Session;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -115,4 +117,24 @@ public interface IRoleAuthorizationPolicyRoleBindingDao {
    * @return list of logical role names, never {@code null}
    */
   List<String> getBoundLogicalRoleNames( final Session session, final ITenant tenant, final List<String> runtimeRoleNames ) throws RepositoryException;
+
+  /**
+   * Gets a number that changes whenever bindings are set or the known authorization actions change, so that logical
+   * roles resolved earlier can be told apart from current ones. DAOs that do not track their changes return -1, and
+   * the logical roles they resolve must not be kept.
+   *
+   * @return version of the role bindings, or -1 if unknown
+   */
+  default long getRoleBindingsVersion() {
+    return -1;
+  }
+
+  /**
+   * Gets the authorization actions known by this DAO.
+   *
+   * @return list of authorization actions, never {@code null}
+   */
+  default List<IAuthorizationAction> getAuthorizationActions() {
+    return Collections.emptyList();
+  }
 }
@@ -14,17 +14,32 @@
 package org.pentaho.platform.security.policy.rolebased;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+import org.pentaho.platform.api.engine.IAuthorizationAction;
 import org.pentaho.platform.api.engine.IAuthorizationPolicy;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.util.Assert;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
 /**
  * An authorization policy based on roles.
+ * <p>
+ * The logical roles of an authentication are resolved once, the first time it is checked, and kept as a bit per known
+ * authorization action for as long as the authentication is in use and the role bindings do not change. Checking an
+ * action is then a lookup, without going to the repository.
+ * </p>
  * 
  * @author mlowery
  */
@@ -38,6 +53,13 @@ public class RoleAuthorizationPolicy implements IAuthorizationPolicy {
 
   private IRoleAuthorizationPolicyRoleBindingDao roleBindingDao;
 
+  /**
+   * Logical roles by authentication; the keys are weak and compared by identity
+   */
+  private final Cache<Authentication, LogicalRoles> logicalRolesCache = CacheBuilder.newBuilder().weakKeys().build();
+
+  private volatile ActionIndex actionIndex;
+
   // ~ Constructors
   // ====================================================================================================
 
@@ -56,12 +78,12 @@ public class RoleAuthorizationPolicy implements IAuthorizationPolicy {
   public List<String> getAllowedActions( String actionNamespace ) {
     List<String> assignedRolesInNamespace = new ArrayList<String>();
     if ( actionNamespace == null ) {
-      assignedRolesInNamespace.addAll( roleBindingDao.getBoundLogicalRoleNames( getRuntimeRoleNames() ) );
+      assignedRolesInNamespace.addAll( getBoundLogicalRoleNames() );
     } else {
       if ( !actionNamespace.endsWith( "." ) ) {
         actionNamespace += ".";
       }
-      for ( String assignedRole : roleBindingDao.getBoundLogicalRoleNames( getRuntimeRoleNames() ) ) {
+      for ( String assignedRole : getBoundLogicalRoleNames() ) {
         if ( assignedRole.startsWith( actionNamespace ) ) {
           assignedRolesInNamespace.add( assignedRole );
         }
@@ -74,7 +96,49 @@ public class RoleAuthorizationPolicy implements IAuthorizationPolicy {
    * {@inheritDoc}
    */
   public boolean isAllowed( String actionName ) {
-    return roleBindingDao.getBoundLogicalRoleNames( getRuntimeRoleNames() ).contains( actionName );
+    LogicalRoles logicalRoles = getLogicalRoles();
+    if ( logicalRoles == null ) {
+      return roleBindingDao.getBoundLogicalRoleNames( getRuntimeRoleNames() ).contains( actionName );
+    }
+    return logicalRoles.contains( actionName );
+  }
+
+  private List<String> getBoundLogicalRoleNames() {
+    LogicalRoles logicalRoles = getLogicalRoles();
+    if ( logicalRoles == null ) {
+      return roleBindingDao.getBoundLogicalRoleNames( getRuntimeRoleNames() );
+    }
+    return logicalRoles.names;
+  }
+
+  /**
+   * Returns the logical roles of the current authentication, resolving them if the role bindings changed since they
+   * were last resolved, or {@code null} if the DAO does not tell when its bindings change.
+   */
+  private LogicalRoles getLogicalRoles() {
+    // read the version before resolving, so that a change made meanwhile makes the roles stale
+    long version = roleBindingDao.getRoleBindingsVersion();
+    if ( version < 0 ) {
+      return null;
+    }
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    Assert.state( authentication != null );
+    LogicalRoles logicalRoles = logicalRolesCache.getIfPresent( authentication );
+    if ( logicalRoles == null || logicalRoles.version != version ) {
+      List<String> names = roleBindingDao.getBoundLogicalRoleNames( getRuntimeRoleNames() );
+      logicalRoles = new LogicalRoles( version, getActionIndex( version ), names );
+      logicalRolesCache.put( authentication, logicalRoles );
+    }
+    return logicalRoles;
+  }
+
+  private ActionIndex getActionIndex( long version ) {
+    ActionIndex index = actionIndex;
+    if ( index == null || index.version != version ) {
+      index = new ActionIndex( version, roleBindingDao.getAuthorizationActions() );
+      actionIndex = index;
+    }
+    return index;
   }
 
   protected List<String> getRuntimeRoleNames() {
@@ -88,4 +152,59 @@ public class RoleAuthorizationPolicy implements IAuthorizationPolicy {
     return runtimeRoles;
   }
 
+  /**
+   * The bit of each authorization action known for a version of the role bindings
+   */
+  private static final class ActionIndex {
+
+    private final long version;
+
+    private final Map<String, Integer> bits = new HashMap<String, Integer>();
+
+    ActionIndex( final long version, final List<IAuthorizationAction> actions ) {
+      this.version = version;
+      for ( IAuthorizationAction action : actions ) {
+        if ( !bits.containsKey( action.getName() ) ) {
+          bits.put( action.getName(), bits.size() );
+        }
+      }
+    }
+  }
+
+  /**
+   * The logical roles bound to the runtime roles of an authentication. Roles that are not a known authorization
+   * action are kept by name.
+   */
+  private static final class LogicalRoles {
+
+    private final long version;
+
+    private final ActionIndex index;
+
+    private final BitSet actions = new BitSet();
+
+    private final Set<String> others = new HashSet<String>();
+
+    private final List<String> names;
+
+    LogicalRoles( final long version, final ActionIndex index, final List<String> names ) {
+      this.version = version;
+      this.index = index;
+      this.names = Collections.unmodifiableList( new ArrayList<String>( names ) );
+      for ( String name : names ) {
+        Integer bit = index.bits.get( name );
+        if ( bit != null ) {
+          actions.set( bit );
+        } else {
+          others.add( name );
+        }
+      }
+    }
+
+    boolean contains( final String name ) {
+      Integer bit = index.bits.get( name );
+      return ( bit != null ) ? actions.get( bit ) : others.contains( name );
+    }
+  }
+
 }
@@ -0,0 +1,138 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+
+package org.apache.jackrabbit.core.security.authorization.acl;
+
+import org.apache.jackrabbit.core.id.NodeId;
+import org.apache.jackrabbit.core.security.authorization.acl.CachingPentahoEntryCollector.EntryCache;
+import org.apache.jackrabbit.core.security.authorization.acl.CachingPentahoEntryCollector.EntryKey;
+import org.apache.jackrabbit.core.security.authorization.acl.PentahoEntryCollector.PentahoEntries;
+import org.junit.Test;
+import org.pentaho.platform.api.engine.IPentahoSession;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class CachingPentahoEntryCollectorTest {
+
+  private static final String AUTHENTICATED = "/pentaho/tenant0\tAuthenticated";
+
+  private final EntryCache cache = new EntryCache( 100, true );
+
+  @Test
+  public void testEntriesAreSharedByKey() {
+    NodeId id = NodeId.randomId();
+    PentahoEntries entries = entries();
+    cache.put( new EntryKey( id, AUTHENTICATED ), "/a", entries, cache.getGeneration() );
+
+    assertSame( entries, cache.get( new EntryKey( id, AUTHENTICATED ) ) );
+    assertNull( cache.get( new EntryKey( id, AUTHENTICATED + "\tAdministrator" ) ) );
+    assertNull( cache.get( new EntryKey( NodeId.randomId(), AUTHENTICATED ) ) );
+  }
+
+  @Test
+  public void testEntriesAreNotSharedAcrossRoleBindingsVersions() {
+    IPentahoSession session = session( "1" );
+    NodeId id = NodeId.randomId();
+    cache.put( new EntryKey( id, CachingPentahoEntryCollector.withRoleBindingsVersion( AUTHENTICATED, session, 1 ) ),
+        "/a", entries(), cache.getGeneration() );
+
+    assertNotNull( cache.get( new EntryKey( id,
+        CachingPentahoEntryCollector.withRoleBindingsVersion( AUTHENTICATED, session( "2" ), 1 ) ) ) );
+    assertNull( cache.get( new EntryKey( id,
+        CachingPentahoEntryCollector.withRoleBindingsVersion( AUTHENTICATED, session, 2 ) ) ) );
+  }
+
+  @Test
+  public void testEntriesAreKeptPerSessionWithoutRoleBindingsVersion() {
+    assertEquals( CachingPentahoEntryCollector.withRoleBindingsVersion( AUTHENTICATED, session( "1" ), -1 ),
+        CachingPentahoEntryCollector.withRoleBindingsVersion( AUTHENTICATED, session( "1" ), -1 ) );
+    assertNotEquals( CachingPentahoEntryCollector.withRoleBindingsVersion( AUTHENTICATED, session( "1" ), -1 ),
+        CachingPentahoEntryCollector.withRoleBindingsVersion( AUTHENTICATED, session( "2" ), -1 ) );
+    assertNotEquals( CachingPentahoEntryCollector.withRoleBindingsVersion( AUTHENTICATED, session( "1" ), -1 ),
+        CachingPentahoEntryCollector.withRoleBindingsVersion( AUTHENTICATED, session( "1" ), 1 ) );
+  }
+
+  @Test
+  public void testRemoveSubtreeKeepsOtherNodes() {
+    NodeId a = put( "/a" );
+    NodeId ab = put( "/a/b" );
+    NodeId abc = put( "/a/b/c" );
+    NodeId abd = put( "/a/bd" );
+    NodeId version = put( EntryCache.VERSION_STORAGE + "/00/01" );
+
+    cache.removeSubtree( ab, "/a/b" );
+
+    assertEquals( 2, cache.size() );
+    assertNull( cache.get( new EntryKey( ab, AUTHENTICATED ) ) );
+    assertNull( cache.get( new EntryKey( abc, AUTHENTICATED ) ) );
+    assertNull( cache.get( new EntryKey( version, AUTHENTICATED ) ) );
+    assertNotNull( cache.get( new EntryKey( a, AUTHENTICATED ) ) );
+    assertNotNull( cache.get( new EntryKey( abd, AUTHENTICATED ) ) );
+  }
+
+  @Test
+  public void testRemoveSubtreeOfRoot() {
+    put( "/" );
+    put( "/a" );
+
+    cache.removeSubtree( NodeId.randomId(), "/" );
+
+    assertEquals( 0, cache.size() );
+  }
+
+  @Test
+  public void testEntriesCollectedBeforeRemovalAreNotKept() {
+    NodeId id = NodeId.randomId();
+    long generation = cache.getGeneration();
+    cache.removeSubtree( NodeId.randomId(), "/b" );
+    cache.put( new EntryKey( id, AUTHENTICATED ), "/a", entries(), generation );
+
+    assertNull( cache.get( new EntryKey( id, AUTHENTICATED ) ) );
+  }
+
+  @Test
+  public void testCacheIsBounded() {
+    EntryCache small = new EntryCache( 10, true );
+    for ( int i = 0; i < 100; i++ ) {
+      small.put( new EntryKey( NodeId.randomId(), AUTHENTICATED ), "/n" + i, entries(), small.getGeneration() );
+    }
+
+    assertTrue( small.size() <= 10 );
+  }
+
+  private NodeId put( String path ) {
+    NodeId id = NodeId.randomId();
+    cache.put( new EntryKey( id, AUTHENTICATED ), path, entries(), cache.getGeneration() );
+    return id;
+  }
+
+  private static IPentahoSession session( String id ) {
+    IPentahoSession session = mock( IPentahoSession.class );
+    when( session.getId() ).thenReturn( id );
+    return session;
+  }
+
+  private static PentahoEntries entries() {
+    return new PentahoEntries( Collections.emptyList(), null );
+  }
+}
@@ -31,10 +31,17 @@ import javax.jcr.security.AccessControlManager;
 import javax.jcr.security.AccessControlPolicy;
 import javax.jcr.security.Privilege;
 import java.security.Principal;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
@@ -121,4 +128,46 @@ public class PentahoACLProviderTest {
     // everyone principle exists and it had the the JCR_READ_ACCESS_CONTROL privilege, update should not be required
     assertFalse( provider.requireRootAclUpdate( editor ) );
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testCompiledPermissionsAreSharedByPrincipalNames() throws Exception {
+    PentahoCompiledPermissionsImpl first = provider.getCompiledPermissions( principals( "suzy", "Authenticated" ) );
+    PentahoCompiledPermissionsImpl second = provider.getCompiledPermissions( principals( "Authenticated", "suzy" ) );
+    PentahoCompiledPermissionsImpl other = provider.getCompiledPermissions( principals( "tiffany", "Authenticated" ) );
+
+    assertSame( first, second );
+    assertNotSame( first, other );
+    assertEquals( 1, provider.getCompiledPermissionsCacheStats().hitCount() );
+    assertEquals( 2, provider.getCompiledPermissionsCacheStats().missCount() );
+  }
+
+  @Test
+  public void testCompiledPermissionsAreCompiledAgainAfterAclModification() throws Exception {
+    PentahoCompiledPermissionsImpl before = provider.getCompiledPermissions( principals( "suzy", "Authenticated" ) );
+    provider.invalidateCompiledPermissions();
+    PentahoCompiledPermissionsImpl after = provider.getCompiledPermissions( principals( "suzy", "Authenticated" ) );
+
+    assertNotSame( before, after );
+    assertSame( after, provider.getCompiledPermissions( principals( "suzy", "Authenticated" ) ) );
+  }
+
+  @Test
+  public void testPrincipalSetKey() {
+    PentahoACLProvider.PrincipalSetKey key = new PentahoACLProvider.PrincipalSetKey( principals( "a", "b" ), 0 );
+
+    assertEquals( key, new PentahoACLProvider.PrincipalSetKey( principals( "b", "a" ), 0 ) );
+    assertEquals( key.hashCode(), new PentahoACLProvider.PrincipalSetKey( principals( "b", "a" ), 0 ).hashCode() );
+    assertNotEquals( key, new PentahoACLProvider.PrincipalSetKey( principals( "a", "b" ), 1 ) );
+    assertNotEquals( key, new PentahoACLProvider.PrincipalSetKey( principals( "a" ), 0 ) );
+  }
+
+  private static Set<Principal> principals( String... names ) {
+    Set<Principal> principals = new HashSet<>();
+    for ( String name : Arrays.asList( names ) ) {
+      Principal principal = Mockito.mock( Principal.class );
+      when( principal.getName() ).thenReturn( name );
+      principals.add( principal );
+    }
+    return principals;
+  }
+}
@@ -0,0 +1,181 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.repository2.unified.jcr;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.platform.api.repository2.unified.IUnifiedRepository;
+import org.pentaho.platform.api.repository2.unified.RepositoryFile;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class GeneratedContentIndexTest {
+
+  private static final String HOME = "/home/admin";
+
+  private IUnifiedRepository repository;
+  private RepositoryFile home;
+  private GeneratedContentIndex index;
+
+  // files the caller cannot read, and whether the index is running as the system user
+  private final Set<String> hidden = new HashSet<String>();
+  private boolean system;
+
+  @Before
+  public void setUp() {
+    repository = mock( IUnifiedRepository.class );
+    home = new RepositoryFile.Builder( "homeId", "admin" ).path( HOME ).folder( true ).build();
+    index = new GeneratedContentIndex( 10, 1, TimeUnit.MINUTES ) {
+      @Override
+      protected <T> T runAsSystem( Callable<T> callable ) throws Exception {
+        system = true;
+        try {
+          return callable.call();
+        } finally {
+          system = false;
+        }
+      }
+    };
+
+    List<RepositoryFile> children = new ArrayList<RepositoryFile>();
+    children.add( generated( "out1", "report" ) );
+    children.add( generated( "out2", "other" ) );
+    children.add( generated( "out3", "report" ) );
+    children.add( generated( "plain", null ) );
+    when( repository.getChildren( "homeId" ) ).thenAnswer( invocation -> {
+      List<RepositoryFile> visible = new ArrayList<RepositoryFile>();
+      for ( RepositoryFile child : children ) {
+        if ( system || !hidden.contains( child.getId() ) ) {
+          visible.add( child );
+        }
+      }
+      return visible;
+    } );
+  }
+
+  @Test
+  public void testFolderIsScannedOnce() {
+    assertEquals( Arrays.asList( "out1", "out3" ), ids( index.getGeneratedFiles( repository, home, HOME, "report", 0,
+      -1 ) ) );
+    assertEquals( Arrays.asList( "out2" ), ids( index.getGeneratedFiles( repository, home, HOME, "other", 0, -1 ) ) );
+
+    verify( repository, times( 1 ) ).getChildren( "homeId" );
+    verify( repository, times( 1 ) ).getFileMetadata( "out1" );
+  }
+
+  @Test
+  public void testPaging() {
+    assertEquals( Arrays.asList( "out1" ), ids( index.getGeneratedFiles( repository, home, HOME, "report", 0, 1 ) ) );
+    assertEquals( Arrays.asList( "out3" ), ids( index.getGeneratedFiles( repository, home, HOME, "report", 1, 1 ) ) );
+    assertTrue( index.getGeneratedFiles( repository, home, HOME, "report", 2, 1 ).isEmpty() );
+  }
+
+  @Test
+  public void testPagingCountsReadableFilesOnly() {
+    hidden.add( "out1" );
+
+    assertEquals( Arrays.asList( "out3" ), ids( index.getGeneratedFiles( repository, home, HOME, "report", 0, 1 ) ) );
+    assertTrue( index.getGeneratedFiles( repository, home, HOME, "report", 1, 1 ).isEmpty() );
+  }
+
+  @Test
+  public void testIndexIsNotLimitedByTheFirstCaller() {
+    hidden.add( "out1" );
+    assertEquals( Arrays.asList( "out3" ), ids( index.getGeneratedFiles( repository, home, HOME, "report", 0,
+      -1 ) ) );
+
+    hidden.clear();
+    assertEquals( Arrays.asList( "out1", "out3" ), ids( index.getGeneratedFiles( repository, home, HOME, "report", 0,
+      -1 ) ) );
+    verify( repository, times( 1 ) ).getChildren( "homeId" );
+  }
+
+  @Test
+  public void testGeneratedContentIsAddedToIndexedFolders() {
+    index.getGeneratedFiles( repository, home, HOME, "report", 0, -1 );
+    generated( "out4", "report" );
+
+    index.contentGenerated( "homeId", "out4", "report" );
+    index.contentGenerated( "suzyHomeId", "out5", "report" );
+
+    assertEquals( Arrays.asList( "out1", "out3", "out4" ), ids( index.getGeneratedFiles( repository, home, HOME,
+      "report", 0, -1 ) ) );
+    verify( repository, times( 1 ) ).getChildren( any() );
+  }
+
+  @Test
+  public void testClearedContentCreatorIsRemoved() {
+    index.getGeneratedFiles( repository, home, HOME, "report", 0, -1 );
+
+    index.contentGenerated( "homeId", "out1", null );
+
+    assertEquals( Arrays.asList( "out3" ), ids( index.getGeneratedFiles( repository, home, HOME, "report", 0,
+      -1 ) ) );
+  }
+
+  @Test
+  public void testInvalidatedFolderIsScannedAgain() {
+    index.getGeneratedFiles( repository, home, HOME, "report", 0, -1 );
+
+    index.invalidate( "homeId" );
+    index.getGeneratedFiles( repository, home, HOME, "report", 0, -1 );
+
+    verify( repository, times( 2 ) ).getChildren( "homeId" );
+  }
+
+  @Test
+  public void testRemovedFilesAreDropped() {
+    index.getGeneratedFiles( repository, home, HOME, "report", 0, -1 );
+    when( repository.getFileById( "out1" ) ).thenReturn( null );
+
+    assertEquals( Arrays.asList( "out3" ), ids( index.getGeneratedFiles( repository, home, HOME, "report", 0,
+      -1 ) ) );
+  }
+
+  private RepositoryFile generated( String id, String creatorId ) {
+    RepositoryFile file = new RepositoryFile.Builder( id, id ).path( HOME + "/" + id ).build();
+    Map<String, Serializable> metadata = new HashMap<String, Serializable>();
+    if ( creatorId != null ) {
+      metadata.put( PentahoJcrConstants.PHO_CONTENTCREATOR, creatorId );
+    }
+    when( repository.getFileMetadata( id ) ).thenReturn( metadata );
+    when( repository.getFileById( id ) ).thenAnswer( invocation -> system || !hidden.contains( id ) ? file : null );
+    return file;
+  }
+
+  private List<String> ids( List<RepositoryFile> files ) {
+    List<String> ids = new ArrayList<String>();
+    for ( RepositoryFile file : files ) {
+      ids.add( (String) file.getId() );
+    }
+    return ids;
+  }
+}
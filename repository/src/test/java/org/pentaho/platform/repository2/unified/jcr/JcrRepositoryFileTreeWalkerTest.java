@@ -0,0 +1,200 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.repository2.unified.jcr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import javax.jcr.AccessDeniedException;
+import javax.jcr.Node;
+import javax.jcr.NodeIterator;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import org.apache.jackrabbit.util.ChildrenCollectorFilter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.MockedStatic;
+import org.pentaho.platform.api.repository2.unified.IRepositoryAccessVoterManager;
+import org.pentaho.platform.api.repository2.unified.RepositoryFile;
+import org.pentaho.platform.api.repository2.unified.RepositoryFilePermission;
+import org.pentaho.platform.api.repository2.unified.RepositoryFileTree;
+import org.pentaho.platform.api.repository2.unified.RepositoryRequest;
+
+public class JcrRepositoryFileTreeWalkerTest {
+
+  private Session session;
+  private PentahoJcrConstants pentahoJcrConstants;
+  private IPathConversionHelper pathConversionHelper;
+  private ILockHelper lockHelper;
+  private IRepositoryAccessVoterManager accessVoterManager;
+  private MockedStatic<JcrRepositoryFileUtils> fileUtils;
+  private MockedStatic<JcrRepositoryFileAclUtils> aclUtils;
+
+  private Node root;
+  private Node reports;
+  private Node secret;
+
+  @Before
+  public void setUp() throws Exception {
+    session = mock( Session.class );
+    pentahoJcrConstants = mock( PentahoJcrConstants.class );
+    pathConversionHelper = mock( IPathConversionHelper.class );
+    lockHelper = mock( ILockHelper.class );
+    accessVoterManager = mock( IRepositoryAccessVoterManager.class );
+    fileUtils = mockStatic( JcrRepositoryFileUtils.class );
+    aclUtils = mockStatic( JcrRepositoryFileAclUtils.class );
+    fileUtils.when( () -> JcrRepositoryFileUtils.isSupportedNodeType( any(), any() ) ).thenReturn( true );
+    when( accessVoterManager.hasAccess( any( RepositoryFile.class ), eq( RepositoryFilePermission.READ ), any(),
+        any() ) ).thenReturn( true );
+
+    // /root
+    //   reports/
+    //     sales.prpt
+    //     notes.txt
+    //   secret/      (not readable)
+    //     hidden.prpt
+    //   empty/
+    //   top.prpt
+    reports = folder( "/root/reports", "reports",
+        file( "/root/reports/sales.prpt", "sales.prpt" ), file( "/root/reports/notes.txt", "notes.txt" ) );
+    secret = folder( "/root/secret", "secret", file( "/root/secret/hidden.prpt", "hidden.prpt" ) );
+    root = folder( "/root", "root", reports, secret, folder( "/root/empty", "empty" ), file( "/root/top.prpt",
+        "top.prpt" ) );
+    aclUtils.when( () -> JcrRepositoryFileAclUtils.getAcl( session, pentahoJcrConstants, "/root/secret" ) )
+        .thenThrow( new AccessDeniedException() );
+  }
+
+  @After
+  public void tearDown() {
+    aclUtils.close();
+    fileUtils.close();
+  }
+
+  @Test
+  public void testWalkUnfiltered() throws Exception {
+    RepositoryFileTree tree = walker( new RepositoryRequest( "/root", false, -1, "*" ) ).walk( session,
+        pentahoJcrConstants, root );
+
+    assertEquals( "root", tree.getFile().getName() );
+    assertEquals( Arrays.asList( "empty", "reports", "top.prpt" ), names( tree.getChildren() ) );
+    assertEquals( Arrays.asList( "notes.txt", "sales.prpt" ), names( tree.getChildren().get( 1 ).getChildren() ) );
+  }
+
+  @Test
+  public void testWalkFilteredKeepsOnlyFoldersLeadingToMatches() throws Exception {
+    RepositoryFileTree tree = walker( new RepositoryRequest( "/root", false, -1, "*.prpt" ) ).walk( session,
+        pentahoJcrConstants, root );
+
+    assertEquals( Arrays.asList( "reports", "top.prpt" ), names( tree.getChildren() ) );
+    assertEquals( Arrays.asList( "sales.prpt" ), names( tree.getChildren().get( 0 ).getChildren() ) );
+    // each child is converted and checked only once
+    fileUtils.verify( () -> JcrRepositoryFileUtils.nodeToFile( session, pentahoJcrConstants, pathConversionHelper,
+        lockHelper, reports ), times( 1 ) );
+    aclUtils.verify( () -> JcrRepositoryFileAclUtils.getAcl( session, pentahoJcrConstants, "/root/reports" ),
+        times( 1 ) );
+  }
+
+  @Test
+  public void testWalkDepthLimited() throws Exception {
+    RepositoryFileTree tree = walker( new RepositoryRequest( "/root", false, 1, "*" ) ).walk( session,
+        pentahoJcrConstants, root );
+
+    assertEquals( Arrays.asList( "empty", "reports", "top.prpt" ), names( tree.getChildren() ) );
+    assertNull( tree.getChildren().get( 1 ).getChildren() );
+  }
+
+  @Test
+  public void testWalkParallelMatchesSequential() throws Exception {
+    final ExecutorService executor = MoreExecutors.newDirectExecutorService();
+    RepositoryRequest request = new RepositoryRequest( "/root", false, -1, "*.prpt" );
+    RepositoryFileTree sequential = walker( request ).walk( session, pentahoJcrConstants, root );
+    RepositoryFileTree parallel = walker( request ).parallel( executor, new JcrRepositoryFileTreeWalker.SessionRunner() {
+      @Override
+      public <T> T runInSession( JcrRepositoryFileTreeWalker.SessionCallback<T> callback ) throws RepositoryException {
+        return callback.doInSession( session );
+      }
+    } ).walk( session, pentahoJcrConstants, root );
+
+    assertEquals( sequential, parallel );
+  }
+
+  private JcrRepositoryFileTreeWalker walker( final RepositoryRequest request ) {
+    return new JcrRepositoryFileTreeWalker( pathConversionHelper, lockHelper, accessVoterManager, request, "/root" );
+  }
+
+  private List<String> names( final List<RepositoryFileTree> trees ) {
+    List<String> names = new ArrayList<>();
+    for ( RepositoryFileTree tree : trees ) {
+      names.add( tree.getFile().getName() );
+    }
+    return names;
+  }
+
+  private Node folder( final String path, final String name, final Node... children ) throws Exception {
+    Node node = node( path, name, true );
+    when( node.getNodes() ).thenAnswer( invocation -> iterator( Arrays.asList( children ) ) );
+    when( node.getNodes( any( String.class ) ) ).thenAnswer( invocation -> {
+      String filter = invocation.getArgument( 0 );
+      List<Node> matching = new ArrayList<>();
+      for ( Node child : children ) {
+        if ( ChildrenCollectorFilter.matches( child.getName(), filter ) ) {
+          matching.add( child );
+        }
+      }
+      return iterator( matching );
+    } );
+    return node;
+  }
+
+  private Node file( final String path, final String name ) throws Exception {
+    return node( path, name, false );
+  }
+
+  private Node node( final String path, final String name, final boolean folder ) throws Exception {
+    Node node = mock( Node.class );
+    when( node.getPath() ).thenReturn( path );
+    when( node.getName() ).thenReturn( name );
+    when( session.getNode( path ) ).thenReturn( node );
+    RepositoryFile file = new RepositoryFile.Builder( path, name ).path( path ).folder( folder ).build();
+    fileUtils.when( () -> JcrRepositoryFileUtils.isPentahoFolder( pentahoJcrConstants, node ) ).thenReturn( folder );
+    fileUtils.when( () -> JcrRepositoryFileUtils.nodeToFile( session, pentahoJcrConstants, pathConversionHelper,
+        lockHelper, node ) ).thenReturn( file );
+    fileUtils.when( () -> JcrRepositoryFileUtils.nodeToFile( session, pentahoJcrConstants, pathConversionHelper,
+        lockHelper, node, false, null ) ).thenReturn( file );
+    return node;
+  }
+
+  private NodeIterator iterator( final List<Node> nodes ) {
+    final Iterator<Node> iterator = nodes.iterator();
+    NodeIterator nodeIterator = mock( NodeIterator.class );
+    when( nodeIterator.hasNext() ).thenAnswer( invocation -> iterator.hasNext() );
+    when( nodeIterator.nextNode() ).thenAnswer( invocation -> iterator.next() );
+    return nodeIterator;
+  }
+}
@@ -19,16 +19,12 @@ import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.nullable;
 import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.mockStatic;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
-import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
-import java.util.List;
 
-import javax.jcr.AccessDeniedException;
 import javax.jcr.Node;
 import javax.jcr.RepositoryException;
 import javax.jcr.Session;
@@ -38,21 +34,15 @@ import javax.jcr.version.Version;
 import javax.jcr.version.VersionHistory;
 import javax.jcr.version.VersionManager;
 
-import org.apache.commons.lang.mutable.MutableBoolean;
 import org.apache.jackrabbit.core.VersionManagerImpl;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.junit.runner.RunWith;
-import org.mockito.MockedStatic;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.pentaho.platform.api.engine.IPentahoSession;
-import org.pentaho.platform.api.repository2.unified.IRepositoryAccessVoterManager;
 import org.pentaho.platform.api.repository2.unified.IRepositoryVersionManager;
-import org.pentaho.platform.api.repository2.unified.RepositoryFile;
-import org.pentaho.platform.api.repository2.unified.RepositoryFileTree;
-import org.pentaho.platform.api.repository2.unified.RepositoryRequest;
 import org.pentaho.platform.engine.core.system.PentahoSessionHolder;
 import org.pentaho.platform.engine.core.system.PentahoSystem;
 
@@ -258,39 +248,4 @@ public class JcrRepositoryFileUtilsTest {
     // verify version is deleted
     verify( mockVersionHistory ).removeVersion( any() );
   }
-
-  @Test
-  public void testCheckNodeForTree() {
-    List<RepositoryFileTree> children = new ArrayList<>();
-    IPathConversionHelper pathConversionHelper = new DefaultPathConversionHelper();
-    ILockHelper lockHelperMock = mock( ILockHelper.class );
-    IRepositoryAccessVoterManager repositoryAccessVoterManagerMock = mock( IRepositoryAccessVoterManager.class );
-    MutableBoolean foundFiltered = new MutableBoolean();
-    RepositoryFile fileMock = mock( RepositoryFile.class );
-
-    when( fileMock.getId() ).thenReturn( 1 );
-    try ( MockedStatic<JcrRepositoryFileUtils> jcrRepositoryFileUtils = mockStatic( JcrRepositoryFileUtils.class ) ) {
-      jcrRepositoryFileUtils.when( () -> JcrRepositoryFileUtils.checkNodeForTree( nodeMock, children, sessionMock,
-        pJcrConstMock, pathConversionHelper, "childNodeFilter", lockHelperMock, 0, false,
-        repositoryAccessVoterManagerMock, RepositoryRequest.FILES_TYPE_FILTER.FOLDERS, foundFiltered,
-        true, false, "/" ) ).thenCallRealMethod();
-      jcrRepositoryFileUtils.when( () -> JcrRepositoryFileUtils.nodeToFile( sessionMock, pJcrConstMock,
-        pathConversionHelper, lockHelperMock, nodeMock ) ).thenReturn( fileMock );
-      jcrRepositoryFileUtils.when( () -> JcrRepositoryFileUtils.isSupportedNodeType( pJcrConstMock, nodeMock ) )
-        .thenReturn( true );
-
-      try ( MockedStatic<JcrRepositoryFileAclUtils> jcrRepositoryFileAclUtils = mockStatic( JcrRepositoryFileAclUtils.class ) ) {
-        jcrRepositoryFileAclUtils.when( () -> JcrRepositoryFileAclUtils.getAcl( sessionMock, pJcrConstMock, 1 ) )
-          .thenThrow( new AccessDeniedException() );
-
-        try {
-          JcrRepositoryFileUtils.checkNodeForTree( nodeMock, children, sessionMock, pJcrConstMock, pathConversionHelper,
-            "childNodeFilter", lockHelperMock, 0, false, repositoryAccessVoterManagerMock,
-            RepositoryRequest.FILES_TYPE_FILTER.FOLDERS, foundFiltered, true, false, "/" );
-        } catch ( Exception e ) {
-          fail();
-        }
-      }
-    }
-  }
 }
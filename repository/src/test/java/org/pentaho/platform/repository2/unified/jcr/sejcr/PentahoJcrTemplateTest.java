@@ -32,7 +32,7 @@ import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
-import static org.pentaho.platform.repository2.unified.jcr.sejcr.GuavaCachePoolPentahoJcrSessionFactory.USAGE_COUNT;
+import static org.pentaho.platform.repository2.unified.jcr.sejcr.UserSessionPoolPentahoJcrSessionFactory.USAGE_COUNT;
 
 @RunWith( MockitoJUnitRunner.class )
 public class PentahoJcrTemplateTest {
@@ -0,0 +1,231 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.repository2.unified.jcr.sejcr;
+
+import org.apache.jackrabbit.core.SessionImpl;
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.platform.repository2.unified.jcr.sejcr.UserSessionPoolPentahoJcrSessionFactory.PooledSession;
+
+import javax.jcr.Repository;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.SimpleCredentials;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.pentaho.platform.repository2.unified.jcr.sejcr.UserSessionPoolPentahoJcrSessionFactory.USAGE_COUNT;
+
+public class UserSessionPoolPentahoJcrSessionFactoryTest {
+
+  private Repository repository;
+  private UserSessionPoolPentahoJcrSessionFactory factory;
+  private SimpleCredentials creds = new SimpleCredentials( "joe", new char[ 0 ] );
+
+  @Before
+  public void setUp() throws Exception {
+    repository = mock( Repository.class );
+    when( repository.login( any( SimpleCredentials.class ), isNull() ) ).thenAnswer( invocation -> {
+      SessionImpl session = mock( SessionImpl.class );
+      Map<String, Object> attributes = new HashMap<>();
+      doAnswer( set -> attributes.put( set.getArgument( 0 ), set.getArgument( 1 ) ) )
+        .when( session ).setAttribute( anyString(), any() );
+      when( session.getAttribute( anyString() ) ).thenAnswer( get -> attributes.get( get.getArgument( 0 ) ) );
+      when( session.isLive() ).thenReturn( true );
+      return session;
+    } );
+    factory = new UserSessionPoolPentahoJcrSessionFactory( repository, null );
+  }
+
+  @Test
+  public void nestedRequestsOnOneThreadShareTheSession() throws Exception {
+    Session outer = factory.getSession( creds );
+    Session nested = factory.getSession( creds );
+
+    assertSame( outer, nested );
+    assertEquals( 1, factory.getPoolSize() );
+    assertEquals( 1, factory.getCheckoutCount() );
+    verify( repository, times( 1 ) ).login( any( SimpleCredentials.class ), isNull() );
+  }
+
+  @Test
+  public void borrowedSessionIsNotHandedToAnotherThread() throws Exception {
+    Session first = factory.getSession( creds );
+
+    Session second = runOnOtherThread( false );
+
+    assertNotSame( first, second );
+    assertEquals( 2, factory.getPoolSize() );
+    assertEquals( 0, factory.getReuseCount() );
+  }
+
+  @Test
+  public void returnedSessionIsReused() throws Exception {
+    Session first = runOnOtherThread( true );
+
+    Session second = factory.getSession( creds );
+
+    assertSame( first, second );
+    assertEquals( 1, factory.getPoolSize() );
+    assertEquals( 0, factory.getIdleSessionCount() );
+    assertEquals( 1, factory.getReuseCount() );
+    verify( repository, times( 1 ) ).login( any( SimpleCredentials.class ), isNull() );
+  }
+
+  @Test
+  public void returnedSessionGoesBackToTheThreadThatHeldItLast() throws Exception {
+    Session first = factory.getSession( creds );
+    CountDownLatch firstReturned = new CountDownLatch( 1 );
+    AtomicReference<Session> other = new AtomicReference<>();
+    Thread thread = new Thread( () -> {
+      Session session = getSession();
+      other.set( session );
+      try {
+        firstReturned.await();
+      } catch ( InterruptedException e ) {
+        Thread.currentThread().interrupt();
+      }
+      release( session );
+    } );
+    thread.start();
+    while ( other.get() == null ) {
+      Thread.yield();
+    }
+    release( first );
+    firstReturned.countDown();
+    thread.join();
+    // the other session was returned last
+    assertNotSame( first, other.get() );
+    assertEquals( 2, factory.getIdleSessionCount() );
+
+    assertSame( first, factory.getSession( creds ) );
+  }
+
+  @Test
+  public void requestsAtTheUserLimitGetAnUnpooledSessionAfterTheTimeout() throws Exception {
+    factory.setMaxSessionsPerUser( 1 );
+    factory.setWaitTimeout( 10, TimeUnit.MILLISECONDS );
+    Session first = factory.getSession( creds );
+
+    Session unpooled = runOnOtherThread( true );
+
+    assertNotSame( first, unpooled );
+    verify( unpooled ).logout();
+    assertEquals( 1, factory.getPoolSize() );
+    assertEquals( 1, factory.getWaitCount() );
+    assertEquals( 1, factory.getWaitTimeoutCount() );
+  }
+
+  @Test
+  public void requestsAtTheUserLimitWaitForAReturnedSession() throws Exception {
+    factory.setMaxSessionsPerUser( 1 );
+    factory.setWaitTimeout( 30, TimeUnit.SECONDS );
+    Session first = factory.getSession( creds );
+    AtomicReference<Session> waited = new AtomicReference<>();
+    Thread thread = new Thread( () -> waited.set( getSession() ) );
+    thread.start();
+    while ( thread.getState() != Thread.State.TIMED_WAITING ) {
+      Thread.yield();
+    }
+
+    release( first );
+    thread.join();
+
+    assertSame( first, waited.get() );
+    assertEquals( 1, factory.getWaitCount() );
+    assertEquals( 0, factory.getWaitTimeoutCount() );
+  }
+
+  @Test
+  public void sweepLogsOutSessionsThatAreNotReturned() throws Exception {
+    factory.setCacheDuration( 0 );
+    Session first = factory.getSession( creds );
+
+    Session second = factory.getSession( creds );
+
+    assertNotSame( first, second );
+    verify( first ).logout();
+    assertEquals( 1, factory.getPoolSize() );
+  }
+
+  @Test
+  public void lazyRefreshSkipsSessionsWithoutPendingChanges() throws Exception {
+    factory.setRefreshPolicy( UserSessionPoolPentahoJcrSessionFactory.RefreshPolicy.LAZY );
+    Session session = runOnOtherThread( true );
+    verify( session, never() ).refresh( false );
+
+    when( session.hasPendingChanges() ).thenReturn( true );
+    factory.getSession( creds );
+
+    verify( session, times( 1 ) ).refresh( false );
+    assertEquals( 1, factory.getRefreshCount() );
+  }
+
+  @Test
+  public void loggedOutSessionIsReplaced() throws Exception {
+    Session first = factory.getSession( creds );
+    when( first.isLive() ).thenReturn( false );
+
+    Session second = factory.getSession( creds );
+
+    assertNotSame( first, second );
+    assertEquals( 1, factory.getPoolSize() );
+  }
+
+  /**
+   * Returns the session like {@link PentahoJcrTemplate} does once it is no longer used.
+   */
+  private static void release( Session session ) {
+    ( (PooledSession) session.getAttribute( USAGE_COUNT ) ).released();
+  }
+
+  private Session getSession() {
+    try {
+      return factory.getSession( creds );
+    } catch ( RepositoryException e ) {
+      throw new IllegalStateException( e );
+    }
+  }
+
+  /**
+   * Gets a session on a new thread, optionally returns it, and waits for the thread to terminate.
+   */
+  private Session runOnOtherThread( boolean release ) throws Exception {
+    AtomicReference<Session> session = new AtomicReference<>();
+    Thread thread = new Thread( () -> {
+      session.set( getSession() );
+      if ( release ) {
+        release( session.get() );
+      }
+    } );
+    thread.start();
+    thread.join();
+    return session.get();
+  }
+}
@@ -0,0 +1,115 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.security.policy.rolebased;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.platform.api.engine.IAuthorizationAction;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class RoleAuthorizationPolicyTest {
+
+  private IRoleAuthorizationPolicyRoleBindingDao dao;
+
+  private RoleAuthorizationPolicy policy;
+
+  @Before
+  public void setUp() {
+    dao = mock( IRoleAuthorizationPolicyRoleBindingDao.class );
+    List<IAuthorizationAction> actions = Arrays.asList( action( "org.pentaho.repository.read" ),
+        action( "org.pentaho.repository.create" ), action( "org.pentaho.security.administerSecurity" ) );
+    when( dao.getAuthorizationActions() ).thenReturn( actions );
+    when( dao.getBoundLogicalRoleNames( anyList() ) ).thenReturn(
+        Arrays.asList( "org.pentaho.repository.read", "org.pentaho.repository.create", "custom.role" ) );
+    policy = new RoleAuthorizationPolicy( dao );
+    SecurityContextHolder.getContext().setAuthentication( new UsernamePasswordAuthenticationToken( "joe", null,
+        Collections.<GrantedAuthority>singletonList( new SimpleGrantedAuthority( "Power User" ) ) ) );
+  }
+
+  @After
+  public void tearDown() {
+    SecurityContextHolder.clearContext();
+  }
+
+  @Test
+  public void testLogicalRolesAreResolvedOncePerAuthentication() {
+    when( dao.getRoleBindingsVersion() ).thenReturn( 1L );
+
+    for ( int i = 0; i < 10; i++ ) {
+      assertTrue( policy.isAllowed( "org.pentaho.repository.read" ) );
+      assertFalse( policy.isAllowed( "org.pentaho.security.administerSecurity" ) );
+      assertTrue( policy.isAllowed( "custom.role" ) );
+      assertFalse( policy.isAllowed( "unknown.role" ) );
+    }
+    assertEquals( Arrays.asList( "org.pentaho.repository.read", "org.pentaho.repository.create" ),
+        policy.getAllowedActions( "org.pentaho.repository" ) );
+    verify( dao, times( 1 ) ).getBoundLogicalRoleNames( anyList() );
+  }
+
+  @Test
+  public void testLogicalRolesAreResolvedAgainWhenBindingsChange() {
+    when( dao.getRoleBindingsVersion() ).thenReturn( 1L );
+    assertFalse( policy.isAllowed( "org.pentaho.security.administerSecurity" ) );
+
+    when( dao.getRoleBindingsVersion() ).thenReturn( 2L );
+    when( dao.getBoundLogicalRoleNames( anyList() ) ).thenReturn(
+        Arrays.asList( "org.pentaho.security.administerSecurity" ) );
+    assertTrue( policy.isAllowed( "org.pentaho.security.administerSecurity" ) );
+    assertFalse( policy.isAllowed( "org.pentaho.repository.read" ) );
+    verify( dao, times( 2 ) ).getBoundLogicalRoleNames( anyList() );
+  }
+
+  @Test
+  public void testLogicalRolesAreResolvedForEachAuthentication() {
+    when( dao.getRoleBindingsVersion() ).thenReturn( 1L );
+    assertTrue( policy.isAllowed( "org.pentaho.repository.read" ) );
+
+    SecurityContextHolder.getContext().setAuthentication( new UsernamePasswordAuthenticationToken( "joe", null,
+        Collections.<GrantedAuthority>singletonList( new SimpleGrantedAuthority( "Power User" ) ) ) );
+    assertTrue( policy.isAllowed( "org.pentaho.repository.read" ) );
+    verify( dao, times( 2 ) ).getBoundLogicalRoleNames( anyList() );
+  }
+
+  @Test
+  public void testLogicalRolesAreNotKeptWithoutVersion() {
+    when( dao.getRoleBindingsVersion() ).thenReturn( -1L );
+
+    assertTrue( policy.isAllowed( "org.pentaho.repository.read" ) );
+    assertTrue( policy.isAllowed( "org.pentaho.repository.read" ) );
+    verify( dao, times( 2 ) ).getBoundLogicalRoleNames( anyList() );
+  }
+
+  private static IAuthorizationAction action( String name ) {
+    IAuthorizationAction action = mock( IAuthorizationAction.class );
+    when( action.getName() ).thenReturn( name );
+    return action;
+  }
+}